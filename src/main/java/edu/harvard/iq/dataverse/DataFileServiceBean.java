@@ -70,6 +70,9 @@ public class DataFileServiceBean implements java.io.Serializable {
     
     @EJB
     StorageUseServiceBean storageUseService; 
+
+    @EJB
+    StorageCleanupServiceBean storageCleanupService;
     
     @PersistenceContext(unitName = "VDCNet-ejbPU")
     private EntityManager em;
@@ -789,6 +792,19 @@ public class DataFileServiceBean implements java.io.Serializable {
         } 
     }
     
+    /**
+     * Updates the thumbnail flags of the file directly, without merging the 
+     * (potentially stale) entity. Used by the background thumbnail queue.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void setPreviewImageStatus(Long dataFileId, boolean previewImageAvailable, boolean previewImageFail) {
+        em.createNativeQuery("UPDATE dvobject SET previewimageavailable = ?, previewimagefail = ? WHERE id = ?")
+                .setParameter(1, previewImageAvailable)
+                .setParameter(2, previewImageFail)
+                .setParameter(3, dataFileId)
+                .executeUpdate();
+    }
+    
     private void msg(String m){
         System.out.println(m);
     }
@@ -967,6 +983,10 @@ public class DataFileServiceBean implements java.io.Serializable {
             this.save(file);
             return true;
         }
+        if (ImageThumbConverter.isThumbnailGenerationPending(file, ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE)) {
+            // not a failure (yet) - the thumbnail is being generated in the background
+            return false;
+        }
         file.setPreviewImageFail(true);
         file.setPreviewImageAvailable(false);
         this.save(file);
@@ -1270,17 +1290,22 @@ public class DataFileServiceBean implements java.io.Serializable {
         directStorageAccess.delete();
     }
     
+    /**
+     * Queues the physical files of deleted DataFiles for deletion; they are
+     * deleted in the background, in batches, by StorageCleanupDispatcherServiceBean.
+     */
     public void finalizeFileDeletes(Map<Long, String> storageLocations) {
-        storageLocations.keySet().stream().forEach((dataFileId) -> {
-            String storageLocation = storageLocations.get(dataFileId);
-
-            try {
-                finalizeFileDelete(dataFileId, storageLocation);
-            } catch (IOException ioex) {
-                logger.warning("Failed to delete the physical file associated with the deleted datafile id="
-                        + dataFileId + ", storage location: " + storageLocation);
+        Map<Long, String> toDelete = new HashMap<>();
+        storageLocations.forEach((dataFileId, storageLocation) -> {
+            if (storageLocation == null || storageLocation.isBlank()) {
+                logger.warning("Attempted to delete a physical file with no location (id: " + dataFileId + ")");
+            } else {
+                toDelete.put(dataFileId, storageLocation);
             }
         });
+        if (!toDelete.isEmpty()) {
+            storageCleanupService.enqueue(toDelete);
+        }
     }
     
     public Map<Long, String> getPhysicalFilesToDelete(DatasetVersion datasetVersion) {
@@ -1,6 +1,5 @@
 package edu.harvard.iq.dataverse;
 
-import java.io.IOException;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -12,15 +11,22 @@ import java.text.MessageFormat;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
+import jakarta.annotation.Resource;
 import jakarta.ejb.EJB;
+import jakarta.ejb.EJBException;
+import jakarta.ejb.SessionContext;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import jakarta.inject.Named;
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
@@ -40,16 +46,9 @@ import jakarta.persistence.PersistenceException;
 import jakarta.persistence.TypedQuery;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpResponseInterceptor;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.protocol.HttpContext;
-import org.apache.http.util.EntityUtils;
+import edu.harvard.iq.dataverse.search.IndexServiceBean;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 
 /**
@@ -68,6 +67,20 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
     @EJB
     SettingsServiceBean settingsService;
 
+    @EJB
+    MetadataSchemaRegistryBean metadataSchemaRegistry;
+
+    @EJB
+    ExternalVocabularyClientServiceBean externalVocabularyClientService;
+
+    @EJB
+    IndexServiceBean indexService;
+
+    @Resource
+    SessionContext sessionContext;
+
+    private static final long DEFAULT_CVOC_REFRESH_AFTER_SECONDS = 30L * 24 * 60 * 60;
+
     private static final String NAME_QUERY = "SELECT dsfType from DatasetFieldType dsfType where dsfType.name= :fieldName";
     
     /*
@@ -106,7 +119,16 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
         return em.createQuery("select object(o) from DatasetFieldType as o where o.required = true order by o.id", DatasetFieldType.class).getResultList();
     }
 
+    /**
+     * @return all the dataset field types, ordered by id. These come from the
+     * in-memory {@link MetadataSchemaSnapshot} (when available) and must not be
+     * modified.
+     */
     public List<DatasetFieldType> findAllOrderedById() {
+        MetadataSchemaSnapshot snapshot = getSchemaSnapshot();
+        if (snapshot != null) {
+            return snapshot.getDatasetFieldTypesOrderedById();
+        }
         return em.createQuery("select object(o) from DatasetFieldType as o order by o.id", DatasetFieldType.class).getResultList();
     }
 
@@ -119,6 +141,10 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
     }
 
     public DatasetFieldType findByName(String name) {
+        DatasetFieldType dsft = findBySnapshotId(name);
+        if (dsft != null) {
+            return dsft;
+        }
         try {
             return  (DatasetFieldType) em.createQuery(NAME_QUERY).setParameter("fieldName", name).getSingleResult();
         } catch (NoResultException e) {
@@ -136,6 +162,10 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * @see #findByName(java.lang.String)
      */
     public DatasetFieldType findByNameOpt(String name) {
+        DatasetFieldType dsft = findBySnapshotId(name);
+        if (dsft != null) {
+            return dsft;
+        }
         try {
             return em.createNamedQuery("DatasetFieldType.findByName", DatasetFieldType.class)
                     .setParameter("name", name)
@@ -145,6 +175,34 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
         }
     }
 
+    private DatasetFieldType findBySnapshotId(String name) {
+        MetadataSchemaSnapshot snapshot = getSchemaSnapshot();
+        Long id = snapshot == null ? null : snapshot.getDatasetFieldTypeId(name);
+        if (id != null) {
+            // (the snapshot may be stale, if the blocks were just reloaded on another server)
+            DatasetFieldType dsft = em.find(DatasetFieldType.class, id);
+            if (dsft != null && dsft.getName().equals(name)) {
+                return dsft;
+            }
+        }
+        return null;
+    }
+
+    private MetadataSchemaSnapshot getSchemaSnapshot() {
+        return metadataSchemaRegistry == null ? null : metadataSchemaRegistry.getSnapshot();
+    }
+
+    private ControlledVocabularyValue findControlledVocabularyValueBySnapshotId(Long id, DatasetFieldType dsft) {
+        if (id != null) {
+            ControlledVocabularyValue cvv = em.find(ControlledVocabularyValue.class, id);
+            if (cvv != null && (dsft == null ? cvv.getDatasetFieldType() == null
+                    : cvv.getDatasetFieldType() != null && dsft.getId().equals(cvv.getDatasetFieldType().getId()))) {
+                return cvv;
+            }
+        }
+        return null;
+    }
+
     /* 
      * Similar method for looking up foreign metadata field mappings, for metadata
      * imports. for these the uniquness of names isn't guaranteed (i.e., there 
@@ -178,6 +236,23 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * @return The ControlledVocabularyValue found or null.
      */
     public ControlledVocabularyValue findControlledVocabularyValueByDatasetFieldTypeAndStrValue(DatasetFieldType dsft, String strValue, boolean lenient) {
+        MetadataSchemaSnapshot snapshot = getSchemaSnapshot();
+        if (snapshot != null && dsft.getId() != null) {
+            Long cvvId = snapshot.getControlledVocabularyValueId(dsft.getId(), strValue, false);
+            if (cvvId != null) {
+                ControlledVocabularyValue cvv = findControlledVocabularyValueBySnapshotId(cvvId, dsft);
+                if (cvv != null && cvv.getStrValue().equals(strValue)) {
+                    return cvv;
+                }
+            } else if (lenient) {
+                // (an alternate spelling can't be verified on the value it maps to)
+                ControlledVocabularyValue cvv = findControlledVocabularyValueBySnapshotId(
+                        snapshot.getControlledVocabularyValueId(dsft.getId(), strValue, true), dsft);
+                if (cvv != null) {
+                    return cvv;
+                }
+            }
+        }
         TypedQuery<ControlledVocabularyValue> typedQuery = em.createQuery("SELECT OBJECT(o) FROM ControlledVocabularyValue AS o WHERE o.strValue = :strvalue AND o.datasetFieldType = :dsft", ControlledVocabularyValue.class);       
         typedQuery.setParameter("strvalue", strValue);
         typedQuery.setParameter("dsft", dsft);
@@ -227,6 +302,14 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * @return The ControlledVocabularyValue found or null.
      */
     public ControlledVocabularyValue findControlledVocabularyValueByDatasetFieldTypeAndIdentifier (DatasetFieldType dsft, String identifier)  {
+        MetadataSchemaSnapshot snapshot = getSchemaSnapshot();
+        if (snapshot != null && dsft.getId() != null) {
+            ControlledVocabularyValue cvv = findControlledVocabularyValueBySnapshotId(
+                    snapshot.getControlledVocabularyValueIdByIdentifier(dsft.getId(), identifier), dsft);
+            if (cvv != null && identifier.equals(cvv.getIdentifier())) {
+                return cvv;
+            }
+        }
         TypedQuery<ControlledVocabularyValue> typedQuery = em.createQuery("SELECT OBJECT(o) FROM ControlledVocabularyValue AS o WHERE o.identifier = :identifier AND o.datasetFieldType = :dsft", ControlledVocabularyValue.class);       
         typedQuery.setParameter("identifier", identifier);
         typedQuery.setParameter("dsft", dsft);
@@ -240,6 +323,13 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
 
     // return singleton NA Controled Vocabulary Value
     public ControlledVocabularyValue findNAControlledVocabularyValue() {
+        MetadataSchemaSnapshot snapshot = getSchemaSnapshot();
+        if (snapshot != null) {
+            ControlledVocabularyValue cvv = findControlledVocabularyValueBySnapshotId(snapshot.getNAControlledVocabularyValueId(), null);
+            if (cvv != null && DatasetField.NA_VALUE.equals(cvv.getStrValue())) {
+                return cvv;
+            }
+        }
         TypedQuery<ControlledVocabularyValue> typedQuery = em.createQuery("SELECT OBJECT(o) FROM ControlledVocabularyValue AS o WHERE o.datasetFieldType is null AND o.strValue = :strvalue", ControlledVocabularyValue.class);
         typedQuery.setParameter("strvalue", DatasetField.NA_VALUE);
         return typedQuery.getSingleResult();
@@ -347,30 +437,59 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * @param df - the primitive/parent compound field containing a newly saved value
      */
     public void registerExternalVocabValues(DatasetField df) {
-        DatasetFieldType dft = df.getDatasetFieldType();
-        logger.fine("Registering for field: " + dft.getName());
-        JsonObject cvocEntry = getCVocConf(true).get(dft.getId());
-        if (dft.isPrimitive()) {
-            List<DatasetField> siblingsDatasetFields = new ArrayList<>();
-            if(dft.getParentDatasetFieldType()!=null) {
-                siblingsDatasetFields = df.getParentDatasetFieldCompoundValue().getChildDatasetFields();
-            }
-            for (DatasetFieldValue dfv : df.getDatasetFieldValues()) {
-                registerExternalTerm(cvocEntry, dfv.getValue(), siblingsDatasetFields);
-            }
-        } else {
-            if (df.getDatasetFieldType().isCompound()) {
-                DatasetFieldType termdft = findByNameOpt(cvocEntry.getString("term-uri-field"));
-                for (DatasetFieldCompoundValue cv : df.getDatasetFieldCompoundValues()) {
-                    for (DatasetField cdf : cv.getChildDatasetFields()) {
-                        logger.fine("Found term uri field type id: " + cdf.getDatasetFieldType().getId());
-                        if (cdf.getDatasetFieldType().equals(termdft)) {
-                            registerExternalTerm(cvocEntry, cdf.getValue(), cv.getChildDatasetFields());
+        registerExternalVocabValues(List.of(df));
+    }
+
+    /**
+     * Adds information about the external vocabulary terms being used in these
+     * DatasetFields to the ExternalVocabularyValue table if it doesn't already
+     * exist (or is older than {@link JvmSettings#CVOC_REFRESH_AFTER}). All the
+     * terms that need to be retrieved are retrieved concurrently, see
+     * {@link ExternalVocabularyClient}, once the current transaction has
+     * committed.
+     *
+     * @param datasetFields - the primitive/parent compound fields containing newly saved values
+     */
+    public void registerExternalVocabValues(Collection<DatasetField> datasetFields) {
+        registerExternalVocabValues(datasetFields, null);
+    }
+
+    /**
+     * Same as {@link #registerExternalVocabValues(Collection)}; the dataset
+     * is reindexed once any terms retrieved have been saved, so that they are
+     * searchable.
+     *
+     * @param dataset - the dataset the fields belong to; may be null
+     */
+    public void registerExternalVocabValues(Collection<DatasetField> datasetFields, Dataset dataset) {
+        Map<String, ExternalTerm> terms = new LinkedHashMap<>();
+        for (DatasetField df : datasetFields) {
+            DatasetFieldType dft = df.getDatasetFieldType();
+            logger.fine("Registering for field: " + dft.getName());
+            JsonObject cvocEntry = getCVocConf(true).get(dft.getId());
+            if (dft.isPrimitive()) {
+                List<DatasetField> siblingsDatasetFields = new ArrayList<>();
+                if(dft.getParentDatasetFieldType()!=null) {
+                    siblingsDatasetFields = df.getParentDatasetFieldCompoundValue().getChildDatasetFields();
+                }
+                for (DatasetFieldValue dfv : df.getDatasetFieldValues()) {
+                    addExternalTerm(terms, cvocEntry, dfv.getValue(), siblingsDatasetFields);
+                }
+            } else {
+                if (df.getDatasetFieldType().isCompound()) {
+                    DatasetFieldType termdft = findByNameOpt(cvocEntry.getString("term-uri-field"));
+                    for (DatasetFieldCompoundValue cv : df.getDatasetFieldCompoundValues()) {
+                        for (DatasetField cdf : cv.getChildDatasetFields()) {
+                            logger.fine("Found term uri field type id: " + cdf.getDatasetFieldType().getId());
+                            if (cdf.getDatasetFieldType().equals(termdft)) {
+                                addExternalTerm(terms, cvocEntry, cdf.getValue(), cv.getChildDatasetFields());
+                            }
                         }
                     }
                 }
             }
         }
+        registerExternalTerms(terms.values(), dataset);
     }
 
     /**
@@ -485,6 +604,19 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * @param relatedDatasetFields  - siblings or childs of the term
      */
     public void registerExternalTerm(JsonObject cvocEntry, String term, List<DatasetField> relatedDatasetFields) {
+        Map<String, ExternalTerm> terms = new LinkedHashMap<>();
+        addExternalTerm(terms, cvocEntry, term, relatedDatasetFields);
+        registerExternalTerms(terms.values(), dataset);
+    }
+
+    /**
+     * A term to register, with the configuration of its field and the URI to
+     * retrieve it from.
+     */
+    private record ExternalTerm(JsonObject cvocEntry, String term, String retrievalUri) {
+    }
+
+    private void addExternalTerm(Map<String, ExternalTerm> terms, JsonObject cvocEntry, String term, List<DatasetField> relatedDatasetFields) {
         String retrievalUri = cvocEntry.getString("retrieval-uri");
         String termUriFieldName = cvocEntry.getString("term-uri-field");
         String prefix = cvocEntry.getString("prefix", null);
@@ -492,6 +624,9 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
             logger.fine("Ignoring blank term");
             return;
         }
+        if (terms.containsKey(term)) {
+            return;
+        }
 
         boolean isExternal = false;
         JsonObject vocabs = cvocEntry.getJsonObject("vocabs");
@@ -512,86 +647,115 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
         try {
             //Assure the term is in URI form - should be if the uriSpace entry was correct
             new URI(term);
-            ExternalVocabularyValue evv = null;
-            try {
-                evv = em.createQuery("select object(o) from ExternalVocabularyValue as o where o.uri=:uri",
-                        ExternalVocabularyValue.class).setParameter("uri", term).getSingleResult();
-            } catch (NoResultException nre) {
-                evv = new ExternalVocabularyValue(term, null);
+        } catch (URISyntaxException e) {
+            logger.fine("Term is not a URI: " + term);
+            return;
+        }
+        String adjustedTerm = (prefix==null)? term: term.replace(prefix, "");
+
+        try {
+            retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, "0", adjustedTerm);
+            retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, termUriFieldName, adjustedTerm);
+            for (DatasetField f : relatedDatasetFields) {
+                retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, f.getDatasetFieldType().getName(), f.getValue());
             }
-            if (evv.getValue() == null) {
-                String adjustedTerm = (prefix==null)? term: term.replace(prefix, "");
+        } catch (InvalidParameterException e) {
+            logger.warning("InvalidParameterException in tryReplaceRetrievalUriParam : " + e.getMessage());
+            return;
+        }
+        if (retrievalUri.contains("{")) {
+            logger.severe("Retrieval URI still contains unreplaced parameter :" + retrievalUri);
+            return;
+        }
+        terms.put(term, new ExternalTerm(cvocEntry, term, retrievalUri));
+    }
 
-                try {
-                    retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, "0", adjustedTerm);
-                    retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, termUriFieldName, adjustedTerm);
-                    for (DatasetField f : relatedDatasetFields) {
-                        retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, f.getDatasetFieldType().getName(), f.getValue());
-                    }
-                } catch (InvalidParameterException e) {
-                    logger.warning("InvalidParameterException in tryReplaceRetrievalUriParam : " + e.getMessage());
-                    return;
-                }
-                if (retrievalUri.contains("{")) {
-                    logger.severe("Retrieval URI still contains unreplaced parameter :" + retrievalUri);
-                    return;
-                }
+    /**
+     * Retrieves the terms that aren't in the ExternalVocabularyValue table yet
+     * (or are due for a refresh) and saves what the services returned.
+     */
+    private void registerExternalTerms(Collection<ExternalTerm> terms, Dataset dataset) {
+        if (terms.isEmpty()) {
+            return;
+        }
+        Map<String, ExternalVocabularyValue> existing = new HashMap<>();
+        for (ExternalVocabularyValue evv : em.createQuery("select object(o) from ExternalVocabularyValue as o where o.uri in :uris",
+                ExternalVocabularyValue.class).setParameter("uris", terms.stream().map(ExternalTerm::term).toList()).getResultList()) {
+            existing.put(evv.getUri(), evv);
+        }
 
-                logger.fine("Didn't find " + term + ", calling " + retrievalUri);
-                try (CloseableHttpClient httpClient = HttpClients.custom()
-                        .addInterceptorLast(new HttpResponseInterceptor() {
-                            @Override
-                            public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
-                                int statusCode = response.getStatusLine().getStatusCode();
-                                if (statusCode == 504) {
-                                    //Throwing an exception triggers the retry handler
-                                    throw new IOException("Retry due to 504 response");
-                                }
-                            }
-                        })
-                        //The retry handler will also do retries for network errors/other things that cause an IOException
-                        .setRetryHandler(new DefaultHttpRequestRetryHandler(3, false))
-                        .build()) {
-                    HttpGet httpGet = new HttpGet(retrievalUri);
-                    //application/json+ld is for backward compatibility
-                    httpGet.addHeader("Accept", "application/ld+json, application/json+ld, application/json");
-                    //Adding others custom HTTP request headers if exists
-                    final JsonObject headers = cvocEntry.getJsonObject("headers");
-                    if (headers != null) {
-                        final Set<String> headerKeys = headers.keySet();
-                        for (final String hKey: headerKeys) {
-                            httpGet.addHeader(hKey, headers.getString(hKey));
-                        }
-                    }
-                    HttpResponse response = httpClient.execute(httpGet);
-                    String data = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-                    int statusCode = response.getStatusLine().getStatusCode();
-                    if (statusCode == 200) {
-                        logger.fine("Returned data: " + data);
-                        try (JsonReader jsonReader = Json.createReader(new StringReader(data))) {
-                            String dataObj = filterResponse(cvocEntry, jsonReader.readObject(), term).toString();
-                            evv.setValue(dataObj);
-                            evv.setLastUpdateDate(Timestamp.from(Instant.now()));
-                            logger.fine("JsonObject: " + dataObj);
-                            em.merge(evv);
-                            em.flush();
-                            logger.fine("Wrote value for term: " + term);
-                        } catch (JsonException je) {
-                            logger.severe("Error retrieving: " + retrievalUri + " : " + je.getMessage());
-                        } catch (PersistenceException e) {
-                            logger.fine("Problem persisting: " + retrievalUri + " : " + e.getMessage());
-                        }
-                    } else {
-                        logger.severe("Received response code : " + statusCode + " when retrieving " + retrievalUri
-                                + " : " + data);
-                    }
-                } catch (IOException ioe) {
-                    logger.severe("IOException when retrieving url: " + retrievalUri + " : " + ioe.getMessage());
-                }
+        long refreshAfterMillis = JvmSettings.CVOC_REFRESH_AFTER.lookupOptional(Long.class).orElse(DEFAULT_CVOC_REFRESH_AFTER_SECONDS) * 1000L;
+        Instant refreshBefore = Instant.now().minusMillis(refreshAfterMillis);
+        Map<String, ExternalTerm> toRetrieve = new HashMap<>();
+        List<ExternalVocabularyClient.TermRequest> requests = new ArrayList<>();
+        for (ExternalTerm term : terms) {
+            ExternalVocabularyValue evv = existing.get(term.term());
+            if (evv != null && evv.getValue() != null
+                    && (refreshAfterMillis <= 0 || evv.getLastUpdateDate() == null || evv.getLastUpdateDate().toInstant().isAfter(refreshBefore))) {
+                continue;
             }
-        } catch (URISyntaxException e) {
-            logger.fine("Term is not a URI: " + term);
+            logger.fine("Didn't find " + term.term() + " (or it is due for a refresh), calling " + term.retrievalUri());
+            toRetrieve.put(term.term(), term);
+            requests.add(new ExternalVocabularyClient.TermRequest(term.term(), term.retrievalUri(), term.cvocEntry().getJsonObject("headers")));
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+
+        // Retrieved after the commit, so that the transaction and the rows the
+        // command holds locked aren't kept waiting on the services; only
+        // business methods (in transactions of their own) are called from there,
+        // as this instance may be serving another call by then:
+        DatasetFieldServiceBean self = sessionContext.getBusinessObject(DatasetFieldServiceBean.class);
+        IndexServiceBean index = indexService;
+        externalVocabularyClientService.retrieveAllAfterCommit(requests, retrieved -> {
+            if (saveRetrievedTerms(self, toRetrieve, retrieved) > 0 && dataset != null && dataset.getId() != null) {
+                index.indexDatasetInNewTransaction(dataset.getId());
+            }
+        });
+    }
+
+    /**
+     * @return the number of terms saved
+     */
+    private int saveRetrievedTerms(DatasetFieldServiceBean self, Map<String, ExternalTerm> toRetrieve, Map<String, JsonObject> retrieved) {
+        int written = 0;
+        for (Map.Entry<String, JsonObject> entry : retrieved.entrySet()) {
+            ExternalTerm term = toRetrieve.get(entry.getKey());
+            String dataObj;
+            try {
+                dataObj = filterResponse(term.cvocEntry(), entry.getValue(), term.term()).toString();
+            } catch (JsonException je) {
+                logger.severe("Error retrieving: " + term.retrievalUri() + " : " + je.getMessage());
+                continue;
+            }
+            logger.fine("JsonObject: " + dataObj);
+            // each term in its own transaction, so that one that fails (e.g.
+            // because it was just written by another save) doesn't lose the others:
+            try {
+                self.saveExternalVocabularyValue(term.term(), dataObj);
+                written++;
+            } catch (EJBException | PersistenceException e) {
+                logger.fine("Problem persisting: " + term.retrievalUri() + " : " + e.getMessage());
+            }
+        }
+        logger.fine("Wrote values for " + written + " terms");
+        return written;
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void saveExternalVocabularyValue(String term, String value) {
+        ExternalVocabularyValue evv;
+        try {
+            evv = em.createQuery("select object(o) from ExternalVocabularyValue as o where o.uri=:uri",
+                    ExternalVocabularyValue.class).setParameter("uri", term).getSingleResult();
+        } catch (NoResultException nre) {
+            evv = new ExternalVocabularyValue(term, null);
         }
+        evv.setValue(value);
+        evv.setLastUpdateDate(Timestamp.from(Instant.now()));
+        em.merge(evv);
+        em.flush();
     }
 
     private String tryToReplaceRetrievalUriParam(String retrievalUri, String paramName, String value) throws InvalidParameterException {
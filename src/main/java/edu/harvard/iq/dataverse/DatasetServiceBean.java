@@ -8,6 +8,7 @@ import edu.harvard.iq.dataverse.authorization.users.User;
 import edu.harvard.iq.dataverse.dataaccess.DataAccess;
 import edu.harvard.iq.dataverse.dataaccess.ImageThumbConverter;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
+import edu.harvard.iq.dataverse.dataaccess.UnsupportedDataAccessOperationException;
 import edu.harvard.iq.dataverse.dataset.DatasetUtil;
 import edu.harvard.iq.dataverse.datavariable.DataVariable;
 import edu.harvard.iq.dataverse.engine.command.CommandContext;
@@ -17,6 +18,7 @@ import edu.harvard.iq.dataverse.engine.command.impl.DestroyDatasetCommand;
 import edu.harvard.iq.dataverse.engine.command.impl.FinalizeDatasetPublicationCommand;
 import edu.harvard.iq.dataverse.engine.command.impl.GetDatasetStorageSizeCommand;
 import edu.harvard.iq.dataverse.export.ExportService;
+import edu.harvard.iq.dataverse.export.MetadataExportJobServiceBean;
 import edu.harvard.iq.dataverse.globus.GlobusServiceBean;
 import edu.harvard.iq.dataverse.harvest.server.OAIRecordServiceBean;
 import edu.harvard.iq.dataverse.search.IndexServiceBean;
@@ -26,9 +28,7 @@ import edu.harvard.iq.dataverse.util.SystemConfig;
 import edu.harvard.iq.dataverse.workflows.WorkflowComment;
 
 import java.io.*;
-import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.ejb.Asynchronous;
@@ -81,6 +81,9 @@ public class DatasetServiceBean implements java.io.Serializable {
     @EJB
     OAIRecordServiceBean recordService;
 
+    @EJB
+    MetadataExportJobServiceBean exportJobService;
+
     @EJB
     EjbDataverseEngine commandEngine;
 
@@ -93,7 +96,12 @@ public class DatasetServiceBean implements java.io.Serializable {
     @EJB
     UserNotificationServiceBean userNotificationService;
 
-    private static final SimpleDateFormat logFormatter = new SimpleDateFormat("yyyy-MM-dd'T'HH-mm-ss");
+
+    /**
+     * The most ids in the {@code IN (...)} list of each of the queries that
+     * retrieve the relationships of the files in {@link #findDeep(Object)}.
+     */
+    public static final int DEEP_FETCH_BATCH_SIZE = 1000;
 
     @PersistenceContext(unitName = "VDCNet-ejbPU")
     protected EntityManager em;
@@ -103,37 +111,45 @@ public class DatasetServiceBean implements java.io.Serializable {
     }
 
     /**
-     * Retrieve a dataset with the deep underlying structure in one query execution.
+     * Retrieve a dataset with the deep underlying structure pre-fetched.
      * This is a more optimal choice when accessing files of a dataset.
      * In a contrast, the find() method does not pre-fetch the file objects and results in point queries when accessing these objects.
      * Since the files have a deep structure, many queries can be prevented by using the findDeep() method, especially for large datasets
      * containing many files, and when iterating over all the files.
      * When you are not going to access the file objects, the default find() method is better because of the lazy loading.
+     * <p>
+     * The dataset and its files are retrieved in one query; each relationship of the files is then retrieved for
+     * all the files at once (in chunks of {@link #DEEP_FETCH_BATCH_SIZE}), with an {@code IN (...)} query, when first
+     * accessed: one query, plus one per relationship for every {@link #DEEP_FETCH_BATCH_SIZE} files, in all (see
+     * DatasetServiceBeanFindDeepIT). (Join-fetching all of them in the same query, as was done before, returns as
+     * many rows per file as the product of the sizes of its collections.)
      * @return a dataset with pre-fetched file objects
      */
     public Dataset findDeep(Object pk) {
         try {
             return (Dataset) em.createNamedQuery("Dataset.findById")
                     .setParameter("id", pk)
-                    // Optimization hints: retrieve all data in one query; this prevents point queries when iterating over the files
-                    .setHint("eclipselink.left-join-fetch", "o.files.ingestRequest")
-                    .setHint("eclipselink.left-join-fetch", "o.files.thumbnailForDataset")
-                    .setHint("eclipselink.left-join-fetch", "o.files.dataTables")
-                    .setHint("eclipselink.left-join-fetch", "o.files.auxiliaryFiles")
-                    .setHint("eclipselink.left-join-fetch", "o.files.ingestReports")
-                    .setHint("eclipselink.left-join-fetch", "o.files.dataFileTags")
-                    .setHint("eclipselink.left-join-fetch", "o.files.fileMetadatas")
-                    .setHint("eclipselink.left-join-fetch", "o.files.fileMetadatas.fileCategories")
-                    .setHint("eclipselink.left-join-fetch", "o.files.fileMetadatas.varGroups")
-                    //.setHint("eclipselink.left-join-fetch", "o.files.guestbookResponses
-                    .setHint("eclipselink.left-join-fetch", "o.files.embargo")
-                    .setHint("eclipselink.left-join-fetch", "o.files.retention")
-                    .setHint("eclipselink.left-join-fetch", "o.files.fileAccessRequests")
-                    .setHint("eclipselink.left-join-fetch", "o.files.owner")
-                    .setHint("eclipselink.left-join-fetch", "o.files.releaseUser")
-                    .setHint("eclipselink.left-join-fetch", "o.files.creator")
-                    .setHint("eclipselink.left-join-fetch", "o.files.alternativePersistentIndentifiers")
-                    .setHint("eclipselink.left-join-fetch", "o.files.roleAssignments")
+                    // Optimization hints: batch-fetch the relationships of the files; this prevents point queries when iterating over the files
+                    .setHint("eclipselink.batch.type", "IN")
+                    .setHint("eclipselink.batch.size", DEEP_FETCH_BATCH_SIZE)
+                    .setHint("eclipselink.batch", "o.files.ingestRequest")
+                    .setHint("eclipselink.batch", "o.files.thumbnailForDataset")
+                    .setHint("eclipselink.batch", "o.files.dataTables")
+                    .setHint("eclipselink.batch", "o.files.auxiliaryFiles")
+                    .setHint("eclipselink.batch", "o.files.ingestReports")
+                    .setHint("eclipselink.batch", "o.files.dataFileTags")
+                    .setHint("eclipselink.batch", "o.files.fileMetadatas")
+                    .setHint("eclipselink.batch", "o.files.fileMetadatas.fileCategories")
+                    .setHint("eclipselink.batch", "o.files.fileMetadatas.varGroups")
+                    //.setHint("eclipselink.batch", "o.files.guestbookResponses
+                    .setHint("eclipselink.batch", "o.files.embargo")
+                    .setHint("eclipselink.batch", "o.files.retention")
+                    .setHint("eclipselink.batch", "o.files.fileAccessRequests")
+                    .setHint("eclipselink.batch", "o.files.owner")
+                    .setHint("eclipselink.batch", "o.files.releaseUser")
+                    .setHint("eclipselink.batch", "o.files.creator")
+                    .setHint("eclipselink.batch", "o.files.alternativePersistentIndentifiers")
+                    .setHint("eclipselink.batch", "o.files.roleAssignments")
                     .getSingleResult();
         } catch (NoResultException | NonUniqueResultException ex) {
             return null;
@@ -696,73 +712,11 @@ public class DatasetServiceBean implements java.io.Serializable {
         exportAllDatasets(false);
     }
 
+    // The datasets are exported by a pool of workers; see
+    // MetadataExportJobServiceBean for the details, and for the progress of
+    // the job.
     public void exportAllDatasets(boolean forceReExport) {
-        Integer countAll = 0;
-        Integer countSuccess = 0;
-        Integer countError = 0;
-        String logTimestamp = logFormatter.format(new Date());
-        Logger exportLogger = Logger.getLogger("edu.harvard.iq.dataverse.harvest.client.DatasetServiceBean." + "ExportAll" + logTimestamp);
-        String logFileName = System.getProperty("com.sun.aas.instanceRoot") + File.separator + "logs" + File.separator + "export_" + logTimestamp + ".log";
-        FileHandler fileHandler;
-        boolean fileHandlerSuceeded;
-        try {
-            fileHandler = new FileHandler(logFileName);
-            exportLogger.setUseParentHandlers(false);
-            fileHandlerSuceeded = true;
-        } catch (IOException | SecurityException ex) {
-            Logger.getLogger(DatasetServiceBean.class.getName()).log(Level.SEVERE, null, ex);
-            return;
-        }
-
-        if (fileHandlerSuceeded) {
-            exportLogger.addHandler(fileHandler);
-        } else {
-            exportLogger = logger;
-        }
-
-        exportLogger.info("Starting an export all job");
-
-        for (Long datasetId : findAllLocalDatasetIds()) {
-            // Potentially, there's a godzillion datasets in this Dataverse.
-            // This is why we go through the list of ids here, and instantiate
-            // only one dataset at a time.
-            Dataset dataset = this.find(datasetId);
-            if (dataset != null) {
-                // Accurate "is published?" test - ?
-                // Answer: Yes, it is! We can't trust dataset.isReleased() alone; because it is a dvobject method
-                // that returns (publicationDate != null). And "publicationDate" is essentially
-                // "the first publication date"; that stays the same as versions get
-                // published and/or deaccessioned. But in combination with !isDeaccessioned()
-                // it is indeed an accurate test.
-                if (dataset.isReleased() && dataset.getReleasedVersion() != null && !dataset.isDeaccessioned()) {
-
-                    // can't trust dataset.getPublicationDate(), no.
-                    Date publicationDate = dataset.getReleasedVersion().getReleaseTime(); // we know this dataset has a non-null released version! Maybe not - SEK 8/19 (We do now! :)
-                    if (forceReExport || (publicationDate != null
-                            && (dataset.getLastExportTime() == null
-                            || dataset.getLastExportTime().before(publicationDate)))) {
-                        countAll++;
-                        try {
-                            recordService.exportAllFormatsInNewTransaction(dataset);
-                            exportLogger.info("Success exporting dataset: " + dataset.getDisplayName() + " " + dataset.getGlobalId().asString());
-                            countSuccess++;
-                        } catch (Exception ex) {
-                            exportLogger.log(Level.INFO, "Error exporting dataset: " + dataset.getDisplayName() + " " + dataset.getGlobalId().asString() + "; " + ex.getMessage(), ex);
-                            countError++;
-                        }
-                    }
-                }
-            }
-        }
-        exportLogger.info("Datasets processed: " + countAll.toString());
-        exportLogger.info("Datasets exported successfully: " + countSuccess.toString());
-        exportLogger.info("Datasets failures: " + countError.toString());
-        exportLogger.info("Finished export-all job.");
-
-        if (fileHandlerSuceeded) {
-            fileHandler.close();
-        }
-
+        exportJobService.runExportJob(forceReExport, null);
     }
 
     @Asynchronous
@@ -980,54 +934,81 @@ public class DatasetServiceBean implements java.io.Serializable {
      * sizes of the main files are recorded in the database)
      */
     public long findStorageSize(Dataset dataset, boolean countCachedExtras, GetDatasetStorageSizeCommand.Mode mode, DatasetVersion version) throws IOException {
-        long total = 0L;
-
         if (dataset.isHarvested()) {
             return 0L;
         }
 
-        List<DataFile> filesToTally = new ArrayList();
-
-        if (version == null || (mode != null &&  mode.equals("storage"))){
-            filesToTally = dataset.getFiles();
-        } else {
-            List <FileMetadata>  fmds = version.getFileMetadatas();
-            for (FileMetadata fmd : fmds){
-                    filesToTally.add(fmd.getDataFile());
-            }
+        // The sizes are looked up in the database, without instantiating the
+        // DataFiles:
+        boolean entireDataset = version == null || GetDatasetStorageSizeCommand.Mode.STORAGE.equals(mode);
+        String fromFiles = entireDataset
+                ? " FROM DataFile f"
+                : " FROM FileMetadata fm JOIN fm.dataFile f";
+        String whereFiles = entireDataset
+                ? " WHERE f.owner.id = :id"
+                : " WHERE fm.datasetVersion.id = :id";
+        Long id = entireDataset ? dataset.getId() : version.getId();
+
+        if (!countCachedExtras) {
+            // count the size of the stored originals, in addition to the main tab-delimited files:
+            Object[] sums = em.createQuery("SELECT SUM(COALESCE(f.filesize, -1)), SUM(dt.originalFileSize)"
+                    + fromFiles + " LEFT JOIN f.dataTables dt" + whereFiles, Object[].class)
+                    .setParameter("id", id)
+                    .getSingleResult();
+            return (sums[0] == null ? 0L : ((Number) sums[0]).longValue())
+                    + (sums[1] == null ? 0L : ((Number) sums[1]).longValue());
         }
 
+        List<Object[]> files = em.createQuery("SELECT f.id, f.storageIdentifier, f.filesize" + fromFiles + whereFiles, Object[].class)
+                .setParameter("id", id)
+                .getResultList();
 
-        //CACHED EXTRAS FOR DOWNLOAD?
-
-
-        for (DataFile datafile : filesToTally) {
-                total += datafile.getFilesize();
+        // The sizes of the cached extras (the aux objects of the files, and the
+        // metadata exports of the dataset) are taken from a single listing of
+        // the objects of the dataset, when the store supports it:
+        StorageIO<Dataset> datasetSIO = DataAccess.getStorageIO(dataset);
+        String datasetDriverId = DataAccess.getStorageDriverFromIdentifier(dataset.getStorageIdentifier());
+        Map<String, Long> storedObjects = null;
+        try {
+            storedObjects = datasetSIO.listObjectSizes();
+        } catch (UnsupportedDataAccessOperationException ex) {
+            logger.fine("Looking up the sizes of the cached extras of dataset " + dataset.getId() + " file by file: " + ex.getMessage());
+        }
+        // the aux objects are named <name of the main file>.<tag>:
+        Map<String, Long> auxSizesByFileName = new HashMap<>();
+        if (storedObjects != null) {
+            for (Map.Entry<String, Long> storedObject : storedObjects.entrySet()) {
+                int separatorIndex = storedObject.getKey().indexOf('.');
+                if (separatorIndex > 0) {
+                    auxSizesByFileName.merge(storedObject.getKey().substring(0, separatorIndex), storedObject.getValue(), Long::sum);
+                }
+            }
+        }
 
-                if (!countCachedExtras) {
-                    if (datafile.isTabularData()) {
-                        // count the size of the stored original, in addition to the main tab-delimited file:
-                        Long originalFileSize = datafile.getDataTable().getOriginalFileSize();
-                        if (originalFileSize != null) {
-                            total += originalFileSize;
-                        }
-                    }
-                } else {
-                    StorageIO<DataFile> storageIO = datafile.getStorageIO();
-                    for (String cachedFileTag : storageIO.listAuxObjects()) {
-                        total += storageIO.getAuxObjectSize(cachedFileTag);
-                    }
+        long total = 0L;
+        for (Object[] file : files) {
+            total += file[2] == null ? -1L : ((Number) file[2]).longValue();
+            String storageIdentifier = (String) file[1];
+            if (storedObjects != null && storageIdentifier != null
+                    && datasetDriverId.equals(DataAccess.getStorageDriverFromIdentifier(storageIdentifier))) {
+                total += auxSizesByFileName.getOrDefault(getStoredFileName(storageIdentifier), 0L);
+            } else {
+                // e.g. a file left in the store the dataset used before
+                StorageIO<DataFile> storageIO = em.find(DataFile.class, (Long) file[0]).getStorageIO();
+                for (String cachedFileTag : storageIO.listAuxObjects()) {
+                    total += storageIO.getAuxObjectSize(cachedFileTag);
                 }
             }
+        }
 
         // and finally,
-        if (countCachedExtras) {
-            // count the sizes of the files cached for the dataset itself
-            // (i.e., the metadata exports):
-            StorageIO<Dataset> datasetSIO = DataAccess.getStorageIO(dataset);
-
-            for (String[] exportProvider : ExportService.getInstance().getExportersLabels()) {
-                String exportLabel = "export_" + exportProvider[1] + ".cached";
+        // count the sizes of the files cached for the dataset itself
+        // (i.e., the metadata exports):
+        for (String[] exportProvider : ExportService.getInstance().getExportersLabels()) {
+            String exportLabel = "export_" + exportProvider[1] + ".cached";
+            if (storedObjects != null) {
+                total += storedObjects.getOrDefault(exportLabel, 0L);
+            } else {
                 try {
                     total += datasetSIO.getAuxObjectSize(exportLabel);
                 } catch (IOException ioex) {
@@ -1039,6 +1020,18 @@ public class DatasetServiceBean implements java.io.Serializable {
         return total;
     }
 
+    /**
+     * @return the name of the main file, within the location of its dataset,
+     * e.g. "18b39722140-50eb7d3c5ece" for "s3://bucket:18b39722140-50eb7d3c5ece"
+     */
+    private static String getStoredFileName(String storageIdentifier) {
+        String location = storageIdentifier.contains(DataAccess.SEPARATOR)
+                ? storageIdentifier.substring(storageIdentifier.indexOf(DataAccess.SEPARATOR) + DataAccess.SEPARATOR.length())
+                : storageIdentifier;
+        // separate the bucket, swift container, etc. from the file name:
+        return location.substring(location.lastIndexOf(':') + 1);
+    }
+
     /**
      * An optimized method for deleting a harvested dataset.
      *
@@ -69,7 +69,7 @@ public class DatasetVersionServiceBean implements java.io.Serializable {
     IndexServiceBean indexService;
 
     @PersistenceContext(unitName = "VDCNet-ejbPU")
-    private EntityManager em;
+    protected EntityManager em;
 
     /**
      *  Response to a successful request from the DatasetPage
@@ -158,20 +158,53 @@ public class DatasetVersionServiceBean implements java.io.Serializable {
     public DatasetVersion findDeep(Object pk) {
         return (DatasetVersion) em.createNamedQuery("DatasetVersion.findById")
             .setParameter("id", pk)
-            // Optimization hints: retrieve all data in one query; this prevents point queries when iterating over the files 
-            .setHint("eclipselink.left-join-fetch", "o.fileMetadatas.dataFile.ingestRequest")
-            .setHint("eclipselink.left-join-fetch", "o.fileMetadatas.dataFile.thumbnailForDataset")
-            .setHint("eclipselink.left-join-fetch", "o.fileMetadatas.dataFile.dataTables")
-            .setHint("eclipselink.left-join-fetch", "o.fileMetadatas.fileCategories")
-            .setHint("eclipselink.left-join-fetch", "o.fileMetadatas.dataFile.embargo")
-            .setHint("eclipselink.left-join-fetch", "o.fileMetadatas.dataFile.retention")
-            .setHint("eclipselink.left-join-fetch", "o.fileMetadatas.datasetVersion")
-            .setHint("eclipselink.left-join-fetch", "o.fileMetadatas.dataFile.releaseUser")
-            .setHint("eclipselink.left-join-fetch", "o.fileMetadatas.dataFile.creator")
-            .setHint("eclipselink.left-join-fetch", "o.fileMetadatas.dataFile.dataFileTags")
+            // Optimization hints: batch-fetch the relationships of the files (see DatasetServiceBean.findDeep()); this prevents point queries when iterating over the files 
+            .setHint("eclipselink.batch.type", "IN")
+            .setHint("eclipselink.batch.size", DatasetServiceBean.DEEP_FETCH_BATCH_SIZE)
+            .setHint("eclipselink.batch", "o.fileMetadatas.dataFile")
+            .setHint("eclipselink.batch", "o.fileMetadatas.dataFile.ingestRequest")
+            .setHint("eclipselink.batch", "o.fileMetadatas.dataFile.thumbnailForDataset")
+            .setHint("eclipselink.batch", "o.fileMetadatas.dataFile.dataTables")
+            .setHint("eclipselink.batch", "o.fileMetadatas.fileCategories")
+            .setHint("eclipselink.batch", "o.fileMetadatas.dataFile.embargo")
+            .setHint("eclipselink.batch", "o.fileMetadatas.dataFile.retention")
+            .setHint("eclipselink.batch", "o.fileMetadatas.datasetVersion")
+            .setHint("eclipselink.batch", "o.fileMetadatas.dataFile.releaseUser")
+            .setHint("eclipselink.batch", "o.fileMetadatas.dataFile.creator")
+            .setHint("eclipselink.batch", "o.fileMetadatas.dataFile.dataFileTags")
             .getSingleResult();
     }
     
+    /**
+     * Looks up a page of the files of a version, in the order of
+     * {@link DatasetVersion#getFileMetadatas()} (by label, and then by id, so
+     * that the pages don't overlap): the first ones, or those following
+     * {@code after}. What the JSON of the files needs is looked up with one
+     * query per relationship for the whole page.
+     *
+     * @param after the last file of the previous page, or null
+     */
+    public List<FileMetadata> findFileMetadatas(Long versionId, FileMetadata after, int pageSize) {
+        TypedQuery<FileMetadata> query = em.createQuery("SELECT o FROM FileMetadata o WHERE o.datasetVersion.id = :versionId"
+                + (after == null ? "" : " AND (o.label > :label OR (o.label = :label AND o.id > :id))")
+                + " ORDER BY o.label, o.id", FileMetadata.class)
+            .setParameter("versionId", versionId)
+            .setMaxResults(pageSize)
+            .setHint("eclipselink.batch.type", "IN")
+            .setHint("eclipselink.batch.size", pageSize)
+            .setHint("eclipselink.batch", "o.dataFile")
+            .setHint("eclipselink.batch", "o.fileCategories")
+            .setHint("eclipselink.batch", "o.dataFile.dataTables")
+            .setHint("eclipselink.batch", "o.dataFile.dataFileTags")
+            .setHint("eclipselink.batch", "o.dataFile.embargo")
+            .setHint("eclipselink.batch", "o.dataFile.retention");
+        if (after != null) {
+            query.setParameter("label", after.getLabel())
+                .setParameter("id", after.getId());
+        }
+        return query.getResultList();
+    }
+
     /**
      * Performs the same database lookup as the one behind Dataset.getVersions().
      * Additionally, provides the arguments for selecting a partial list of 
@@ -0,0 +1,175 @@
+package edu.harvard.iq.dataverse;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Retrieves the information about external vocabulary terms from the services
+ * configured in the :CVocConf setting.
+ *
+ * Uses a single pooled HTTP client (so that connections, and TLS sessions, to
+ * the same service are reused) and retrieves the terms of a dataset
+ * concurrently. Retrieval URIs that failed are not tried again for a while
+ * (negative caching), so that a service that is down doesn't slow down every
+ * save of every dataset using it.
+ *
+ * This class doesn't touch the database; see
+ * {@link DatasetFieldServiceBean#registerExternalVocabValues(java.util.Collection)}.
+ * The application's instance is managed by {@link ExternalVocabularyClientServiceBean}.
+ */
+public class ExternalVocabularyClient {
+
+    private static final Logger logger = Logger.getLogger(ExternalVocabularyClient.class.getCanonicalName());
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10 * 1000;
+    private static final int SOCKET_TIMEOUT_MILLIS = 30 * 1000;
+    private static final int MAX_FAILED_URIS = 10000;
+
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService executor;
+    private final long retryFailedAfterMillis;
+    // retrieval URIs that failed, with the time until which they are not retried:
+    private final Map<String, Long> failedUntil = new ConcurrentHashMap<>();
+
+    /**
+     * A term to retrieve, with the URI to retrieve it from and any custom HTTP
+     * headers (from the "headers" object of the configuration).
+     */
+    public record TermRequest(String term, String retrievalUri, JsonObject headers) {
+    }
+
+    public ExternalVocabularyClient(int maxConcurrentRequests, long retryFailedAfterMillis, ThreadFactory threadFactory) {
+        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+        cm.setDefaultMaxPerRoute(maxConcurrentRequests);
+        cm.setMaxTotal(maxConcurrentRequests > 20 ? maxConcurrentRequests : 20);
+        httpClient = HttpClients.custom()
+                .setConnectionManager(cm)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+                        .setConnectionRequestTimeout(SOCKET_TIMEOUT_MILLIS)
+                        .setSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+                        .build())
+                .addInterceptorLast((HttpResponse response, HttpContext context) -> {
+                    if (response.getStatusLine().getStatusCode() == 504) {
+                        //Throwing an exception triggers the retry handler
+                        throw new IOException("Retry due to 504 response");
+                    }
+                })
+                //The retry handler will also do retries for network errors/other things that cause an IOException
+                .setRetryHandler(new DefaultHttpRequestRetryHandler(3, false))
+                .build();
+        executor = Executors.newFixedThreadPool(maxConcurrentRequests, threadFactory);
+        this.retryFailedAfterMillis = retryFailedAfterMillis;
+    }
+
+    /**
+     * Retrieves all the terms concurrently. Terms whose retrieval URI failed
+     * recently are skipped.
+     *
+     * @return the (unfiltered) responses of the services, by term; terms that
+     * could not be retrieved are left out.
+     */
+    public Map<String, JsonObject> retrieveAll(Collection<TermRequest> requests) {
+        return retrieveAllAsync(requests).join();
+    }
+
+    /**
+     * Same as {@link #retrieveAll(Collection)}, without waiting for the
+     * services: the result is completed (on one of the client's threads) once
+     * all the terms have been retrieved.
+     */
+    public CompletableFuture<Map<String, JsonObject>> retrieveAllAsync(Collection<TermRequest> requests) {
+        Map<String, CompletableFuture<JsonObject>> retrievals = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (TermRequest request : requests) {
+            Long until = failedUntil.get(request.retrievalUri());
+            if (until != null && until > now) {
+                logger.fine("Skipping " + request.retrievalUri() + ", it failed recently");
+                continue;
+            }
+            retrievals.put(request.term(), CompletableFuture.supplyAsync(() -> retrieve(request), executor));
+        }
+
+        return CompletableFuture.allOf(retrievals.values().toArray(new CompletableFuture[0])).thenApply(done -> {
+            Map<String, JsonObject> results = new HashMap<>();
+            retrievals.forEach((term, retrieval) -> {
+                JsonObject result = retrieval.join();
+                if (result != null) {
+                    results.put(term, result);
+                }
+            });
+            return results;
+        });
+    }
+
+    private JsonObject retrieve(TermRequest request) {
+        String retrievalUri = request.retrievalUri();
+        logger.fine("Retrieving " + request.term() + " from " + retrievalUri);
+        HttpGet httpGet = new HttpGet(retrievalUri);
+        //application/json+ld is for backward compatibility
+        httpGet.addHeader("Accept", "application/ld+json, application/json+ld, application/json");
+        //Adding others custom HTTP request headers if exists
+        if (request.headers() != null) {
+            for (String hKey : request.headers().keySet()) {
+                httpGet.addHeader(hKey, request.headers().getString(hKey));
+            }
+        }
+        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
+            String data = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode == 200) {
+                logger.fine("Returned data: " + data);
+                try (JsonReader jsonReader = Json.createReader(new StringReader(data))) {
+                    failedUntil.remove(retrievalUri);
+                    return jsonReader.readObject();
+                } catch (JsonException je) {
+                    logger.severe("Error retrieving: " + retrievalUri + " : " + je.getMessage());
+                }
+            } else {
+                logger.severe("Received response code : " + statusCode + " when retrieving " + retrievalUri
+                        + " : " + data);
+            }
+        } catch (IOException ioe) {
+            logger.severe("IOException when retrieving url: " + retrievalUri + " : " + ioe.getMessage());
+        }
+        long now = System.currentTimeMillis();
+        if (failedUntil.size() > MAX_FAILED_URIS) {
+            failedUntil.values().removeIf(until -> until <= now);
+        }
+        failedUntil.put(retrievalUri, now + retryFailedAfterMillis);
+        return null;
+    }
+
+    public void close() {
+        executor.shutdownNow();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            logger.fine("Error closing the external vocabulary client: " + e.getMessage());
+        }
+    }
+}
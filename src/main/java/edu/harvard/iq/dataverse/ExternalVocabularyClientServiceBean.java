@@ -0,0 +1,93 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.json.JsonObject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The application's {@link ExternalVocabularyClient}: one pooled HTTP client
+ * and a bounded pool of the container's threads, shared by all the dataset
+ * saves, and closed when the application is undeployed.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ExternalVocabularyClientServiceBean {
+
+    private static final Logger logger = Logger.getLogger(ExternalVocabularyClientServiceBean.class.getCanonicalName());
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private ExternalVocabularyClient client;
+
+    @PostConstruct
+    public void init() {
+        client = new ExternalVocabularyClient(
+                Math.max(1, JvmSettings.CVOC_MAX_CONCURRENT_REQUESTS.lookupOptional(Integer.class).orElse(8)),
+                JvmSettings.CVOC_RETRY_FAILED_AFTER.lookupOptional(Long.class).orElse(300L) * 1000L,
+                managedThreadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        client.close();
+    }
+
+    /**
+     * Retrieves the terms once the current transaction has committed (right
+     * away, if there's no transaction), so that neither the transaction nor
+     * the rows locked by the command saving the dataset are held while waiting
+     * on the services; nothing is retrieved if the transaction rolls back.
+     *
+     * @param onRetrieved called with the responses, by term, on one of the
+     * client's threads
+     * @see ExternalVocabularyClient#retrieveAll(Collection)
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public void retrieveAllAfterCommit(Collection<ExternalVocabularyClient.TermRequest> requests,
+            Consumer<Map<String, JsonObject>> onRetrieved) {
+        Runnable retrieval = () -> client.retrieveAllAsync(requests)
+                .thenAccept(onRetrieved)
+                .exceptionally(e -> {
+                    logger.log(Level.WARNING, "Failed to register the external vocabulary terms", e);
+                    return null;
+                });
+        if (transactionRegistry.getTransactionKey() == null) {
+            retrieval.run();
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    retrieval.run();
+                } else {
+                    logger.fine("The transaction was rolled back; not retrieving the external vocabulary terms");
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,226 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.SystemConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.Timer;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+
+/**
+ * Delivers the emails queued in the outbox ({@link MailOutboxMessage}), from
+ * a timer on the dedicated timer server (see {@link SystemConfig#isTimerServer()}):
+ * the messages due are sent in batches, each batch over a single connection
+ * to the mail server. A message that can't be delivered is tried again later,
+ * at increasing intervals, up to {@link JvmSettings#MAIL_OUTBOX_MAX_ATTEMPTS}
+ * times; one that is rejected by the mail server is given up on right away,
+ * but for its recipients that weren't rejected, which it is tried again for.
+ */
+@Singleton
+@Startup
+@DependsOn("StartupFlywayMigrator")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MailOutboxDispatcherServiceBean {
+
+    private static final Logger logger = Logger.getLogger(MailOutboxDispatcherServiceBean.class.getCanonicalName());
+
+    // the longest to wait before trying to deliver a message again
+    static final long MAX_RETRY_DELAY_SECONDS = 3600;
+
+    @Resource
+    TimerService timerService;
+    @EJB
+    MailOutboxServiceBean outboxService;
+    @EJB
+    MailServiceBean mailService;
+    @EJB
+    SystemConfig systemConfig;
+
+    @Inject
+    @Named("mail/systemSession")
+    Session session;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+    private volatile long pending;
+
+    private int intervalSeconds;
+    private int batchSize;
+    private int maxAttempts;
+
+    @PostConstruct
+    public void init() {
+        intervalSeconds = Math.max(1, JvmSettings.MAIL_OUTBOX_INTERVAL.lookupOptional(Integer.class).orElse(5));
+        batchSize = Math.max(1, JvmSettings.MAIL_OUTBOX_BATCH_SIZE.lookupOptional(Integer.class).orElse(50));
+        maxAttempts = Math.max(1, JvmSettings.MAIL_OUTBOX_MAX_ATTEMPTS.lookupOptional(Integer.class).orElse(8));
+        if (systemConfig.isTimerServer()) {
+            long intervalMillis = 1000L * intervalSeconds;
+            logger.info("Delivering the queued emails every " + intervalSeconds + " seconds");
+            timerService.createIntervalTimer(intervalMillis, intervalMillis, new TimerConfig("MailOutboxDispatcher", false));
+        } else {
+            logger.fine("Skipping the mail outbox dispatcher (I am not the dedicated timer server)");
+        }
+    }
+
+    @Gauge(name = "mail_outbox_depth", absolute = true, unit = MetricUnits.NONE,
+            description = "Number of queued emails waiting to be delivered, as of the last run of the dispatcher")
+    public long getQueueDepth() {
+        return pending;
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void dispatch(Timer timer) {
+        // A run taking longer than the interval is not to be overlapped by the next one:
+        if (!dispatching.compareAndSet(false, true)) {
+            logger.fine("The previous run of the mail outbox dispatcher is still going");
+            return;
+        }
+        try {
+            List<MailOutboxMessage> due = outboxService.findDue(batchSize);
+            while (!due.isEmpty() && deliver(due) && due.size() == batchSize) {
+                due = outboxService.findDue(batchSize);
+            }
+            pending = outboxService.countPending();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to deliver the queued emails", e);
+        } finally {
+            dispatching.set(false);
+        }
+    }
+
+    /**
+     * Sends the messages over one connection to the mail server; each message
+     * is then either deleted from the outbox, or its failure recorded.
+     *
+     * @return false if nothing could be sent, because no system address is
+     * configured
+     */
+    private boolean deliver(List<MailOutboxMessage> messages) {
+        Optional<InternetAddress> systemAddress = mailService.getSystemAddress();
+        if (systemAddress.isEmpty()) {
+            logger.warning("Not delivering the queued emails, because no system address has been set");
+            return false;
+        }
+
+        Transport transport;
+        try {
+            transport = session.getTransport();
+            transport.connect();
+        } catch (MessagingException e) {
+            logger.log(Level.WARNING, "Failed to connect to the mail server: " + e.getMessage(), e);
+            for (MailOutboxMessage message : messages) {
+                retryLater(message, e);
+            }
+            return true;
+        }
+
+        try {
+            for (MailOutboxMessage message : messages) {
+                try {
+                    // Since JavaMail 1.6, we have support for UTF-8 mail addresses and do not need to handle these ourselves.
+                    InternetAddress[] recipients = InternetAddress.parse(message.getRecipients());
+                    MimeMessage msg = mailService.createSystemMessage(systemAddress.get(), recipients,
+                            message.getSubject(), message.getBody(), message.isHtmlContent());
+                    msg.saveChanges();
+                    if (!transport.isConnected()) {
+                        transport.connect();
+                    }
+                    transport.sendMessage(msg, recipients);
+                    outboxService.recordDelivery(message);
+                    metricRegistry.counter("mail_outbox_sent").inc();
+                } catch (AddressException e) {
+                    // the recipients can't be parsed; trying again won't help
+                    giveUp(message, e);
+                } catch (SendFailedException e) {
+                    Address[] unsent = e.getValidUnsentAddresses();
+                    if (unsent != null && unsent.length > 0) {
+                        // Some recipients were rejected (or the message was
+                        // only sent to some); trying again for the others:
+                        retryLater(message, e, InternetAddress.toString(unsent));
+                    } else {
+                        // the recipients were rejected; trying again won't help
+                        giveUp(message, e);
+                    }
+                } catch (MessagingException e) {
+                    retryLater(message, e);
+                }
+            }
+        } finally {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                logger.log(Level.FINE, "Failed to close the connection to the mail server", e);
+            }
+        }
+        return true;
+    }
+
+    private void retryLater(MailOutboxMessage message, MessagingException e) {
+        retryLater(message, e, null);
+    }
+
+    /**
+     * @param recipients the recipients to try again for, if not all of them
+     */
+    private void retryLater(MailOutboxMessage message, MessagingException e, String recipients) {
+        int attempts = message.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            giveUp(message, e);
+            return;
+        }
+        long delaySeconds = getRetryDelay(intervalSeconds, attempts);
+        logger.fine(() -> "Failed to deliver mail to " + message.getRecipients() + " (attempt " + attempts
+                + "), trying again " + (recipients == null ? "" : "for " + recipients + " ") + "in " + delaySeconds
+                + " seconds: " + e.getMessage());
+        outboxService.recordFailure(message, e.getMessage(),
+                new Timestamp(System.currentTimeMillis() + 1000L * delaySeconds), recipients);
+    }
+
+    private void giveUp(MailOutboxMessage message, MessagingException e) {
+        logger.log(Level.WARNING, "Failed to deliver mail to %s, giving up: %s".formatted(message.getRecipients(), e.getMessage()), e);
+        logger.info("When UTF-8 characters in recipients: make sure MTA supports it and JVM option " + JvmSettings.MAIL_MTA_SUPPORT_UTF8.getScopedKey() + "=true");
+        outboxService.recordFailure(message, e.getMessage(), null);
+        metricRegistry.counter("mail_outbox_failed").inc();
+    }
+
+    /**
+     * @return how long to wait before the next attempt at delivering a message:
+     * the interval the outbox is checked at, doubled with each failed attempt,
+     * up to {@link #MAX_RETRY_DELAY_SECONDS}
+     */
+    static long getRetryDelay(int intervalSeconds, int attempts) {
+        return Math.min(MAX_RETRY_DELAY_SECONDS, (long) intervalSeconds << Math.min(attempts, 20));
+    }
+}
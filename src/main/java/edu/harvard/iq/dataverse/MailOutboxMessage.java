@@ -0,0 +1,146 @@
+package edu.harvard.iq.dataverse;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * An email waiting to be sent, fully rendered: written to the outbox in the
+ * transaction that triggered it (e.g. the publication of a dataset), and
+ * delivered in the background by {@link MailOutboxDispatcherServiceBean}. A
+ * message is deleted once delivered (and the notification it is for, if any,
+ * marked as emailed); one that could not be delivered after all its attempts
+ * is kept, marked as failed, for the admins to look into.
+ */
+@Entity
+@Table(indexes = {@Index(columnList = "failed, nextAttemptTime")})
+@NamedQueries({
+    @NamedQuery(name = "MailOutboxMessage.findDue",
+            query = "SELECT m FROM MailOutboxMessage m WHERE m.failed = false AND m.nextAttemptTime <= :now ORDER BY m.id"),
+    @NamedQuery(name = "MailOutboxMessage.countPending",
+            query = "SELECT COUNT(m) FROM MailOutboxMessage m WHERE m.failed = false"),
+    @NamedQuery(name = "MailOutboxMessage.deleteById",
+            query = "DELETE FROM MailOutboxMessage m WHERE m.id = :id")
+})
+public class MailOutboxMessage implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    // a comma separated list of addresses, see InternetAddress.parse()
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String recipients;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String subject;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    @Column(nullable = false)
+    private boolean htmlContent;
+
+    // the UserNotification to mark as emailed once the message is delivered;
+    // a reference rather than the id, as the notification may not have its
+    // id yet when the message is queued in the same transaction (no foreign
+    // key, so that the notification can still be deleted in the meantime)
+    @ManyToOne
+    @JoinColumn(name = "userNotificationId", nullable = true, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private UserNotification userNotification;
+
+    @Column(nullable = false)
+    private Timestamp createTime;
+
+    @Column(nullable = false)
+    private Timestamp nextAttemptTime;
+
+    // how many times delivery has been attempted so far
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private boolean failed;
+
+    @Column(nullable = true, columnDefinition = "TEXT")
+    private String lastError;
+
+    public MailOutboxMessage() {
+    }
+
+    public MailOutboxMessage(String recipients, String subject, String body, boolean htmlContent, UserNotification userNotification, Timestamp createTime) {
+        this.recipients = recipients;
+        this.subject = subject;
+        this.body = body;
+        this.htmlContent = htmlContent;
+        this.userNotification = userNotification;
+        this.createTime = createTime;
+        this.nextAttemptTime = createTime;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRecipients() {
+        return recipients;
+    }
+
+    public void setRecipients(String recipients) {
+        this.recipients = recipients;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public boolean isHtmlContent() {
+        return htmlContent;
+    }
+
+    public Long getUserNotificationId() {
+        return userNotification == null ? null : userNotification.getId();
+    }
+
+    public Timestamp getCreateTime() {
+        return createTime;
+    }
+
+    public Timestamp getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+
+    public void setNextAttemptTime(Timestamp nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
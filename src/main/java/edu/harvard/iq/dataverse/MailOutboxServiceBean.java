@@ -0,0 +1,103 @@
+package edu.harvard.iq.dataverse;
+
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * The persistence side of the mail outbox, see {@link MailOutboxMessage}.
+ */
+@Stateless
+public class MailOutboxServiceBean {
+
+    private static final Logger logger = Logger.getLogger(MailOutboxServiceBean.class.getCanonicalName());
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    EntityManager em;
+
+    /**
+     * Queues a message in the current transaction: it is only sent if (and
+     * once) the transaction commits.
+     *
+     * @param userNotification the notification to mark as emailed once the
+     * message is delivered; null if none
+     */
+    public MailOutboxMessage enqueue(String recipients, String subject, String body, boolean htmlContent, UserNotification userNotification) {
+        MailOutboxMessage message = new MailOutboxMessage(recipients, subject, body, htmlContent, userNotification,
+                new Timestamp(new Date().getTime()));
+        em.persist(message);
+        logger.fine(() -> "Queued mail to " + recipients + ". Subject: <<<" + subject + ">>>");
+        return message;
+    }
+
+    public List<MailOutboxMessage> findDue(int maxResults) {
+        return em.createNamedQuery("MailOutboxMessage.findDue", MailOutboxMessage.class)
+                .setParameter("now", new Timestamp(new Date().getTime()))
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    public long countPending() {
+        return em.createNamedQuery("MailOutboxMessage.countPending", Long.class).getSingleResult();
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void delete(MailOutboxMessage message) {
+        em.createNamedQuery("MailOutboxMessage.deleteById")
+                .setParameter("id", message.getId())
+                .executeUpdate();
+    }
+
+    /**
+     * Deletes the delivered message, and marks the notification it was for
+     * as emailed.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void recordDelivery(MailOutboxMessage message) {
+        em.createNamedQuery("MailOutboxMessage.deleteById")
+                .setParameter("id", message.getId())
+                .executeUpdate();
+        if (message.getUserNotificationId() != null) {
+            em.createQuery("UPDATE UserNotification n SET n.emailed = true WHERE n.id = :id")
+                    .setParameter("id", message.getUserNotificationId())
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Records a failed delivery attempt: the message is tried again at
+     * nextAttemptTime, or, if null, given up on.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void recordFailure(MailOutboxMessage message, String error, Timestamp nextAttemptTime) {
+        recordFailure(message, error, nextAttemptTime, null);
+    }
+
+    /**
+     * Records a failed delivery attempt, as above; the next attempt is only
+     * made to the recipients given (if not null), i.e. those that were not
+     * rejected, and haven't got the message yet.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void recordFailure(MailOutboxMessage message, String error, Timestamp nextAttemptTime, String recipients) {
+        MailOutboxMessage managed = em.find(MailOutboxMessage.class, message.getId());
+        if (managed != null) {
+            managed.setAttempts(managed.getAttempts() + 1);
+            managed.setLastError(error);
+            if (recipients != null) {
+                managed.setRecipients(recipients);
+            }
+            if (nextAttemptTime == null) {
+                managed.setFailed(true);
+            } else {
+                managed.setNextAttemptTime(nextAttemptTime);
+            }
+        }
+    }
+}
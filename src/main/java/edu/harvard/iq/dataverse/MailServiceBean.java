@@ -73,6 +73,8 @@ public class MailServiceBean implements java.io.Serializable {
     GroupServiceBean groupService;
     @EJB
     ConfirmEmailServiceBean confirmEmailService;
+    @EJB
+    MailOutboxServiceBean mailOutboxService;
 
     private static final Logger logger = Logger.getLogger(MailServiceBean.class.getCanonicalName());
 
@@ -118,25 +120,14 @@ public class MailServiceBean implements java.io.Serializable {
         }
         InternetAddress systemAddress = optionalAddress.get();
 
-        String body = messageText +
-            BundleUtil.getStringFromBundle(isHtmlContent ? "notification.email.closing.html" : "notification.email.closing",
-                List.of(BrandingUtil.getSupportTeamEmailAddress(systemAddress), BrandingUtil.getSupportTeamName(systemAddress)));
+        String body = getSystemEmailBody(messageText, systemAddress, isHtmlContent);
 
         logger.fine(() -> "Sending email to %s. Subject: <<<%s>>>. Body: %s".formatted(to, subject, body));
         try {
             // Since JavaMail 1.6, we have support for UTF-8 mail addresses and do not need to handle these ourselves.
             InternetAddress[] recipients = InternetAddress.parse(to);
             
-            MimeMessage msg = new MimeMessage(session);
-            msg.setFrom(systemAddress);
-            msg.setSentDate(new Date());
-            msg.setRecipients(Message.RecipientType.TO, recipients);
-            msg.setSubject(subject, charset);
-            if (isHtmlContent) {
-                msg.setText(body, charset, "html");
-            } else {
-                msg.setText(body, charset);
-            }
+            MimeMessage msg = createSystemMessage(systemAddress, recipients, subject, body, isHtmlContent);
             
             Transport.send(msg, recipients);
             return true;
@@ -147,6 +138,60 @@ public class MailServiceBean implements java.io.Serializable {
         return false;
     }
     
+    /**
+     * Queue a system notification to one or multiple recipients, to be sent by email once the current transaction
+     * commits (see {@link MailOutboxDispatcherServiceBean}), rather than waiting on the mail server.
+     * Will skip queueing when {@link #getSystemAddress()} doesn't return a configured "from" address.
+     * @param to A comma separated list of one or multiple recipients' addresses, see {@link #sendSystemEmail(String, String, String, boolean)}
+     * @param subject The message's subject
+     * @param messageText The message's text
+     * @param isHtmlContent Determine if the message text is formatted using HTML or plain text.
+     * @return Status: true if queued, false otherwise
+     */
+    public boolean queueSystemEmail(String to, String subject, String messageText, boolean isHtmlContent) {
+        return queueSystemEmail(to, subject, messageText, isHtmlContent, null);
+    }
+
+    /**
+     * Queue a system notification, as above.
+     * @param userNotification The {@link UserNotification} to mark as emailed once the message is delivered, or null
+     */
+    public boolean queueSystemEmail(String to, String subject, String messageText, boolean isHtmlContent, UserNotification userNotification) {
+        Optional<InternetAddress> optionalAddress = getSystemAddress();
+        if (optionalAddress.isEmpty()) {
+            logger.fine(() -> "Skipping queueing mail to " + to + ", because no system address has been set.");
+            return false;
+        }
+        mailOutboxService.enqueue(to, subject, getSystemEmailBody(messageText, optionalAddress.get(), isHtmlContent),
+                isHtmlContent, userNotification);
+        return true;
+    }
+
+    private String getSystemEmailBody(String messageText, InternetAddress systemAddress, boolean isHtmlContent) {
+        return messageText +
+            BundleUtil.getStringFromBundle(isHtmlContent ? "notification.email.closing.html" : "notification.email.closing",
+                List.of(BrandingUtil.getSupportTeamEmailAddress(systemAddress), BrandingUtil.getSupportTeamName(systemAddress)));
+    }
+
+    /**
+     * Create a message from the system address, ready to be sent.
+     * @param body The complete message text, including the closing
+     */
+    public MimeMessage createSystemMessage(InternetAddress systemAddress, InternetAddress[] recipients, String subject,
+                                           String body, boolean isHtmlContent) throws MessagingException {
+        MimeMessage msg = new MimeMessage(session);
+        msg.setFrom(systemAddress);
+        msg.setSentDate(new Date());
+        msg.setRecipients(Message.RecipientType.TO, recipients);
+        msg.setSubject(subject, charset);
+        if (isHtmlContent) {
+            msg.setText(body, charset, "html");
+        } else {
+            msg.setText(body, charset);
+        }
+        return msg;
+    }
+    
     /**
      * Lookup the system mail address ({@code InternetAddress} may contain personal and actual address).
      * @return The system mail address or an empty {@code Optional} if not configured.
@@ -273,6 +318,11 @@ public class MailServiceBean implements java.io.Serializable {
         return sendNotificationEmail(notification, comment, null, isHtmlContent);
     }
 
+    /**
+     * Render the email for a notification and queue it, see {@link #queueSystemEmail(String, String, String, boolean, UserNotification)}.
+     * A saved notification (one with an id) is marked as emailed once the email is delivered.
+     * @return true if the email was queued
+     */
     public Boolean sendNotificationEmail(UserNotification notification, String comment, AuthenticatedUser requestor, boolean isHtmlContent){
 
         boolean retval = false;
@@ -283,7 +333,7 @@ public class MailServiceBean implements java.io.Serializable {
                String messageText = getMessageTextBasedOnNotification(notification, objectOfNotification, comment, requestor);
                String subjectText = MailUtil.getSubjectTextBasedOnNotification(notification, objectOfNotification);
                if (!(messageText.isEmpty() || subjectText.isEmpty())){
-                   retval = sendSystemEmail(emailAddress, subjectText, messageText, isHtmlContent);
+                   retval = queueSystemEmail(emailAddress, subjectText, messageText, isHtmlContent, notification);
                } else {
                    logger.warning("Skipping " + notification.getType() +  " notification, because couldn't get valid message");
                }
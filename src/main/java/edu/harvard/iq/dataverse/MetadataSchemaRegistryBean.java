@@ -0,0 +1,83 @@
+package edu.harvard.iq.dataverse;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Holds the current {@link MetadataSchemaSnapshot}. The snapshot is loaded in
+ * bulk on startup and replaced as a whole whenever metadata blocks are (re)loaded
+ * through the admin API; readers never wait for a reload, they keep using the
+ * previous snapshot until the new one is in place.
+ *
+ * Note that on a multi-server installation, the other servers will only pick up
+ * changes to the metadata blocks on their next restart (or the next time blocks
+ * are loaded through them).
+ */
+@Singleton
+@Startup
+@DependsOn("StartupFlywayMigrator")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MetadataSchemaRegistryBean {
+
+    private static final Logger logger = Logger.getLogger(MetadataSchemaRegistryBean.class.getCanonicalName());
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    private EntityManager em;
+
+    private volatile MetadataSchemaSnapshot snapshot;
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * @return the current snapshot, or null if it could not be loaded.
+     */
+    public MetadataSchemaSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public synchronized void reload() {
+        try {
+            List<DatasetFieldType> datasetFieldTypes = em.createQuery("SELECT o FROM DatasetFieldType o ORDER BY o.id", DatasetFieldType.class)
+                    .setHint("eclipselink.batch.type", "IN")
+                    .setHint("eclipselink.batch", "o.childDatasetFieldTypes")
+                    .setHint("eclipselink.batch", "o.controlledVocabularyValues")
+                    .getResultList();
+            List<ControlledVocabularyValue> controlledVocabularyValues = em.createQuery("SELECT o FROM ControlledVocabularyValue o", ControlledVocabularyValue.class)
+                    .setHint("eclipselink.batch.type", "IN")
+                    .setHint("eclipselink.batch", "o.controlledVocabAlternates")
+                    .getResultList();
+            List<ControlledVocabAlternate> controlledVocabAlternates = em.createQuery("SELECT o FROM ControlledVocabAlternate o", ControlledVocabAlternate.class)
+                    .getResultList();
+
+            // The entities will be detached and shared by all threads; make
+            // sure none of the collections read from them is left to be
+            // lazily instantiated later:
+            for (DatasetFieldType dsft : datasetFieldTypes) {
+                dsft.getChildDatasetFieldTypes().size();
+                dsft.getControlledVocabularyValues().size();
+            }
+            controlledVocabularyValues.forEach(cvv -> cvv.getControlledVocabAlternates().size());
+
+            snapshot = new MetadataSchemaSnapshot(datasetFieldTypes, controlledVocabularyValues, controlledVocabAlternates);
+            logger.info("Loaded the metadata schema: " + datasetFieldTypes.size() + " field types, " + controlledVocabularyValues.size() + " controlled vocabulary values");
+        } catch (RuntimeException ex) {
+            // Not fatal; the lookups will simply go to the database until the
+            // next successful reload.
+            logger.warning("Failed to load the metadata schema: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package edu.harvard.iq.dataverse;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * An immutable snapshot of the metadata schema - the dataset field types and
+ * the controlled vocabulary values - with hash indexes
+ * for the lookups done over and over again when parsing, importing and
+ * searching.
+ *
+ * The entities held here are detached and shared between threads; they must
+ * be treated as read-only. For anything that ends up attached to new entities
+ * (or gets modified), look up the managed instance by the id the snapshot
+ * provides - see {@link DatasetFieldServiceBean}.
+ *
+ * The lookups mirror the JPQL queries they replace: a key that matches more
+ * than one row is treated as not found.
+ */
+public class MetadataSchemaSnapshot {
+
+    private static final Long AMBIGUOUS = -1L;
+
+    private final List<DatasetFieldType> datasetFieldTypesOrderedById;
+    private final Map<String, Long> datasetFieldTypeIdsByName = new HashMap<>();
+    // controlled vocabulary values, by the id of their field type and then by the lookup key:
+    private final Map<Long, Map<String, Long>> cvvIdsByStrValue = new HashMap<>();
+    private final Map<Long, Map<String, Long>> cvvIdsByIdentifier = new HashMap<>();
+    private final Map<Long, Map<String, Long>> cvvIdsByAlternateStrValue = new HashMap<>();
+    private final Long naValueId;
+
+    public MetadataSchemaSnapshot(Collection<DatasetFieldType> datasetFieldTypes,
+            Collection<ControlledVocabularyValue> controlledVocabularyValues,
+            Collection<ControlledVocabAlternate> controlledVocabAlternates) {
+
+        datasetFieldTypesOrderedById = datasetFieldTypes.stream()
+                .sorted(Comparator.comparing(DatasetFieldType::getId))
+                .collect(Collectors.toUnmodifiableList());
+        for (DatasetFieldType dsft : datasetFieldTypesOrderedById) {
+            index(datasetFieldTypeIdsByName, dsft.getName(), dsft.getId());
+        }
+
+        Long naId = null;
+        for (ControlledVocabularyValue cvv : controlledVocabularyValues) {
+            if (cvv.getDatasetFieldType() == null) {
+                if (DatasetField.NA_VALUE.equals(cvv.getStrValue())) {
+                    naId = naId == null ? cvv.getId() : AMBIGUOUS;
+                }
+                continue;
+            }
+            Long dsftId = cvv.getDatasetFieldType().getId();
+            index(cvvIdsByStrValue.computeIfAbsent(dsftId, id -> new HashMap<>()), cvv.getStrValue(), cvv.getId());
+            if (cvv.getIdentifier() != null) {
+                index(cvvIdsByIdentifier.computeIfAbsent(dsftId, id -> new HashMap<>()), cvv.getIdentifier(), cvv.getId());
+            }
+        }
+        naValueId = naId;
+
+        for (ControlledVocabAlternate alternate : controlledVocabAlternates) {
+            if (alternate.getDatasetFieldType() != null && alternate.getControlledVocabularyValue() != null) {
+                index(cvvIdsByAlternateStrValue.computeIfAbsent(alternate.getDatasetFieldType().getId(), id -> new HashMap<>()),
+                        alternate.getStrValue(), alternate.getControlledVocabularyValue().getId());
+            }
+        }
+    }
+
+    private static void index(Map<String, Long> index, String key, Long id) {
+        if (key != null) {
+            index.merge(key, id, (existing, added) -> AMBIGUOUS);
+        }
+    }
+
+    private static Long lookup(Map<Long, Map<String, Long>> index, Long datasetFieldTypeId, String key) {
+        Map<String, Long> byKey = index.get(datasetFieldTypeId);
+        return byKey == null ? null : unique(byKey.get(key));
+    }
+
+    private static Long unique(Long id) {
+        return AMBIGUOUS.equals(id) ? null : id;
+    }
+
+    /**
+     * @return all the dataset field types, ordered by id; detached, read-only.
+     */
+    public List<DatasetFieldType> getDatasetFieldTypesOrderedById() {
+        return datasetFieldTypesOrderedById;
+    }
+
+    public Long getDatasetFieldTypeId(String name) {
+        return unique(datasetFieldTypeIdsByName.get(name));
+    }
+
+    /**
+     * @param lenient whether to also look among the alternate spellings of the
+     * values, if there is no (unique) match on the value itself
+     */
+    public Long getControlledVocabularyValueId(Long datasetFieldTypeId, String strValue, boolean lenient) {
+        Long cvvId = lookup(cvvIdsByStrValue, datasetFieldTypeId, strValue);
+        if (cvvId == null && lenient) {
+            cvvId = lookup(cvvIdsByAlternateStrValue, datasetFieldTypeId, strValue);
+        }
+        return cvvId;
+    }
+
+    public Long getControlledVocabularyValueIdByIdentifier(Long datasetFieldTypeId, String identifier) {
+        return lookup(cvvIdsByIdentifier, datasetFieldTypeId, identifier);
+    }
+
+    public Long getNAControlledVocabularyValueId() {
+        return unique(naValueId);
+    }
+}
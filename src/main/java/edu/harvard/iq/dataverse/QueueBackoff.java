@@ -0,0 +1,67 @@
+package edu.harvard.iq.dataverse;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * How the storage cleanup queue, worked off from a timer by
+ * {@link StorageCleanupDispatcherServiceBean}, tries its tasks again: a task
+ * that fails is tried again at increasing intervals, until it has been tried
+ * a maximum number of times. Also keeps a run of the dispatcher from
+ * overlapping the previous one, if that takes longer than the interval.
+ */
+final class QueueBackoff {
+
+    // the longest to wait before trying a task again
+    static final long MAX_RETRY_DELAY_SECONDS = 3600;
+
+    private final int intervalSeconds;
+    private final int maxAttempts;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * @param intervalSeconds the interval the queue is checked at
+     * @param maxAttempts the number of times to try a task before giving up
+     */
+    QueueBackoff(int intervalSeconds, int maxAttempts) {
+        this.intervalSeconds = intervalSeconds;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * @return false if the previous run is still going, in which case this
+     * one is to be skipped; otherwise {@link #finish()} is to be called when
+     * done
+     */
+    boolean start() {
+        return running.compareAndSet(false, true);
+    }
+
+    void finish() {
+        running.set(false);
+    }
+
+    /**
+     * @param attempts the number of attempts made, including the one that
+     * just failed
+     * @return true if the task is not to be tried again
+     */
+    boolean isLastAttempt(int attempts) {
+        return attempts >= maxAttempts;
+    }
+
+    /**
+     * @return how long to wait, in seconds, before the next attempt
+     */
+    long getRetryDelay(int attempts) {
+        return getRetryDelay(intervalSeconds, attempts);
+    }
+
+    /**
+     * @return how long to wait before the next attempt: the interval the queue
+     * is checked at, doubled with each failed attempt, up to
+     * {@link #MAX_RETRY_DELAY_SECONDS}
+     */
+    static long getRetryDelay(int intervalSeconds, int attempts) {
+        return Math.min(MAX_RETRY_DELAY_SECONDS, (long) intervalSeconds << Math.min(attempts, 20));
+    }
+}
@@ -0,0 +1,208 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.dataaccess.DataAccess;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.SystemConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.Timer;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.inject.Inject;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+
+/**
+ * Deletes the physical files queued for deletion ({@link StorageCleanupTask}),
+ * from a timer on the dedicated timer server (see {@link SystemConfig#isTimerServer()}):
+ * the files due are deleted in batches, with {@link DataAccess#deleteAll}, i.e.
+ * with multi-object deletes on S3 stores, and several files at a time on the
+ * others. A file that can't be deleted is tried again later, at increasing
+ * intervals, up to {@link JvmSettings#FILES_CLEANUP_MAX_ATTEMPTS} times.
+ * A file still in use is never deleted: one whose DataFile turns out to still
+ * exist, or whose storage identifier another DataFile has, is given up on
+ * right away.
+ */
+@Singleton
+@Startup
+@DependsOn("StartupFlywayMigrator")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class StorageCleanupDispatcherServiceBean {
+
+    private static final Logger logger = Logger.getLogger(StorageCleanupDispatcherServiceBean.class.getCanonicalName());
+
+    @Resource
+    TimerService timerService;
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+    @EJB
+    StorageCleanupServiceBean cleanupService;
+    @EJB
+    SystemConfig systemConfig;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private volatile long pending;
+
+    private int batchSize;
+    private QueueBackoff backoff;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        int intervalSeconds = Math.max(1, JvmSettings.FILES_CLEANUP_INTERVAL.lookupOptional(Integer.class).orElse(10));
+        batchSize = Math.max(1, JvmSettings.FILES_CLEANUP_BATCH_SIZE.lookupOptional(Integer.class).orElse(1000));
+        int maxAttempts = Math.max(1, JvmSettings.FILES_CLEANUP_MAX_ATTEMPTS.lookupOptional(Integer.class).orElse(8));
+        backoff = new QueueBackoff(intervalSeconds, maxAttempts);
+        if (systemConfig.isTimerServer()) {
+            int threads = Math.max(1, JvmSettings.FILES_CLEANUP_THREADS.lookupOptional(Integer.class).orElse(8));
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), managedThreadFactory);
+            long intervalMillis = 1000L * intervalSeconds;
+            logger.info("Deleting the physical files queued for deletion every " + intervalSeconds + " seconds");
+            timerService.createIntervalTimer(intervalMillis, intervalMillis, new TimerConfig("StorageCleanupDispatcher", false));
+        } else {
+            logger.fine("Skipping the storage cleanup dispatcher (I am not the dedicated timer server)");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Gauge(name = "storage_cleanup_pending", absolute = true, unit = MetricUnits.NONE,
+            description = "Number of physical files waiting to be deleted, as of the last run of the dispatcher")
+    public long getQueueDepth() {
+        return pending;
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void dispatch(Timer timer) {
+        // A run taking longer than the interval is not to be overlapped by the next one:
+        if (!backoff.start()) {
+            logger.fine("The previous run of the storage cleanup dispatcher is still going");
+            return;
+        }
+        try {
+            List<StorageCleanupTask> due = cleanupService.findDue(batchSize);
+            while (!due.isEmpty()) {
+                delete(due);
+                if (due.size() < batchSize) {
+                    break;
+                }
+                due = cleanupService.findDue(batchSize);
+            }
+            pending = cleanupService.countPending();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to delete the physical files queued for deletion", e);
+        } finally {
+            backoff.finish();
+        }
+    }
+
+    /**
+     * Deletes the files of the tasks; each task is then either deleted, or its
+     * failure recorded.
+     */
+    private void delete(List<StorageCleanupTask> tasks) {
+        // A file is not to be deleted as long as its DataFile exists, or
+        // another DataFile refers to the same physical file:
+        Set<Long> dataFileIds = tasks.stream()
+                .map(StorageCleanupTask::getDataFileId)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+        Set<Long> existing = dataFileIds.isEmpty() ? Set.of() : new HashSet<>(cleanupService.findExisting(dataFileIds));
+        Set<String> inUse = cleanupService.findInUse(tasks.stream()
+                .map(StorageCleanupTask::getStorageLocation)
+                .collect(Collectors.toSet()));
+
+        Set<String> locations = new LinkedHashSet<>();
+        List<StorageCleanupTask> toDelete = new ArrayList<>();
+        for (StorageCleanupTask task : tasks) {
+            if (existing.contains(task.getDataFileId())) {
+                giveUp(task, "The datafile (id " + task.getDataFileId() + ") still exists");
+            } else if (inUse.contains(task.getStorageLocation())) {
+                giveUp(task, "The physical file is still in use by another datafile");
+            } else {
+                locations.add(task.getStorageLocation());
+                toDelete.add(task);
+            }
+        }
+        if (toDelete.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> failures = deleteAll(locations);
+
+        List<Long> done = new ArrayList<>();
+        for (StorageCleanupTask task : toDelete) {
+            String error = failures.get(task.getStorageLocation());
+            if (error == null) {
+                done.add(task.getId());
+            } else {
+                retryLater(task, error);
+            }
+        }
+        if (!done.isEmpty()) {
+            cleanupService.delete(done);
+            metricRegistry.counter("storage_cleanup_deleted").inc(done.size());
+        }
+        logger.fine(() -> "Deleted " + done.size() + " of " + toDelete.size() + " physical files queued for deletion");
+    }
+
+    /**
+     * @return the storage locations that could not be deleted, with the reason
+     */
+    Map<String, String> deleteAll(Set<String> storageLocations) {
+        return DataAccess.deleteAll(storageLocations, executor);
+    }
+
+    private void retryLater(StorageCleanupTask task, String error) {
+        int attempts = task.getAttempts() + 1;
+        if (backoff.isLastAttempt(attempts)) {
+            giveUp(task, error);
+            return;
+        }
+        long delaySeconds = backoff.getRetryDelay(attempts);
+        logger.fine(() -> "Failed to delete the physical file " + task.getStorageLocation() + " (attempt " + attempts
+                + "), trying again in " + delaySeconds + " seconds: " + error);
+        cleanupService.recordFailure(task, error, new Timestamp(System.currentTimeMillis() + 1000L * delaySeconds));
+    }
+
+    private void giveUp(StorageCleanupTask task, String error) {
+        logger.warning("Failed to delete the physical file associated with the deleted datafile id=" + task.getDataFileId()
+                + ", storage location: " + task.getStorageLocation() + ", giving up: " + error);
+        cleanupService.recordFailure(task, error, null);
+        metricRegistry.counter("storage_cleanup_failed").inc();
+    }
+}
@@ -0,0 +1,154 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.dataaccess.DataAccess;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * The persistence side of the storage cleanup queue, see {@link StorageCleanupTask}.
+ */
+@Stateless
+public class StorageCleanupServiceBean {
+
+    private static final Logger logger = Logger.getLogger(StorageCleanupServiceBean.class.getCanonicalName());
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    EntityManager em;
+
+    /**
+     * Queues the physical files of deleted DataFiles for deletion from storage.
+     *
+     * @param storageLocations the storage locations, by DataFile id
+     */
+    public void enqueue(Map<Long, String> storageLocations) {
+        Timestamp now = new Timestamp(new Date().getTime());
+        storageLocations.forEach((dataFileId, storageLocation) ->
+                em.persist(new StorageCleanupTask(dataFileId, storageLocation, now)));
+        logger.fine(() -> "Queued " + storageLocations.size() + " physical files for deletion");
+    }
+
+    public List<StorageCleanupTask> findDue(int maxResults) {
+        return em.createNamedQuery("StorageCleanupTask.findDue", StorageCleanupTask.class)
+                .setParameter("now", new Timestamp(new Date().getTime()))
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * @return those of the DataFile ids given that still exist
+     */
+    public List<Long> findExisting(Collection<Long> dataFileIds) {
+        return em.createQuery("SELECT o.id FROM DvObject o WHERE o.id IN :ids", Long.class)
+                .setParameter("ids", dataFileIds)
+                .getResultList();
+    }
+
+    /**
+     * @param storageLocations the storage locations of physical files
+     * @return those of the storage locations that a DataFile still refers to,
+     * i.e. has one of their storage identifiers (see
+     * {@link #getStorageIdentifiers(String)})
+     */
+    public Set<String> findInUse(Collection<String> storageLocations) {
+        Set<String> identifiers = new HashSet<>();
+        storageLocations.forEach(storageLocation -> identifiers.addAll(getStorageIdentifiers(storageLocation)));
+        if (identifiers.isEmpty()) {
+            return Set.of();
+        }
+        // (an exact match, on the index of the storage identifiers of the
+        // DataFiles)
+        Set<String> used = new HashSet<>(em.createQuery(
+                "SELECT f.storageIdentifier FROM DataFile f WHERE f.storageIdentifier IN :identifiers", String.class)
+                .setParameter("identifiers", identifiers)
+                .getResultList());
+        Set<String> inUse = new HashSet<>();
+        for (String storageLocation : storageLocations) {
+            if (getStorageIdentifiers(storageLocation).stream().anyMatch(used::contains)) {
+                inUse.add(storageLocation);
+            }
+        }
+        return inUse;
+    }
+
+    /**
+     * @return the storage identifiers a DataFile can have for the physical
+     * file at the storage location: its storage id (see
+     * {@link #getStorageId(String)}), alone (as in older installations),
+     * prefixed with the driver id, or with the driver id and the bucket,
+     * e.g. 18b39722140-50eb7d3c5ece, s3://18b39722140-50eb7d3c5ece and
+     * s3://bucket:18b39722140-50eb7d3c5ece for
+     * s3://bucket/10.5072/FK2/ABCDEF/18b39722140-50eb7d3c5ece
+     */
+    static Set<String> getStorageIdentifiers(String storageLocation) {
+        String storageId = getStorageId(storageLocation);
+        Set<String> identifiers = new LinkedHashSet<>();
+        identifiers.add(storageId);
+        int separator = storageLocation.indexOf(DataAccess.SEPARATOR);
+        if (separator > 0) {
+            String driverId = storageLocation.substring(0, separator);
+            identifiers.add(driverId + DataAccess.SEPARATOR + storageId);
+            String location = storageLocation.substring(separator + DataAccess.SEPARATOR.length());
+            int bucketEnd = location.indexOf('/');
+            if (bucketEnd < 0) {
+                bucketEnd = location.indexOf(':');
+            }
+            if (bucketEnd > 0) {
+                identifiers.add(driverId + DataAccess.SEPARATOR + location.substring(0, bucketEnd) + ":" + storageId);
+            }
+        }
+        return identifiers;
+    }
+
+    /**
+     * @return the storage id of the physical file at the storage location,
+     * e.g. 18b39722140-50eb7d3c5ece for s3://bucket/10.5072/FK2/ABCDEF/18b39722140-50eb7d3c5ece
+     */
+    static String getStorageId(String storageLocation) {
+        return storageLocation.substring(Math.max(storageLocation.lastIndexOf('/'), storageLocation.lastIndexOf(':')) + 1);
+    }
+
+    public long countPending() {
+        return em.createNamedQuery("StorageCleanupTask.countPending", Long.class).getSingleResult();
+    }
+
+    public long countFailed() {
+        return em.createNamedQuery("StorageCleanupTask.countFailed", Long.class).getSingleResult();
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void delete(Collection<Long> taskIds) {
+        em.createNamedQuery("StorageCleanupTask.deleteByIds")
+                .setParameter("ids", taskIds)
+                .executeUpdate();
+    }
+
+    /**
+     * Records a failed attempt: the task is tried again at nextAttemptTime, or,
+     * if null, given up on.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void recordFailure(StorageCleanupTask task, String error, Timestamp nextAttemptTime) {
+        StorageCleanupTask managed = em.find(StorageCleanupTask.class, task.getId());
+        if (managed != null) {
+            managed.setAttempts(managed.getAttempts() + 1);
+            managed.setLastError(error);
+            if (nextAttemptTime == null) {
+                managed.setFailed(true);
+            } else {
+                managed.setNextAttemptTime(nextAttemptTime);
+            }
+        }
+    }
+}
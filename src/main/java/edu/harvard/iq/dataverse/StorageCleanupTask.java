@@ -0,0 +1,116 @@
+package edu.harvard.iq.dataverse;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * A physical file (with its aux objects) waiting to be deleted from storage,
+ * once its DataFile has been deleted from the database: queued by
+ * {@link DataFileServiceBean#finalizeFileDeletes}, and deleted in the
+ * background, in batches, by {@link StorageCleanupDispatcherServiceBean}. A
+ * task is deleted once done; one that could not be done after all its
+ * attempts is kept, marked as failed, for the admins to look into.
+ */
+@Entity
+@Table(indexes = {@Index(columnList = "failed, nextAttemptTime")})
+@NamedQueries({
+    @NamedQuery(name = "StorageCleanupTask.findDue",
+            query = "SELECT t FROM StorageCleanupTask t WHERE t.failed = false AND t.nextAttemptTime <= :now ORDER BY t.id"),
+    @NamedQuery(name = "StorageCleanupTask.countPending",
+            query = "SELECT COUNT(t) FROM StorageCleanupTask t WHERE t.failed = false"),
+    @NamedQuery(name = "StorageCleanupTask.countFailed",
+            query = "SELECT COUNT(t) FROM StorageCleanupTask t WHERE t.failed = true"),
+    @NamedQuery(name = "StorageCleanupTask.deleteByIds",
+            query = "DELETE FROM StorageCleanupTask t WHERE t.id IN :ids")
+})
+public class StorageCleanupTask implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    // the id the deleted DataFile had
+    @Column(nullable = true)
+    private Long dataFileId;
+
+    // see StorageIO.getStorageLocation()
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String storageLocation;
+
+    @Column(nullable = false)
+    private Timestamp createTime;
+
+    @Column(nullable = false)
+    private Timestamp nextAttemptTime;
+
+    // how many times the delete has been attempted so far
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private boolean failed;
+
+    @Column(nullable = true, columnDefinition = "TEXT")
+    private String lastError;
+
+    public StorageCleanupTask() {
+    }
+
+    public StorageCleanupTask(Long dataFileId, String storageLocation, Timestamp createTime) {
+        this.dataFileId = dataFileId;
+        this.storageLocation = storageLocation;
+        this.createTime = createTime;
+        this.nextAttemptTime = createTime;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getDataFileId() {
+        return dataFileId;
+    }
+
+    public String getStorageLocation() {
+        return storageLocation;
+    }
+
+    public Timestamp getCreateTime() {
+        return createTime;
+    }
+
+    public Timestamp getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+
+    public void setNextAttemptTime(Timestamp nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
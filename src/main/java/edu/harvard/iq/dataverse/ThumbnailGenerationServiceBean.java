@@ -0,0 +1,192 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.dataaccess.ImageThumbConverter;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.FileUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Lock;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Timer;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.eclipse.microprofile.metrics.annotation.Metric;
+
+import static jakarta.ejb.LockType.READ;
+
+/**
+ * Background queue for thumbnail generation.
+ *
+ * Thumbnails of new files are queued when the files are saved, so that they
+ * are (usually) ready by the time anybody looks at them. Thumbnails requested
+ * before that happens are queued, too; either way, there is at most one
+ * generation queued or running per file and size (single-flight): concurrent
+ * requests for the same thumbnail wait for the same result instead of decoding
+ * the same image over and over. Requests only wait for a limited time
+ * ({@link JvmSettings#THUMBNAILS_MAX_WAIT}); if the thumbnail isn't ready by
+ * then, the caller gets the placeholder (i.e. no thumbnail) for now, while the
+ * generation continues in the background.
+ *
+ * The number of worker threads is bounded by {@link JvmSettings#THUMBNAILS_WORKERS}.
+ */
+@Lock(READ)
+@Singleton
+@Startup
+public class ThumbnailGenerationServiceBean {
+
+    private static final Logger logger = Logger.getLogger(ThumbnailGenerationServiceBean.class.getCanonicalName());
+
+    @EJB
+    DataFileServiceBean dataFileService;
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    @Inject
+    @Metric(name = "thumbnail_generation_time", absolute = true, unit = MetricUnits.NANOSECONDS,
+            description = "Displays how long does it take to generate a thumbnail (including any other sizes generated along with it)")
+    Timer generationTimer;
+
+    @Inject
+    @Metric(name = "thumbnail_queue_wait_time", absolute = true, unit = MetricUnits.NANOSECONDS,
+            description = "Displays how long thumbnail generation requests spend in the queue before a worker picks them up")
+    Timer queueWaitTimer;
+
+    private ThreadPoolExecutor executor;
+
+    // Generations queued or running right now, by file id and size:
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        int workers = Math.max(1, JvmSettings.THUMBNAILS_WORKERS.lookupOptional(Integer.class).orElse(2));
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), managedThreadFactory);
+        logger.fine("Started the thumbnail generation queue with " + workers + " worker(s)");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Gauge(name = "thumbnail_queue_depth", absolute = true, unit = MetricUnits.NONE,
+            description = "Number of thumbnail generations waiting for a worker")
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Queues the generation of the standard thumbnail sizes for the newly
+     * added files that support thumbnails and don't have them yet.
+     * (Generating the preview size generates all the smaller ones in the same
+     * pass, see {@link ImageThumbConverter}.)
+     */
+    public void queueThumbnails(Iterable<DataFile> dataFiles) {
+        for (DataFile dataFile : dataFiles) {
+            if (dataFile.getId() != null
+                    && !dataFile.isHarvested()
+                    && !dataFile.isPreviewImageAvailable()
+                    && !dataFile.isPreviewImageFail()
+                    && FileUtil.isThumbnailSupported(dataFile)) {
+                submit(dataFile.getId(), ImageThumbConverter.DEFAULT_PREVIEW_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Queues the generation of the thumbnail, unless it is already queued, and
+     * waits for it for a limited time.
+     *
+     * @return true if the thumbnail has been generated, false if the generation
+     * failed, null if it is still pending.
+     */
+    public Boolean awaitThumbnail(DataFile dataFile, int size) {
+        CompletableFuture<Boolean> generation = submit(dataFile.getId(), size);
+        long maxWait = JvmSettings.THUMBNAILS_MAX_WAIT.lookupOptional(Long.class).orElse(3000L);
+        try {
+            return generation.get(maxWait, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException tex) {
+            return null;
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException eex) {
+            return false;
+        }
+    }
+
+    public boolean isPending(DataFile dataFile, int size) {
+        return dataFile.getId() != null && inFlight.containsKey(getKey(dataFile.getId(), size));
+    }
+
+    private CompletableFuture<Boolean> submit(Long dataFileId, int size) {
+        String key = getKey(dataFileId, size);
+        CompletableFuture<Boolean> generation = new CompletableFuture<>();
+        CompletableFuture<Boolean> alreadyInFlight = inFlight.putIfAbsent(key, generation);
+        if (alreadyInFlight != null) {
+            return alreadyInFlight;
+        }
+
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueWaitTimer.update(Duration.ofNanos(System.nanoTime() - queuedAt));
+                try {
+                    generation.complete(generate(dataFileId, size));
+                } catch (Throwable t) {
+                    logger.log(Level.WARNING, "Thumbnail generation failed for file " + dataFileId, t);
+                    generation.complete(false);
+                } finally {
+                    inFlight.remove(key, generation);
+                }
+            });
+        } catch (RejectedExecutionException rex) {
+            // (only happens while the application is shutting down)
+            inFlight.remove(key, generation);
+            generation.complete(false);
+        }
+        return generation;
+    }
+
+    private boolean generate(Long dataFileId, int size) {
+        DataFile dataFile = dataFileService.find(dataFileId);
+        if (dataFile == null || dataFile.isPreviewImageFail()) {
+            return false;
+        }
+
+        boolean generated;
+        try (var timeContext = generationTimer.time()) {
+            generated = ImageThumbConverter.generateThumbnailNow(dataFile, size);
+        }
+
+        if (generated) {
+            if (!dataFile.isPreviewImageAvailable()) {
+                dataFileService.setPreviewImageStatus(dataFileId, true, false);
+            }
+        } else {
+            dataFileService.setPreviewImageStatus(dataFileId, false, true);
+        }
+        return generated;
+    }
+
+    private static String getKey(Long dataFileId, int size) {
+        return dataFileId + ":" + size;
+    }
+}
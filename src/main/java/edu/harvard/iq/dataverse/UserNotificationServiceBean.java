@@ -121,14 +121,16 @@ public class UserNotificationServiceBean {
         userNotification.setRequestor(requestor);
         userNotification.setAdditionalInfo(additionalInfo);
 
-        if (!isEmailMuted(userNotification) && mailService.sendNotificationEmail(userNotification, comment, requestor, isHtmlContent)) {
-            logger.fine("email was sent");
-            userNotification.setEmailed(true);
-        } else {
-            logger.fine("email was not sent");
-        }
+        boolean emailMuted = isEmailMuted(userNotification);
         if (!isNotificationMuted(userNotification)) {
-            save(userNotification);
+            userNotification = save(userNotification);
+        }
+        // The notification is marked as emailed when the email is delivered,
+        // see MailOutboxServiceBean#recordDelivery
+        if (!emailMuted && mailService.sendNotificationEmail(userNotification, comment, requestor, isHtmlContent)) {
+            logger.fine("email was queued");
+        } else {
+            logger.fine("email was not queued");
         }
     }
     
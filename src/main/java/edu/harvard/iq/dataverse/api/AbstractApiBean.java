@@ -39,6 +39,7 @@ import jakarta.ejb.EJB;
 import jakarta.ejb.EJBException;
 import jakarta.json.*;
 import jakarta.json.JsonValue.ValueType;
+import jakarta.json.stream.JsonGenerator;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
@@ -50,6 +51,7 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.ResponseBuilder;
 import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import java.io.InputStream;
 import java.net.URI;
@@ -57,6 +59,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -717,6 +720,29 @@ public abstract class AbstractApiBean {
             .build();
     }
     
+    /**
+     * The same response as {@link #ok(JsonObjectBuilder)}, except that the
+     * data is written by {@code data} straight to the response as it is sent,
+     * rather than built in memory first. {@code data} runs after the API
+     * method has returned, so it should only use what it has been given, and
+     * the (EJB) services.
+     * @param data writes the data, as one JSON value
+     */
+    protected Response ok( Consumer<JsonGenerator> data ) {
+        StreamingOutput stream = out -> {
+            try (JsonGenerator generator = Json.createGenerator(out)) {
+                generator.writeStartObject()
+                    .write("status", ApiConstants.STATUS_OK)
+                    .writeKey("data");
+                data.accept(generator);
+                generator.writeEnd();
+            }
+        };
+        return Response.ok(stream)
+            .type(MediaType.APPLICATION_JSON)
+            .build();
+    }
+
     protected Response ok( JsonObject jo ) {
         return Response.ok( Json.createObjectBuilder()
                 .add("status", ApiConstants.STATUS_OK)
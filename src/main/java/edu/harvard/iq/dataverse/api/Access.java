@@ -36,6 +36,7 @@ import edu.harvard.iq.dataverse.ThemeWidgetFragment;
 import static edu.harvard.iq.dataverse.api.Datasets.handleVersion;
 
 import edu.harvard.iq.dataverse.api.auth.AuthRequired;
+import edu.harvard.iq.dataverse.api.util.HttpCaching;
 import edu.harvard.iq.dataverse.authorization.DataverseRole;
 import edu.harvard.iq.dataverse.authorization.Permission;
 import edu.harvard.iq.dataverse.authorization.RoleAssignee;
@@ -103,6 +104,7 @@ import jakarta.ws.rs.Produces;
 
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.UriInfo;
 
@@ -118,6 +120,7 @@ import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.ServiceUnavailableException;
 import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import static jakarta.ws.rs.core.Response.Status.BAD_REQUEST;
 import jakarta.ws.rs.core.StreamingOutput;
@@ -287,7 +290,7 @@ public class Access extends AbstractApiBean {
     @AuthRequired
     @Path("datafile/{fileId:.+}")
     @Produces({"application/xml"})
-    public Response datafile(@Context ContainerRequestContext crc, @PathParam("fileId") String fileId, @QueryParam("gbrecs") boolean gbrecs, @Context UriInfo uriInfo, @Context HttpHeaders headers, @Context HttpServletResponse response) /*throws NotFoundException, ServiceUnavailableException, PermissionDeniedException, AuthorizationRequiredException*/ {
+    public Response datafile(@Context ContainerRequestContext crc, @PathParam("fileId") String fileId, @QueryParam("gbrecs") boolean gbrecs, @Context UriInfo uriInfo, @Context HttpHeaders headers, @Context HttpServletResponse response, @Context Request request) /*throws NotFoundException, ServiceUnavailableException, PermissionDeniedException, AuthorizationRequiredException*/ {
         
         // check first if there's a trailing slash, and chop it: 
         while (fileId.lastIndexOf('/') == fileId.length() - 1) {
@@ -436,6 +439,33 @@ public class Access extends AbstractApiBean {
         if (headers.getRequestHeaders().containsKey("Range")) {
             return Response.status(Response.Status.PARTIAL_CONTENT).entity(downloadInstance).build();
         }
+        // The bytes of a published, unrestricted file (or of its saved original)
+        // never change, so a client holding them already is told so, without
+        // them being read from storage again (or a guestbook record written).
+        // Thumbnails and the other format conversions are left out.
+        boolean cacheable = df.isReleased() && FileUtil.isPubliclyDownloadable(df.getFileMetadata())
+                && (!serviceRequested || "original".equals(downloadInstance.getConversionParamValue()));
+        if (cacheable) {
+            EntityTag eTag = HttpCaching.entityTag("datafile", df.getId(), df.getChecksumType(), df.getChecksumValue(),
+                    serviceRequested ? downloadInstance.getConversionParamValue() : "",
+                    df.isTabularData() ? df.getDataTable().getId() : "");
+            // The publication date says nothing about a tabular file, which can
+            // be re-ingested or uningested after it was published (under the
+            // same checksum): it is only validated on the entity tag, which
+            // changes with the ingested data table.
+            Date lastModified = df.isTabularData() ? null : df.getPublicationDate();
+            Response notModified = HttpCaching.notModified(request, lastModified, eTag);
+            if (notModified != null) {
+                return notModified;
+            }
+            Response.ResponseBuilder builder = Response.ok(downloadInstance)
+                    .tag(eTag)
+                    .cacheControl(HttpCaching.publicCacheControl());
+            if (lastModified != null) {
+                builder.lastModified(lastModified);
+            }
+            return builder.build();
+        }
         return Response.ok(downloadInstance).build();
     }
     
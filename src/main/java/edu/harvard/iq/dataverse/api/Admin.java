@@ -21,6 +21,7 @@ import edu.harvard.iq.dataverse.util.StringUtil;
 import edu.harvard.iq.dataverse.validation.EMailValidator;
 import edu.harvard.iq.dataverse.EjbDataverseEngine;
 import edu.harvard.iq.dataverse.Template;
+import edu.harvard.iq.dataverse.StorageCleanupServiceBean;
 import edu.harvard.iq.dataverse.TemplateServiceBean;
 import edu.harvard.iq.dataverse.UserServiceBean;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
@@ -176,6 +177,8 @@ public class Admin extends AbstractApiBean {
     BannerMessageServiceBean bannerMessageService;
     @EJB
     TemplateServiceBean templateService;
+    @EJB
+    StorageCleanupServiceBean storageCleanupService;
 
     // Make the session available
     @Inject
@@ -1291,6 +1294,18 @@ public class Admin extends AbstractApiBean {
 		return ok(arr);
 	}
 
+	/**
+	 * @return the numbers of physical files waiting to be deleted, and given
+	 *         up on, see StorageCleanupDispatcherServiceBean
+	 */
+	@Path("storageCleanup")
+	@GET
+	public Response getStorageCleanupStatus() {
+		return ok(Json.createObjectBuilder()
+				.add("pending", storageCleanupService.countPending())
+				.add("failed", storageCleanupService.countFailed()));
+	}
+
 	/**
 	 * This method is used in integration tests.
 	 *
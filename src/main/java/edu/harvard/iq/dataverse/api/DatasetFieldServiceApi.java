@@ -11,6 +11,7 @@ import edu.harvard.iq.dataverse.DatasetFieldType.FieldType;
 import edu.harvard.iq.dataverse.DataverseServiceBean;
 import edu.harvard.iq.dataverse.MetadataBlock;
 import edu.harvard.iq.dataverse.MetadataBlockServiceBean;
+import edu.harvard.iq.dataverse.MetadataSchemaRegistryBean;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
 import java.io.BufferedReader;
 import java.io.File;
@@ -68,6 +69,9 @@ public class DatasetFieldServiceApi extends AbstractApiBean {
     @EJB
     ControlledVocabularyValueServiceBean controlledVocabularyValueService;
 
+    @EJB
+    MetadataSchemaRegistryBean metadataSchemaRegistry;
+
     private static final Logger logger = Logger.getLogger(DatasetFieldServiceApi.class.getName());
     
     @GET
@@ -215,6 +219,7 @@ public class DatasetFieldServiceApi extends AbstractApiBean {
             ControlledVocabularyValue naValue = new ControlledVocabularyValue();
             naValue.setStrValue(DatasetField.NA_VALUE);
             datasetFieldService.save(naValue);
+            metadataSchemaRegistry.reload();
             return ok("NA value created.");
 
         } else {
@@ -311,6 +316,8 @@ public class DatasetFieldServiceApi extends AbstractApiBean {
                     logger.log(Level.WARNING, "Error closing the reader while importing Dataset Fields.");
                 }
             }
+            // (even after a failure, whatever was saved up to that point is there now)
+            metadataSchemaRegistry.reload();
             actionLogSvc.log(alr);
         }
 
@@ -7,6 +7,7 @@ import edu.harvard.iq.dataverse.DatasetLock.Reason;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
 import edu.harvard.iq.dataverse.api.auth.AuthRequired;
 import edu.harvard.iq.dataverse.api.dto.RoleAssignmentDTO;
+import edu.harvard.iq.dataverse.api.util.HttpCaching;
 import edu.harvard.iq.dataverse.authorization.AuthenticationServiceBean;
 import edu.harvard.iq.dataverse.authorization.DataverseRole;
 import edu.harvard.iq.dataverse.authorization.Permission;
@@ -107,7 +108,12 @@ import static jakarta.ws.rs.core.Response.Status.BAD_REQUEST;
 public class Datasets extends AbstractApiBean {
 
     private static final Logger logger = Logger.getLogger(Datasets.class.getCanonicalName());
+
     private static final Pattern dataFilePattern = Pattern.compile("^[0-9a-f]{11}-[0-9a-f]{12}\\.?.*");
+    // how many files to look up at a time, when streaming the files of a version
+    private static final int FILE_METADATA_PAGE_SIZE = 500;
+    // the most files to get upload urls for, or multipart uploads to complete, in one call
+    static final int MAX_UPLOAD_URLS_PER_REQUEST = 1000;
     
     @Inject DataverseSession session;
 
@@ -222,7 +228,7 @@ public class Datasets extends AbstractApiBean {
     @GET
     @Path("/export")
     @Produces({"application/xml", "application/json", "application/html", "application/ld+json", "*/*" })
-    public Response exportDataset(@QueryParam("persistentId") String persistentId, @QueryParam("exporter") String exporter, @Context UriInfo uriInfo, @Context HttpHeaders headers, @Context HttpServletResponse response) {
+    public Response exportDataset(@QueryParam("persistentId") String persistentId, @QueryParam("exporter") String exporter, @Context UriInfo uriInfo, @Context HttpHeaders headers, @Context HttpServletResponse response, @Context Request request) {
 
         try {
             Dataset dataset = datasetService.findByGlobalId(persistentId);
@@ -232,17 +238,44 @@ public class Datasets extends AbstractApiBean {
             
             ExportService instance = ExportService.getInstance();
             
-            InputStream is = instance.getExport(dataset, exporter);
+            // The cached export of a released version only changes when the
+            // version is updated or exported again, so a client holding it
+            // already is told so, without reading (or logging) it again. The
+            // time the export in this format was written is used, rather than
+            // the last export time of the dataset, which a failed re-export of
+            // some of the formats leaves unchanged:
+            DatasetVersion releasedVersion = dataset.getReleasedVersion();
+            boolean stale = instance.isCachedExportStale(dataset, exporter);
+            Date exportTime = null;
+            EntityTag eTag = null;
+            if (releasedVersion != null && !stale) {
+                exportTime = instance.getCachedExportTime(dataset, exporter);
+            }
+            if (exportTime != null) {
+                eTag = HttpCaching.entityTag("export", dataset.getId(), releasedVersion.getId(),
+                        releasedVersion.getLastUpdateTime(), exportTime, exporter);
+                Response notModified = HttpCaching.notModified(request, exportTime, eTag);
+                if (notModified != null) {
+                    return notModified;
+                }
+            }
+            
+            InputStream is = instance.getExport(dataset, exporter, stale);
            
             String mediaType = instance.getMediaType(exporter);
             //Export is only possible for released (non-draft) dataset versions so we can log without checking to see if this is a request for a draft 
             MakeDataCountLoggingServiceBean.MakeDataCountEntry entry = new MakeDataCountEntry(uriInfo, headers, dvRequestService, dataset);
             mdcLogService.logEntry(entry);
             
-            return Response.ok()
+            Response.ResponseBuilder builder = Response.ok()
                     .entity(is)
-                    .type(mediaType).
-                    build();
+                    .type(mediaType);
+            if (eTag != null) {
+                builder.tag(eTag)
+                        .lastModified(exportTime)
+                        .cacheControl(HttpCaching.publicCacheControl());
+            }
+            return builder.build();
         } catch (Exception wr) {
             logger.warning(wr.getMessage());
             return error(Response.Status.FORBIDDEN, "Export Failed");
@@ -457,14 +490,18 @@ public class Datasets extends AbstractApiBean {
                 return notFound("Dataset version not found");
             }
 
-            if (excludeFiles == null ? true : !excludeFiles) {
-                requestedDatasetVersion = datasetversionService.findDeep(requestedDatasetVersion.getId());
-            }
-
             JsonObjectBuilder jsonBuilder = json(requestedDatasetVersion,
                                                  null, 
-                                                 excludeFiles == null ? true : !excludeFiles, 
+                                                 false, 
                                                  returnOwners);
+            if (excludeFiles == null ? true : !excludeFiles) {
+                // The files are looked up a page at a time, and written out
+                // as they are, rather than all held in memory at once:
+                JsonObject versionJson = jsonBuilder.build();
+                Long versionId = requestedDatasetVersion.getId();
+                return ok(generator -> writeJson(generator, versionJson, () -> new PagedIterator<>(
+                        last -> datasetversionService.findFileMetadatas(versionId, last, FILE_METADATA_PAGE_SIZE))));
+            }
             return ok(jsonBuilder);
 
         }, getRequestUser(crc));
@@ -2616,6 +2653,77 @@ public class Datasets extends AbstractApiBean {
         }
     }
 
+    /**
+     * The batch version of {@link #getMPUploadUrls}: the body is a json array of
+     * the sizes of the files to upload, and the response an array of the upload
+     * url(s) and storage identifier of each file, in the same order.
+     */
+    @POST
+    @AuthRequired
+    @Path("{id}/uploadurls")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response getMPUploadUrlsBatch(@Context ContainerRequestContext crc, @PathParam("id") String idSupplied, String jsonBody) {
+        try {
+            Dataset dataset = findDatasetOrDie(idSupplied);
+
+            boolean canUpdateDataset = permissionSvc.requestOn(createDataverseRequest(getRequestUser(crc)), dataset)
+                    .canIssue(UpdateDatasetVersionCommand.class);
+            if (!canUpdateDataset) {
+                return error(Response.Status.FORBIDDEN, "You are not permitted to upload files to this dataset.");
+            }
+            List<Long> fileSizes = new ArrayList<>();
+            try {
+                JsonArray sizes = JsonUtil.getJsonArray(jsonBody);
+                for (JsonNumber size : sizes.getValuesAs(JsonNumber.class)) {
+                    fileSizes.add(size.longValueExact());
+                }
+            } catch (JsonException | ClassCastException | ArithmeticException ex) {
+                return error(Response.Status.BAD_REQUEST, "Expected a json array of file sizes: " + ex.getMessage());
+            }
+            if (fileSizes.isEmpty() || fileSizes.size() > MAX_UPLOAD_URLS_PER_REQUEST) {
+                return error(Response.Status.BAD_REQUEST,
+                        "Upload urls can be requested for 1 to " + MAX_UPLOAD_URLS_PER_REQUEST + " files at a time.");
+            }
+            S3AccessIO<DataFile> s3io = FileUtil.getS3AccessForDirectUpload(dataset);
+            if (s3io == null) {
+                return error(Response.Status.NOT_FOUND,
+                        "Direct upload not supported for files in this dataset: " + dataset.getId());
+            }
+            Long maxSize = systemConfig.getMaxFileUploadSizeForStore(dataset.getEffectiveStorageDriverId());
+            long totalSize = 0;
+            for (long fileSize : fileSizes) {
+                // (a negative size, or sizes adding up past a long, would get
+                // around the quota check below)
+                if (fileSize < 0 || fileSize > Long.MAX_VALUE - totalSize) {
+                    return error(Response.Status.BAD_REQUEST, "Invalid file size: " + fileSize);
+                }
+                if (maxSize != null && fileSize > maxSize) {
+                    return error(Response.Status.BAD_REQUEST,
+                            "One of the files you are trying to upload is too large to be uploaded to this dataset. " +
+                                    "The maximum allowed file size is " + maxSize + " bytes.");
+                }
+                totalSize += fileSize;
+            }
+            UploadSessionQuotaLimit limit = fileService.getUploadSessionQuotaLimit(dataset);
+            if (limit != null) {
+                if(totalSize > limit.getRemainingQuotaInBytes()) {
+                    return error(Response.Status.BAD_REQUEST,
+                            "The files you are trying to upload are too large to be uploaded to this dataset. " +
+                                    "The remaing file size quota is " + limit.getRemainingQuotaInBytes() + " bytes.");
+                }
+            }
+            try {
+                return ok(s3io.generateTemporaryS3UploadUrls(dataset, fileSizes));
+            } catch (IOException io) {
+                logger.warning(io.getMessage());
+                throw new WrappedResponse(io,
+                        error(Response.Status.INTERNAL_SERVER_ERROR, "Could not create process direct upload request"));
+            }
+        } catch (WrappedResponse wr) {
+            return wr.getResponse();
+        }
+    }
+
     @DELETE
     @AuthRequired
     @Path("mpupload")
@@ -2745,6 +2853,67 @@ public class Datasets extends AbstractApiBean {
         }
     }
 
+    /**
+     * Completes several multipart uploads at once. The body is a json array of
+     * the uploads, each with its "storageIdentifier", "uploadId" and "eTags" (as
+     * sent to the mpupload API); the uploads that can't be completed are
+     * aborted, and listed in the response with the reason.
+     */
+    @PUT
+    @AuthRequired
+    @Path("mpupload/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response completeMPUploads(@Context ContainerRequestContext crc, String jsonBody, @QueryParam("globalid") String idSupplied) {
+        if (idSupplied == null || idSupplied.isBlank()) {
+            return error(Response.Status.BAD_REQUEST, "The globalid of the dataset is required.");
+        }
+        try {
+            Dataset dataset = datasetSvc.findByGlobalId(idSupplied);
+            //Allow the API to be used within a session (e.g. for direct upload in the UI)
+            User user = session.getUser();
+            if (!user.isAuthenticated()) {
+                user = getRequestAuthenticatedUserOrDie(crc);
+            }
+            // As with completeMPUpload, a global id without a dataset is that of a dataset being created
+            if (dataset != null && !permissionSvc.requestOn(createDataverseRequest(user), dataset)
+                    .canIssue(UpdateDatasetVersionCommand.class)) {
+                return error(Response.Status.FORBIDDEN,
+                        "You are not permitted to complete file uploads with the supplied parameters.");
+            }
+            List<S3AccessIO.MultipartUpload> uploads = new ArrayList<>();
+            try {
+                for (JsonObject upload : JsonUtil.getJsonArray(jsonBody).getValuesAs(JsonObject.class)) {
+                    JsonObject eTags = upload.getJsonObject("eTags");
+                    List<PartETag> eTagList = new ArrayList<>(eTags.size());
+                    for (String partNo : eTags.keySet()) {
+                        eTagList.add(new PartETag(Integer.parseInt(partNo), eTags.getString(partNo)));
+                    }
+                    uploads.add(new S3AccessIO.MultipartUpload(upload.getString("storageIdentifier"),
+                            upload.getString("uploadId"), eTagList));
+                }
+            } catch (JsonException | ClassCastException | NullPointerException | NumberFormatException ex) {
+                return error(Response.Status.BAD_REQUEST, "Could not parse the multipart uploads to complete: " + ex.getMessage());
+            }
+            if (uploads.isEmpty() || uploads.size() > MAX_UPLOAD_URLS_PER_REQUEST) {
+                return error(Response.Status.BAD_REQUEST,
+                        "1 to " + MAX_UPLOAD_URLS_PER_REQUEST + " multipart uploads can be completed at a time.");
+            }
+            Map<String, String> failures;
+            try {
+                failures = S3AccessIO.completeMultipartUploads(idSupplied, uploads);
+            } catch (IOException io) {
+                return error(Response.Status.BAD_REQUEST, io.getMessage());
+            }
+            JsonObjectBuilder failed = Json.createObjectBuilder();
+            failures.forEach(failed::add);
+            return ok(Json.createObjectBuilder()
+                    .add("completed", uploads.size() - failures.size())
+                    .add("failed", failed));
+        } catch (WrappedResponse wr) {
+            return wr.getResponse();
+        }
+    }
+
     /**
      * Add a File to an existing Dataset
      *
@@ -4065,17 +4234,16 @@ public class Datasets extends AbstractApiBean {
         }
 
 
-        ApiToken token = authSvc.findApiTokenByUser(authUser);
-
         if(uriInfo != null) {
             logger.info(" ====  (api uriInfo.getRequestUri()) jsonData   ====== " + uriInfo.getRequestUri().toString());
         }
 
+        // The files will be added once the transfer completes, long after this
+        // request is gone; so the request passed on must not hold on to it:
+        DataverseRequest dvRequest = new DataverseRequest(authUser, createDataverseRequest(authUser).getSourceAddress());
 
-        String requestUrl = SystemConfig.getDataverseSiteUrlStatic();
-        
         // Async Call
-        globusService.globusUpload(jsonObject, token, dataset, requestUrl, authUser);
+        globusService.globusUpload(jsonObject, dvRequest, dataset, authUser);
 
         return ok("Async call to Globus Upload started ");
 
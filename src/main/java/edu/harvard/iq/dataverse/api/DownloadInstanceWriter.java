@@ -68,6 +68,8 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
     GlobusServiceBean globusService;
 
     private static final Logger logger = Logger.getLogger(DownloadInstanceWriter.class.getCanonicalName());
+    
+    private static final long THUMBNAIL_RETRY_AFTER_SECONDS = 5L;
 
     @Override
     public boolean isWriteable(Class<?> clazz, Type type, Annotation[] annotation, MediaType mediaType) {
@@ -279,16 +281,18 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                     // are available (but not on harvested files1) -- L.A. 4.6.2
 
                     if (di.getConversionParam().equals("imageThumb") && !dataFile.isHarvested()) {
+                        int thumbnailSize = ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE;
                         if ("".equals(di.getConversionParamValue())) {
-                            storageIO = ImageThumbConverter.getImageThumbnailAsInputStream(storageIO, ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE);
+                            storageIO = ImageThumbConverter.getImageThumbnailAsInputStream(storageIO, thumbnailSize);
                         } else {
                             try {
                                 int size = Integer.parseInt(di.getConversionParamValue());
                                 if (size > 0) {
-                                    storageIO = ImageThumbConverter.getImageThumbnailAsInputStream(storageIO, size);
+                                    thumbnailSize = size;
+                                    storageIO = ImageThumbConverter.getImageThumbnailAsInputStream(storageIO, thumbnailSize);
                                 }
                             } catch (java.lang.NumberFormatException ex) {
-                                storageIO = ImageThumbConverter.getImageThumbnailAsInputStream(storageIO, ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE);
+                                storageIO = ImageThumbConverter.getImageThumbnailAsInputStream(storageIO, thumbnailSize);
                             }
 
                             // and, since we now have tabular data files that can 
@@ -299,6 +303,13 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                                 storageIO.setVarHeader(null);
                             }
                         }
+
+                        // The thumbnail may simply not be ready yet - in which 
+                        // case we ask the client to come back shortly, instead
+                        // of reporting it as missing:
+                        if (storageIO == null && ImageThumbConverter.isThumbnailGenerationPending(dataFile, thumbnailSize)) {
+                            throw new ServiceUnavailableException(THUMBNAIL_RETRY_AFTER_SECONDS);
+                        }
                     } else if (dataFile.isTabularData()) {
                         logger.fine("request for tabular data download;");
                         // We can now generate thumbnails for some tabular data files (specifically, 
@@ -7,7 +7,12 @@ package edu.harvard.iq.dataverse.api;
 
 import edu.harvard.iq.dataverse.Dataset;
 import edu.harvard.iq.dataverse.DatasetServiceBean;
+import edu.harvard.iq.dataverse.export.ExportService;
+import edu.harvard.iq.dataverse.export.MetadataExportJobServiceBean;
+import io.gdcc.spi.export.ExportException;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 import jakarta.ejb.EJB;
 import jakarta.json.Json;
@@ -36,6 +41,9 @@ public class Metadata extends AbstractApiBean {
     @EJB
     DatasetServiceBean datasetService;
 
+    @EJB
+    MetadataExportJobServiceBean exportJobService;
+
     // The following 2 commands start export all jobs in the background, 
     // asynchronously. 
     // (These API calls should probably not be here;
@@ -47,9 +55,8 @@ public class Metadata extends AbstractApiBean {
     @GET
     @Path("/exportAll")
     @Produces("application/json")
-    public Response exportAll() {
-        datasetService.exportAllAsync();
-        return this.accepted();
+    public Response exportAll(@QueryParam("formats") String formats) {
+        return startExportJob(false, formats);
     }
     
     // reExportAll will FORCE A FULL REEXPORT on every published, local 
@@ -57,11 +64,59 @@ public class Metadata extends AbstractApiBean {
     @GET
     @Path("/reExportAll")
     @Produces("application/json")
-    public Response reExportAll() {
-        datasetService.reExportAllAsync();
+    public Response reExportAll(@QueryParam("formats") String formats) {
+        return startExportJob(true, formats);
+    }
+
+    // Both calls above take an optional, comma-separated list of formats to
+    // export (e.g. ?formats=ddi,oai_ddi); all the formats are exported by default.
+    private Response startExportJob(boolean forceReExport, String formats) {
+        List<String> formatNames = null;
+        if (formats != null && !formats.isBlank()) {
+            formatNames = new ArrayList<>();
+            for (String formatName : formats.split(",")) {
+                try {
+                    formatNames.add(ExportService.getInstance().getExporter(formatName.trim()).getFormatName());
+                } catch (ExportException ex) {
+                    return error(Response.Status.BAD_REQUEST, "Unknown export format: " + formatName.trim());
+                }
+            }
+        }
+        if (exportJobService.isRunning()) {
+            return error(Response.Status.CONFLICT, "An export job is already running; see /api/admin/metadata/exportStatus");
+        }
+        exportJobService.runExportJobAsync(forceReExport, formatNames);
         return this.accepted();
     }
 
+    @GET
+    @Path("/exportStatus")
+    @Produces("application/json")
+    public Response exportStatus() {
+        MetadataExportJobServiceBean.ExportJobStatus status = exportJobService.getStatus();
+        if (status == null) {
+            return ok("No export job has been run since the last restart");
+        }
+        JsonObjectBuilder job = Json.createObjectBuilder()
+                .add("running", status.getEndTime() == null)
+                .add("startTime", status.getStartTime().toInstant().toString())
+                .add("forceReExport", status.isForceReExport())
+                .add("total", status.getTotal())
+                .add("processed", status.getProcessed())
+                .add("succeeded", status.getSucceeded())
+                .add("failed", status.getFailed())
+                .add("datasetsPerSecond", status.getThroughput());
+        if (status.getEndTime() != null) {
+            job.add("endTime", status.getEndTime().toInstant().toString());
+        }
+        if (status.getFormatNames() != null) {
+            JsonArrayBuilder formatNames = Json.createArrayBuilder();
+            status.getFormatNames().forEach(formatNames::add);
+            job.add("formats", formatNames);
+        }
+        return ok(job);
+    }
+
     @GET
     @Path("{id}/reExportDataset")
     public Response indexDatasetByPersistentId(@PathParam("id") String id) {
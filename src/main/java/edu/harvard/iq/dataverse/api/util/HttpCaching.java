@@ -0,0 +1,72 @@
+package edu.harvard.iq.dataverse.api.util;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Helpers for answering conditional requests (If-None-Match, If-Modified-Since)
+ * for published content that doesn't change once published, such as the
+ * metadata exports of a released dataset version or the bytes of a released
+ * file: a client (or a proxy) holding a copy gets a 304 Not Modified, rather
+ * than the content all over again.
+ */
+public class HttpCaching {
+
+    private HttpCaching() {}
+
+    /**
+     * @param parts what identifies the content (and its version), e.g. the
+     * ids and the last update time of the objects it is made from
+     * @return a strong entity tag, the same for the same parts
+     */
+    public static EntityTag entityTag(Object... parts) {
+        String key = Arrays.stream(parts)
+                .map(part -> (part instanceof Date date) ? String.valueOf(date.getTime()) : String.valueOf(part))
+                .collect(Collectors.joining(":"));
+        return new EntityTag(UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString());
+    }
+
+    /**
+     * The content can be cached by shared caches too, but only for
+     * {@link #getMaxAge()} seconds without checking back with us, as access to
+     * published content can still be taken away (e.g. on deaccession).
+     */
+    public static CacheControl publicCacheControl() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(getMaxAge());
+        return cacheControl;
+    }
+
+    /**
+     * @return the max-age of the cacheable responses, in seconds; see
+     * {@link JvmSettings#API_CACHE_MAX_AGE}
+     */
+    public static int getMaxAge() {
+        return Math.max(0, JvmSettings.API_CACHE_MAX_AGE.lookupOptional(Integer.class).orElse(3600));
+    }
+
+    /**
+     * @return a 304 Not Modified response, if the preconditions of the request
+     * say the client has the content already; null if the content is to be
+     * sent
+     */
+    public static Response notModified(Request request, Date lastModified, EntityTag eTag) {
+        Response.ResponseBuilder builder = (lastModified == null)
+                ? request.evaluatePreconditions(eTag)
+                : request.evaluatePreconditions(lastModified, eTag);
+        if (builder == null) {
+            return null;
+        }
+        return builder.tag(eTag).cacheControl(publicCacheControl()).build();
+    }
+}
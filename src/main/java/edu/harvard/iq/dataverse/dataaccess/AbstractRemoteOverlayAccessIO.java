@@ -9,6 +9,7 @@ import java.nio.file.Path;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Date;
 import java.util.List;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
@@ -97,6 +98,11 @@ public abstract class AbstractRemoteOverlayAccessIO<T extends DvObject> extends
         return baseStore.getAuxObjectSize(auxItemTag);
     }
 
+    @Override
+    public Date getAuxObjectLastModified(String auxItemTag) throws IOException {
+        return baseStore.getAuxObjectLastModified(auxItemTag);
+    }
+
     @Override
     public Path getAuxObjectAsPath(String auxItemTag) throws IOException {
         return baseStore.getAuxObjectAsPath(auxItemTag);
@@ -199,8 +205,10 @@ public abstract class AbstractRemoteOverlayAccessIO<T extends DvObject> extends
         } else {
             cm = new PoolingHttpClientConnectionManager();
         }
-        cm.setDefaultMaxPerRoute(httpConcurrency);
-        cm.setMaxTotal(httpConcurrency > 20 ? httpConcurrency : 20);
+        // Enough connections for the parts of a file read ahead in parallel:
+        int maxPerRoute = Math.max(httpConcurrency, getReadAheadParts());
+        cm.setDefaultMaxPerRoute(maxPerRoute);
+        cm.setMaxTotal(maxPerRoute > 20 ? maxPerRoute : 20);
     }
 
     @Override
@@ -25,8 +25,16 @@ import edu.harvard.iq.dataverse.DvObject;
 import edu.harvard.iq.dataverse.util.FileUtil;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang3.StringUtils;
@@ -140,6 +148,49 @@ public class DataAccess {
         }
     }
     
+    /**
+     * Permanently deletes the files at the storage locations given (see
+     * {@link StorageIO#getStorageLocation()}), with their aux objects: for S3
+     * stores, with multi-object deletes; for the other stores, one file per
+     * thread, several at a time. Unlike {@link StorageIO#delete()}, this does
+     * not check whether the files are still in use.
+     *
+     * @param executor runs the deletes in parallel
+     * @return the storage locations that could not be deleted, with the reason
+     */
+    public static Map<String, String> deleteAll(Collection<String> storageLocations, ExecutorService executor) {
+        Map<String, List<String>> locationsByDriver = new LinkedHashMap<>();
+        for (String storageLocation : storageLocations) {
+            locationsByDriver.computeIfAbsent(getDriverIdAndStorageLocation(storageLocation)[0], d -> new ArrayList<>())
+                    .add(storageLocation);
+        }
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> deletes = new ArrayList<>();
+        locationsByDriver.forEach((driverId, locations) -> {
+            if (S3.equals(getDriverType(driverId))) {
+                deletes.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        failures.putAll(S3AccessIO.deleteAll(driverId, locations));
+                    } catch (RuntimeException e) {
+                        locations.forEach(location -> failures.put(location, String.valueOf(e.getMessage())));
+                    }
+                }, executor));
+            } else {
+                for (String location : locations) {
+                    deletes.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            getDirectStorageIO(location).delete();
+                        } catch (IOException | RuntimeException e) {
+                            failures.put(location, String.valueOf(e.getMessage()));
+                        }
+                    }, executor));
+                }
+            }
+        });
+        CompletableFuture.allOf(deletes.toArray(new CompletableFuture[0])).join();
+        return failures;
+    }
+
     public static String[] getDriverIdAndStorageLocation(String storageLocation) {
     	//default if no prefix
     	String storageIdentifier=storageLocation;
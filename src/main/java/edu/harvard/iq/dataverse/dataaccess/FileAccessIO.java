@@ -32,7 +32,10 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -300,6 +303,17 @@ public class FileAccessIO<T extends DvObject> extends StorageIO<T> {
         
         return auxPath.toFile().length();
     }
+
+    @Override
+    public Date getAuxObjectLastModified(String auxItemTag) throws IOException {
+        Path auxPath = getAuxObjectAsPath(auxItemTag);
+
+        if (!auxPath.toFile().exists()) {
+            return null;
+        }
+
+        return new Date(Files.getLastModifiedTime(auxPath).toMillis());
+    }
     
     @Override
     public Path getAuxObjectAsPath(String auxItemTag) throws IOException {
@@ -677,6 +691,11 @@ public class FileAccessIO<T extends DvObject> extends StorageIO<T> {
     }
 
     private List<String> listAllFiles() throws IOException {
+        return new ArrayList<>(listObjectSizes().keySet());
+    }
+
+    @Override
+    public Map<String, Long> listObjectSizes() throws IOException {
         Dataset dataset = this.getDataset();
         if (dataset == null) {
             throw new IOException("This FileAccessIO object hasn't been properly initialized.");
@@ -687,16 +706,18 @@ public class FileAccessIO<T extends DvObject> extends StorageIO<T> {
             throw new IOException("Could not determine the filesystem directory of the dataset.");
         }
 
-        DirectoryStream<Path> dirStream = Files.newDirectoryStream(Paths.get(this.getFilesRootDirectory(), datasetDirectoryPath.toString()));
-        
-        List<String> res = new ArrayList<>();
-        if (dirStream != null) {
+        Map<String, Long> res = new LinkedHashMap<>();
+        Path datasetDirectory = Paths.get(this.getFilesRootDirectory(), datasetDirectoryPath.toString());
+        if (!Files.isDirectory(datasetDirectory)) {
+            // nothing stored for the dataset yet
+            return res;
+        }
+        try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(datasetDirectory)) {
             for (Path filePath : dirStream) {
-                res.add(filePath.getFileName().toString());
+                res.put(filePath.getFileName().toString(), Files.size(filePath));
             }
-            dirStream.close();
         }
-        
+
         return res;
     }
     
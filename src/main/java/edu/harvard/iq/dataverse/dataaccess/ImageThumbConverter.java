@@ -25,17 +25,25 @@ import java.io.FileInputStream;
 import java.io.IOException;
 
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
 
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
 import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
 
 import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.DataFileServiceBean;
+import edu.harvard.iq.dataverse.ThumbnailGenerationServiceBean;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
 import edu.harvard.iq.dataverse.util.FileUtil;
 import edu.harvard.iq.dataverse.util.SystemConfig;
 import java.io.ByteArrayOutputStream;
@@ -70,6 +78,28 @@ public class ImageThumbConverter {
 
     private static final Logger logger = Logger.getLogger(ImageThumbConverter.class.getCanonicalName());
 
+    /*
+     * Decoding an image, even a subsampled one, is the memory-hungry part of
+     * thumbnail generation; the number of decodes running at the same time is
+     * bounded by this pool of permits. Unless configured explicitly, we allow
+     * one decode per 512 MB of heap, but no more than there are processors.
+     * (The holder class makes sure the setting is only looked up on first use.)
+     */
+    private static class DecodePermits {
+        private static final Semaphore permits = new Semaphore(getMaxConcurrentDecodes(), true);
+
+        private static int getMaxConcurrentDecodes() {
+            long heapBased = Math.max(1L, Runtime.getRuntime().maxMemory() / (512L * 1024L * 1024L));
+            int defaultPermits = (int) Math.min(heapBased, Runtime.getRuntime().availableProcessors());
+            try {
+                return Math.max(1, JvmSettings.THUMBNAILS_MAX_CONCURRENT_DECODES.lookupOptional(Integer.class).orElse(defaultPermits));
+            } catch (Exception ex) {
+                logger.warning("Invalid value for " + JvmSettings.THUMBNAILS_MAX_CONCURRENT_DECODES.getScopedKey() + ", using " + defaultPermits);
+                return defaultPermits;
+            }
+        }
+    }
+
     public ImageThumbConverter() {
     }
 
@@ -124,7 +154,61 @@ public class ImageThumbConverter {
 
     }
 
+    /*
+     * Thumbnails are normally generated by the background queue, so that 
+     * concurrent requests for the same thumbnail only result in one generation 
+     * (see ThumbnailGenerationServiceBean). If the queue is not available 
+     * (for ex., outside of the application server), or the file hasn't been 
+     * saved yet, we generate the thumbnail in the current thread. 
+     * A false return value does not necessarily mean that the generation has 
+     * failed; it may still be in progress. Use isThumbnailGenerationPending() 
+     * to tell the two apart.
+     */
     private static boolean generateThumbnail(DataFile file, StorageIO<DataFile> storageIO, int size) {
+        if (file.isPreviewImageFail()) {
+            logger.fine("Not trying to generate thumbnail, file id: " + file.getId());
+            return false;
+        }
+
+        ThumbnailGenerationServiceBean thumbnailGenerationService = getThumbnailGenerationService();
+        if (thumbnailGenerationService == null || file.getId() == null) {
+            return generateThumbnailNow(file, storageIO, size);
+        }
+
+        Boolean thumbnailGenerated = thumbnailGenerationService.awaitThumbnail(file, size);
+        if (thumbnailGenerated == null) {
+            logger.fine("Thumbnail generation still pending for " + file.getId());
+            return false;
+        }
+        if (!thumbnailGenerated) {
+            // (the failure has already been recorded in the database by the 
+            // queue; this just keeps the copy we were given in sync)
+            file.setPreviewImageFail(true);
+            file.setPreviewImageAvailable(false);
+        }
+        return thumbnailGenerated;
+    }
+
+    /**
+     * Generates the thumbnail of the given size (and any other standard sizes
+     * not cached yet, if the image has to be decoded) in the current thread,
+     * unless it is already cached. This is what the background thumbnail queue
+     * runs; everybody else should go through isThumbnailAvailable().
+     */
+    public static boolean generateThumbnailNow(DataFile file, int size) {
+        try {
+            StorageIO<DataFile> storageIO = file.getStorageIO();
+            if (isThumbnailCached(storageIO, size)) {
+                return true;
+            }
+            return generateThumbnailNow(file, storageIO, size);
+        } catch (IOException ioEx) {
+            logger.warning("Failed to open the storage for file " + file.getId() + ": " + ioEx.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean generateThumbnailNow(DataFile file, StorageIO<DataFile> storageIO, int size) {
         logger.fine((file.isPreviewImageFail() ? "Not trying" : "Trying") + " to generate thumbnail, file id: " + file.getId());
         boolean thumbnailGenerated = false;
         // Don't try to generate if there have been failures:
@@ -144,6 +228,25 @@ public class ImageThumbConverter {
         return thumbnailGenerated;
     }
 
+    /**
+     * @return true if a thumbnail of this size is queued or being generated
+     * for the file right now; a thumbnail that isn't available yet for this 
+     * reason should be treated as "try again later", not as a failure.
+     */
+    public static boolean isThumbnailGenerationPending(DataFile file, int size) {
+        ThumbnailGenerationServiceBean thumbnailGenerationService = getThumbnailGenerationService();
+        return thumbnailGenerationService != null && thumbnailGenerationService.isPending(file, size);
+    }
+
+    private static ThumbnailGenerationServiceBean getThumbnailGenerationService() {
+        try {
+            return CDI.current().select(ThumbnailGenerationServiceBean.class).get();
+        } catch (IllegalStateException ise) {
+            // no CDI container, i.e. we are not running inside the application
+            return null;
+        }
+    }
+
     // Note that this method works on ALL file types for which thumbnail 
     // generation is supported - image/*, pdf; 
     // not just on images! The type differentiation is handled inside 
@@ -324,31 +427,69 @@ public class ImageThumbConverter {
 
     /*
      * This is the actual workhorse method that does the rescaling of the full 
-     * size image: 
+     * size image. Since reading the image is by far the most expensive part, 
+     * we use this single decode to also generate all the other standard sizes 
+     * that are not cached yet, instead of reading the image again when they 
+     * are requested: 
      */
     private static boolean generateImageThumbnailFromInputStream(StorageIO<DataFile> storageIO, int size, InputStream inputStream) {
 
+        Set<Integer> sizes = getThumbnailSizesToGenerate(storageIO, size);
+        int largestSize = sizes.stream().mapToInt(Integer::intValue).max().orElse(size);
+
         BufferedImage fullSizeImage;
-        boolean thumbnailGenerated = false;
 
         try {
-            logger.fine("attempting to read the image file with ImageIO.read(InputStream), " + storageIO.getDataFile().getStorageIdentifier());
-            fullSizeImage = ImageIO.read(inputStream);
+            logger.fine("attempting to read the image file, " + storageIO.getDataFile().getStorageIdentifier());
+            fullSizeImage = readImage(inputStream, largestSize);
         } catch (Exception ioex) {
-            logger.warning("Caught exception attempting to read the image file with ImageIO.read(InputStream)");
+            logger.warning("Caught exception attempting to read the image file: " + ioex.getMessage());
             return false;
         }
 
         if (fullSizeImage == null) {
-            logger.warning("could not read image with ImageIO.read()");
+            logger.warning("could not read image " + storageIO.getDataFile().getStorageIdentifier());
             return false;
         }
 
         int width = fullSizeImage.getWidth(null);
         int height = fullSizeImage.getHeight(null);
 
-        logger.fine("image dimensions: " + width + "x" + height + "(" + storageIO.getDataFile().getStorageIdentifier() + ")");
+        logger.fine("image dimensions (as decoded): " + width + "x" + height + "(" + storageIO.getDataFile().getStorageIdentifier() + ")");
+
+        boolean thumbnailGenerated = false;
+
+        for (int thumbnailSize : sizes) {
+            boolean generated = saveRescaledImageAsAux(storageIO, fullSizeImage, width, height, thumbnailSize);
+            if (thumbnailSize == size) {
+                thumbnailGenerated = generated;
+            }
+        }
+
+        fullSizeImage.flush();
+
+        return thumbnailGenerated;
+
+    }
+
+    /*
+     * The requested size always comes first; the other standard sizes are 
+     * only added if they haven't been cached already.
+     */
+    private static Set<Integer> getThumbnailSizesToGenerate(StorageIO<DataFile> storageIO, int size) {
+        Set<Integer> sizes = new LinkedHashSet<>();
+        sizes.add(size);
+
+        for (int standardSize : new int[]{DEFAULT_CARDIMAGE_SIZE, DEFAULT_THUMBNAIL_SIZE, DEFAULT_DATASETLOGO_SIZE, DEFAULT_PREVIEW_SIZE}) {
+            if (!sizes.contains(standardSize) && !isThumbnailCached(storageIO, standardSize)) {
+                sizes.add(standardSize);
+            }
+        }
+        return sizes;
+    }
 
+    private static boolean saveRescaledImageAsAux(StorageIO<DataFile> storageIO, BufferedImage fullSizeImage, int width, int height, int size) {
+        boolean thumbnailGenerated = false;
         OutputStream outputStream = null;
 
         // With some storage drivers, we can open a WritableChannel, or OutputStream 
@@ -382,6 +523,8 @@ public class ImageThumbConverter {
         try {
 
             rescaleImage(fullSizeImage, width, height, size, outputStream);
+            // (the temp file must be fully written before it can be saved)
+            IOUtils.closeQuietly(outputStream);
 
             if (tempFileRequired) {
                 storageIO.savePathAsAux(Paths.get(tempFile.getAbsolutePath()), THUMBNAIL_SUFFIX + size);
@@ -393,6 +536,7 @@ public class ImageThumbConverter {
             thumbnailGenerated = false;
         }
         finally {
+            IOUtils.closeQuietly(outputStream);
             if(tempFileRequired) {
                 try {
                     tempFile.delete();
@@ -411,7 +555,82 @@ public class ImageThumbConverter {
         }
 
         return thumbnailGenerated;
+    }
+
+    /*
+     * Reads the image at (roughly) the resolution needed for a thumbnail of 
+     * the given size, instead of decoding it in full: the dimensions are read
+     * from the image header first, and the reader is then told to only decode
+     * every n-th pixel in each direction. For a large TIFF, this is the 
+     * difference between a few MB and a few GB of heap. 
+     * Returns null if no ImageIO reader is available for the format - same 
+     * as ImageIO.read(). 
+     */
+    static BufferedImage readImage(InputStream inputStream, int size) throws IOException {
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            if (imageInputStream == null) {
+                return null;
+            }
+            return readImage(imageInputStream, size);
+        }
+    }
+
+    static BufferedImage readImage(File imageFile, int size) throws IOException {
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(imageFile)) {
+            if (imageInputStream == null) {
+                return null;
+            }
+            return readImage(imageInputStream, size);
+        }
+    }
+
+    private static BufferedImage readImage(ImageInputStream imageInputStream, int size) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+        if (!readers.hasNext()) {
+            return null;
+        }
+
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(imageInputStream, true, true);
+
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            int subsampling = getSubsamplingFactor(width, height, size);
+
+            logger.fine("image dimensions: " + width + "x" + height + ", subsampling factor: " + subsampling);
+
+            ImageReadParam readParam = reader.getDefaultReadParam();
+            if (subsampling > 1) {
+                readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            }
 
+            try {
+                DecodePermits.permits.acquire();
+            } catch (InterruptedException iex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting to decode the image");
+            }
+            try {
+                return reader.read(0, readParam);
+            } finally {
+                DecodePermits.permits.release();
+            }
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /*
+     * We keep the decoded image at least twice as large as the target size, 
+     * so that the final rescaling still has some pixels to work with; the 
+     * thumbnails look the same as the ones produced from the full image.
+     */
+    static int getSubsamplingFactor(int width, int height, int size) {
+        if (size <= 0) {
+            return 1;
+        }
+        return Math.max(1, Math.max(width, height) / (2 * size));
     }
 
     private static boolean isThumbnailCached(StorageIO<DataFile> storageIO, int size) {
@@ -618,11 +837,11 @@ public class ImageThumbConverter {
         }
 
         try {
-            logger.fine("attempting to read the image file " + fileLocation + " with ImageIO.read()");
-            BufferedImage fullSizeImage = ImageIO.read(new File(fileLocation));
+            logger.fine("attempting to read the image file " + fileLocation);
+            BufferedImage fullSizeImage = readImage(new File(fileLocation), size);
 
             if (fullSizeImage == null) {
-                logger.warning("could not read image with ImageIO.read()");
+                logger.warning("could not read image " + fileLocation);
                 return null;
             }
 
@@ -0,0 +1,100 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An InputStream over a remote object that only requests the object once it
+ * is actually read. Skipping ahead before the first read (as
+ * {@link StorageIO#setOffset(long)} does for the Range requests of the
+ * Access API) doesn't read and discard the bytes, but moves the start of the
+ * (ranged) request instead.
+ */
+class LazyRangedInputStream extends InputStream {
+
+    /**
+     * Opens the object, from the given position on.
+     */
+    @FunctionalInterface
+    interface RangeOpener {
+        InputStream open(long start) throws IOException;
+    }
+
+    private final RangeOpener opener;
+    // the size of the object; negative when unknown
+    private final long size;
+
+    private long start = 0;
+    private InputStream in = null;
+    private boolean closed = false;
+
+    LazyRangedInputStream(RangeOpener opener, long size) {
+        this.opener = opener;
+        this.size = size;
+    }
+
+    private InputStream getStream() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (in == null) {
+            in = opener.open(start);
+        }
+        return in;
+    }
+
+    /**
+     * @return whether the object has been requested yet
+     */
+    boolean isOpened() {
+        return in != null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (in == null && size >= 0 && start >= size) {
+            return -1;
+        }
+        return getStream().read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (in == null && size >= 0 && start >= size) {
+            return -1;
+        }
+        return getStream().read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (in != null) {
+            return in.skip(n);
+        }
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = (size >= 0) ? Math.min(n, Math.max(0, size - start)) : n;
+        start += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (in == null) ? 0 : in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (in != null) {
+            in.close();
+        }
+    }
+}
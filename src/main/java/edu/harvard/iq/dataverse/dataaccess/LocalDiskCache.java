@@ -0,0 +1,581 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.DataTable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * A read-through cache of the objects of a store on the local disk (e.g. an
+ * SSD), for stores whose objects are expensive to read again and again
+ * (S3, remote stores): the objects read are kept, up to the size of the cache,
+ * the least recently used ones making room for the new ones.
+ *
+ * An entry is only used while it is still the same version of the object: for
+ * a main file, the size and checksum recorded in the database (against which
+ * the object is also verified when it is cached) and its data table, see
+ * {@link #getVersion(DataFile)}; for an aux object e.g. its ETag. An object
+ * missing from the cache is copied into it while it is read from the store,
+ * so the reader doesn't wait for the copy. Of concurrent misses on the same
+ * object, only one reads it from the store: the others wait for the copy (for
+ * up to {@link #FILL_WAIT_SECONDS}), and read it from the cache.
+ *
+ * The cache is configured per store, with {@link #CACHE_DIRECTORY} and
+ * {@link #CACHE_SIZE}; it is emptied when the application starts.
+ */
+class LocalDiskCache {
+
+    private static final Logger logger = Logger.getLogger(LocalDiskCache.class.getCanonicalName());
+
+    static final String CACHE_DIRECTORY = "cache-directory";
+    static final String CACHE_SIZE = "cache-size";
+
+    // 10 GB
+    static final long DEFAULT_CACHE_SIZE = 10L * 1024 * 1024 * 1024;
+    // The objects larger than this fraction of the cache are not cached:
+    static final int MAX_OBJECT_FRACTION = 10;
+
+    // How long a miss waits for the object to be cached by another read,
+    // before reading it from the store itself:
+    static final long FILL_WAIT_SECONDS = 30;
+
+    private static final String SUFFIX = ".cached";
+    private static final String FILL_SUFFIX = ".filling";
+
+    private static final Map<String, Optional<LocalDiskCache>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Reads an object from the store.
+     */
+    @FunctionalInterface
+    interface Loader {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Reads an object from the store, unless it is still the version cached.
+     */
+    @FunctionalInterface
+    interface ConditionalLoader {
+        /**
+         * @param cachedVersion the version of the cached copy; null if none
+         * @return the object; null if it is still the cached version (or,
+         * with no cached version, if there is no such object)
+         */
+        Loaded open(String cachedVersion) throws IOException;
+    }
+
+    /**
+     * An object read from the store, and its version.
+     */
+    record Loaded(InputStream in, String version, long size) {
+    }
+
+    private static class Entry {
+        final Path path;
+        final long size;
+        final String version;
+
+        Entry(Path path, long size, String version) {
+            this.path = path;
+            this.size = size;
+            this.version = version;
+        }
+    }
+
+    /**
+     * An object being copied into the cache, by a read on the thread given;
+     * the entry is null once the copy is dropped.
+     */
+    private record Fill(Thread reader, CompletableFuture<Entry> entry) {
+    }
+
+    private final Path directory;
+    private final long maxSize;
+    private final long maxObjectSize;
+    private final Tag driverTag;
+
+    // in the order of access, the least recently used first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize = 0;
+    // the objects being copied into the cache
+    private final Map<String, Fill> fills = new ConcurrentHashMap<>();
+
+    /**
+     * @return the cache of the store, or null if the store has none
+     */
+    static LocalDiskCache forDriver(String driverId) {
+        return caches.computeIfAbsent(driverId, id -> {
+            String directory = StorageIO.getConfigParamForDriver(id, CACHE_DIRECTORY);
+            if (directory == null || directory.isBlank()) {
+                return Optional.empty();
+            }
+            long maxSize = DEFAULT_CACHE_SIZE;
+            try {
+                maxSize = Long.parseLong(StorageIO.getConfigParamForDriver(id, CACHE_SIZE, String.valueOf(DEFAULT_CACHE_SIZE)));
+            } catch (NumberFormatException nfe) {
+                logger.warning("Invalid " + CACHE_SIZE + " for store " + id + ", using " + DEFAULT_CACHE_SIZE);
+            }
+            try {
+                return Optional.of(new LocalDiskCache(id, Paths.get(directory), maxSize));
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Cannot use " + directory + " as the cache of store " + id + ", not caching", e);
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    LocalDiskCache(String driverId, Path directory, long maxSize) throws IOException {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.maxObjectSize = maxSize / MAX_OBJECT_FRACTION;
+        this.driverTag = new Tag("driver", driverId);
+        Files.createDirectories(directory);
+        // What was cached before the restart is not known to be current:
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*{" + SUFFIX + "," + FILL_SUFFIX + "}")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+        logger.info("Caching up to " + maxSize + " bytes of the objects of store " + driverId + " in " + directory);
+    }
+
+    /**
+     * @return the version of the main file of a DataFile: ingesting (or
+     * uningesting) a tabular file replaces the file under the same key,
+     * possibly with the checksum of the original, so the size and the data
+     * table are part of it
+     */
+    static String getVersion(DataFile dataFile) {
+        DataTable dataTable = dataFile.getDataTable();
+        return dataFile.getChecksumValue() + ":" + dataFile.getFilesize()
+                + ((dataTable != null) ? ":" + dataTable.getId() : "");
+    }
+
+    /**
+     * @param key identifies the object within the store
+     * @param version the version of the object; a cached copy of another
+     * version is not used
+     * @param size the size of the object; -1 if unknown. A cached copy of
+     * another size is not used either
+     * @param checksumType the type of the checksum to verify the object
+     * against when it is cached; null for none
+     * @param checksumValue the checksum to verify the object against
+     * @param loader reads the object from the store
+     * @return a stream of the object, read from the cache, or from the store
+     * (and cached as it is read), once it is first read. As with
+     * {@link LazyRangedInputStream}, skipping ahead before that is cheap; a
+     * range of an object that isn't cached is read from the store, and not
+     * cached.
+     */
+    InputStream getInputStream(String key, String version, long size, DataFile.ChecksumType checksumType,
+            String checksumValue, Loader loader) {
+        return new LazyRangedInputStream(start -> {
+            if (size > maxObjectSize) {
+                return skip(loader.open(), start);
+            }
+            Entry entry = lookup(key, version, size);
+            InputStream cached = (entry != null) ? openCached(key, entry) : null;
+            if (cached != null) {
+                return skip(cached, start);
+            }
+            if (start > 0) {
+                StorageMetrics.inc("storage_cache_misses", driverTag);
+                return skip(loader.open(), start);
+            }
+            entry = awaitFill(key);
+            if (entry != null && isVersion(entry, version, size)) {
+                cached = openCached(key, entry);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            StorageMetrics.inc("storage_cache_misses", driverTag);
+            return fillWhileReading(key, version, size, checksumType, checksumValue, loader);
+        }, size);
+    }
+
+    /**
+     * For the objects whose version is only known to the store (e.g. the
+     * ETag of an S3 object): the store is asked for the object unless it is
+     * still the version cached, in a single request either way.
+     *
+     * @param key identifies the object within the store
+     * @param loader reads the object from the store
+     * @return a stream of the object, read from the cache, or from the store
+     * (and cached as it is read); null if the loader returns none
+     */
+    InputStream getInputStream(String key, ConditionalLoader loader) throws IOException {
+        awaitFill(key);
+        Entry entry = peek(key);
+        Loaded loaded = loader.open((entry != null) ? entry.version : null);
+        if (entry != null) {
+            if (loaded == null) {
+                InputStream cached = openCached(key, entry);
+                if (cached != null) {
+                    return cached;
+                }
+                // evicted in the meantime
+                loaded = loader.open(null);
+            } else {
+                // a copy of another version, no use anymore:
+                remove(key, entry);
+            }
+        }
+        if (loaded == null) {
+            return null;
+        }
+        StorageMetrics.inc("storage_cache_misses", driverTag);
+        InputStream in = loaded.in();
+        return fillWhileReading(key, loaded.version(), loaded.size(), null, null, () -> in);
+    }
+
+    private static InputStream skip(InputStream in, long start) throws IOException {
+        long skipped = 0;
+        while (skipped < start) {
+            long n = in.skip(start - skipped);
+            if (n <= 0) {
+                break;
+            }
+            skipped += n;
+        }
+        return in;
+    }
+
+    /**
+     * @return a stream of the cached copy; null if it has been evicted
+     */
+    private InputStream openCached(String key, Entry entry) throws IOException {
+        try {
+            InputStream in = Files.newInputStream(entry.path);
+            StorageMetrics.inc("storage_cache_hits", driverTag);
+            return in;
+        } catch (NoSuchFileException e) {
+            remove(key, entry);
+            return null;
+        }
+    }
+
+    private synchronized Entry lookup(String key, String version, long size) {
+        Entry entry = entries.get(key);
+        if (entry != null && !isVersion(entry, version, size)) {
+            // a copy of another version, no use anymore:
+            remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private static boolean isVersion(Entry entry, String version, long size) {
+        return Objects.equals(entry.version, version) && (size < 0 || entry.size == size);
+    }
+
+    private synchronized Entry peek(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Waits for the object to be copied into the cache, if another read (on
+     * another thread) is copying it.
+     *
+     * @return the entry of the copy; null if none is being made, or if it is
+     * dropped or not done within {@link #FILL_WAIT_SECONDS}
+     */
+    private Entry awaitFill(String key) throws IOException {
+        Fill fill = fills.get(key);
+        if (fill == null || fill.reader() == Thread.currentThread()) {
+            return null;
+        }
+        try {
+            return fill.entry().get(FILL_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + key + " to be cached");
+        } catch (TimeoutException e) {
+            logger.fine(() -> "Not waiting any longer for " + key + " to be cached");
+            return null;
+        } catch (ExecutionException e) {
+            // never completed exceptionally
+            return null;
+        }
+    }
+
+    private void endFill(String key, Fill fill, Entry entry) {
+        fills.remove(key, fill);
+        fill.entry().complete(entry);
+    }
+
+    /**
+     * @param loader reads the object from the store
+     * @return the object, copied into the cache as it is read (unless it is
+     * too large, or being cached by another read already)
+     */
+    private InputStream fillWhileReading(String key, String version, long size, DataFile.ChecksumType checksumType,
+            String checksumValue, Loader loader) throws IOException {
+        if (size > maxObjectSize) {
+            return loader.open();
+        }
+        Fill fill = new Fill(Thread.currentThread(), new CompletableFuture<>());
+        if (fills.putIfAbsent(key, fill) != null) {
+            return loader.open();
+        }
+        InputStream in;
+        try {
+            in = loader.open();
+        } catch (IOException | RuntimeException e) {
+            endFill(key, fill, null);
+            throw e;
+        }
+        MessageDigest digest = null;
+        if (checksumType != null && checksumValue != null) {
+            try {
+                digest = MessageDigest.getInstance(checksumType.toString());
+            } catch (NoSuchAlgorithmException e) {
+                logger.warning("Cannot verify the " + checksumType + " checksum of " + key + ": " + e.getMessage());
+            }
+        }
+        try {
+            Path fillPath = Files.createTempFile(directory, null, FILL_SUFFIX);
+            return new FillingInputStream(in, key, version, size, checksumType, checksumValue, digest, fillPath, fill);
+        } catch (IOException e) {
+            endFill(key, fill, null);
+            logger.log(Level.WARNING, "Not caching " + key, e);
+            return in;
+        }
+    }
+
+    /**
+     * Passes the object on from the store, copying it into the cache on the
+     * way; once it has all been read (and checked), the copy becomes the
+     * cached one. A copy that can't be completed (the object turns out too
+     * large, the stream is closed or skipped in before the end, the disk is
+     * full...) is dropped, without failing the read.
+     */
+    private class FillingInputStream extends InputStream {
+
+        private final InputStream in;
+        private final String key;
+        private final String version;
+        private final long size;
+        private final DataFile.ChecksumType checksumType;
+        private final String checksumValue;
+        private final MessageDigest digest;
+        private final Path fillPath;
+        private final Fill fill;
+
+        private final OutputStream out;
+        private long written = 0;
+        // once the copy is complete or dropped
+        private boolean done = false;
+
+        FillingInputStream(InputStream in, String key, String version, long size, DataFile.ChecksumType checksumType,
+                String checksumValue, MessageDigest digest, Path fillPath, Fill fill) throws IOException {
+            this.in = in;
+            this.key = key;
+            this.version = version;
+            this.size = size;
+            this.checksumType = checksumType;
+            this.checksumValue = checksumValue;
+            this.digest = digest;
+            this.fillPath = fillPath;
+            this.fill = fill;
+            this.out = Files.newOutputStream(fillPath);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                complete();
+            } else {
+                copy(new byte[] {(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n == -1) {
+                complete();
+            } else {
+                copy(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            drop();
+            return in.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (size >= 0 && written == size) {
+                    // read to the end, if not past it
+                    complete();
+                } else {
+                    drop();
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        private void copy(byte[] b, int off, int n) {
+            if (done) {
+                return;
+            }
+            written += n;
+            if (written > maxObjectSize) {
+                logger.fine(() -> "Not caching " + key + ", larger than " + maxObjectSize + " bytes");
+                drop();
+                return;
+            }
+            try {
+                out.write(b, off, n);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Not caching " + key, e);
+                drop();
+                return;
+            }
+            if (digest != null) {
+                digest.update(b, off, n);
+            }
+        }
+
+        private void complete() {
+            if (done) {
+                return;
+            }
+            try {
+                out.close();
+                if (size >= 0 && written != size) {
+                    logger.warning("Not caching " + key + ": " + written + " bytes read, " + size + " expected");
+                    return;
+                }
+                if (digest != null && !HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(checksumValue)) {
+                    logger.warning("Not caching " + key + ": the " + checksumType + " checksum doesn't match the one recorded");
+                    return;
+                }
+                Path path = directory.resolve(HexFormat.of().formatHex(hash(key)) + SUFFIX);
+                Files.move(fillPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Entry entry = new Entry(path, written, version);
+                add(key, entry);
+                endFill(key, fill, entry);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Not caching " + key, e);
+            } finally {
+                drop();
+            }
+        }
+
+        private void drop() {
+            if (done) {
+                return;
+            }
+            done = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                // the copy is dropped anyway
+            }
+            try {
+                Files.deleteIfExists(fillPath);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to delete " + fillPath + " from the cache", e);
+            } finally {
+                endFill(key, fill, null);
+            }
+        }
+    }
+
+    private synchronized void add(String key, Entry entry) {
+        Entry replaced = entries.put(key, entry);
+        if (replaced != null) {
+            totalSize -= replaced.size;
+        }
+        totalSize += entry.size;
+        // evict the least recently used entries (but not the one just added):
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (totalSize > maxSize && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            if (evicted.getValue() == entry) {
+                continue;
+            }
+            eldest.remove();
+            totalSize -= evicted.getValue().size;
+            delete(evicted.getValue());
+        }
+    }
+
+    private synchronized void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            totalSize -= entry.size;
+            delete(entry);
+        }
+    }
+
+    /*
+     * Should a fill of the same key have just moved its copy in place, that
+     * copy is deleted too; its entry then goes when it is next looked up.
+     * (The streams open on the file keep reading it.)
+     */
+    private void delete(Entry entry) {
+        try {
+            Files.deleteIfExists(entry.path);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to delete " + entry.path + " from the cache", e);
+        }
+    }
+
+    synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    private static byte[] hash(String key) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is always available
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+/**
+ * An InputStream over a (large) remote object that reads ahead: the object is
+ * split in parts of a fixed size, and up to {@code parallelism} parts are
+ * fetched concurrently, with ranged requests, while the stream is being read.
+ * The parts are handed out in order. A part is only requested once the part
+ * {@code parallelism} positions before it has been handed out, so a slow
+ * reader holds no more than {@code parallelism + 1} parts in memory.
+ *
+ * The parts read ahead of the reader can also be bounded for all the streams
+ * together, by a permit per part, taken before the part is requested and
+ * given back once the reader is done with it. A stream that gets no permit
+ * reads on without reading ahead: the part the reader is waiting for is
+ * always requested.
+ *
+ * As with {@link LazyRangedInputStream}, nothing is requested until the
+ * stream is read, and skipping ahead before the first read moves the start of
+ * the first part.
+ */
+class ParallelRangedInputStream extends InputStream {
+
+    private static final Logger logger = Logger.getLogger(ParallelRangedInputStream.class.getCanonicalName());
+
+    /**
+     * Opens a range of the object.
+     */
+    @FunctionalInterface
+    interface RangeFetcher {
+        /**
+         * @param start the first byte of the range
+         * @param end the last byte of the range (inclusive)
+         */
+        InputStream open(long start, long end) throws IOException;
+    }
+
+    private final RangeFetcher fetcher;
+    private final long size;
+    private final int partSize;
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    /**
+     * A part requested, and whether it holds one of the permits.
+     */
+    private record Part(Future<byte[]> content, boolean permit) {
+    }
+
+    private final Deque<Part> parts = new ArrayDeque<>();
+    // the start of the next part to request
+    private long nextStart = 0;
+    private byte[] current = null;
+    private boolean currentPermit = false;
+    private int currentPosition = 0;
+    private boolean closed = false;
+
+    ParallelRangedInputStream(RangeFetcher fetcher, long size, int partSize, int parallelism, ExecutorService executor) {
+        this(fetcher, size, partSize, parallelism, executor, null);
+    }
+
+    /**
+     * @param permits a permit per part read ahead, shared by the streams;
+     * null if only the parallelism of each stream bounds them
+     */
+    ParallelRangedInputStream(RangeFetcher fetcher, long size, int partSize, int parallelism, ExecutorService executor, Semaphore permits) {
+        if (size < 0 || partSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("The size of the object must be known, and the part size and parallelism positive");
+        }
+        this.fetcher = fetcher;
+        this.size = size;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+        this.executor = executor;
+        this.permits = permits;
+    }
+
+    private boolean isStarted() {
+        return current != null || !parts.isEmpty();
+    }
+
+    /**
+     * Requests parts until {@code parallelism} of them are in flight (or
+     * waiting to be read), or no more permits are to be had.
+     */
+    private void requestParts() {
+        while (parts.size() < parallelism && nextStart < size) {
+            // the part the reader is waiting for needs no permit
+            boolean permit = !parts.isEmpty() && permits != null;
+            if (permit && !permits.tryAcquire()) {
+                return;
+            }
+            final long start = nextStart;
+            final long end = Math.min(size, start + partSize) - 1;
+            parts.add(new Part(executor.submit(() -> fetch(start, end)), permit));
+            nextStart = end + 1;
+        }
+    }
+
+    private void releaseCurrent() {
+        current = null;
+        if (currentPermit) {
+            currentPermit = false;
+            permits.release();
+        }
+    }
+
+    private byte[] fetch(long start, long end) throws IOException {
+        int length = (int) (end - start + 1);
+        try (InputStream in = fetcher.open(start, end)) {
+            byte[] part = in.readNBytes(length);
+            if (part.length != length) {
+                throw new IOException("Expected " + length + " bytes at offset " + start + ", got " + part.length);
+            }
+            return part;
+        }
+    }
+
+    /**
+     * @return false if the end of the object has been reached
+     */
+    private boolean ensureCurrent() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current != null && currentPosition < current.length) {
+            return true;
+        }
+        releaseCurrent();
+        requestParts();
+        Part next = parts.poll();
+        if (next == null) {
+            return false;
+        }
+        currentPermit = next.permit();
+        try {
+            current = next.content().get();
+            currentPosition = 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the object to be read");
+        } catch (ExecutionException | CancellationException e) {
+            Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+            throw (cause instanceof IOException ioe) ? ioe : new IOException(cause.getMessage(), cause);
+        }
+        // the part handed out makes room for the next one:
+        requestParts();
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureCurrent()) {
+            return -1;
+        }
+        return current[currentPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureCurrent()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - currentPosition);
+        System.arraycopy(current, currentPosition, b, off, n);
+        currentPosition += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (n <= 0) {
+            return 0;
+        }
+        if (!isStarted()) {
+            long skipped = Math.min(n, Math.max(0, size - nextStart));
+            nextStart += skipped;
+            return skipped;
+        }
+        return super.skip(n);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (current == null) ? 0 : current.length - currentPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            releaseCurrent();
+            if (!parts.isEmpty()) {
+                logger.fine("Cancelling " + parts.size() + " part(s) read ahead");
+            }
+            for (Part part : parts) {
+                part.content().cancel(true);
+                if (part.permit()) {
+                    permits.release();
+                }
+            }
+            parts.clear();
+        }
+    }
+}
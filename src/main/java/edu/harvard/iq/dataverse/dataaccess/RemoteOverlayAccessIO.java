@@ -188,30 +188,62 @@ public class RemoteOverlayAccessIO<T extends DvObject> extends AbstractRemoteOve
     @Override
     public InputStream getInputStream() throws IOException {
         if (super.getInputStream() == null) {
-            try {
-                HttpGet get = new HttpGet(generateTemporaryDownloadUrl(null, null, null));
-                CloseableHttpResponse response = getSharedHttpClient().execute(get, localContext);
-
-                int code = response.getStatusLine().getStatusCode();
-                switch (code) {
-                case 200:
-                    setInputStream(response.getEntity().getContent());
-                    break;
-                default:
-                    logger.warning("Response from " + get.getURI().toString() + " was " + code);
-                    throw new IOException("Cannot retrieve: " + baseUrl + "/" + path + " code: " + code);
-                }
-            } catch (Exception e) {
-                logger.warning(e.getMessage());
-                e.printStackTrace();
-                throw new IOException("Error retrieving: " + baseUrl + "/" + path + " " + e.getMessage());
-
+            LocalDiskCache cache = getCache();
+            if (cache != null && dvObject instanceof DataFile dataFile) {
+                setInputStream(cache.getInputStream(baseUrl + "/" + path, LocalDiskCache.getVersion(dataFile), getSize(),
+                        dataFile.getChecksumType(), dataFile.getChecksumValue(), this::openFile));
+            } else {
+                setInputStream(openFile());
             }
             setChannel(Channels.newChannel(super.getInputStream()));
         }
         return super.getInputStream();
     }
 
+    private InputStream openFile() throws IOException {
+        if (dvObject instanceof DataFile && getSize() > 0) {
+            InputStream readAhead = getReadAheadInputStream(this::getRange, getSize());
+            if (readAhead != null) {
+                return readAhead;
+            }
+        }
+        try {
+            HttpGet get = new HttpGet(generateTemporaryDownloadUrl(null, null, null));
+            CloseableHttpResponse response = getSharedHttpClient().execute(get, localContext);
+
+            int code = response.getStatusLine().getStatusCode();
+            switch (code) {
+            case 200:
+                return response.getEntity().getContent();
+            default:
+                logger.warning("Response from " + get.getURI().toString() + " was " + code);
+                throw new IOException("Cannot retrieve: " + baseUrl + "/" + path + " code: " + code);
+            }
+        } catch (Exception e) {
+            logger.warning(e.getMessage());
+            e.printStackTrace();
+            throw new IOException("Error retrieving: " + baseUrl + "/" + path + " " + e.getMessage());
+
+        }
+    }
+
+    /**
+     * @return the content of the given range of the file (the end inclusive)
+     */
+    private InputStream getRange(long start, long end) throws IOException {
+        HttpGet get = new HttpGet(generateTemporaryDownloadUrl(null, null, null));
+        get.addHeader("Range", "bytes=" + start + "-" + end);
+        CloseableHttpResponse response = getSharedHttpClient().execute(get, localContext);
+        int code = response.getStatusLine().getStatusCode();
+        if (code != 206) {
+            logger.warning("Response from " + get.getURI().toString() + " to a Range request was " + code);
+            EntityUtils.consume(response.getEntity());
+            response.close();
+            throw new IOException("Cannot retrieve bytes " + start + "-" + end + " of: " + baseUrl + "/" + path + " code: " + code);
+        }
+        return response.getEntity().getContent();
+    }
+
     @Override
     public Channel getChannel() throws IOException {
         if (super.getChannel() == null) {
@@ -16,25 +16,22 @@ import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PartETag;
-import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
 import com.amazonaws.services.s3.model.DeleteObjectTaggingRequest;
 import com.amazonaws.services.s3.model.DeleteObjectsRequest;
-import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ResponseHeaderOverrides;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
-import com.amazonaws.services.s3.transfer.TransferManager;
-import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
 import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.Dataset;
 import edu.harvard.iq.dataverse.Dataverse;
@@ -46,10 +43,10 @@ import opennlp.tools.util.StringUtil;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.channels.Channel;
@@ -57,14 +54,21 @@ import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -74,6 +78,7 @@ import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.ConfigProvider;
 
 import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObjectBuilder;
 import jakarta.validation.constraints.NotNull;
 
@@ -102,11 +107,14 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     static final String PAYLOAD_SIGNING = "payload-signing";
     static final String CHUNKED_ENCODING = "chunked-encoding";
     static final String PROFILE = "profile";
+    // the most keys S3 deletes in one request
+    static final int MAX_KEYS_PER_DELETE = 1000;
+    // from how many files to delete in a directory on, it is listed as a whole
+    static final int LIST_DIRECTORY_THRESHOLD = 20;
     
     private boolean mainDriver = true;
 
-    private static HashMap<String, AmazonS3> driverClientMap = new HashMap<String,AmazonS3>();
-    private static HashMap<String, TransferManager> driverTMMap = new HashMap<String,TransferManager>();
+    private static final Map<String, AmazonS3> driverClientMap = new ConcurrentHashMap<>();
 
     public S3AccessIO(T dvObject, DataAccessRequest req, String driverId) {
         super(dvObject, req, driverId);
@@ -116,7 +124,7 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
             bucketName=getBucketName(driverId);
             minPartSize = getMinPartSize(driverId);
             s3=getClient(driverId);
-            tm=getTransferManager(driverId);
+            uploader = S3MultipartUploader.forDriver(driverId, s3);
             endpoint = getConfigParam(CUSTOM_ENDPOINT_URL, "");
             proxy = getConfigParam(PROXY_URL, "");
             if(!StringUtil.isEmpty(proxy)&&StringUtil.isEmpty(endpoint)) {
@@ -149,12 +157,15 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     public S3AccessIO(T dvObject, DataAccessRequest req, @NotNull AmazonS3 s3client, String driverId) {
         super(dvObject, req, driverId);
         bucketName = getBucketName(driverId);
+        minPartSize = getMinPartSize(driverId);
+        endpoint = getConfigParam(CUSTOM_ENDPOINT_URL, "");
+        proxy = getConfigParam(PROXY_URL, "");
         this.setIsLocalFile(false);
         this.s3 = s3client;
     }
     
     private AmazonS3 s3 = null;
-    private TransferManager tm = null;
+    private S3MultipartUploader uploader = null;
     private String bucketName = null;
     private String key = null;
     private long minPartSize;
@@ -220,7 +231,15 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
 
             
             if (isReadAccess) {
-                this.setSize(retrieveSizeFromMedia());
+                // The size recorded in the database is trusted, rather than asking
+                // S3 for it (a HEAD request) each time a file is opened; only the
+                // (legacy) files without a recorded size are looked up.
+                key = getMainFileKey();
+                if (dataFile.getFilesize() >= 0) {
+                    this.setSize(dataFile.getFilesize());
+                } else {
+                    this.setSize(retrieveSizeFromMedia());
+                }
 
                 if (dataFile.getContentType() != null
                         && dataFile.getContentType().equals("text/tab-separated-values")
@@ -294,10 +313,15 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     @Override
     public InputStream getInputStream() throws IOException {
         if(super.getInputStream()==null) {
-            try {
-                setInputStream(s3.getObject(new GetObjectRequest(bucketName, key)).getObjectContent());
-            } catch (SdkClientException sce) {
-                throw new IOException("Cannot get S3 object " + key + " ("+sce.getMessage()+")");
+            // The object is only requested once the stream is read, and from the
+            // offset skipped to, if any (see setOffset())
+            long size = (dvObject instanceof DataFile) ? getSize() : -1;
+            LocalDiskCache cache = getCache();
+            if (cache != null && dvObject instanceof DataFile dataFile) {
+                setInputStream(cache.getInputStream(bucketName + "/" + key, LocalDiskCache.getVersion(dataFile), size,
+                        dataFile.getChecksumType(), dataFile.getChecksumValue(), () -> openMainObject(size)));
+            } else {
+                setInputStream(openMainObject(size));
             }
         }
 
@@ -310,6 +334,36 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         return super.getInputStream();
     }
     
+    private InputStream openMainObject(long size) {
+        InputStream readAhead = (size > 0) ? getReadAheadInputStream(this::getObjectContent, size) : null;
+        return (readAhead != null) ? readAhead : new LazyRangedInputStream(start -> getObjectContent(start, -1), size);
+    }
+
+    private InputStream getObjectContent(long start, long end) throws IOException {
+        return getObjectContent(key, start, end);
+    }
+
+    /**
+     * @param end the last byte to get (inclusive), or -1 for up to the end
+     */
+    private InputStream getObjectContent(String key, long start, long end) throws IOException {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, key);
+        if (end >= 0) {
+            getObjectRequest.setRange(start, end);
+        } else if (start > 0) {
+            getObjectRequest.setRange(start);
+        }
+        try {
+            S3Object s3object = s3.getObject(getObjectRequest);
+            if (s3object == null) {
+                throw new IOException("Cannot get S3 object " + key);
+            }
+            return s3object.getObjectContent();
+        } catch (SdkClientException sce) {
+            throw new IOException("Cannot get S3 object " + key + " ("+sce.getMessage()+")");
+        }
+    }
+
     @Override
     public Channel getChannel() throws IOException {
         if(super.getChannel()==null) {
@@ -334,22 +388,12 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
             open(DataAccessOption.WRITE_ACCESS);
         }
 
-        try {
-            File inputFile = fileSystemPath.toFile();
-            if (dvObject instanceof DataFile) {
-                tm.upload(new PutObjectRequest(bucketName, key, inputFile)).waitForCompletion();
-                newFileSize = inputFile.length();
-            } else {
-                throw new IOException("DvObject type other than datafile is not yet supported");
-            }
-
-        } catch (SdkClientException | InterruptedException ioex ) {
-            String failureMsg = ioex.getMessage();
-            if (failureMsg == null) {
-                failureMsg = "S3AccessIO: Unknown exception occured while uploading a local file into S3Object "+key;
-            }
-
-            throw new IOException(failureMsg);
+        File inputFile = fileSystemPath.toFile();
+        if (dvObject instanceof DataFile) {
+            uploader.upload(bucketName, key, inputFile);
+            newFileSize = inputFile.length();
+        } else {
+            throw new IOException("DvObject type other than datafile is not yet supported");
         }
 
 
@@ -360,18 +404,9 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
 
     /**
      * Implements the StorageIO saveInputStream() method. 
-     * This implementation is somewhat problematic, because S3 cannot save an object of 
-     * an unknown length. This effectively nullifies any benefits of streaming; 
-     * as we cannot start saving until we have read the entire stream. 
-     * One way of solving this would be to buffer the entire stream as byte[], 
-     * in memory, then save it... Which of course would be limited by the amount 
-     * of memory available, and thus would not work for streams larger than that. 
-     * So we have eventually decided to save save the stream to a temp file, then 
-     * save to S3. This is slower, but guaranteed to work on any size stream. 
-     * An alternative we may want to consider is to not implement this method 
-     * in the S3 driver, and make it throw the UnsupportedDataAccessOperationException, 
-     * similarly to how we handle attempts to open OutputStreams, in this and the 
-     * Swift driver. 
+     * Streams larger than a part (see {@link S3MultipartUploader}) are 
+     * uploaded in parts, several at a time, as they are read; so is a stream 
+     * of an unknown length, without buffering it in a temp file first. 
      * 
      * @param inputStream InputStream we want to save
      * @param filesize Long representing the filesize
@@ -379,54 +414,19 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     */
     @Override
     public void saveInputStream(InputStream inputStream, Long filesize) throws IOException {
-        if (filesize == null || filesize < 0) {
-            saveInputStream(inputStream);
-        } else {
-            if (!this.canWrite()) {
-                open(DataAccessOption.WRITE_ACCESS);
-            }
-
-            ObjectMetadata metadata = new ObjectMetadata();
-            metadata.setContentLength(filesize);
-            try {
-                s3.putObject(bucketName, key, inputStream, metadata);
-            } catch (SdkClientException ioex) {
-                String failureMsg = ioex.getMessage();
-                if (failureMsg == null) {
-                    failureMsg = "S3AccessIO: Unknown exception occured while uploading a local file into S3 Storage.";
-                }
-
-                throw new IOException(failureMsg);
-            }
-            setSize(filesize);  
+        if (!this.canWrite()) {
+            open(DataAccessOption.WRITE_ACCESS);
         }
+        long size = uploader.upload(bucketName, key, inputStream, (filesize == null) ? -1 : filesize);
+        setSize(size);
     }
     
     @Override
     public void saveInputStream(InputStream inputStream) throws IOException {
-        if (!this.canWrite()) {
-            open(DataAccessOption.WRITE_ACCESS);
-        }
-        String directoryString = FileUtil.getFilesTempDirectory();
-
-        Random rand = new Random();
-        Path tempPath = Paths.get(directoryString, Integer.toString(rand.nextInt(Integer.MAX_VALUE)));
-        File tempFile = createTempFile(tempPath, inputStream);
-        
         try {
-            s3.putObject(bucketName, key, tempFile);
-        } catch (SdkClientException ioex) {
-            String failureMsg = ioex.getMessage();
-            if (failureMsg == null) {
-                failureMsg = "S3AccessIO: Unknown exception occured while uploading a local file into S3 Storage.";
-            }
-            tempFile.delete();
-            throw new IOException(failureMsg);
-        }
-        tempFile.delete();
-        ObjectMetadata objectMetadata = s3.getObjectMetadata(bucketName, key);
-        if (objectMetadata != null) {
-            setSize(objectMetadata.getContentLength());
+            saveInputStream(inputStream, -1L);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
         }
     }
     
@@ -494,6 +494,18 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         return -1;
     }
 
+    @Override
+    public Date getAuxObjectLastModified(String auxItemTag) throws IOException {
+        open();
+        String destinationKey = getDestinationKey(auxItemTag);
+        try {
+            return s3.getObjectMetadata(bucketName, destinationKey).getLastModified();
+        } catch (AmazonClientException ase) {
+            logger.fine("Caught an AmazonClientException in S3AccessIO.getAuxObjectLastModified:    " + ase.getMessage());
+        }
+        return null;
+    }
+
     @Override
     public Path getAuxObjectAsPath(String auxItemTag) throws UnsupportedDataAccessOperationException {
         throw new UnsupportedDataAccessOperationException("S3AccessIO: this is a remote DataAccess IO object, its Aux objects have no local filesystem Paths associated with it.");
@@ -532,103 +544,40 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         String destinationKey = getDestinationKey(auxItemTag);
         try {
             File inputFile = fileSystemPath.toFile();
-            s3.putObject(new PutObjectRequest(bucketName, destinationKey, inputFile));            
-        } catch (AmazonClientException ase) {
+            uploader.upload(bucketName, destinationKey, inputFile);
+        } catch (AmazonClientException | IOException ase) {
             logger.warning("Caught an AmazonClientException in S3AccessIO.savePathAsAux():    " + ase.getMessage());
             throw new IOException("S3AccessIO: Failed to save path as an auxiliary object.");
         }
     }
 
-    @Override
-    public void saveInputStreamAsAux(InputStream inputStream, String auxItemTag, Long filesize) throws IOException {
-        if (filesize == null || filesize < 0) {
-            saveInputStreamAsAux(inputStream, auxItemTag);
-        } else {
-            if (!this.canWrite()) {
-                open(DataAccessOption.WRITE_ACCESS);
-            }
-            String destinationKey = getDestinationKey(auxItemTag);
-            ObjectMetadata metadata = new ObjectMetadata();
-            metadata.setContentLength(filesize);
-            try {
-                s3.putObject(bucketName, destinationKey, inputStream, metadata);
-            } catch (SdkClientException ioex) {
-                String failureMsg = ioex.getMessage();
-
-                if (failureMsg == null) {
-                    failureMsg = "S3AccessIO: SdkClientException occured while saving a local InputStream as S3Object";
-                }
-                throw new IOException(failureMsg);
-            }
-        }
-    }
-    
     /**
-     * Implements the StorageIO saveInputStreamAsAux() method. 
-     * This implementation is problematic, because S3 cannot save an object of 
-     * an unknown length. This effectively nullifies any benefits of streaming; 
-     * as we cannot start saving until we have read the entire stream. 
-     * One way of solving this would be to buffer the entire stream as byte[], 
-     * in memory, then save it... Which of course would be limited by the amount 
-     * of memory available, and thus would not work for streams larger than that. 
-     * So we have eventually decided to save save the stream to a temp file, then 
-     * save to S3. This is slower, but guaranteed to work on any size stream. 
-     * An alternative we may want to consider is to not implement this method 
-     * in the S3 driver, and make it throw the UnsupportedDataAccessOperationException, 
-     * similarly to how we handle attempts to open OutputStreams, in this and the 
-     * Swift driver. 
+     * Implements the StorageIO saveInputStreamAsAux() method. As with 
+     * {@link #saveInputStream(InputStream, Long)}, a stream larger than a part 
+     * is uploaded in parts as it is read, whether its length is known or not. 
      * 
      * @param inputStream InputStream we want to save
      * @param auxItemTag String representing this Auxiliary type ("extension")
+     * @param filesize Long representing the filesize; null or -1 if unknown
      * @throws IOException if anything goes wrong.
     */
     @Override
-    public void saveInputStreamAsAux(InputStream inputStream, String auxItemTag) throws IOException {
+    public void saveInputStreamAsAux(InputStream inputStream, String auxItemTag, Long filesize) throws IOException {
         if (!this.canWrite()) {
             open(DataAccessOption.WRITE_ACCESS);
         }
-
-        String directoryString = FileUtil.getFilesTempDirectory();
-
-        Random rand = new Random();
-        String pathNum = Integer.toString(rand.nextInt(Integer.MAX_VALUE));
-        Path tempPath = Paths.get(directoryString, pathNum);
-        File tempFile = createTempFile(tempPath, inputStream);
-        
         String destinationKey = getDestinationKey(auxItemTag);
-        
-        try {
-            s3.putObject(bucketName, destinationKey, tempFile);
-        } catch (SdkClientException ioex) {
-            String failureMsg = ioex.getMessage();
-
-            if (failureMsg == null) {
-                failureMsg = "S3AccessIO: SdkClientException occured while saving a local InputStream as S3Object";
-            }
-            tempFile.delete();
-            throw new IOException(failureMsg);
-        }
-        tempFile.delete();
+        uploader.upload(bucketName, destinationKey, inputStream, (filesize == null) ? -1 : filesize);
     }
     
-    //Helper method for supporting saving streams with unknown length to S3
-    //We save those streams to a file and then upload the file
-    private File createTempFile(Path path, InputStream inputStream) throws IOException {
-
-        File targetFile = new File(path.toUri()); // File needs a name
-        try (OutputStream outStream = new FileOutputStream(targetFile);) {
-
-            byte[] buffer = new byte[8 * 1024];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outStream.write(buffer, 0, bytesRead);
-            }
-
+    @Override
+    public void saveInputStreamAsAux(InputStream inputStream, String auxItemTag) throws IOException {
+        try {
+            saveInputStreamAsAux(inputStream, auxItemTag, -1L);
         } finally {
             IOUtils.closeQuietly(inputStream);
         }
-        return targetFile;
-    } 
+    }
     
     @Override
     public List<String> listAuxObjects() throws IOException {
@@ -712,28 +661,146 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
             throw new IOException("S3AccessIO: Failed to get aux objects for listing to delete.");
         }
 
-        DeleteObjectsRequest multiObjectDeleteRequest = new DeleteObjectsRequest(bucketName);
-        List<KeyVersion> keys = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
 
         for (S3ObjectSummary item : storedAuxFilesSummary) {
             String destinationKey = item.getKey();
-            keys.add(new KeyVersion(destinationKey));
+            keys.add(destinationKey);
         }
         //Check if the list of auxiliary files for a data file is empty
         if (keys.isEmpty()) {
             logger.fine("S3AccessIO: No auxiliary objects to delete.");
             return;
         }
-        multiObjectDeleteRequest.setKeys(keys);
 
         logger.fine("Trying to delete auxiliary files...");
-        try {
-            s3.deleteObjects(multiObjectDeleteRequest);
-        } catch (SdkClientException e) {
+        if (!deleteObjects(s3, bucketName, keys).isEmpty()) {
             throw new IOException("S3AccessIO: Failed to delete one or more auxiliary objects.");
         }
     }
 
+    /**
+     * Deletes the objects with multi-object deletes, of up to
+     * {@link #MAX_KEYS_PER_DELETE} keys each.
+     *
+     * @return the keys that could not be deleted, with the reason
+     */
+    private static Map<String, String> deleteObjects(AmazonS3 s3Client, String bucketName, List<String> keys) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_DELETE) {
+            List<String> batch = keys.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, keys.size()));
+            DeleteObjectsRequest multiObjectDeleteRequest = new DeleteObjectsRequest(bucketName)
+                    .withKeys(batch.toArray(new String[0]))
+                    .withQuiet(true);
+            try {
+                s3Client.deleteObjects(multiObjectDeleteRequest);
+            } catch (MultiObjectDeleteException e) {
+                for (MultiObjectDeleteException.DeleteError error : e.getErrors()) {
+                    failures.put(error.getKey(), error.getCode() + ": " + error.getMessage());
+                }
+            } catch (SdkClientException e) {
+                for (String key : batch) {
+                    failures.put(key, String.valueOf(e.getMessage()));
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Deletes the files at the storage locations given (as returned by
+     * {@link #getStorageLocation()}) from the store, with all their aux
+     * objects. The objects are listed by directory (dataset) if there are
+     * many files to delete from it, one file at a time otherwise, and deleted
+     * {@link #MAX_KEYS_PER_DELETE} at a time.
+     *
+     * @return the storage locations whose objects could not all be deleted,
+     * with the reason
+     */
+    static Map<String, String> deleteAll(String driverId, List<String> storageLocations) {
+        return deleteAll(getClient(driverId), storageLocations);
+    }
+
+    static Map<String, String> deleteAll(AmazonS3 s3Client, List<String> storageLocations) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        // The files to delete (their main key, and location), by bucket and directory:
+        Map<String, Map<String, Map<String, String>>> directories = new LinkedHashMap<>();
+        for (String storageLocation : storageLocations) {
+            String location = DataAccess.getDriverIdAndStorageLocation(storageLocation)[1];
+            int bucketEnd = location.indexOf('/');
+            int directoryEnd = location.lastIndexOf('/');
+            if (bucketEnd <= 0 || directoryEnd == location.length() - 1) {
+                failures.put(storageLocation, "Not a valid S3 storage location");
+                continue;
+            }
+            String bucket = location.substring(0, bucketEnd);
+            String directory = location.substring(bucketEnd + 1, directoryEnd + 1);
+            directories.computeIfAbsent(bucket, b -> new LinkedHashMap<>())
+                    .computeIfAbsent(directory, d -> new LinkedHashMap<>())
+                    .put(location.substring(bucketEnd + 1), storageLocation);
+        }
+        directories.forEach((bucket, files) -> files.forEach((directory, locations) -> {
+            // the objects to delete, with the location of the file they belong to
+            Map<String, String> objects = new LinkedHashMap<>();
+            try {
+                if (locations.size() >= LIST_DIRECTORY_THRESHOLD) {
+                    for (String objectKey : listKeys(s3Client, bucket, directory)) {
+                        String mainKey = findMainKey(objectKey, directory.length(), locations.keySet());
+                        if (mainKey != null) {
+                            objects.put(objectKey, locations.get(mainKey));
+                        }
+                    }
+                } else {
+                    for (Map.Entry<String, String> file : locations.entrySet()) {
+                        for (String objectKey : listKeys(s3Client, bucket, file.getKey())) {
+                            if (objectKey.equals(file.getKey()) || objectKey.startsWith(file.getKey() + ".")) {
+                                objects.put(objectKey, file.getValue());
+                            }
+                        }
+                    }
+                }
+            } catch (SdkClientException e) {
+                logger.warning("Failed to list the objects to delete in " + bucket + "/" + directory + ": " + e.getMessage());
+                locations.values().forEach(storageLocation -> failures.put(storageLocation, String.valueOf(e.getMessage())));
+                return;
+            }
+            deleteObjects(s3Client, bucket, new ArrayList<>(objects.keySet()))
+                    .forEach((objectKey, reason) -> failures.putIfAbsent(objects.get(objectKey), reason));
+        }));
+        return failures;
+    }
+
+    /**
+     * @return the one of the main keys given the object is, or is an aux
+     * object of (i.e. named {@code <main key>.<tag>}); null if none. As the
+     * storage identifiers may contain dots themselves, each of the dots in the
+     * object key is tried as the start of the tag.
+     */
+    private static String findMainKey(String objectKey, int fromIndex, Set<String> mainKeys) {
+        if (mainKeys.contains(objectKey)) {
+            return objectKey;
+        }
+        for (int dot = objectKey.indexOf('.', fromIndex); dot >= 0; dot = objectKey.indexOf('.', dot + 1)) {
+            String mainKey = objectKey.substring(0, dot);
+            if (mainKeys.contains(mainKey)) {
+                return mainKey;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> listKeys(AmazonS3 s3Client, String bucket, String prefix) {
+        List<String> keys = new ArrayList<>();
+        ObjectListing listing = s3Client.listObjects(new ListObjectsRequest().withBucketName(bucket).withPrefix(prefix));
+        while (listing != null) {
+            for (S3ObjectSummary item : listing.getObjectSummaries()) {
+                keys.add(item.getKey());
+            }
+            listing = listing.isTruncated() ? s3Client.listNextBatchOfObjects(listing) : null;
+        }
+        return keys;
+    }
+
     //TODO: Do we need this? - Answer: yes! 
     @Override
     public String getStorageLocation() throws IOException {
@@ -783,6 +850,29 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     @Override
     public InputStream getAuxFileAsInputStream(String auxItemTag) throws IOException {
         String destinationKey = getDestinationKey(auxItemTag);
+        LocalDiskCache cache = getCache();
+        if (cache != null) {
+            // The cached copy is used for as long as the object has the same ETag;
+            // S3 only sends the object if it has changed
+            try {
+                return cache.getInputStream(bucketName + "/" + destinationKey, cachedETag -> {
+                    GetObjectRequest request = new GetObjectRequest(bucketName, destinationKey);
+                    if (cachedETag != null) {
+                        request.setNonmatchingETagConstraints(List.of(cachedETag));
+                    }
+                    S3Object s3object = s3.getObject(request);
+                    if (s3object == null) {
+                        return null;
+                    }
+                    ObjectMetadata objectMetadata = s3object.getObjectMetadata();
+                    return new LocalDiskCache.Loaded(s3object.getObjectContent(), objectMetadata.getETag(),
+                            objectMetadata.getContentLength());
+                });
+            } catch (AmazonClientException ase) {
+                logger.fine("Caught an AmazonClientException in S3AccessIO.getAuxFileAsInputStream() (object not cached?):    " + ase.getMessage());
+                return null;
+            }
+        }
         try {
             S3Object s3object = s3.getObject(new GetObjectRequest(bucketName, destinationKey));
             if (s3object != null) {
@@ -1031,14 +1121,94 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     }
     
     public JsonObjectBuilder generateTemporaryS3UploadUrls(String globalId, String storageIdentifier, long fileSize) throws IOException {
-
-        JsonObjectBuilder response = Json.createObjectBuilder();
         key = getMainFileKey();
         java.util.Date expiration = new java.util.Date();
         long msec = expiration.getTime();
         msec += 60 * 1000 * getUrlExpirationMinutes();
         expiration.setTime(msec);
-        
+
+        return generateTemporaryS3UploadUrls(globalId, storageIdentifier, key, fileSize, expiration, null);
+    }
+
+    /**
+     * The batch version of {@link #generateTemporaryS3UploadUrls(String, String, long)}:
+     * reserves a new storage identifier in the dataset for each of the files,
+     * and returns the presigned upload url(s) of each, in the order of the
+     * sizes given. Only the files larger than the part size take a call to S3
+     * (to initiate their multipart upload); those calls, and the signing, are
+     * spread over the threads of {@link StorageExecutorServiceBean}.
+     *
+     * As with {@link S3AccessIO#getNewIdentifier(String)}, the identifiers are
+     * not checked against the bucket one by one: they combine the time with 48
+     * random bits.
+     *
+     * Should the urls of one of the files fail, the multipart uploads already
+     * initiated for the others are aborted, as the client never gets to know
+     * them.
+     */
+    public JsonArrayBuilder generateTemporaryS3UploadUrls(Dataset dataset, List<Long> fileSizes) throws IOException {
+        String globalId = dataset.getGlobalId().asString();
+        String baseKey = dataset.getAuthorityForFileStorage() + "/" + dataset.getIdentifierForFileStorage();
+        java.util.Date expiration = new java.util.Date();
+        long msec = expiration.getTime();
+        msec += 60 * 1000 * getUrlExpirationMinutes();
+        expiration.setTime(msec);
+
+        Collection<InitiatedUpload> initiated = new ConcurrentLinkedQueue<>();
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<CompletableFuture<JsonObjectBuilder>> files = new ArrayList<>(fileSizes.size());
+        for (long fileSize : fileSizes) {
+            String storageIdentifier = getNewIdentifier(driverId);
+            String fileKey = getMainFileKey(baseKey, storageIdentifier, driverId);
+            files.add(CompletableFuture.supplyAsync(() -> {
+                if (failed.get()) {
+                    // no use initiating more uploads
+                    return null;
+                }
+                try {
+                    return generateTemporaryS3UploadUrls(globalId, storageIdentifier, fileKey, fileSize, expiration, initiated)
+                            .add("storageIdentifier", storageIdentifier);
+                } catch (IOException | RuntimeException e) {
+                    failed.set(true);
+                    throw (e instanceof IOException ioe) ? new UncheckedIOException(ioe) : (RuntimeException) e;
+                }
+            }, getDirectUploadExecutor()));
+        }
+        try {
+            // (waiting for all of them, as the ones still running could yet
+            // initiate an upload, to be aborted)
+            CompletableFuture.allOf(files.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            for (InitiatedUpload upload : initiated) {
+                try {
+                    s3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, upload.key(), upload.uploadId()));
+                } catch (SdkClientException sce) {
+                    logger.warning("Failed to abort the multipart upload " + upload.uploadId() + " of " + upload.key()
+                            + ": " + sce.getMessage());
+                }
+            }
+            Throwable cause = (e.getCause() instanceof UncheckedIOException) ? e.getCause().getCause() : e.getCause();
+            throw new IOException("Failed to generate the upload urls of " + fileSizes.size() + " files: " + cause.getMessage(), cause);
+        }
+        JsonArrayBuilder response = Json.createArrayBuilder();
+        files.forEach(file -> response.add(file.join()));
+        return response;
+    }
+
+    /**
+     * A multipart upload initiated for a direct upload.
+     */
+    private record InitiatedUpload(String key, String uploadId) {
+    }
+
+    /**
+     * @param initiated where to record the multipart upload, if one is
+     * initiated; null if it needn't be
+     */
+    private JsonObjectBuilder generateTemporaryS3UploadUrls(String globalId, String storageIdentifier, String key, long fileSize, Date expiration,
+            Collection<InitiatedUpload> initiated) throws IOException {
+
+        JsonObjectBuilder response = Json.createObjectBuilder();
         if (fileSize <= minPartSize) {
             response.add("url", generateTemporaryS3UploadUrl(key, expiration));
         } else {
@@ -1050,6 +1220,9 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
             }
             InitiateMultipartUploadResult initiationResponse = s3.initiateMultipartUpload(initiationRequest);
             String uploadId = initiationResponse.getUploadId();
+            if (initiated != null) {
+                initiated.add(new InitiatedUpload(key, uploadId));
+            }
             for (int i = 1; i <= (fileSize / minPartSize) + (fileSize % minPartSize > 0 ? 1 : 0); i++) {
                 GeneratePresignedUrlRequest uploadPartUrlRequest = new GeneratePresignedUrlRequest(bucketName, key)
                         .withMethod(HttpMethod.PUT).withExpiration(expiration);
@@ -1129,128 +1302,113 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     }
 
 
-    private static TransferManager getTransferManager(String driverId) {
-        if(driverTMMap.containsKey(driverId)) {
-            return driverTMMap.get(driverId);
-        } else {
-            // building a TransferManager instance to support multipart uploading for files over 4gb.
-            TransferManager manager = TransferManagerBuilder.standard()
-                    .withS3Client(getClient(driverId))
-                    .build();
-            driverTMMap.put(driverId,  manager);
-            return manager;
-        }
-    }
-
-
     private static AmazonS3 getClient(String driverId) {
-        if(driverClientMap.containsKey(driverId)) {
-            return driverClientMap.get(driverId);
-        } else {
-            // get a standard client, using the standard way of configuration the credentials, etc.
-            AmazonS3ClientBuilder s3CB = AmazonS3ClientBuilder.standard();
-
-            ClientConfiguration cc = new ClientConfiguration();
-            Integer poolSize = Integer.getInteger("dataverse.files." + driverId + ".connection-pool-size", 256);
-            cc.setMaxConnections(poolSize);
-            s3CB.setClientConfiguration(cc);
-            
-            /**
-             * Pass in a URL pointing to your S3 compatible storage.
-             * For possible values see https://docs.aws.amazon.com/AWSJavaSDK/latest/javadoc/com/amazonaws/client/builder/AwsClientBuilder.EndpointConfiguration.html
-             */
-            String s3CEUrl = getConfigParamForDriver(driverId, CUSTOM_ENDPOINT_URL, "");
-            /**
-             * Pass in a region to use for SigV4 signing of requests.
-             * Defaults to "dataverse" as it is not relevant for custom S3 implementations.
-             */
-            String s3CERegion = getConfigParamForDriver(driverId, CUSTOM_ENDPOINT_REGION, "dataverse");
-
-            // if the admin has set a system property (see below) we use this endpoint URL instead of the standard ones.
-            if (!s3CEUrl.isEmpty()) {
-                s3CB.setEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(s3CEUrl, s3CERegion));
-            }
-            /**
-             * Pass in a boolean value if path style access should be used within the S3 client.
-             * Anything but case-insensitive "true" will lead to value of false, which is default value, too.
-             */
-            Boolean s3pathStyleAccess = Boolean.parseBoolean(getConfigParamForDriver(driverId, PATH_STYLE_ACCESS, "false"));
-            // some custom S3 implementations require "PathStyleAccess" as they us a path, not a subdomain. default = false
-            s3CB.withPathStyleAccessEnabled(s3pathStyleAccess);
-
-            /**
-             * Pass in a boolean value if payload signing should be used within the S3 client.
-             * Anything but case-insensitive "true" will lead to value of false, which is default value, too.
-             */
-            Boolean s3payloadSigning = Boolean.parseBoolean(getConfigParamForDriver(driverId, PAYLOAD_SIGNING,"false"));
-            /**
-             * Pass in a boolean value if chunked encoding should not be used within the S3 client.
-             * Anything but case-insensitive "false" will lead to value of true, which is default value, too.
-             */
-            Boolean s3chunkedEncoding = Boolean.parseBoolean(getConfigParamForDriver(driverId, CHUNKED_ENCODING,"true"));
-            // Openstack SWIFT S3 implementations require "PayloadSigning" set to true. default = false
-            s3CB.setPayloadSigningEnabled(s3payloadSigning);
-            // Openstack SWIFT S3 implementations require "ChunkedEncoding" set to false. default = true
-            // Boolean is inverted, otherwise setting dataverse.files.<id>.chunked-encoding=false would result in leaving Chunked Encoding enabled
-            s3CB.setChunkedEncodingDisabled(!s3chunkedEncoding);
-
-            /** Configure credentials for the S3 client. There are multiple mechanisms available. 
-             * Role-based/instance credentials are globally defined while the other mechanisms (profile, static)
-             * are defined per store. The logic below assures that 
-             * * if a store specific profile or static credentials are explicitly set, they will be used in preference to the global role-based credentials. 
-             * * if a store specific role-based credentials are explicitly set, they will be used in preference to the global instance credentials,
-             * * if a profile and static credentials are both explicitly set, the profile will be used preferentially, and 
-             * * if no store-specific credentials are set, the global credentials will be preferred over using any "default" profile credentials that are found.
-             */
-
-            ArrayList<AWSCredentialsProvider> providers = new ArrayList<>();
-
-            String s3profile = getConfigParamForDriver(driverId, PROFILE);
-            boolean allowInstanceCredentials = true;
-            // Assume that instance credentials should not be used if the profile is
-            // actually set for this store or if static creds are provided (below).
-            if (s3profile != null) {
-                allowInstanceCredentials = false;
-            }
-            // Try to retrieve credentials via Microprofile Config API, too. For production
-            // use, you should not use env vars or system properties to provide these, but 
-            // use the secrets config source provided by Payara.
-            Optional<String> accessKey = config.getOptionalValue("dataverse.files." + driverId + ".access-key", String.class);
-            Optional<String> secretKey = config.getOptionalValue("dataverse.files." + driverId + ".secret-key", String.class);
-            if (accessKey.isPresent() && secretKey.isPresent()) {
-                allowInstanceCredentials = false;
-                AWSStaticCredentialsProvider staticCredentials = new AWSStaticCredentialsProvider(
-                        new BasicAWSCredentials(
-                                accessKey.get(),
-                                secretKey.get()));
-                providers.add(staticCredentials);
-            } else if (s3profile == null) {
-                //Only use the default profile when it isn't explicitly set for this store when there are no static creds (otherwise it will be preferred).
-                s3profile = "default";
-            }
-            if (s3profile != null) {
-                providers.add(new ProfileCredentialsProvider(s3profile));
-            }
-
-            if (allowInstanceCredentials) {
-                // Add role-based provider as in the default provider chain
-                providers.add(InstanceProfileCredentialsProvider.getInstance());
-            }
-            // Add all providers to chain - the first working provider will be used
-            // (role-based is first in the default cred provider chain (if no profile or
-            // static creds are explicitly set for the store), so we're just
-            // reproducing that, then profile, then static credentials as the fallback)
+        return driverClientMap.computeIfAbsent(driverId, S3AccessIO::buildClient);
+    }
 
-            // As the order is the reverse of how we added providers, we reverse the list here
-            Collections.reverse(providers);
-            AWSCredentialsProviderChain providerChain = new AWSCredentialsProviderChain(providers);
-            s3CB.setCredentials(providerChain);
+    private static AmazonS3 buildClient(String driverId) {
+        // get a standard client, using the standard way of configuration the credentials, etc.
+        AmazonS3ClientBuilder s3CB = AmazonS3ClientBuilder.standard();
 
-            // let's build the client :-)
-            AmazonS3 client =  s3CB.build();
-            driverClientMap.put(driverId,  client);
-            return client;
-        }
+        ClientConfiguration cc = new ClientConfiguration();
+        Integer poolSize = Integer.getInteger("dataverse.files." + driverId + ".connection-pool-size", 256);
+        cc.setMaxConnections(poolSize);
+        s3CB.setClientConfiguration(cc);
+        s3CB.withRequestHandlers(new S3RequestCounter(driverId));
+        
+        /**
+         * Pass in a URL pointing to your S3 compatible storage.
+         * For possible values see https://docs.aws.amazon.com/AWSJavaSDK/latest/javadoc/com/amazonaws/client/builder/AwsClientBuilder.EndpointConfiguration.html
+         */
+        String s3CEUrl = getConfigParamForDriver(driverId, CUSTOM_ENDPOINT_URL, "");
+        /**
+         * Pass in a region to use for SigV4 signing of requests.
+         * Defaults to "dataverse" as it is not relevant for custom S3 implementations.
+         */
+        String s3CERegion = getConfigParamForDriver(driverId, CUSTOM_ENDPOINT_REGION, "dataverse");
+
+        // if the admin has set a system property (see below) we use this endpoint URL instead of the standard ones.
+        if (!s3CEUrl.isEmpty()) {
+            s3CB.setEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(s3CEUrl, s3CERegion));
+        }
+        /**
+         * Pass in a boolean value if path style access should be used within the S3 client.
+         * Anything but case-insensitive "true" will lead to value of false, which is default value, too.
+         */
+        Boolean s3pathStyleAccess = Boolean.parseBoolean(getConfigParamForDriver(driverId, PATH_STYLE_ACCESS, "false"));
+        // some custom S3 implementations require "PathStyleAccess" as they us a path, not a subdomain. default = false
+        s3CB.withPathStyleAccessEnabled(s3pathStyleAccess);
+
+        /**
+         * Pass in a boolean value if payload signing should be used within the S3 client.
+         * Anything but case-insensitive "true" will lead to value of false, which is default value, too.
+         */
+        Boolean s3payloadSigning = Boolean.parseBoolean(getConfigParamForDriver(driverId, PAYLOAD_SIGNING,"false"));
+        /**
+         * Pass in a boolean value if chunked encoding should not be used within the S3 client.
+         * Anything but case-insensitive "false" will lead to value of true, which is default value, too.
+         */
+        Boolean s3chunkedEncoding = Boolean.parseBoolean(getConfigParamForDriver(driverId, CHUNKED_ENCODING,"true"));
+        // Openstack SWIFT S3 implementations require "PayloadSigning" set to true. default = false
+        s3CB.setPayloadSigningEnabled(s3payloadSigning);
+        // Openstack SWIFT S3 implementations require "ChunkedEncoding" set to false. default = true
+        // Boolean is inverted, otherwise setting dataverse.files.<id>.chunked-encoding=false would result in leaving Chunked Encoding enabled
+        s3CB.setChunkedEncodingDisabled(!s3chunkedEncoding);
+
+        /** Configure credentials for the S3 client. There are multiple mechanisms available. 
+         * Role-based/instance credentials are globally defined while the other mechanisms (profile, static)
+         * are defined per store. The logic below assures that 
+         * * if a store specific profile or static credentials are explicitly set, they will be used in preference to the global role-based credentials. 
+         * * if a store specific role-based credentials are explicitly set, they will be used in preference to the global instance credentials,
+         * * if a profile and static credentials are both explicitly set, the profile will be used preferentially, and 
+         * * if no store-specific credentials are set, the global credentials will be preferred over using any "default" profile credentials that are found.
+         */
+
+        ArrayList<AWSCredentialsProvider> providers = new ArrayList<>();
+
+        String s3profile = getConfigParamForDriver(driverId, PROFILE);
+        boolean allowInstanceCredentials = true;
+        // Assume that instance credentials should not be used if the profile is
+        // actually set for this store or if static creds are provided (below).
+        if (s3profile != null) {
+            allowInstanceCredentials = false;
+        }
+        // Try to retrieve credentials via Microprofile Config API, too. For production
+        // use, you should not use env vars or system properties to provide these, but 
+        // use the secrets config source provided by Payara.
+        Optional<String> accessKey = config.getOptionalValue("dataverse.files." + driverId + ".access-key", String.class);
+        Optional<String> secretKey = config.getOptionalValue("dataverse.files." + driverId + ".secret-key", String.class);
+        if (accessKey.isPresent() && secretKey.isPresent()) {
+            allowInstanceCredentials = false;
+            AWSStaticCredentialsProvider staticCredentials = new AWSStaticCredentialsProvider(
+                    new BasicAWSCredentials(
+                            accessKey.get(),
+                            secretKey.get()));
+            providers.add(staticCredentials);
+        } else if (s3profile == null) {
+            //Only use the default profile when it isn't explicitly set for this store when there are no static creds (otherwise it will be preferred).
+            s3profile = "default";
+        }
+        if (s3profile != null) {
+            providers.add(new ProfileCredentialsProvider(s3profile));
+        }
+
+        if (allowInstanceCredentials) {
+            // Add role-based provider as in the default provider chain
+            providers.add(InstanceProfileCredentialsProvider.getInstance());
+        }
+        // Add all providers to chain - the first working provider will be used
+        // (role-based is first in the default cred provider chain (if no profile or
+        // static creds are explicitly set for the store), so we're just
+        // reproducing that, then profile, then static credentials as the fallback)
+
+        // As the order is the reverse of how we added providers, we reverse the list here
+        Collections.reverse(providers);
+        AWSCredentialsProviderChain providerChain = new AWSCredentialsProviderChain(providers);
+        s3CB.setCredentials(providerChain);
+
+        // let's build the client :-)
+        return s3CB.build();
     }
 
     public void removeTempTag() throws IOException {
@@ -1317,6 +1475,66 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         s3Client.completeMultipartUpload(req);
     }
 
+    /**
+     * A direct multipart upload to complete: the part ETags returned by S3.
+     */
+    public record MultipartUpload(String storageIdentifier, String uploadId, List<PartETag> etags) {
+    }
+
+    /**
+     * Completes several multipart uploads into the dataset at once, a few at a
+     * time. An upload that can't be completed is aborted, as with the
+     * /mpupload API.
+     *
+     * @return the uploads that failed: the reason, by storage identifier
+     * @throws IOException if the global id is not valid, in which case none
+     * of the uploads is completed (or aborted)
+     */
+    public static Map<String, String> completeMultipartUploads(String globalId, List<MultipartUpload> uploads)
+            throws IOException {
+        if (globalId == null || globalId.indexOf(":") < 0) {
+            throw new IOException("Invalid Global ID (expected form with '<type>:' prefix)");
+        }
+        Executor executor = getDirectUploadExecutor();
+        Map<String, CompletableFuture<Void>> completions = new LinkedHashMap<>();
+        for (MultipartUpload upload : uploads) {
+            completions.put(upload.storageIdentifier(), CompletableFuture.runAsync(() -> {
+                try {
+                    completeMultipartUpload(globalId, upload.storageIdentifier(), upload.uploadId(), upload.etags());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+        }
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (MultipartUpload upload : uploads) {
+            try {
+                completions.get(upload.storageIdentifier()).join();
+            } catch (CompletionException e) {
+                Throwable cause = (e.getCause() instanceof UncheckedIOException) ? e.getCause().getCause() : e.getCause();
+                logger.warning("Multipart upload completion failed for uploadId: " + upload.uploadId() + " storageidentifier="
+                        + upload.storageIdentifier() + " globalId: " + globalId + " (" + cause.getMessage() + ")");
+                failures.put(upload.storageIdentifier(), String.valueOf(cause.getMessage()));
+                try {
+                    abortMultipartUpload(globalId, upload.storageIdentifier(), upload.uploadId());
+                } catch (IOException | SdkClientException ae) {
+                    logger.severe("Also unable to abort the upload (and release the space on S3 for uploadId: " + upload.uploadId()
+                            + " storageidentifier=" + upload.storageIdentifier() + " globalId: " + globalId);
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * @return the threads to prepare or complete the files of a batch of
+     * direct uploads on; outside the application, they are done one by one
+     */
+    private static Executor getDirectUploadExecutor() {
+        StorageExecutorServiceBean storageExecutor = StorageExecutorServiceBean.getInstance();
+        return (storageExecutor != null) ? storageExecutor.getStorageExecutor() : Runnable::run;
+    }
+
     public boolean isMainDriver() {
         return mainDriver;
     }
@@ -1357,6 +1575,11 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     }
     
     private List<String> listAllFiles() throws IOException {
+        return new ArrayList<>(listObjectSizes().keySet());
+    }
+
+    @Override
+    public Map<String, Long> listObjectSizes() throws IOException {
         if (!this.canWrite()) {
             open();
         }
@@ -1366,7 +1589,7 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         }
         String prefix = dataset.getAuthorityForFileStorage() + "/" + dataset.getIdentifierForFileStorage() + "/";
 
-        List<String> ret = new ArrayList<>();
+        Map<String, Long> ret = new LinkedHashMap<>();
         ListObjectsRequest req = new ListObjectsRequest().withBucketName(bucketName).withPrefix(prefix);
         ObjectListing storedFilesList = null; 
         try {
@@ -1393,38 +1616,22 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
 
         for (S3ObjectSummary item : storedFilesSummary) {
             String fileName = item.getKey().substring(prefix.length());
-            ret.add(fileName);
+            ret.put(fileName, item.getSize());
         }
         return ret;
     }
 
-    private void deleteFile(String fileName) throws IOException {
-        if (!this.canWrite()) {
-            open();
-        }
-        Dataset dataset = this.getDataset();
-        if (dataset == null) {
-            throw new IOException("This S3AccessIO object hasn't been properly initialized.");
-        }
-        String prefix = dataset.getAuthorityForFileStorage() + "/" + dataset.getIdentifierForFileStorage() + "/";
-
-        try {
-            DeleteObjectRequest dor = new DeleteObjectRequest(bucketName, prefix + fileName);
-            s3.deleteObject(dor);
-        } catch (AmazonClientException ase) {
-            logger.warning("S3AccessIO: Unable to delete object    " + ase.getMessage());
-        }
-    }
-
     @Override
     public List<String> cleanUp(Predicate<String> filter, boolean dryRun) throws IOException {
         List<String> toDelete = this.listAllFiles().stream().filter(filter).collect(Collectors.toList());
         if (dryRun) {
             return toDelete;
         }
-        for (String f : toDelete) {
-            this.deleteFile(f);
-        }
+        Dataset dataset = this.getDataset();
+        String prefix = dataset.getAuthorityForFileStorage() + "/" + dataset.getIdentifierForFileStorage() + "/";
+        List<String> keys = toDelete.stream().map(f -> prefix + f).collect(Collectors.toList());
+        deleteObjects(s3, bucketName, keys).forEach((key, reason) ->
+                logger.warning("S3AccessIO: Unable to delete object " + key + "    " + reason));
         return toDelete;
     }
 
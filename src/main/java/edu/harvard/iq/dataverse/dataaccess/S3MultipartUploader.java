@@ -0,0 +1,287 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Uploads objects from the application to an S3 store, one per store: objects
+ * larger than a part are uploaded in parts, several at a time. That includes
+ * streams of an unknown length, which are read one part at a time, so no more
+ * than {@link #UPLOAD_THREADS} parts of a stream are held in memory. A
+ * multipart upload that fails is aborted, so that its parts don't linger in
+ * the bucket.
+ *
+ * The size of the parts and the number of parts uploaded at a time are
+ * configured per store, with {@link #UPLOAD_PART_SIZE} and
+ * {@link #UPLOAD_THREADS}. The parts are uploaded on the threads of
+ * {@link StorageExecutorServiceBean}, which also bounds the number of parts
+ * held in memory by all the uploads together.
+ */
+class S3MultipartUploader {
+
+    private static final Logger logger = Logger.getLogger(S3MultipartUploader.class.getCanonicalName());
+
+    static final String UPLOAD_PART_SIZE = "upload-part-size";
+    static final String UPLOAD_THREADS = "upload-threads";
+
+    // the smallest part S3 accepts (but for the last one)
+    static final int SMALLEST_PART_SIZE = 5 * 1024 * 1024;
+    static final int DEFAULT_PART_SIZE = 64 * 1024 * 1024;
+    static final int DEFAULT_THREADS = 4;
+    // the most parts S3 accepts in an upload
+    static final int MAX_PARTS = 10000;
+
+    private static final Map<String, S3MultipartUploader> uploaders = new ConcurrentHashMap<>();
+
+    private final AmazonS3 s3;
+    private final int partSize;
+    private final int threads;
+    // the threads to upload the parts on, and the parts all the uploads may
+    // hold in memory; null for those of the application
+    private final Executor executor;
+    private final Semaphore bufferedParts;
+
+    /**
+     * @return the uploader of the store
+     */
+    static S3MultipartUploader forDriver(String driverId, AmazonS3 s3) {
+        return uploaders.computeIfAbsent(driverId, id -> {
+            int partSize = getConfigParam(id, UPLOAD_PART_SIZE, DEFAULT_PART_SIZE);
+            if (partSize < SMALLEST_PART_SIZE) {
+                logger.warning(UPLOAD_PART_SIZE + " of store " + id + " is less than the " + SMALLEST_PART_SIZE + " bytes S3 requires, using " + SMALLEST_PART_SIZE);
+                partSize = SMALLEST_PART_SIZE;
+            }
+            int threads = Math.max(1, getConfigParam(id, UPLOAD_THREADS, DEFAULT_THREADS));
+            logger.fine("Uploading to store " + id + " in parts of " + partSize + " bytes, " + threads + " at a time");
+            return new S3MultipartUploader(s3, partSize, threads, null, null);
+        });
+    }
+
+    private static int getConfigParam(String driverId, String parameterName, int defaultValue) {
+        String value = StorageIO.getConfigParamForDriver(driverId, parameterName);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException nfe) {
+                logger.warning("Unable to parse dataverse.files." + driverId + "." + parameterName + " as int: " + value);
+            }
+        }
+        return defaultValue;
+    }
+
+    S3MultipartUploader(AmazonS3 s3, int partSize, int threads, Executor executor, Semaphore bufferedParts) {
+        this.s3 = s3;
+        this.partSize = partSize;
+        this.threads = threads;
+        this.executor = executor;
+        this.bufferedParts = bufferedParts;
+    }
+
+    /**
+     * Uploads a local file, in parts if it is larger than a part.
+     */
+    void upload(String bucketName, String key, File file) throws IOException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            upload(bucketName, key, inputStream, file.length());
+        }
+    }
+
+    /**
+     * Uploads a stream, in parts if it is larger than a part.
+     *
+     * @param size the length of the stream; -1 if unknown. The upload fails
+     * (and is aborted) if the stream turns out to be of another length.
+     * @return the number of bytes uploaded
+     */
+    long upload(String bucketName, String key, InputStream inputStream, long size) throws IOException {
+        try {
+            if (size >= 0 && size <= partSize) {
+                putObject(bucketName, key, inputStream, size);
+                return size;
+            }
+            Executor partExecutor = executor;
+            Semaphore globalPermits = bufferedParts;
+            if (partExecutor == null) {
+                StorageExecutorServiceBean storageExecutor = StorageExecutorServiceBean.getInstance();
+                // outside the application, the parts are uploaded one by one
+                partExecutor = (storageExecutor != null) ? storageExecutor.getStorageExecutor() : Runnable::run;
+                globalPermits = (storageExecutor != null) ? storageExecutor.getUploadBufferedParts() : null;
+            }
+            // A permit per part held in memory, by this upload and by all of
+            // them, taken before the part is read, and given back once it is
+            // uploaded:
+            Semaphore permits = new Semaphore(threads);
+            acquire(permits, globalPermits);
+            boolean holdingPermits = true;
+            try {
+                byte[] first = inputStream.readNBytes(partSize);
+                if (first.length < partSize) {
+                    // it all fits in a single part after all
+                    checkSize(key, first.length, size);
+                    putObject(bucketName, key, new ByteArrayInputStream(first), first.length);
+                    return first.length;
+                }
+                holdingPermits = false;
+                return uploadInParts(bucketName, key, first, inputStream, size, partExecutor, permits, globalPermits);
+            } finally {
+                if (holdingPermits) {
+                    release(permits, globalPermits);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading " + key);
+        } catch (SdkClientException e) {
+            throw new IOException(e.getMessage() != null ? e.getMessage()
+                    : "S3AccessIO: Unknown exception occured while uploading a stream into S3Object " + key, e);
+        }
+    }
+
+    private static void checkSize(String key, long read, long size) throws IOException {
+        if (size >= 0 && read != size) {
+            throw new IOException("Read " + read + " bytes to upload to " + key + ", " + size + " expected");
+        }
+    }
+
+    private void putObject(String bucketName, String key, InputStream inputStream, long size) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(size);
+        s3.putObject(bucketName, key, inputStream, metadata);
+    }
+
+    /**
+     * @param first the first part, for which the permits are held already
+     */
+    private long uploadInParts(String bucketName, String key, byte[] first, InputStream inputStream, long size,
+            Executor partExecutor, Semaphore permits, Semaphore globalPermits) throws IOException {
+        boolean holdingPermits = true;
+        String uploadId;
+        try {
+            uploadId = s3.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key)).getUploadId();
+        } catch (RuntimeException e) {
+            release(permits, globalPermits);
+            throw e;
+        }
+        List<CompletableFuture<PartETag>> parts = new ArrayList<>();
+        long uploaded = 0;
+        try {
+            byte[] part = first;
+            while (part.length > 0) {
+                if (parts.size() == MAX_PARTS) {
+                    throw new IOException("More than " + MAX_PARTS + " parts of " + partSize + " bytes to upload to " + key
+                            + "; the " + UPLOAD_PART_SIZE + " of the store needs to be larger");
+                }
+                final int partNumber = parts.size() + 1;
+                final byte[] content = part;
+                // the permits go with the part:
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return uploadPart(bucketName, key, uploadId, partNumber, content);
+                    } finally {
+                        release(permits, globalPermits);
+                    }
+                }, partExecutor));
+                holdingPermits = false;
+                uploaded += part.length;
+                acquire(permits, globalPermits);
+                holdingPermits = true;
+                // no use reading on, if a part has failed already:
+                for (Future<PartETag> done : parts) {
+                    if (done.isDone()) {
+                        done.get();
+                    }
+                }
+                part = inputStream.readNBytes(partSize);
+            }
+            release(permits, globalPermits);
+            holdingPermits = false;
+            // the parts are not to be put together into an object other than the one expected:
+            checkSize(key, uploaded, size);
+            List<PartETag> eTags = new ArrayList<>(parts.size());
+            for (Future<PartETag> done : parts) {
+                eTags.add(done.get());
+            }
+            s3.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, eTags));
+            logger.fine(() -> "Uploaded " + key + " in " + eTags.size() + " parts");
+            return uploaded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(bucketName, key, uploadId, parts);
+            throw new InterruptedIOException("Interrupted while uploading " + key);
+        } catch (ExecutionException e) {
+            abort(bucketName, key, uploadId, parts);
+            Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+            throw new IOException("Failed to upload a part of " + key + ": " + cause.getMessage(), cause);
+        } catch (IOException | RuntimeException e) {
+            abort(bucketName, key, uploadId, parts);
+            throw e;
+        } finally {
+            if (holdingPermits) {
+                release(permits, globalPermits);
+            }
+        }
+    }
+
+    private static void acquire(Semaphore permits, Semaphore globalPermits) throws InterruptedException {
+        permits.acquire();
+        if (globalPermits != null) {
+            try {
+                globalPermits.acquire();
+            } catch (InterruptedException e) {
+                permits.release();
+                throw e;
+            }
+        }
+    }
+
+    private static void release(Semaphore permits, Semaphore globalPermits) {
+        if (globalPermits != null) {
+            globalPermits.release();
+        }
+        permits.release();
+    }
+
+    private PartETag uploadPart(String bucketName, String key, String uploadId, int partNumber, byte[] content) {
+        UploadPartRequest uploadPartRequest = new UploadPartRequest()
+                .withBucketName(bucketName)
+                .withKey(key)
+                .withUploadId(uploadId)
+                .withPartNumber(partNumber)
+                .withInputStream(new ByteArrayInputStream(content))
+                .withPartSize(content.length);
+        return s3.uploadPart(uploadPartRequest).getPartETag();
+    }
+
+    private void abort(String bucketName, String key, String uploadId, List<CompletableFuture<PartETag>> parts) {
+        parts.forEach(part -> part.cancel(true));
+        try {
+            s3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+        } catch (SdkClientException e) {
+            logger.log(Level.WARNING, "Failed to abort the multipart upload of " + key + " (upload id " + uploadId + ")", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import com.amazonaws.Request;
+import com.amazonaws.handlers.RequestHandler2;
+
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Counts the requests an S3 client makes, by store and by operation (e.g.
+ * GetObject, GetObjectMetadata, PutObject), as the {@code s3_requests}
+ * metric.
+ */
+class S3RequestCounter extends RequestHandler2 {
+
+    private final Tag driverTag;
+
+    S3RequestCounter(String driverId) {
+        this.driverTag = new Tag("driver", driverId);
+    }
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        StorageMetrics.inc("s3_requests", driverTag, new Tag("operation", getOperation(request)));
+    }
+
+    /**
+     * @return the name of the operation, e.g. GetObject for a GetObjectRequest
+     */
+    static String getOperation(Request<?> request) {
+        String name = (request.getOriginalRequest() == null) ? request.getHttpMethod().name()
+                : request.getOriginalRequest().getClass().getSimpleName();
+        return name.endsWith("Request") ? name.substring(0, name.length() - "Request".length()) : name;
+    }
+}
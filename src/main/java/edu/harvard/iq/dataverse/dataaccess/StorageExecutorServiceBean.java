@@ -0,0 +1,96 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.inject.spi.CDI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The threads the storage drivers do their background I/O on, e.g. the parts
+ * of large files read ahead (see {@link ParallelRangedInputStream}) or
+ * uploaded (see {@link S3MultipartUploader}). They are shared by all the
+ * stores, bounded by {@link JvmSettings#FILES_IO_THREADS}, and stopped when
+ * the application is. The parts of the uploads and of the downloads held in
+ * memory are bounded too, by {@link JvmSettings#FILES_UPLOAD_BUFFERED_PARTS}
+ * and {@link JvmSettings#FILES_READ_AHEAD_BUFFERED_PARTS}.
+ *
+ * The drivers aren't beans themselves, and get at the threads with
+ * {@link #getInstance()}.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class StorageExecutorServiceBean {
+
+    private static final Logger logger = Logger.getLogger(StorageExecutorServiceBean.class.getCanonicalName());
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    private ThreadPoolExecutor executor;
+    private Semaphore uploadBufferedParts;
+    private Semaphore readAheadBufferedParts;
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, JvmSettings.FILES_IO_THREADS.lookupOptional(Integer.class).orElse(16));
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), managedThreadFactory);
+        int bufferedParts = Math.max(1, JvmSettings.FILES_UPLOAD_BUFFERED_PARTS.lookupOptional(Integer.class).orElse(16));
+        uploadBufferedParts = new Semaphore(bufferedParts);
+        int readAheadParts = Math.max(0, JvmSettings.FILES_READ_AHEAD_BUFFERED_PARTS.lookupOptional(Integer.class).orElse(32));
+        readAheadBufferedParts = new Semaphore(readAheadParts);
+        logger.fine("Started the storage I/O executor with " + threads + " thread(s), up to " + bufferedParts
+                + " upload parts and " + readAheadParts + " parts read ahead in memory");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public ExecutorService getStorageExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return a permit per part of an upload that may be held in memory, by
+     * all the uploads together (so up to the permits times the part size of
+     * the heap, 1 GB with the defaults)
+     */
+    public Semaphore getUploadBufferedParts() {
+        return uploadBufferedParts;
+    }
+
+    /**
+     * @return a permit per part of a download that may be read ahead, by all
+     * the downloads together
+     */
+    public Semaphore getReadAheadBufferedParts() {
+        return readAheadBufferedParts;
+    }
+
+    /**
+     * @return the instance of the application; null when not running inside
+     * the application (e.g. in unit tests)
+     */
+    static StorageExecutorServiceBean getInstance() {
+        try {
+            return CDI.current().select(StorageExecutorServiceBean.class).get();
+        } catch (IllegalStateException ise) {
+            // no CDI container, i.e. we are not running inside the application
+            return null;
+        }
+    }
+}
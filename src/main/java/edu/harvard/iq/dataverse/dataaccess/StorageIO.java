@@ -35,11 +35,13 @@ import java.nio.channels.Channel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
+import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,12 +53,16 @@ import java.util.regex.Pattern;
 
 public abstract class StorageIO<T extends DvObject> {
 
+    private static final Logger logger = Logger.getLogger(StorageIO.class.getCanonicalName());
+
     static final String INGEST_SIZE_LIMIT = "ingestsizelimit";
     static final String PUBLIC = "public";
     static final String TYPE = "type";
     static final String UPLOAD_REDIRECT = "upload-redirect";
     static final String UPLOAD_OUT_OF_BAND = "upload-out-of-band";
     protected static final String DOWNLOAD_REDIRECT = "download-redirect";
+    static final String READ_AHEAD_PARTS = "read-ahead-parts";
+    static final String READ_AHEAD_PART_SIZE = "read-ahead-part-size";
 
 
     public StorageIO() {
@@ -159,6 +165,14 @@ public abstract class StorageIO<T extends DvObject> {
 
     public abstract boolean isAuxObjectCached(String auxItemTag) throws IOException;
 
+    /**
+     * @return when the aux object was last written, or null if it doesn't
+     * exist or the driver can't tell
+     */
+    public Date getAuxObjectLastModified(String auxItemTag) throws IOException {
+        return null;
+    }
+
     public abstract void backupAsAux(String auxItemTag) throws IOException;
 
     public abstract void revertBackupAsAux(String auxItemTag) throws IOException;
@@ -642,6 +656,23 @@ public abstract class StorageIO<T extends DvObject> {
 
     public abstract List<String> cleanUp(Predicate<String> filter, boolean dryRun) throws IOException;
 
+    /**
+     * Lists all the objects stored in the location of a dataset - the main
+     * files of its datafiles, their aux objects, and the aux objects of the
+     * dataset itself - with their sizes, in as few calls to the storage as
+     * possible (one listing, rather than one call per object).
+     * Only supported on the StorageIO of a dataset, and by the stores that
+     * keep the objects of a dataset together (file, S3 and Swift).
+     *
+     * @return the sizes in bytes, by object name (relative to the location
+     * of the dataset, e.g. "18b39722140-50eb7d3c5ece.orig")
+     * @throws UnsupportedDataAccessOperationException if the store can't
+     * list the objects of a dataset
+     */
+    public Map<String, Long> listObjectSizes() throws IOException {
+        throw new UnsupportedDataAccessOperationException("Listing the objects of a dataset is not supported by this storage type");
+    }
+
     /**
      * A storage-type-specific mechanism for retrieving the size of a file. Intended
      * primarily as a way to get the size before it has been recorded in the
@@ -654,6 +685,59 @@ public abstract class StorageIO<T extends DvObject> {
     public abstract long retrieveSizeFromMedia() throws IOException;
     
     
+    /**
+     * @return the local disk cache of this store; null if it has none
+     */
+    protected LocalDiskCache getCache() {
+        return LocalDiskCache.forDriver(driverId);
+    }
+
+    /**
+     * @return how many parts of a file to read ahead in parallel; 0 if
+     * read-ahead is not configured for this store
+     */
+    protected int getReadAheadParts() {
+        try {
+            return Math.max(0, Integer.parseInt(getConfigParam(READ_AHEAD_PARTS, "0")));
+        } catch (NumberFormatException nfe) {
+            logger.warning("Invalid " + READ_AHEAD_PARTS + " for store " + driverId + ": " + nfe.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Large files are read ahead, in parallel ranged requests, in stores
+     * configured with {@link #READ_AHEAD_PARTS} of more than 1; see
+     * {@link ParallelRangedInputStream}.
+     *
+     * @param fetcher opens a range of the main file
+     * @param size the size of the main file
+     * @return a stream reading the main file ahead, or null if it is to be
+     * read in a single request (read-ahead is not configured, the file is not
+     * larger than a part, or there are no threads to read it ahead on, see
+     * {@link StorageExecutorServiceBean})
+     */
+    protected InputStream getReadAheadInputStream(ParallelRangedInputStream.RangeFetcher fetcher, long size) {
+        int parallelism = getReadAheadParts();
+        int partSize;
+        try {
+            partSize = Integer.parseInt(getConfigParam(READ_AHEAD_PART_SIZE, "8388608"));
+        } catch (NumberFormatException nfe) {
+            logger.warning("Invalid " + READ_AHEAD_PART_SIZE + " for store " + driverId + ": " + nfe.getMessage());
+            return null;
+        }
+        if (parallelism < 2 || partSize < 1 || size <= partSize) {
+            return null;
+        }
+        StorageExecutorServiceBean storageExecutor = StorageExecutorServiceBean.getInstance();
+        if (storageExecutor == null) {
+            return null;
+        }
+        logger.fine("Reading " + size + " bytes ahead in " + parallelism + " parallel parts of " + partSize + " bytes");
+        return new ParallelRangedInputStream(fetcher, size, partSize, parallelism, storageExecutor.getStorageExecutor(),
+                storageExecutor.getReadAheadBufferedParts());
+    }
+
     /* Convenience methods to get a driver-specific parameter
      * 
      * - with or without a default
@@ -0,0 +1,45 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import jakarta.enterprise.inject.spi.CDI;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * The metrics of the storage drivers. The drivers aren't managed beans, so
+ * the registry is looked up; while it can't be (e.g. during the deployment,
+ * or in the unit tests), nothing is counted, and the lookup is tried again
+ * at most every {@link #RETRY_INTERVAL_MILLIS}.
+ */
+class StorageMetrics {
+
+    private static final Logger logger = Logger.getLogger(StorageMetrics.class.getCanonicalName());
+
+    static final long RETRY_INTERVAL_MILLIS = 60 * 1000L;
+
+    private static volatile MetricRegistry metricRegistry;
+    private static volatile long nextLookupTime = 0;
+
+    private StorageMetrics() {
+    }
+
+    static void inc(String name, Tag... tags) {
+        MetricRegistry registry = getMetricRegistry();
+        if (registry != null) {
+            registry.counter(name, tags).inc();
+        }
+    }
+
+    private static MetricRegistry getMetricRegistry() {
+        if (metricRegistry == null && System.currentTimeMillis() >= nextLookupTime) {
+            try {
+                metricRegistry = CDI.current().select(MetricRegistry.class).get();
+            } catch (RuntimeException e) {
+                logger.log(Level.FINE, "No metric registry, not counting the storage metrics for now", e);
+                nextLookupTime = System.currentTimeMillis() + RETRY_INTERVAL_MILLIS;
+            }
+        }
+        return metricRegistry;
+    }
+}
@@ -19,8 +19,11 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.Formatter;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
@@ -312,6 +315,17 @@ public class SwiftAccessIO<T extends DvObject> extends StorageIO<T> {
         return swiftAuxObject.getContentLength();
     }
 
+    @Override
+    public Date getAuxObjectLastModified(String auxItemTag) throws IOException {
+        StoredObject swiftAuxObject = openSwiftAuxFile(auxItemTag);
+
+        if (swiftAuxObject == null) {
+            return null;
+        }
+
+        return swiftAuxObject.getLastModifiedAsDate();
+    }
+
     @Override
     public Path getAuxObjectAsPath(String auxItemTag) throws IOException {
         throw new UnsupportedDataAccessOperationException("SwiftAccessIO: this is a remote DataAccess IO object, its Aux objects have no local filesystem Paths associated with it.");
@@ -913,6 +927,11 @@ public class SwiftAccessIO<T extends DvObject> extends StorageIO<T> {
     }
 
     private List<String> listAllFiles() throws IOException {
+        return new ArrayList<>(listObjectSizes().keySet());
+    }
+
+    @Override
+    public Map<String, Long> listObjectSizes() throws IOException {
         if (!this.canWrite()) {
             open(DataAccessOption.WRITE_ACCESS);
         }
@@ -924,12 +943,12 @@ public class SwiftAccessIO<T extends DvObject> extends StorageIO<T> {
         
         Collection<StoredObject> items; 
         String lastItemName = null; 
-        List<String> ret = new ArrayList<>();
+        Map<String, Long> ret = new LinkedHashMap<>();
 
         while ((items = this.swiftContainer.list(prefix, lastItemName, LIST_PAGE_LIMIT)) != null && items.size() > 0) {
             for (StoredObject item : items) {
-                lastItemName = item.getName().substring(prefix.length());
-                ret.add(lastItemName);
+                lastItemName = item.getName();
+                ret.put(lastItemName.substring(prefix.length()), item.getContentLength());
             }
         }
 
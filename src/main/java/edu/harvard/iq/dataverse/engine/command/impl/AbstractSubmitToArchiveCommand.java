@@ -20,9 +20,9 @@ import edu.harvard.iq.dataverse.util.bagit.OREMap;
 import edu.harvard.iq.dataverse.workflow.step.WorkflowStepResult;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
-import java.security.DigestInputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -104,7 +104,7 @@ public abstract class AbstractSubmitToArchiveCommand extends AbstractCommand<Dat
                 dv.getDataset());
     }
 
-    public Thread startBagThread(DatasetVersion dv, PipedInputStream in, DigestInputStream digestInputStream2,
+    public Thread startBagThread(DatasetVersion dv, PipedInputStream in, InputStream digestInputStream2,
             String dataciteXml, ApiToken token) throws IOException, InterruptedException {
         Thread bagThread = new Thread(new Runnable() {
             public void run() {
@@ -30,6 +30,8 @@ import edu.harvard.iq.dataverse.util.StringUtil;
 import edu.harvard.iq.dataverse.util.file.BagItFileHandler;
 import edu.harvard.iq.dataverse.util.file.BagItFileHandlerFactory;
 import edu.harvard.iq.dataverse.util.file.CreateDataFileResult;
+import edu.harvard.iq.dataverse.util.file.SavedUpload;
+import edu.harvard.iq.dataverse.util.file.ZipUploadExtractor;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -37,12 +39,9 @@ import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -53,7 +52,6 @@ import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 import jakarta.enterprise.inject.spi.CDI;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -138,37 +136,37 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
         }
         String finalType = null;
         File newFile = null;    // this File will be used for a single-file, local (non-direct) upload
+        SavedUpload savedUpload = null;
         long fileSize = -1; 
 
 
         if (newStorageIdentifier == null) {
             if (getFilesTempDirectory() != null) {
+                // The upload is saved, size-checked and checksummed in a single
+                // pass; an upload over the size limit is rejected as soon as it
+                // crosses it, before the rest of it is written to the temp disk.
+                // (note that "no size limit set" = "unlimited")
+                // (also note, that if this is a zip file, we'll be checking
+                // the size limit for each of the individual unpacked files; and
+                // that the storage quota is checked further down, once we know
+                // whether the file is going to be unpacked)
                 try {
-                    tempFile = Files.createTempFile(Paths.get(getFilesTempDirectory()), "tmp", "upload");
                     // "temporary" location is the key here; this is why we are not using
                     // the DataStore framework for this - the assumption is that
                     // temp files will always be stored on the local filesystem.
                     // -- L.A. Jul. 2014
-                    logger.fine("Will attempt to save the file as: " + tempFile.toString());
-                    Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                    savedUpload = saveInputStreamInTempFile(inputStream, fileSizeLimit, null, newCheckSumType);
+                    tempFile = savedUpload.file().toPath();
+                    logger.fine("Saved the upload as: " + tempFile.toString());
+                } catch (FileExceedsMaxSizeException femsx) {
+                    throw new CommandExecutionException(femsx.getMessage(), this);
+                } catch (FileExceedsStorageQuotaException fesqx) {
+                    // (can't happen - no quota is passed in, see above)
+                    throw new CommandExecutionException(fesqx.getMessage(), this);
                 } catch (IOException ioex) {
                     throw new CommandExecutionException("Failed to save the upload as a temp file (temp disk space?)", ioex, this);
                 }
-
-                // A file size check, before we do anything else:
-                // (note that "no size limit set" = "unlimited")
-                // (also note, that if this is a zip file, we'll be checking
-                // the size limit for each of the individual unpacked files)
-                fileSize = tempFile.toFile().length();
-                if (fileSizeLimit != null && fileSize > fileSizeLimit) {
-                    try {
-                        tempFile.toFile().delete();
-                    } catch (Exception ex) {
-                        // ignore - but log a warning
-                        logger.warning("Could not remove temp file " + tempFile.getFileName());
-                    }
-                    throw new CommandExecutionException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.file_exceeds_limit"), bytesToHumanReadable(fileSize), bytesToHumanReadable(fileSizeLimit)), this);
-                }
+                fileSize = savedUpload.size();
 
             } else {
                 throw new CommandExecutionException("Temp directory is not configured.", this);
@@ -271,8 +269,6 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
             } else if (finalType.equals("application/zip")) {
 
                 ZipFile zipFile = null;
-                ZipInputStream unZippedIn = null;
-                ZipEntry zipEntry = null;
 
                 int fileNumberLimit = ctxt.systemConfig().getZipUploadFilesLimit();
                 Long combinedUnzippedFileSize = 0L;
@@ -323,166 +319,92 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                      * then attempt to save it as is.
                      */
 
-                    int numberOfUnpackableFiles = 0; 
-                     
                     /**
                      * Note that we can't just use zipFile.size(),
                      * unfortunately, since that's the total number of entries,
                      * some of which can be directories. So we need to go
                      * through all the individual zipEntries and count the ones
-                     * that are files.
+                     * that are files. If a single file is above the individual
+                     * size limit, unzipped, we give up on unpacking this zip
+                     * archive as well.
                      */
-
-                    for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
-                        ZipEntry entry = entries.nextElement();
-                        logger.fine("inside first zip pass; this entry: "+entry.getName());
-                        if (!entry.isDirectory()) {
-                            String shortName = entry.getName().replaceFirst("^.*[\\/]", "");
-                            // ... and, finally, check if it's a "fake" file - a zip archive entry
-                            // created for a MacOS X filesystem element: (these
-                            // start with "._") 
-                            if (!shortName.startsWith("._") && !shortName.startsWith(".DS_Store") && !"".equals(shortName)) {
-                                numberOfUnpackableFiles++;
-                                if (numberOfUnpackableFiles > fileNumberLimit) {
-                                    logger.warning("Zip upload - too many files in the zip to process individually.");
-                                    warningMessage = "The number of files in the zip archive is over the limit (" + fileNumberLimit
-                                            + "); please upload a zip archive with fewer files, if you want them to be ingested "
-                                            + "as individual DataFiles.";
-                                    throw new IOException();
-                                }
-                                // In addition to counting the files, we can
-                                // also check the file size while we're here, 
-                                // provided the size limit is defined; if a single 
-                                // file is above the individual size limit, unzipped,
-                                // we give up on unpacking this zip archive as well: 
-                                if (fileSizeLimit != null && entry.getSize() > fileSizeLimit) {
-                                    throw new FileExceedsMaxSizeException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.file_exceeds_limit"), bytesToHumanReadable(entry.getSize()), bytesToHumanReadable(fileSizeLimit)));
-                                }
-                                // Similarly, we want to check if saving all these unpacked 
-                                // files is going to push the disk usage over the 
-                                // quota:
-                                if (storageQuotaLimit != null) {
-                                    combinedUnzippedFileSize = combinedUnzippedFileSize + entry.getSize();
-                                    if (combinedUnzippedFileSize > storageQuotaLimit) {
-                                        //throw new FileExceedsStorageQuotaException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.quota_exceeded"), bytesToHumanReadable(combinedUnzippedFileSize), bytesToHumanReadable(storageQuotaLimit)));
-                                        // change of plans: if the unzipped content inside exceeds the remaining quota, 
-                                        // we reject the upload outright, rather than accepting the zip 
-                                        // file as is. 
-                                        throw new CommandExecutionException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.unzipped.quota_exceeded"), bytesToHumanReadable(storageQuotaLimit)), this);
-                                    }
-                                }
+                    List<ZipEntry> unpackableEntries;
+                    try {
+                        unpackableEntries = ZipUploadExtractor.findUnpackableEntries(zipFile, fileNumberLimit, fileSizeLimit);
+                    } catch (IllegalArgumentException iaex) {
+                        // Note:
+                        // This is what happens if the file name of the next
+                        // entry is not valid in the current CharSet.
+                        // -- L.A.
+                        warningMessage = "Failed to unpack Zip file. (Unknown Character Set used in a file name?) Saving the file as is.";
+                        logger.warning(warningMessage);
+                        throw new IOException();
+                    } catch (ZipUploadExtractor.TooManyEntriesException tmex) {
+                        logger.warning("Zip upload - too many files in the zip to process individually.");
+                        warningMessage = "The number of files in the zip archive is over the limit (" + fileNumberLimit
+                                + "); please upload a zip archive with fewer files, if you want them to be ingested "
+                                + "as individual DataFiles.";
+                        throw tmex;
+                    }
+                    // Similarly, we want to check if saving all these unpacked 
+                    // files is going to push the disk usage over the 
+                    // quota:
+                    if (storageQuotaLimit != null) {
+                        for (ZipEntry entry : unpackableEntries) {
+                            combinedUnzippedFileSize = combinedUnzippedFileSize + entry.getSize();
+                            if (combinedUnzippedFileSize > storageQuotaLimit) {
+                                // if the unzipped content inside exceeds the remaining quota, 
+                                // we reject the upload outright, rather than accepting the zip 
+                                // file as is. 
+                                throw new CommandExecutionException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.unzipped.quota_exceeded"), bytesToHumanReadable(storageQuotaLimit)), this);
                             }
                         }
                     }
                     
                     // OK we're still here - that means we can proceed unzipping. 
                     
-                    // Close the ZipFile, re-open as ZipInputStream: 
-                    zipFile.close(); 
+                    // The entries are unpacked (saved, checksummed and type-checked)
+                    // in parallel, straight from the ZipFile; the DataFiles are 
+                    // then created here, in the order of the entries in the archive.
                     // reset:
                     combinedUnzippedFileSize = 0L;
-
-                    if (charset != null) {
-                        unZippedIn = new ZipInputStream(new FileInputStream(tempFile.toFile()), charset);
-                    } else {
-                        unZippedIn = new ZipInputStream(new FileInputStream(tempFile.toFile()));
-                    }
-
-                    while (true) {
-                        try {
-                            zipEntry = unZippedIn.getNextEntry();
-                        } catch (IllegalArgumentException iaex) {
-                            // Note:
-                            // ZipInputStream documentation doesn't even mention that
-                            // getNextEntry() throws an IllegalArgumentException!
-                            // but that's what happens if the file name of the next
-                            // entry is not valid in the current CharSet.
-                            // -- L.A.
-                            warningMessage = "Failed to unpack Zip file. (Unknown Character Set used in a file name?) Saving the file as is.";
-                            logger.warning(warningMessage);
-                            throw new IOException();
-                        }
-
-                        if (zipEntry == null) {
-                            break;
+                    DataFile.ChecksumType checksumType = ctxt.systemConfig().getFileFixityChecksumAlgorithm();
+                    List<ZipUploadExtractor.ExtractedEntry> extractedEntries = CDI.current().select(ZipUploadExtractor.class).get()
+                            .extractAll(zipFile, unpackableEntries, fileSizeLimit, checksumType);
+
+                    for (ZipUploadExtractor.ExtractedEntry extractedEntry : extractedEntries) {
+                        String fileEntryName = extractedEntry.entry().getName();
+                        String shortName = ZipUploadExtractor.getShortName(fileEntryName);
+                        File unzippedFile = extractedEntry.savedUpload().file();
+                        logger.fine("ZipEntry, file: " + fileEntryName);
+
+                        // We may not have been able to determine the real type of
+                        // the unpacked file on the worker thread; let's try again here:
+                        recognizedType = extractedEntry.recognizedType();
+                        if (recognizedType == null) {
+                            try {
+                                recognizedType = determineFileType(unzippedFile, shortName);
+                            } catch (Exception ex) {
+                                logger.warning("Failed to run the file utility mime type check on file " + fileName);
+                            }
                         }
-                        // Note that some zip entries may be directories - we
-                        // simply skip them:
-
-                        if (!zipEntry.isDirectory()) {
-                            if (datafiles.size() > fileNumberLimit) {
-                                logger.warning("Zip upload - too many files.");
-                                warningMessage = "The number of files in the zip archive is over the limit (" + fileNumberLimit
-                                        + "); please upload a zip archive with fewer files, if you want them to be ingested "
-                                        + "as individual DataFiles.";
-                                throw new IOException();
+                        logger.fine("File utility recognized unzipped file as " + recognizedType);
+
+                        DataFile datafile = FileUtil.createSingleDataFile(version, unzippedFile, null, shortName,
+                                StringUtils.isEmpty(recognizedType) ? MIME_TYPE_UNDETERMINED_DEFAULT : recognizedType,
+                                checksumType, extractedEntry.savedUpload().checksum(), false);
+
+                        if (datafile != null) {
+                            datafile.setFilesize(extractedEntry.savedUpload().size());
+                            String directoryName = ZipUploadExtractor.getDirectoryLabel(fileEntryName);
+                            if (directoryName != null) {
+                                logger.fine("setting the directory label to " + directoryName);
+                                datafile.getFileMetadata().setDirectoryLabel(directoryName);
                             }
 
-                            String fileEntryName = zipEntry.getName();
-                            logger.fine("ZipEntry, file: " + fileEntryName);
-
-                            if (fileEntryName != null && !fileEntryName.equals("")) {
-
-                                String shortName = fileEntryName.replaceFirst("^.*[\\/]", "");
-
-                                // Check if it's a "fake" file - a zip archive entry
-                                // created for a MacOS X filesystem element: (these
-                                // start with "._")
-                                if (!shortName.startsWith("._") && !shortName.startsWith(".DS_Store") && !"".equals(shortName)) {
-                                    // OK, this seems like an OK file entry - we'll try
-                                    // to read it and create a DataFile with it:
-
-                                    String storageIdentifier = FileUtil.generateStorageIdentifier();
-                                    File unzippedFile = new File(getFilesTempDirectory() + "/" + storageIdentifier);
-                                    Files.copy(unZippedIn, unzippedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                                    // No need to check the size of this unpacked file against the size limit, 
-                                    // since we've already checked for that in the first pass.
-                                    
-                                    DataFile datafile = FileUtil.createSingleDataFile(version, null, storageIdentifier, shortName,
-                                            MIME_TYPE_UNDETERMINED_DEFAULT,
-                                            ctxt.systemConfig().getFileFixityChecksumAlgorithm(), null, false);
-                                    
-                                    if (!fileEntryName.equals(shortName)) {
-                                        // If the filename looks like a hierarchical folder name (i.e., contains slashes and backslashes),
-                                        // we'll extract the directory name; then subject it to some "aggressive sanitizing" - strip all 
-                                        // the leading, trailing and duplicate slashes; then replace all the characters that 
-                                        // don't pass our validation rules.
-                                        String directoryName = fileEntryName.replaceFirst("[\\\\/][\\\\/]*[^\\\\/]*$", "");
-                                        directoryName = StringUtil.sanitizeFileDirectory(directoryName, true);
-                                        // if (!"".equals(directoryName)) {
-                                        if (!StringUtil.isEmpty(directoryName)) {
-                                            logger.fine("setting the directory label to " + directoryName);
-                                            datafile.getFileMetadata().setDirectoryLabel(directoryName);
-                                        }
-                                    }
-
-                                    if (datafile != null) {
-                                        // We have created this datafile with the mime type "unknown";
-                                        // Now that we have it saved in a temporary location,
-                                        // let's try and determine its real type:
-
-                                        String tempFileName = getFilesTempDirectory() + "/" + datafile.getStorageIdentifier();
-
-                                        try {
-                                            recognizedType = determineFileType(unzippedFile, shortName);
-                                            // null the File explicitly, to release any open FDs:
-                                            unzippedFile = null;
-                                            logger.fine("File utility recognized unzipped file as " + recognizedType);
-                                            if (recognizedType != null && !recognizedType.equals("")) {
-                                                datafile.setContentType(recognizedType);
-                                            }
-                                        } catch (Exception ex) {
-                                            logger.warning("Failed to run the file utility mime type check on file " + fileName);
-                                        }
-
-                                        datafiles.add(datafile);
-                                        combinedUnzippedFileSize += datafile.getFilesize();
-                                    }
-                                }
-                            }
+                            datafiles.add(datafile);
+                            combinedUnzippedFileSize += datafile.getFilesize();
                         }
-                        unZippedIn.closeEntry();
-
                     }
 
                 } catch (IOException ioex) {
@@ -510,11 +432,6 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                             zipFile.close();
                         } catch (Exception zEx) {}
                     }
-                    if (unZippedIn != null) {
-                        try {
-                            unZippedIn.close();
-                        } catch (Exception zEx) {}
-                    }
                 }
                 if (!datafiles.isEmpty()) {
                     // remove the uploaded zip file:
@@ -709,7 +626,15 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
             throw new CommandExecutionException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.quota_exceeded"), bytesToHumanReadable(fileSize), bytesToHumanReadable(storageQuotaLimit)), this);
         } 
         
-        DataFile datafile = FileUtil.createSingleDataFile(version, newFile, newStorageIdentifier, fileName, finalType, newCheckSumType, newCheckSum);
+        String checksum = newCheckSum;
+        if (StringUtils.isEmpty(checksum) && savedUpload != null && newFile != null
+                && newFile.equals(savedUpload.file()) && newCheckSumType == savedUpload.checksumType()) {
+            // The file is saved as uploaded; no need to read it again for the
+            // checksum, it was calculated while it was being saved:
+            checksum = savedUpload.checksum();
+        }
+
+        DataFile datafile = FileUtil.createSingleDataFile(version, newFile, newStorageIdentifier, fileName, finalType, newCheckSumType, checksum);
 
         if (datafile != null) {
 
@@ -1,22 +1,25 @@
 package edu.harvard.iq.dataverse.engine.command.impl;
 
+import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.Dataset;
 import edu.harvard.iq.dataverse.DatasetVersion;
 import edu.harvard.iq.dataverse.DatasetLock.Reason;
+import edu.harvard.iq.dataverse.FileMetadata;
 import edu.harvard.iq.dataverse.authorization.Permission;
 import edu.harvard.iq.dataverse.authorization.users.ApiToken;
 import edu.harvard.iq.dataverse.engine.command.Command;
 import edu.harvard.iq.dataverse.engine.command.DataverseRequest;
 import edu.harvard.iq.dataverse.engine.command.RequiredPermissions;
-import edu.harvard.iq.dataverse.util.bagit.BagGenerator;
-import edu.harvard.iq.dataverse.util.bagit.OREMap;
 import edu.harvard.iq.dataverse.util.json.JsonUtil;
 import edu.harvard.iq.dataverse.workflow.step.Failure;
 import edu.harvard.iq.dataverse.workflow.step.WorkflowStepResult;
 
 import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -26,6 +29,7 @@ import jakarta.json.JsonObjectBuilder;
 
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.ConfigProvider;
+import org.apache.commons.io.IOUtils;
 
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentialsProviderChain;
@@ -35,8 +39,13 @@ import com.amazonaws.auth.profile.ProfileCredentialsProvider;
 import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
 
@@ -47,6 +56,11 @@ public class S3SubmitToArchiveCommand extends AbstractSubmitToArchiveCommand imp
     private static final String S3_CONFIG = ":S3ArchiverConfig";
 
     private static final Config config = ConfigProvider.getConfig();
+    private static final int DEFAULT_PART_SIZE_MB = 64;
+    private static final int MAX_PARTS = 10000;
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    // the largest array the part is buffered in
+    private static final long MAX_PART_SIZE = Integer.MAX_VALUE - 8;
     protected AmazonS3 s3 = null;
     protected TransferManager tm = null;
     private String spaceName = null;
@@ -103,46 +117,37 @@ public class S3SubmitToArchiveCommand extends AbstractSubmitToArchiveCommand imp
                         
                         String bagKey = spaceName + "/" + fileName + ".zip";
                         // Add BagIt ZIP file
-                        // Google uses MD5 as one way to verify the
-                        // transfer
-
-                        // Generate bag
-                        BagGenerator bagger = new BagGenerator(new OREMap(dv, false), dataciteXml);
-                        bagger.setAuthenticationKey(token.getTokenString());
-                        if (bagger.generateBag(fileName, false)) {
-                            File bagFile = bagger.getBagFile(fileName);
-
-                            try (FileInputStream in = new FileInputStream(bagFile)) {
-                                om = new ObjectMetadata();
-                                om.setContentLength(bagFile.length());
-
-                                tm.upload(new PutObjectRequest(bucketName, bagKey, in, om)).waitForCompletion();
-                                om = s3.getObjectMetadata(bucketName, bagKey);
-
-                                if (om == null) {
-                                    logger.severe("Error sending file to S3: " + fileName);
-                                    return new Failure("Error in transferring Bag file to S3",
-                                            "S3 Submission Failure: incomplete transfer");
+                        // The bag is streamed to S3 while it is being generated, in parts, rather
+                        // than written to a local file first
+                        success = false;
+                        try (PipedInputStream in = new PipedInputStream(100000)) {
+                            Thread bagThread = startBagThread(dv, in, in, dataciteXml, token);
+                            uploadInParts(bagKey, in, getPartSize(configObject, dv));
+                            bagThread.join();
+                            om = success ? s3.getObjectMetadata(bucketName, bagKey) : null;
+                            if (om == null) {
+                                logger.severe("Error sending file to S3: " + fileName);
+                                if (!success) {
+                                    s3.deleteObject(bucketName, bagKey);
                                 }
-                            } catch (RuntimeException rte) {
-                                logger.severe("Error creating Bag during S3 archiving: " + rte.getMessage());
-                                return new Failure("Error in generating Bag",
-                                        "S3 Submission Failure: archive file not created");
+                                return new Failure("Error in transferring Bag file to S3",
+                                        "S3 Submission Failure: incomplete transfer");
                             }
+                        } catch (IOException | RuntimeException e) {
+                            logger.severe("Error creating Bag during S3 archiving: " + e.getMessage());
+                            return new Failure("Error in generating Bag",
+                                    "S3 Submission Failure: archive file not created");
+                        }
 
-                            logger.fine("S3 Submission step: Content Transferred");
+                        logger.fine("S3 Submission step: Content Transferred");
 
-                            // Document the location of dataset archival copy location (actually the URL
-                            // where you can
-                            // view it as an admin)
+                        // Document the location of dataset archival copy location (actually the URL
+                        // where you can
+                        // view it as an admin)
 
-                            // Unsigned URL - gives location but not access without creds
-                            statusObject.add(DatasetVersion.ARCHIVAL_STATUS, DatasetVersion.ARCHIVAL_STATUS_SUCCESS);
-                            statusObject.add(DatasetVersion.ARCHIVAL_STATUS_MESSAGE, s3.getUrl(bucketName, bagKey).toString());
-                        } else {
-                            logger.warning("Could not write local Bag file " + fileName);
-                            return new Failure("S3 Archiver fail writing temp local bag");
-                        }
+                        // Unsigned URL - gives location but not access without creds
+                        statusObject.add(DatasetVersion.ARCHIVAL_STATUS, DatasetVersion.ARCHIVAL_STATUS_SUCCESS);
+                        statusObject.add(DatasetVersion.ARCHIVAL_STATUS_MESSAGE, s3.getUrl(bucketName, bagKey).toString());
 
                     }
                 } else {
@@ -166,6 +171,55 @@ public class S3SubmitToArchiveCommand extends AbstractSubmitToArchiveCommand imp
         }
     }
 
+    /**
+     * Uploads the content of the stream as a multipart upload, one part at a
+     * time, so that at most one part is held in memory, whatever the size of
+     * the content. The upload is aborted if it can't be completed.
+     */
+    protected void uploadInParts(String key, InputStream in, int partSize) throws IOException {
+        String uploadId = s3.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key)).getUploadId();
+        try {
+            List<PartETag> partETags = new ArrayList<PartETag>();
+            byte[] buffer = new byte[partSize];
+            int read;
+            do {
+                read = IOUtils.read(in, buffer);
+                if (read > 0 || partETags.isEmpty()) {
+                    UploadPartRequest partRequest = new UploadPartRequest().withBucketName(bucketName).withKey(key)
+                            .withUploadId(uploadId).withPartNumber(partETags.size() + 1)
+                            .withInputStream(new ByteArrayInputStream(buffer, 0, read)).withPartSize(read);
+                    partETags.add(s3.uploadPart(partRequest).getPartETag());
+                    logger.fine("Uploaded part " + partETags.size() + " of " + key);
+                }
+            } while (read == partSize);
+            s3.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+        } catch (IOException | RuntimeException e) {
+            s3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+            throw e;
+        }
+    }
+
+    /**
+     * @return the size of the parts to upload the bag in: the configured
+     *         "upload-part-size-mb" (default 64 MB), or more if needed to stay
+     *         under S3's limit of 10,000 parts for a bag the size of the dataset.
+     */
+    protected int getPartSize(JsonObject configObject, DatasetVersion dv) {
+        long partSize = configObject.getInt("upload-part-size-mb", DEFAULT_PART_SIZE_MB) * 1024L * 1024L;
+        long datasetSize = 0;
+        for (FileMetadata fmd : dv.getFileMetadatas()) {
+            DataFile df = fmd.getDataFile();
+            if (df.isTabularData() && df.getOriginalFileSize() != null) {
+                datasetSize += df.getOriginalFileSize();
+            } else {
+                datasetSize += Math.max(0, df.getFilesize());
+            }
+        }
+        // Leaving some room for the metadata files and the zip overhead:
+        partSize = Math.max(partSize, datasetSize / (MAX_PARTS - 1000) + 1);
+        return (int) Math.max(MIN_PART_SIZE, Math.min(partSize, MAX_PART_SIZE));
+    }
+
     protected String getDataCiteFileName(String spaceName, DatasetVersion dv) {
         return spaceName + "_datacite.v" + dv.getFriendlyVersionNumber();
     }
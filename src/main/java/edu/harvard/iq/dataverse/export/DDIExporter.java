@@ -48,8 +48,15 @@ public class DDIExporter implements XMLExporter {
             XMLStreamWriter xmlw = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream);
             xmlw.writeStartDocument();
             xmlw.flush();
-            DdiExportUtil.datasetJson2ddi(dataProvider.getDatasetJson(), dataProvider.getDatasetFileDetails(),
-                    outputStream);
+            if (dataProvider instanceof InternalExportDataProvider internalDataProvider) {
+                // (writes the file and variable level metadata straight from the files, instead
+                // of first getting the details of all of them from getDatasetFileDetails())
+                DdiExportUtil.datasetJson2ddi(dataProvider.getDatasetJson(), internalDataProvider.getDatasetVersion(),
+                        outputStream);
+            } else {
+                DdiExportUtil.datasetJson2ddi(dataProvider.getDatasetJson(), dataProvider.getDatasetFileDetails(),
+                        outputStream);
+            }
         } catch (XMLStreamException xse) {
             throw new ExportException("Caught XMLStreamException performing DDI export", xse);
         }
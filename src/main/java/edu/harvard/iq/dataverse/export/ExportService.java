@@ -128,6 +128,14 @@ public class ExportService {
     }
 
     public InputStream getExport(Dataset dataset, String formatName) throws ExportException, IOException {
+        return getExport(dataset, formatName, isCachedExportStale(dataset, formatName));
+    }
+
+    /**
+     * @param stale what {@link #isCachedExportStale} says, for callers that
+     * have checked already
+     */
+    public InputStream getExport(Dataset dataset, String formatName, boolean stale) throws ExportException, IOException {
         // first we will try to locate an already existing, cached export
         // for this format:
 
@@ -136,54 +144,16 @@ public class ExportService {
         // The DDI export is limited for restricted and actively embargoed files (no
         // data/file description sections).and when an embargo ends, we need to refresh
         // this export.
-        boolean clearCachedExport = false;
-        if (formatName.equals(DDIExporter.PROVIDER_NAME) && (exportInputStream != null)) {
-            // We want ddi and there was a cached version
-            LocalDate exportLocalDate = null;
-            Date lastExportDate = dataset.getLastExportTime();
-            // if lastExportDate == null, assume it's not set because were exporting for the
-            // first time now (e.g. during publish) and therefore no changes are needed
-            if (lastExportDate != null) {
-                exportLocalDate = lastExportDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-                logger.fine("Last export date: " + exportLocalDate.toString());
-                // Track which embargoes we've already checked
-                Set<Long> embargoIds = new HashSet<Long>();
-                // Check for all files in the latest released version
-                for (FileMetadata fm : dataset.getLatestVersionForCopy().getFileMetadatas()) {
-                    // ToDo? This loop is necessary because we have not stored the date when the
-                    // next embargo in this datasetversion will end. If we knew that (another
-                    // dataset/datasetversion column), we could make
-                    // one check that nextembargoEnd exists and is after the last export and before
-                    // now versus scanning through files until we potentially find such an embargo.
-                    Embargo e = fm.getDataFile().getEmbargo();
-                    if (e != null) {
-                        logger.fine("Datafile:  " + fm.getDataFile().getId());
-                        logger.fine("Embargo end date: " + e.getFormattedDateAvailable());
-                    }
-                    if (e != null && !embargoIds.contains(e.getId()) && e.getDateAvailable().isAfter(exportLocalDate)
-                            && e.getDateAvailable().isBefore(LocalDate.now())) {
-                        logger.fine("Request that the ddi export be cleared.");
-                        // The file has been embargoed and the embargo ended after the last export and
-                        // before the current date, so we need to remove the cached DDI export and make
-                        // it refresh
-                        clearCachedExport = true;
-                        break;
-                    } else if (e != null) {
-                        logger.fine("adding embargo to checked list: " + e.getId());
-                        embargoIds.add(e.getId());
-                    }
-                }
-            }
-            if (clearCachedExport) {
-                try {
-                    exportInputStream.close();
-                    clearCachedExport(dataset, formatName);
-                } catch (Exception ex) {
-                    logger.warning("Failure deleting DDI export format for dataset id: " + dataset.getId()
-                            + " after embargo expiration: " + ex.getLocalizedMessage());
-                } finally {
-                    exportInputStream = null;
-                }
+        boolean clearCachedExport = (exportInputStream != null) && stale;
+        if (clearCachedExport) {
+            try {
+                exportInputStream.close();
+                clearCachedExport(dataset, formatName);
+            } catch (Exception ex) {
+                logger.warning("Failure deleting DDI export format for dataset id: " + dataset.getId()
+                        + " after embargo expiration: " + ex.getLocalizedMessage());
+            } finally {
+                exportInputStream = null;
             }
         }
 
@@ -207,6 +177,54 @@ public class ExportService {
 
     }
 
+    /**
+     * The DDI export is limited for restricted and actively embargoed files
+     * (no data/file description sections), so the cached export is out of date
+     * once an embargo has ended since it was made.
+     *
+     * @return whether the cached export (if any) needs to be made again
+     */
+    public boolean isCachedExportStale(Dataset dataset, String formatName) {
+        if (!formatName.equals(DDIExporter.PROVIDER_NAME)) {
+            return false;
+        }
+        LocalDate exportLocalDate = null;
+        Date lastExportDate = dataset.getLastExportTime();
+        // if lastExportDate == null, assume it's not set because were exporting for the
+        // first time now (e.g. during publish) and therefore no changes are needed
+        if (lastExportDate != null) {
+            exportLocalDate = lastExportDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+            logger.fine("Last export date: " + exportLocalDate.toString());
+            // Track which embargoes we've already checked
+            Set<Long> embargoIds = new HashSet<Long>();
+            // Check for all files in the latest released version
+            for (FileMetadata fm : dataset.getLatestVersionForCopy().getFileMetadatas()) {
+                // ToDo? This loop is necessary because we have not stored the date when the
+                // next embargo in this datasetversion will end. If we knew that (another
+                // dataset/datasetversion column), we could make
+                // one check that nextembargoEnd exists and is after the last export and before
+                // now versus scanning through files until we potentially find such an embargo.
+                Embargo e = fm.getDataFile().getEmbargo();
+                if (e != null) {
+                    logger.fine("Datafile:  " + fm.getDataFile().getId());
+                    logger.fine("Embargo end date: " + e.getFormattedDateAvailable());
+                }
+                if (e != null && !embargoIds.contains(e.getId()) && e.getDateAvailable().isAfter(exportLocalDate)
+                        && e.getDateAvailable().isBefore(LocalDate.now())) {
+                    logger.fine("Request that the ddi export be cleared.");
+                    // The file has been embargoed and the embargo ended after the last export and
+                    // before the current date, so we need to remove the cached DDI export and make
+                    // it refresh
+                    return true;
+                } else if (e != null) {
+                    logger.fine("adding embargo to checked list: " + e.getId());
+                    embargoIds.add(e.getId());
+                }
+            }
+        }
+        return false;
+    }
+
     public String getExportAsString(Dataset dataset, String formatName) {
         InputStream inputStream = null;
         InputStreamReader inp = null;
@@ -452,6 +470,20 @@ public class ExportService {
 
     }
 
+    /**
+     * @return when the cached export in this format was written, or null if
+     * there is none (or the storage driver can't tell). Unlike the last export
+     * time of the dataset, it changes whenever this format is exported again.
+     */
+    public Date getCachedExportTime(Dataset dataset, String formatName) {
+        try {
+            return getStorageIO(dataset).getAuxObjectLastModified("export_" + formatName + ".cached");
+        } catch (IOException ioex) {
+            logger.fine("Failed to look up the cached export as " + formatName + " of dataset " + dataset.getId() + ": " + ioex.getMessage());
+            return null;
+        }
+    }
+
     /*
      * The below method, getCachedExportSize(), is not currently used. An exercise
      * for the reader could be to refactor it if it's needed to be compatible with
@@ -39,6 +39,10 @@ public class InternalExportDataProvider implements ExportDataProvider {
         this.is=is;
     }
 
+    DatasetVersion getDatasetVersion() {
+        return dv;
+    }
+
     @Override
     public JsonObject getDatasetJson() {
         if (jsonRepresentation == null) {
@@ -0,0 +1,250 @@
+package edu.harvard.iq.dataverse.export;
+
+import edu.harvard.iq.dataverse.Dataset;
+import edu.harvard.iq.dataverse.DatasetVersion;
+import edu.harvard.iq.dataverse.harvest.server.OAIRecordServiceBean;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Asynchronous;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.FileHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the "export all" jobs: the datasets that need to be exported are
+ * selected with a single query, and exported by a bounded pool of workers,
+ * each dataset in a transaction of its own. Only one job runs at a time; the
+ * progress of the current (or last) job is available from
+ * {@link #getStatus()}.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MetadataExportJobServiceBean {
+
+    private static final Logger logger = Logger.getLogger(MetadataExportJobServiceBean.class.getCanonicalName());
+    private static final SimpleDateFormat logFormatter = new SimpleDateFormat("yyyy-MM-dd'T'HH-mm-ss");
+
+    @EJB
+    OAIRecordServiceBean recordService;
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    EntityManager em;
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile ExportJobStatus status;
+
+    /**
+     * The progress of an export job. The counts are updated by the workers
+     * as the job runs.
+     */
+    public static class ExportJobStatus {
+        private final Date startTime = new Date();
+        private volatile Date endTime;
+        private final boolean forceReExport;
+        private final List<String> formatNames;
+        private volatile long total;
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        ExportJobStatus(boolean forceReExport, List<String> formatNames) {
+            this.forceReExport = forceReExport;
+            this.formatNames = formatNames;
+        }
+
+        public Date getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * @return when the job finished, or null if it is still running
+         */
+        public Date getEndTime() {
+            return endTime;
+        }
+
+        public boolean isForceReExport() {
+            return forceReExport;
+        }
+
+        /**
+         * @return the formats exported, or null for all of them
+         */
+        public List<String> getFormatNames() {
+            return formatNames;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getSucceeded() {
+            return succeeded.get();
+        }
+
+        public long getFailed() {
+            return failed.get();
+        }
+
+        public long getProcessed() {
+            return succeeded.get() + failed.get();
+        }
+
+        /**
+         * @return the number of datasets exported per second so far
+         */
+        public double getThroughput() {
+            long elapsed = (endTime == null ? System.currentTimeMillis() : endTime.getTime()) - startTime.getTime();
+            return elapsed > 0 ? getProcessed() * 1000.0 / elapsed : 0;
+        }
+    }
+
+    /**
+     * @return the status of the running job, or of the last one run since
+     * startup; null if no job has been run
+     */
+    public ExportJobStatus getStatus() {
+        return status;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * @return the ids of the published, local datasets that need to be
+     * exported: all of them if forceReExport, otherwise only those not
+     * exported since their last publication.
+     */
+    public List<Long> findDatasetIdsToExport(boolean forceReExport) {
+        // A dataset with a released version is published and not
+        // deaccessioned (see Dataset.isDeaccessioned()); its most recent
+        // release is the latest release time among its released versions.
+        String query = "SELECT d.id FROM Dataset d WHERE d.harvestedFrom IS NULL"
+                + " AND EXISTS (SELECT v.id FROM DatasetVersion v WHERE v.dataset = d AND v.versionState = :released"
+                + (forceReExport ? "" : " AND v.releaseTime IS NOT NULL AND (d.lastExportTime IS NULL OR d.lastExportTime < v.releaseTime)")
+                + ") ORDER BY d.id";
+        return em.createQuery(query, Long.class)
+                .setParameter("released", DatasetVersion.VersionState.RELEASED)
+                .getResultList();
+    }
+
+    @Asynchronous
+    public void runExportJobAsync(boolean forceReExport, List<String> formatNames) {
+        runExportJob(forceReExport, formatNames);
+    }
+
+    /**
+     * Exports the datasets that need it, see
+     * {@link #findDatasetIdsToExport(boolean)}.
+     *
+     * @param formatNames the formats to export, or null for all of them
+     * @return false if the job was not started, because another one is
+     * running
+     */
+    public boolean runExportJob(boolean forceReExport, List<String> formatNames) {
+        if (!running.compareAndSet(false, true)) {
+            logger.warning("An export job is already running; not starting another one");
+            return false;
+        }
+        FileHandler fileHandler = null;
+        ExecutorService executor = null;
+        try {
+            ExportJobStatus jobStatus = new ExportJobStatus(forceReExport, formatNames);
+            status = jobStatus;
+
+            String logTimestamp = logFormatter.format(jobStatus.getStartTime());
+            Logger exportLogger = Logger.getLogger("edu.harvard.iq.dataverse.harvest.client.DatasetServiceBean." + "ExportAll" + logTimestamp);
+            String logFileName = System.getProperty("com.sun.aas.instanceRoot") + File.separator + "logs" + File.separator + "export_" + logTimestamp + ".log";
+            try {
+                fileHandler = new FileHandler(logFileName);
+                exportLogger.setUseParentHandlers(false);
+                exportLogger.addHandler(fileHandler);
+            } catch (IOException | SecurityException ex) {
+                logger.log(Level.SEVERE, "Could not open the export log " + logFileName, ex);
+                exportLogger = logger;
+            }
+
+            List<Long> datasetIds = findDatasetIdsToExport(forceReExport);
+            jobStatus.total = datasetIds.size();
+            int workers = Math.max(1, JvmSettings.METADATA_EXPORT_WORKERS.lookupOptional(Integer.class)
+                    .orElse(Math.min(4, Runtime.getRuntime().availableProcessors())));
+            exportLogger.info("Starting an export all job: " + datasetIds.size() + " dataset(s) to export"
+                    + (formatNames == null ? "" : " in " + formatNames) + ", with " + workers + " worker(s)");
+
+            executor = Executors.newFixedThreadPool(workers, managedThreadFactory);
+            // Potentially, there's a godzillion datasets in this Dataverse;
+            // only a few are queued up at any time, and each worker looks up
+            // its own dataset.
+            Semaphore queued = new Semaphore(2 * workers);
+            final Logger jobLogger = exportLogger;
+            for (Long datasetId : datasetIds) {
+                queued.acquire();
+                executor.execute(() -> {
+                    try {
+                        exportDataset(datasetId, formatNames, jobStatus, jobLogger);
+                    } finally {
+                        queued.release();
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            jobStatus.endTime = new Date();
+
+            exportLogger.info("Datasets processed: " + jobStatus.getProcessed());
+            exportLogger.info("Datasets exported successfully: " + jobStatus.getSucceeded());
+            exportLogger.info("Datasets failures: " + jobStatus.getFailed());
+            exportLogger.info(String.format("Datasets exported per second: %.2f", jobStatus.getThroughput()));
+            exportLogger.info("Finished export-all job.");
+        } catch (InterruptedException ex) {
+            logger.warning("The export job was interrupted");
+            Thread.currentThread().interrupt();
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            if (status != null && status.endTime == null) {
+                status.endTime = new Date();
+            }
+            if (fileHandler != null) {
+                fileHandler.close();
+            }
+            running.set(false);
+        }
+        return true;
+    }
+
+    private void exportDataset(Long datasetId, List<String> formatNames, ExportJobStatus jobStatus, Logger exportLogger) {
+        try {
+            Dataset dataset = recordService.exportFormatsInNewTransaction(datasetId, formatNames);
+            if (dataset != null) {
+                exportLogger.info("Success exporting dataset: " + dataset.getDisplayName() + " " + dataset.getGlobalId().asString());
+            }
+            jobStatus.succeeded.incrementAndGet();
+        } catch (Exception ex) {
+            exportLogger.log(Level.INFO, "Error exporting dataset " + datasetId + "; " + ex.getMessage(), ex);
+            jobStatus.failed.incrementAndGet();
+        }
+    }
+}
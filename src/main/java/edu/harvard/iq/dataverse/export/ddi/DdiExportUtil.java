@@ -3,8 +3,11 @@ package edu.harvard.iq.dataverse.export.ddi;
 import com.google.gson.Gson;
 
 import edu.harvard.iq.dataverse.ControlledVocabularyValue;
+import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.DatasetFieldConstant;
+import edu.harvard.iq.dataverse.DatasetVersion;
 import edu.harvard.iq.dataverse.DvObjectContainer;
+import edu.harvard.iq.dataverse.FileMetadata;
 import edu.harvard.iq.dataverse.api.dto.DatasetDTO;
 import edu.harvard.iq.dataverse.api.dto.DatasetVersionDTO;
 import edu.harvard.iq.dataverse.api.dto.FieldDTO;
@@ -22,6 +25,8 @@ import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 
 
 import edu.harvard.iq.dataverse.util.SystemConfig;
+import edu.harvard.iq.dataverse.datavariable.DataVariable;
+import edu.harvard.iq.dataverse.util.json.JsonPrinter;
 import edu.harvard.iq.dataverse.util.json.JsonUtil;
 import edu.harvard.iq.dataverse.util.xml.XmlPrinter;
 import java.io.ByteArrayOutputStream;
@@ -124,6 +129,49 @@ public class DdiExportUtil {
     
     // "full" ddi, with the the "<fileDscr>"  and "<dataDscr>/<var>" sections: 
     public static void datasetJson2ddi(JsonObject datasetDtoAsJson, JsonArray fileDetails, OutputStream outputStream) throws XMLStreamException {
+        fullDdi(datasetDtoAsJson, getFileDetails(fileDetails), outputStream);
+    }
+
+    /**
+     * The same "full" ddi, written straight from the files of the version.
+     * Only the details of one file (without its variables), and of one
+     * variable, are held in memory at any time, rather than the JSON array of
+     * the details of all the files and all their variables.
+     */
+    public static void datasetJson2ddi(JsonObject datasetDtoAsJson, DatasetVersion version, OutputStream outputStream) throws XMLStreamException {
+        fullDdi(datasetDtoAsJson, () -> version.getFileMetadatas().stream().map(DdiExportUtil::getFileDetails).iterator(), outputStream);
+    }
+
+    /**
+     * The details of a file, as in {@link JsonPrinter#json(DataFile, FileMetadata, boolean)},
+     * with the variables of its (first) data table.
+     */
+    private record FileDetails(JsonObject fileJson, Iterable<JsonObject> dataVariables) {
+    }
+
+    private static List<FileDetails> getFileDetails(JsonArray fileDetails) {
+        List<FileDetails> files = new ArrayList<>(fileDetails.size());
+        for (JsonObject fileJson : fileDetails.getValuesAs(JsonObject.class)) {
+            JsonArray vars = null;
+            if (fileJson.containsKey("dataTables")) {
+                vars = fileJson.getJsonArray("dataTables").getJsonObject(0).getJsonArray("dataVariables");
+            }
+            files.add(new FileDetails(fileJson, vars == null ? List.of() : vars.getValuesAs(JsonObject.class)));
+        }
+        return files;
+    }
+
+    private static FileDetails getFileDetails(FileMetadata fileMetadata) {
+        DataFile dataFile = fileMetadata.getDataFile();
+        JsonObject fileJson = JsonPrinter.jsonWithoutDataVariables(dataFile, fileMetadata).build();
+        if (dataFile.getDataTables().isEmpty() || dataFile.getDataTables().get(0).getDataVariables() == null) {
+            return new FileDetails(fileJson, List.of());
+        }
+        List<DataVariable> dataVariables = dataFile.getDataTables().get(0).getDataVariables();
+        return new FileDetails(fileJson, () -> dataVariables.stream().map(dv -> JsonPrinter.json(dv).build()).iterator());
+    }
+
+    private static void fullDdi(JsonObject datasetDtoAsJson, Iterable<FileDetails> files, OutputStream outputStream) throws XMLStreamException {
         logger.fine(JsonUtil.prettyPrint(datasetDtoAsJson.toString()));
         Gson gson = new Gson();
         DatasetDTO datasetDto = gson.fromJson(datasetDtoAsJson.toString(), DatasetDTO.class);
@@ -138,9 +186,9 @@ public class DdiExportUtil {
             writeAttribute(xmlw, "xml:lang", datasetDto.getMetadataLanguage());
         }
         createStdyDscr(xmlw, datasetDto);
-        createFileDscr(xmlw, fileDetails);
-        createDataDscr(xmlw, fileDetails);
-        createOtherMatsFromFileMetadatas(xmlw, fileDetails);
+        createFileDscr(xmlw, files);
+        createDataDscr(xmlw, files);
+        createOtherMatsFromFileMetadatas(xmlw, files);
         xmlw.writeEndElement(); // codeBook
         xmlw.flush();
     }
@@ -1449,12 +1497,12 @@ public class DdiExportUtil {
     // otherMat, or a fileDscr section. 
     // -- L.A. 4.5 
     
-    private static void createOtherMatsFromFileMetadatas(XMLStreamWriter xmlw, JsonArray fileDetails) throws XMLStreamException {
+    private static void createOtherMatsFromFileMetadatas(XMLStreamWriter xmlw, Iterable<FileDetails> files) throws XMLStreamException {
         // The preferred URL for this dataverse, for cooking up the file access API links:
         String dataverseUrl = SystemConfig.getDataverseSiteUrlStatic();
         
-        for (int i=0;i<fileDetails.size();i++) {
-            JsonObject fileJson = fileDetails.getJsonObject(i);
+        for (FileDetails file : files) {
+            JsonObject fileJson = file.fileJson();
             // We'll continue using the scheme we've used before, in DVN2-3: non-tabular files are put into otherMat,
             // tabular ones - in fileDscr sections. (fileDscr sections have special fields for numbers of variables
             // and observations, etc.)
@@ -1688,17 +1736,17 @@ public class DdiExportUtil {
     // so we probably should not invest any time into it right now). -- L.A. 4.5
     
     public static void createDataDscr(XMLStreamWriter xmlw, JsonArray fileDetails) throws XMLStreamException {
+        createDataDscr(xmlw, getFileDetails(fileDetails));
+    }
 
-        if (fileDetails.isEmpty()) {
-            return;
-        }
+    private static void createDataDscr(XMLStreamWriter xmlw, Iterable<FileDetails> files) throws XMLStreamException {
 
         boolean tabularData = false;
 
         // we're not writing the opening <dataDscr> tag until we find an actual 
         // tabular datafile.
-        for (int i=0;i<fileDetails.size();i++) {
-            JsonObject fileJson = fileDetails.getJsonObject(i);
+        for (FileDetails file : files) {
+            JsonObject fileJson = file.fileJson();
 
             /**
              * Previously (in Dataverse 5.3 and below) the dataDscr section was
@@ -1730,13 +1778,9 @@ public class DdiExportUtil {
                         createVarGroupDDI(xmlw, varGroups.getJsonObject(j));
                     }
                 }
-                JsonObject dataTable = fileJson.getJsonArray("dataTables").getJsonObject(0);
-                JsonArray vars = dataTable.getJsonArray("dataVariables");
-                if (vars != null) {
-                    for (int j = 0; j < vars.size(); j++) {
-                        createVarDDI(xmlw, vars.getJsonObject(j), fileJson.getJsonNumber("id").toString(),
-                                fileJson.getJsonNumber("fileMetadataId").toString());
-                    }
+                for (JsonObject dvar : file.dataVariables()) {
+                    createVarDDI(xmlw, dvar, fileJson.getJsonNumber("id").toString(),
+                            fileJson.getJsonNumber("fileMetadataId").toString());
                 }
             }
         }
@@ -2008,10 +2052,10 @@ public class DdiExportUtil {
 
     }
     
-    private static void createFileDscr(XMLStreamWriter xmlw, JsonArray fileDetails) throws XMLStreamException {
+    private static void createFileDscr(XMLStreamWriter xmlw, Iterable<FileDetails> files) throws XMLStreamException {
         String dataverseUrl = SystemConfig.getDataverseSiteUrlStatic();
-        for (int i =0;i<fileDetails.size();i++) {
-            JsonObject fileJson = fileDetails.getJsonObject(i);
+        for (FileDetails file : files) {
+            JsonObject fileJson = file.fileJson();
             //originalFileFormat is one of several keys that only exist for tabular data
             if (fileJson.containsKey("originalFileFormat")) {
                 JsonObject dt = null;
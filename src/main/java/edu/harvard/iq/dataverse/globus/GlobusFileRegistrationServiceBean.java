@@ -0,0 +1,113 @@
+package edu.harvard.iq.dataverse.globus;
+
+import edu.harvard.iq.dataverse.DataFileServiceBean;
+import edu.harvard.iq.dataverse.Dataset;
+import edu.harvard.iq.dataverse.DatasetServiceBean;
+import edu.harvard.iq.dataverse.EjbDataverseEngine;
+import edu.harvard.iq.dataverse.PermissionServiceBean;
+import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
+import edu.harvard.iq.dataverse.datasetutility.AddReplaceFileHelper;
+import edu.harvard.iq.dataverse.engine.command.DataverseRequest;
+import edu.harvard.iq.dataverse.ingest.IngestServiceBean;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.SystemConfig;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.ws.rs.core.Response;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Registers the files transferred into a dataset by Globus: the files are
+ * added through the same code path as the /addFiles API
+ * ({@link AddReplaceFileHelper#addFiles(String, Dataset, edu.harvard.iq.dataverse.authorization.users.User)}),
+ * called in-process, one transaction per batch of files.
+ *
+ * Also provides the executors the checksums of the transferred files are
+ * calculated on: one bounded pool per store, so that a large transfer into
+ * one store doesn't hold up the transfers into the others (nor overwhelm the
+ * store with concurrent reads).
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class GlobusFileRegistrationServiceBean {
+
+    private static final Logger logger = Logger.getLogger(GlobusFileRegistrationServiceBean.class.getCanonicalName());
+
+    @EJB
+    DatasetServiceBean datasetService;
+    @EJB
+    DataFileServiceBean fileService;
+    @EJB
+    IngestServiceBean ingestService;
+    @EJB
+    PermissionServiceBean permissionService;
+    @EJB
+    EjbDataverseEngine commandEngine;
+    @EJB
+    SystemConfig systemConfig;
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    private final Map<String, ExecutorService> checksumExecutors = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void shutdown() {
+        checksumExecutors.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    /**
+     * @return the executor to calculate the checksums of the files in the
+     * given store on
+     */
+    public ExecutorService getChecksumExecutor(String storeId) {
+        return checksumExecutors.computeIfAbsent(storeId, id -> {
+            int workers = Math.max(1, JvmSettings.GLOBUS_CHECKSUM_WORKERS.lookupOptional(Integer.class, id).orElse(4));
+            logger.fine("Calculating the checksums of Globus transfers into store " + id + " with " + workers + " worker(s)");
+            return Executors.newFixedThreadPool(workers, managedThreadFactory);
+        });
+    }
+
+    /**
+     * @return the number of files to register in each transaction
+     */
+    public int getBatchSize() {
+        return Math.max(1, JvmSettings.GLOBUS_REGISTRATION_BATCH_SIZE.lookupOptional(Integer.class).orElse(500));
+    }
+
+    /**
+     * Adds the files to the dataset, in a transaction of its own.
+     *
+     * @param files the files, in the /addFiles jsonData format (with the
+     * checksums and mime types already filled in)
+     * @return the response /addFiles would have returned
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public JsonObject addFiles(JsonArray files, Long datasetId, DataverseRequest dataverseRequest, AuthenticatedUser authUser) {
+        Dataset dataset = datasetService.find(datasetId);
+        AddReplaceFileHelper addFileHelper = new AddReplaceFileHelper(
+                dataverseRequest,
+                ingestService,
+                datasetService,
+                fileService,
+                permissionService,
+                commandEngine,
+                systemConfig
+        );
+        Response response = addFileHelper.addFiles(files.toString(), dataset, authUser);
+        return (JsonObject) response.getEntity();
+    }
+}
@@ -6,8 +6,10 @@ import com.github.benmanes.caffeine.cache.Scheduler;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.GsonBuilder;
 import edu.harvard.iq.dataverse.*;
+import jakarta.annotation.Resource;
 import jakarta.ejb.Asynchronous;
 import jakarta.ejb.EJB;
+import jakarta.ejb.SessionContext;
 import jakarta.ejb.Stateless;
 import jakarta.ejb.TransactionAttribute;
 import jakarta.ejb.TransactionAttributeType;
@@ -20,8 +22,11 @@ import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
 import jakarta.json.JsonPatch;
 import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
 import jakarta.json.JsonValue.ValueType;
 import jakarta.json.stream.JsonParsingException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.HttpMethod;
 
@@ -41,19 +46,19 @@ import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 import java.util.logging.FileHandler;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import org.apache.commons.codec.binary.StringUtils;
 import org.primefaces.PrimeFaces;
 
 import com.google.gson.Gson;
 import edu.harvard.iq.dataverse.authorization.AuthenticationServiceBean;
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IpAddress;
+import edu.harvard.iq.dataverse.api.ApiConstants;
 import edu.harvard.iq.dataverse.authorization.users.ApiToken;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.authorization.users.PrivateUrlUser;
@@ -61,6 +66,7 @@ import edu.harvard.iq.dataverse.authorization.users.User;
 import edu.harvard.iq.dataverse.dataaccess.DataAccess;
 import edu.harvard.iq.dataverse.dataaccess.GlobusAccessibleStore;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
+import edu.harvard.iq.dataverse.engine.command.DataverseRequest;
 import edu.harvard.iq.dataverse.privateurl.PrivateUrl;
 import edu.harvard.iq.dataverse.privateurl.PrivateUrlServiceBean;
 import edu.harvard.iq.dataverse.settings.JvmSettings;
@@ -93,6 +99,14 @@ public class GlobusServiceBean implements java.io.Serializable {
     FileDownloadServiceBean fileDownloadService;
     @EJB
     DataFileServiceBean dataFileService;
+    @EJB
+    GlobusFileRegistrationServiceBean fileRegistrationService;
+
+    @Resource
+    SessionContext sessionContext;
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    private EntityManager em;
 
     private static final Logger logger = Logger.getLogger(GlobusServiceBean.class.getCanonicalName());
     private static final SimpleDateFormat logFormatter = new SimpleDateFormat("yyyy-MM-dd'T'HH-mm-ss");
@@ -631,35 +645,18 @@ public class GlobusServiceBean implements java.io.Serializable {
         return URLTokenUtil.getScriptForUrl(getGlobusAppUrlForDataset(dataset, false, downloadDFList));
     }
 
+    /**
+     * Starts monitoring a Globus transfer into the dataset; the transferred
+     * files are added to the dataset once the transfer completes, see
+     * {@link GlobusTaskMonitoringServiceBean}.
+     */
     @Asynchronous
     @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
-    public void globusUpload(JsonObject jsonData, ApiToken token, Dataset dataset, String httpRequestUrl,
-            AuthenticatedUser authUser) throws ExecutionException, InterruptedException, MalformedURLException {
-
-        Integer countAll = 0;
-        Integer countSuccess = 0;
-        Integer countError = 0;
-        String logTimestamp = logFormatter.format(new Date());
-        Logger globusLogger = Logger.getLogger(
-                "edu.harvard.iq.dataverse.upload.client.DatasetServiceBean." + "GlobusUpload" + logTimestamp);
-        String logFileName = System.getProperty("com.sun.aas.instanceRoot") + File.separator + "logs" + File.separator + "globusUpload_id_" + dataset.getId() + "_" + logTimestamp
-                + ".log";
-        FileHandler fileHandler;
-        boolean fileHandlerSuceeded;
-        try {
-            fileHandler = new FileHandler(logFileName);
-            globusLogger.setUseParentHandlers(false);
-            fileHandlerSuceeded = true;
-        } catch (IOException | SecurityException ex) {
-            Logger.getLogger(DatasetServiceBean.class.getName()).log(Level.SEVERE, null, ex);
-            return;
-        }
+    public void globusUpload(JsonObject jsonData, DataverseRequest dataverseRequest, Dataset dataset,
+            AuthenticatedUser authUser) throws MalformedURLException {
 
-        if (fileHandlerSuceeded) {
-            globusLogger.addHandler(fileHandler);
-        } else {
-            globusLogger = logger;
-        }
+        Timestamp startTime = new Timestamp(new Date().getTime());
+        Logger globusLogger = getGlobusLogger("Upload", dataset, startTime);
 
         logger.fine("json: " + JsonUtil.prettyPrint(jsonData));
 
@@ -677,14 +674,49 @@ public class GlobusServiceBean implements java.io.Serializable {
             }
         }
 
-        // Wait before first check
-        Thread.sleep(5000);
-        // globus task status check
-        task = globusStatusCheck(endpoint, taskIdentifier, globusLogger);
+        em.persist(new GlobusTaskInProgress(taskIdentifier, GlobusTaskInProgress.TaskType.UPLOAD,
+                em.find(Dataset.class, dataset.getId()), em.find(AuthenticatedUser.class, authUser.getId()), ruleId,
+                jsonData.toString(), dataverseRequest.getSourceAddress().toString(), startTime, getFirstCheckTime()));
+        globusLogger.info("Monitoring the globus transfer task " + taskIdentifier);
+        closeGlobusLogger(globusLogger);
+    }
+
+    /**
+     * Processes the completion (successful or not) of a Globus transfer into
+     * the dataset.
+     */
+    private void processCompletedUpload(GlobusTaskInProgress taskInProgress, GlobusTask task, Logger globusLogger) {
+
+        Integer countAll = 0;
+        Integer countSuccess = 0;
+        Integer countError = 0;
+
+        Dataset dataset = datasetSvc.find(taskInProgress.getDataset().getId());
+        AuthenticatedUser authUser = taskInProgress.getUser();
+        DataverseRequest dataverseRequest = new DataverseRequest(authUser, IpAddress.valueOf(taskInProgress.getSourceAddress()));
+        JsonObject jsonData = JsonUtil.getJsonObject(taskInProgress.getJsonData());
+        String ruleId = taskInProgress.getRuleId();
         String taskStatus = getTaskStatus(task);
 
         globusLogger.info("Starting a globusUpload ");
 
+        if (taskInProgress.isRegistrationStarted()) {
+            // An earlier attempt was cut short after it started adding the
+            // files; the batches it added are committed, so the files are not
+            // added again - the user is told to check the dataset instead:
+            globusLogger.warning("Adding the files of the globus transfer task " + taskInProgress.getTaskId()
+                    + " was interrupted; not trying again");
+            if (ruleId != null) {
+                deletePermission(ruleId, dataset, globusLogger);
+            }
+            datasetSvc.removeDatasetLocks(dataset, DatasetLock.Reason.GlobusUpload);
+            datasetSvc.removeDatasetLocks(dataset, DatasetLock.Reason.EditInProgress);
+            userNotificationService.sendNotification(authUser, new Timestamp(new Date().getTime()),
+                    UserNotification.Type.GLOBUSUPLOADCOMPLETEDWITHERRORS, dataset.getId(),
+                    "Adding the files to the dataset was interrupted; some of the files may not have been added", true);
+            return;
+        }
+
         if (ruleId != null) {
             // Transfer is complete, so delete rule
             deletePermission(ruleId, dataset, globusLogger);
@@ -711,7 +743,7 @@ public class GlobusServiceBean implements java.io.Serializable {
              * REQUIRES_NEW transaction annotation, when the globusUpload method and that
              * method were in the same bean (globusUpload was in the DatasetServiceBean to
              * start), the globus lock was still seen in the API call initiated in the
-             * addFilesAsync method called within the globusUpload method. I.e. it appeared
+             * addFiles API call initiated within the globusUpload method. I.e. it appeared
              * that the lock removal was not committed/visible outside this method until
              * globusUpload itself ended.
              */
@@ -765,6 +797,10 @@ public class GlobusServiceBean implements java.io.Serializable {
                     logger.fine("Size: " + newfilesJsonArray.size());
                     logger.fine("Val: " + JsonUtil.prettyPrint(newfilesJsonArray.getJsonObject(0)));
                     JsonArrayBuilder jsonDataSecondAPI = Json.createArrayBuilder();
+                    Map<String, JsonObject> newfileJsonObjects = new HashMap<>();
+                    for (JsonObject newfileJsonObject : newfilesJsonArray.getValuesAs(JsonObject.class)) {
+                        newfileJsonObject.forEach((fileId, details) -> newfileJsonObjects.put(fileId, details.asJsonObject()));
+                    }
 
                     for (JsonObject fileJsonObject : filesJsonArray.getValuesAs(JsonObject.class)) {
 
@@ -778,17 +814,14 @@ public class GlobusServiceBean implements java.io.Serializable {
                         }
                         String fileId = bits[bits.length - 1];
 
-                        List<JsonObject> newfileJsonObject = IntStream.range(0, newfilesJsonArray.size())
-                                .mapToObj(index -> ((JsonObject) newfilesJsonArray.get(index)).getJsonObject(fileId))
-                                .filter(Objects::nonNull).collect(Collectors.toList());
+                        JsonObject newfileJsonObject = newfileJsonObjects.get(fileId);
                         if (newfileJsonObject != null) {
-                            logger.fine("List Size: " + newfileJsonObject.size());
-                            // if (!newfileJsonObject.get(0).getString("hash").equalsIgnoreCase("null")) {
+                            // if (!newfileJsonObject.getString("hash").equalsIgnoreCase("null")) {
                             JsonPatch path = Json.createPatchBuilder()
-                                    .add("/md5Hash", newfileJsonObject.get(0).getString("hash")).build();
+                                    .add("/md5Hash", newfileJsonObject.getString("hash")).build();
                             fileJsonObject = path.apply(fileJsonObject);
                             path = Json.createPatchBuilder()
-                                    .add("/mimeType", newfileJsonObject.get(0).getString("mime")).build();
+                                    .add("/mimeType", newfileJsonObject.getString("mime")).build();
                             fileJsonObject = path.apply(fileJsonObject);
                             jsonDataSecondAPI.add(fileJsonObject);
                             countSuccess++;
@@ -805,35 +838,63 @@ public class GlobusServiceBean implements java.io.Serializable {
                         }
                     }
 
-                    String newjsonData = jsonDataSecondAPI.build().toString();
+                    JsonArray filesToAdd = jsonDataSecondAPI.build();
 
                     globusLogger.info("Successfully generated new JsonData for Second API call");
 
-                    String command = "curl -H \"X-Dataverse-key:" + token.getTokenString() + "\" -X POST "
-                            + httpRequestUrl + "/api/datasets/:persistentId/addFiles?persistentId=doi:"
-                            + datasetIdentifier + " -F jsonData='" + newjsonData + "'";
-                    System.out.println("*******====command ==== " + command);
-
-                    // ToDo - refactor to call AddReplaceFileHelper.addFiles directly instead of
-                    // calling API
-
-                    String output = addFilesAsync(command, globusLogger);
-                    if (output.equalsIgnoreCase("ok")) {
-                        // if(!taskSkippedFiles)
-                        if (countError == 0) {
-                            userNotificationService.sendNotification((AuthenticatedUser) authUser,
-                                    new Timestamp(new Date().getTime()), UserNotification.Type.GLOBUSUPLOADCOMPLETED,
-                                    dataset.getId(), countSuccess + " files added out of " + countAll, true);
-                        } else {
-                            userNotificationService.sendNotification((AuthenticatedUser) authUser,
-                                    new Timestamp(new Date().getTime()),
-                                    UserNotification.Type.GLOBUSUPLOADCOMPLETEDWITHERRORS, dataset.getId(),
-                                    countSuccess + " files added out of " + countAll, true);
+                    // Register the files in-process, through the same code path as
+                    // the /addFiles API, one transaction per batch of files. A
+                    // batch that fails is rolled back on its own; the batches
+                    // before it stay added, and the ones after it are still
+                    // tried:
+                    int batchSize = fileRegistrationService.getBatchSize();
+                    List<String> failedFiles = new ArrayList<>();
+                    sessionContext.getBusinessObject(GlobusServiceBean.class).markRegistrationStarted(taskInProgress);
+                    for (int from = 0; from < filesToAdd.size(); from += batchSize) {
+                        if (from > 0) {
+                            // (adding the files removes the EditInProgress lock)
+                            datasetSvc.addDatasetLock(dataset.getId(), DatasetLock.Reason.EditInProgress, authUser.getId(),
+                                    "Completing Globus Upload");
+                        }
+                        List<JsonValue> batchFiles = filesToAdd.subList(from, Math.min(from + batchSize, filesToAdd.size()));
+                        JsonArrayBuilder batch = Json.createArrayBuilder();
+                        batchFiles.forEach(batch::add);
+                        JsonObject output = null;
+                        try {
+                            output = fileRegistrationService.addFiles(batch.build(), dataset.getId(), dataverseRequest, authUser);
+                            globusLogger.info(" addFiles Output :  " + output);
+                        } catch (RuntimeException e) {
+                            globusLogger.log(Level.SEVERE, "Failed to add the files " + from + " to "
+                                    + (from + batchFiles.size()) + " to the dataset", e);
+                            // (the lock is only removed when the files are added)
+                            datasetSvc.removeDatasetLocks(dataset, DatasetLock.Reason.EditInProgress);
                         }
-                        globusLogger.info("Successfully completed api/datasets/:persistentId/addFiles call ");
+                        if (output == null || !ApiConstants.STATUS_OK.equals(output.getString("status", null))) {
+                            globusLogger.log(Level.SEVERE, "******* Error while adding files " + from + " to "
+                                    + (from + batchFiles.size()) + " to the dataset");
+                            batchFiles.forEach(file -> failedFiles.add(file.asJsonObject().getString("fileName", null)));
+                        }
+                    }
+                    countSuccess -= failedFiles.size();
+                    countError += failedFiles.size();
+
+                    String comment = countSuccess + " files added out of " + countAll;
+                    if (!failedFiles.isEmpty()) {
+                        comment += "<br> Failed to add : " + String.join(", ", failedFiles);
+                    }
+                    // if(!taskSkippedFiles)
+                    if (countError == 0) {
+                        userNotificationService.sendNotification((AuthenticatedUser) authUser,
+                                new Timestamp(new Date().getTime()), UserNotification.Type.GLOBUSUPLOADCOMPLETED,
+                                dataset.getId(), comment, true);
+                        globusLogger.info("Successfully completed adding the files to the dataset");
                     } else {
-                        globusLogger.log(Level.SEVERE,
-                                "******* Error while executing api/datasets/:persistentId/add call ", command);
+                        userNotificationService.sendNotification((AuthenticatedUser) authUser,
+                                new Timestamp(new Date().getTime()),
+                                UserNotification.Type.GLOBUSUPLOADCOMPLETEDWITHERRORS, dataset.getId(),
+                                comment, true);
+                        globusLogger.info("Completed adding the files to the dataset, " + failedFiles.size()
+                                + " file(s) could not be added");
                     }
 
                 }
@@ -854,90 +915,19 @@ public class GlobusServiceBean implements java.io.Serializable {
             deletePermission(ruleId, dataset, globusLogger);
             globusLogger.info("Removed upload permission: " + ruleId);
         }
-        if (fileHandlerSuceeded) {
-            fileHandler.close();
-        }
-    }
-
-    public String addFilesAsync(String curlCommand, Logger globusLogger)
-            throws ExecutionException, InterruptedException {
-        CompletableFuture<String> addFilesFuture = CompletableFuture.supplyAsync(() -> {
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-            return (addFiles(curlCommand, globusLogger));
-        }, executor).exceptionally(ex -> {
-            globusLogger.fine("Something went wrong : " + ex.getLocalizedMessage());
-            ex.printStackTrace();
-            return null;
-        });
-
-        String result = addFilesFuture.get();
-
-        return result;
-    }
-
-    private String addFiles(String curlCommand, Logger globusLogger) {
-        ProcessBuilder processBuilder = new ProcessBuilder();
-        Process process = null;
-        String line;
-        String status = "";
-
-        try {
-            globusLogger.info("Call to :  " + curlCommand);
-            processBuilder.command("bash", "-c", curlCommand);
-            process = processBuilder.start();
-            process.waitFor();
-
-            BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-            StringBuilder sb = new StringBuilder();
-            while ((line = br.readLine()) != null)
-                sb.append(line);
-            globusLogger.info(" API Output :  " + sb.toString());
-            JsonObject jsonObject = null;
-            jsonObject = JsonUtil.getJsonObject(sb.toString());
-
-            status = jsonObject.getString("status");
-        } catch (Exception ex) {
-            if (ex instanceof JsonParsingException) {
-                globusLogger.log(Level.SEVERE, "Error parsing dataset json.");
-            } else {
-                globusLogger.log(Level.SEVERE,
-                        "******* Unexpected Exception while executing api/datasets/:persistentId/add call ", ex);
-            }
-        }
-
-        return status;
     }
 
+    /**
+     * Starts monitoring a Globus transfer out of the dataset, so that the
+     * access rule can be removed and the user notified once it completes, see
+     * {@link GlobusTaskMonitoringServiceBean}.
+     */
     @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
     public void globusDownload(String jsonData, Dataset dataset, User authUser) throws MalformedURLException {
 
-        String logTimestamp = logFormatter.format(new Date());
-        Logger globusLogger = Logger.getLogger(
-                "edu.harvard.iq.dataverse.upload.client.DatasetServiceBean." + "GlobusDownload" + logTimestamp);
-
-        String logFileName = System.getProperty("com.sun.aas.instanceRoot") + File.separator + "logs" + File.separator + "globusDownload_id_" + dataset.getId() + "_" + logTimestamp
-                + ".log";
-        FileHandler fileHandler;
-        boolean fileHandlerSuceeded;
-        try {
-            fileHandler = new FileHandler(logFileName);
-            globusLogger.setUseParentHandlers(false);
-            fileHandlerSuceeded = true;
-        } catch (IOException | SecurityException ex) {
-            Logger.getLogger(DatasetServiceBean.class.getName()).log(Level.SEVERE, null, ex);
-            return;
-        }
-
-        if (fileHandlerSuceeded) {
-            globusLogger.addHandler(fileHandler);
-        } else {
-            globusLogger = logger;
-        }
+        Timestamp startTime = new Timestamp(new Date().getTime());
+        Logger globusLogger = getGlobusLogger("Download", dataset, startTime);
 
         globusLogger.info("Starting a globusDownload ");
 
@@ -947,7 +937,8 @@ public class GlobusServiceBean implements java.io.Serializable {
         } catch (Exception jpe) {
             jpe.printStackTrace();
             globusLogger.log(Level.SEVERE, "Error parsing dataset json. Json: {0}", jsonData);
-            // TODO: stop the process after this parsing exception.
+            closeGlobusLogger(globusLogger);
+            return;
         }
 
         String taskIdentifier = jsonObject.getString("taskIdentifier");
@@ -973,7 +964,25 @@ public class GlobusServiceBean implements java.io.Serializable {
             // out?)
             logger.warning("ruleId not found for taskId: " + taskIdentifier);
         }
-        task = globusStatusCheck(endpoint, taskIdentifier, globusLogger);
+
+        AuthenticatedUser user = authUser instanceof AuthenticatedUser authenticatedUser
+                ? em.find(AuthenticatedUser.class, authenticatedUser.getId())
+                : null;
+        em.persist(new GlobusTaskInProgress(taskIdentifier, GlobusTaskInProgress.TaskType.DOWNLOAD,
+                em.find(Dataset.class, dataset.getId()), user, ruleId, null, null, startTime, getFirstCheckTime()));
+        globusLogger.info("Monitoring the globus transfer task " + taskIdentifier);
+        closeGlobusLogger(globusLogger);
+    }
+
+    /**
+     * Processes the completion (successful or not) of a Globus transfer out of
+     * the dataset.
+     */
+    private void processCompletedDownload(GlobusTaskInProgress taskInProgress, GlobusTask task, Logger globusLogger) {
+
+        Dataset dataset = datasetSvc.find(taskInProgress.getDataset().getId());
+        AuthenticatedUser authUser = taskInProgress.getUser();
+        String ruleId = taskInProgress.getRuleId();
         String taskStatus = getTaskStatus(task);
 
         // Transfer is done (success or failure) so delete the rule
@@ -985,76 +994,228 @@ public class GlobusServiceBean implements java.io.Serializable {
         if (taskStatus.startsWith("FAILED") || taskStatus.startsWith("INACTIVE")) {
             String comment = "Reason : " + taskStatus.split("#")[1] + "<br> Short Description : "
                     + taskStatus.split("#")[2];
-            if (authUser != null && authUser instanceof AuthenticatedUser) {
-                userNotificationService.sendNotification((AuthenticatedUser) authUser, new Timestamp(new Date().getTime()),
+            if (authUser != null) {
+                userNotificationService.sendNotification(authUser, new Timestamp(new Date().getTime()),
                         UserNotification.Type.GLOBUSDOWNLOADCOMPLETEDWITHERRORS, dataset.getId(), comment, true);
             }
             
             globusLogger.info("Globus task failed during download process: "+comment);
-        } else if (authUser != null && authUser instanceof AuthenticatedUser) {
+        } else if (authUser != null) {
         
             boolean taskSkippedFiles = (task.getSkip_source_errors() == null) ? false : task.getSkip_source_errors();
             if (!taskSkippedFiles) {
-                userNotificationService.sendNotification((AuthenticatedUser) authUser,
+                userNotificationService.sendNotification(authUser,
                         new Timestamp(new Date().getTime()), UserNotification.Type.GLOBUSDOWNLOADCOMPLETED,
                         dataset.getId());
             } else {
-                userNotificationService.sendNotification((AuthenticatedUser) authUser,
+                userNotificationService.sendNotification(authUser,
                         new Timestamp(new Date().getTime()), UserNotification.Type.GLOBUSDOWNLOADCOMPLETEDWITHERRORS,
                         dataset.getId(), "");
             }
         }
     }
 
-    Executor executor = Executors.newFixedThreadPool(10);
+    /**
+     * @return whether the transfer is over - succeeded, failed, or stalled
+     * with an error; false for a task Globus didn't return (null), whose
+     * state is unknown
+     */
+    static boolean isTaskCompleted(GlobusTask task) {
+        if (task == null) {
+            return false;
+        }
+        if (task.getStatus() == null) {
+            return true;
+        }
+        if (task.getStatus().equalsIgnoreCase("ACTIVE")) {
+            // The task is in progress - unless it's not ok or queued
+            return !(task.getNice_status().equalsIgnoreCase("ok")
+                    || task.getNice_status().equalsIgnoreCase("queued"));
+        }
+        // The task is either succeeded, failed or inactive.
+        return true;
+    }
 
-    private GlobusTask globusStatusCheck(GlobusEndpoint endpoint, String taskId, Logger globusLogger)
-            throws MalformedURLException {
-        boolean taskCompletion = false;
-        String status = "";
-        GlobusTask task = null;
-        int pollingInterval = SystemConfig.getIntLimitFromStringOrDefault(
-                settingsSvc.getValueForKey(SettingsServiceBean.Key.GlobusPollingInterval), 50);
-        do {
-            try {
-                globusLogger.info("checking globus transfer task   " + taskId);
-                Thread.sleep(pollingInterval * 1000);
-                task = getTask(endpoint.getClientToken(), taskId, globusLogger);
-                if (task != null) {
-                    status = task.getStatus();
-                    if (status != null) {
-                        // The task is in progress.
-                        if (status.equalsIgnoreCase("ACTIVE")) {
-                            if (task.getNice_status().equalsIgnoreCase("ok")
-                                    || task.getNice_status().equalsIgnoreCase("queued")) {
-                                taskCompletion = false;
-                            } else {
-                                taskCompletion = true;
-                                // status = "FAILED" + "#" + task.getNice_status() + "#" +
-                                // task.getNice_status_short_description();
-                            }
-                        } else {
-                            // The task is either succeeded, failed or inactive.
-                            taskCompletion = true;
-                            // status = status + "#" + task.getNice_status() + "#" +
-                            // task.getNice_status_short_description();
-                        }
-                    } else {
-                        // status = "FAILED";
-                        taskCompletion = true;
-                    }
-                } else {
-                    // status = "FAILED";
-                    taskCompletion = true;
-                }
-            } catch (Exception ex) {
-                ex.printStackTrace();
+    /**
+     * Call the Globus API to get info about several transfers at once.
+     *
+     * @return the tasks found, by task id; null if the call failed
+     */
+    public Map<String, GlobusTask> getTasks(String accessToken, Collection<String> taskIds) throws MalformedURLException {
+
+        URL url = new URL("https://transfer.api.globusonline.org/v0.10/endpoint_manager/task_list?limit=" + taskIds.size()
+                + "&filter_task_id=" + String.join(",", taskIds));
+
+        MakeRequestResponse result = makeRequest(url, "Bearer", accessToken, "GET", null);
+
+        if (result.status != 200) {
+            logger.warning("Cannot get the information for the tasks " + taskIds + " : Reason :   " + result.jsonResponse);
+            return null;
+        }
+        Map<String, GlobusTask> tasks = new HashMap<>();
+        GlobusTaskList taskList = parseJson(result.jsonResponse, GlobusTaskList.class, false);
+        if (taskList != null && taskList.getDATA() != null) {
+            for (GlobusTask task : taskList.getDATA()) {
+                tasks.put(task.getTask_id(), task);
             }
+        }
+        return tasks;
+    }
 
-        } while (!taskCompletion);
+    public List<GlobusTaskInProgress> findTasksDue() {
+        return em.createNamedQuery("GlobusTaskInProgress.findDue", GlobusTaskInProgress.class)
+                .setParameter("now", new Timestamp(new Date().getTime()))
+                .getResultList();
+    }
 
-        globusLogger.info("globus transfer task completed successfully");
-        return task;
+    /**
+     * Marks the task as being processed, so that its completion is only
+     * processed once. The task stays in the table until
+     * {@link #processCompletedTask(GlobusTaskInProgress, GlobusTask)} is done
+     * with it, so that it isn't lost if the application stops in between.
+     *
+     * @return false if the task had already been taken
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public boolean claimTask(GlobusTaskInProgress taskInProgress) {
+        return em.createNamedQuery("GlobusTaskInProgress.claim")
+                .setParameter("id", taskInProgress.getId())
+                .executeUpdate() > 0;
+    }
+
+    /**
+     * Clears the marks of the tasks whose processing was cut short by a
+     * restart, so that they are processed again.
+     *
+     * @return the number of tasks released
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int releaseClaimedTasks() {
+        return em.createNamedQuery("GlobusTaskInProgress.releaseAll").executeUpdate();
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void deleteTask(GlobusTaskInProgress taskInProgress) {
+        em.createNamedQuery("GlobusTaskInProgress.deleteById")
+                .setParameter("id", taskInProgress.getId())
+                .executeUpdate();
+    }
+
+    /**
+     * Releases a claimed task whose processing failed, to be processed again
+     * at nextCheckTime.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void releaseTask(GlobusTaskInProgress taskInProgress, Timestamp nextCheckTime) {
+        GlobusTaskInProgress managed = em.find(GlobusTaskInProgress.class, taskInProgress.getId());
+        if (managed != null) {
+            managed.setProcessing(false);
+            managed.setCheckCount(managed.getCheckCount() + 1);
+            managed.setNextCheckTime(nextCheckTime);
+        }
+    }
+
+    /**
+     * @param missCount the number of checks in a row the task was not listed
+     * by Globus
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void rescheduleTask(GlobusTaskInProgress taskInProgress, Timestamp nextCheckTime, int missCount) {
+        GlobusTaskInProgress managed = em.find(GlobusTaskInProgress.class, taskInProgress.getId());
+        if (managed != null) {
+            managed.setCheckCount(managed.getCheckCount() + 1);
+            managed.setMissCount(missCount);
+            managed.setNextCheckTime(nextCheckTime);
+        }
+    }
+
+    /**
+     * Records that adding the files of an upload to the dataset has started,
+     * so that a completion cut short after this point isn't processed again
+     * from the start (adding the batches already committed a second time).
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void markRegistrationStarted(GlobusTaskInProgress taskInProgress) {
+        GlobusTaskInProgress managed = em.find(GlobusTaskInProgress.class, taskInProgress.getId());
+        if (managed != null) {
+            managed.setRegistrationStarted(true);
+        }
+        taskInProgress.setRegistrationStarted(true);
+    }
+
+    /**
+     * Processes the completion of a transfer, already claimed with
+     * {@link #claimTask(GlobusTaskInProgress)}; the task is deleted once
+     * that is done, or released to be tried again later if it failed. Once
+     * the files of an upload have started to be added, it is not tried from
+     * the start again, see {@link #markRegistrationStarted(GlobusTaskInProgress)}.
+     *
+     * @param task the task as listed by Globus; null if it's no longer
+     * listed, in which case it's processed as failed
+     */
+    @Asynchronous
+    public void processCompletedTask(GlobusTaskInProgress taskInProgress, GlobusTask task) {
+        Logger globusLogger = getGlobusLogger(taskInProgress.getTaskType() == GlobusTaskInProgress.TaskType.UPLOAD ? "Upload" : "Download",
+                taskInProgress.getDataset(), taskInProgress.getStartTime());
+        globusLogger.info("globus transfer task " + taskInProgress.getTaskId() + " completed");
+        GlobusServiceBean self = sessionContext.getBusinessObject(GlobusServiceBean.class);
+        try {
+            if (taskInProgress.getTaskType() == GlobusTaskInProgress.TaskType.UPLOAD) {
+                processCompletedUpload(taskInProgress, task, globusLogger);
+            } else {
+                processCompletedDownload(taskInProgress, task, globusLogger);
+            }
+            self.deleteTask(taskInProgress);
+        } catch (RuntimeException e) {
+            globusLogger.log(Level.SEVERE, "Failed to process the completion of the globus transfer task "
+                    + taskInProgress.getTaskId() + ", will try again later", e);
+            self.releaseTask(taskInProgress, new Timestamp(new Date().getTime() + 1000L * getPollingInterval()));
+        } finally {
+            closeGlobusLogger(globusLogger);
+        }
+    }
+
+    private Timestamp getFirstCheckTime() {
+        return new Timestamp(new Date().getTime() + 1000L * getPollingInterval());
+    }
+
+    /**
+     * @return the interval, in seconds, between checks on a transfer in
+     * progress (the monitor backs off from this for long-running transfers)
+     */
+    public int getPollingInterval() {
+        return SystemConfig.getIntLimitFromStringOrDefault(
+                settingsSvc.getValueForKey(SettingsServiceBean.Key.GlobusPollingInterval), 50);
+    }
+
+    /**
+     * @return a logger writing to the log file for this transfer; the same file
+     * is appended to when the transfer completes.
+     */
+    private Logger getGlobusLogger(String transferType, Dataset dataset, Date startTime) {
+        String logTimestamp = logFormatter.format(startTime);
+        Logger globusLogger = Logger.getLogger(
+                "edu.harvard.iq.dataverse.upload.client.DatasetServiceBean." + "Globus" + transferType + logTimestamp);
+        String logFileName = System.getProperty("com.sun.aas.instanceRoot") + File.separator + "logs" + File.separator
+                + "globus" + transferType + "_id_" + dataset.getId() + "_" + logTimestamp + ".log";
+        try {
+            FileHandler fileHandler = new FileHandler(logFileName, true);
+            globusLogger.setUseParentHandlers(false);
+            globusLogger.addHandler(fileHandler);
+            return globusLogger;
+        } catch (IOException | SecurityException ex) {
+            logger.log(Level.SEVERE, "Could not open the log file " + logFileName, ex);
+            return logger;
+        }
+    }
+
+    private void closeGlobusLogger(Logger globusLogger) {
+        if (globusLogger != logger) {
+            for (Handler handler : globusLogger.getHandlers()) {
+                globusLogger.removeHandler(handler);
+                handler.close();
+            }
+        }
     }
 
     private String getTaskStatus(GlobusTask task) {
@@ -1070,10 +1231,11 @@ public class GlobusServiceBean implements java.io.Serializable {
                     status = status + "#" + task.getNice_status() + "#" + task.getNice_status_short_description();
                 }
             } else {
-                status = "FAILED";
+                status = "FAILED#unknown#The task has no status";
             }
         } else {
-            status = "FAILED";
+            // e.g. the task is no longer listed by Globus
+            status = "FAILED#unknown#The task could not be found";
         }
         return status;
     }
@@ -1105,20 +1267,17 @@ public class GlobusServiceBean implements java.io.Serializable {
     }
 
     private CompletableFuture<FileDetailsHolder> calculateDetailsAsync(String id, Logger globusLogger) {
+        String fullPath = id.split("IDsplit")[1];
+        String storeId = fullPath.substring(0, fullPath.indexOf(DataAccess.SEPARATOR));
 
         return CompletableFuture.supplyAsync(() -> {
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
             try {
                 return (calculateDetails(id, globusLogger));
             } catch (InterruptedException | IOException e) {
                 e.printStackTrace();
             }
             return null;
-        }, executor).exceptionally(ex -> {
+        }, fileRegistrationService.getChecksumExecutor(storeId)).exceptionally(ex -> {
             return null;
         });
     }
@@ -1181,7 +1340,7 @@ public class GlobusServiceBean implements java.io.Serializable {
         return finalType;
     }
 
-    private GlobusEndpoint getGlobusEndpoint(DvObject dvObject) {
+    GlobusEndpoint getGlobusEndpoint(DvObject dvObject) {
         Dataset dataset = null;
         if (dvObject instanceof Dataset) {
             dataset = (Dataset) dvObject;
@@ -0,0 +1,185 @@
+package edu.harvard.iq.dataverse.globus;
+
+import edu.harvard.iq.dataverse.Dataset;
+import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * A Globus transfer into or out of a dataset that has been started, and whose
+ * completion hasn't been processed yet. These are checked on, in batches, by
+ * {@link GlobusTaskMonitoringServiceBean}; keeping them in the database means
+ * that no thread has to wait on a transfer, and that the transfers still get
+ * processed after a restart. A completed transfer is marked as being
+ * processed while its completion is processed, and only deleted once that is
+ * done; the marks left by a restart are cleared when the monitor starts.
+ */
+@Entity
+@Table(indexes = {@Index(columnList = "nextCheckTime")})
+@NamedQueries({
+    @NamedQuery(name = "GlobusTaskInProgress.findDue",
+            query = "SELECT t FROM GlobusTaskInProgress t WHERE t.processing = false AND t.nextCheckTime <= :now ORDER BY t.nextCheckTime"),
+    @NamedQuery(name = "GlobusTaskInProgress.claim",
+            query = "UPDATE GlobusTaskInProgress t SET t.processing = true WHERE t.id = :id AND t.processing = false"),
+    @NamedQuery(name = "GlobusTaskInProgress.releaseAll",
+            query = "UPDATE GlobusTaskInProgress t SET t.processing = false WHERE t.processing = true"),
+    @NamedQuery(name = "GlobusTaskInProgress.deleteById",
+            query = "DELETE FROM GlobusTaskInProgress t WHERE t.id = :id")
+})
+public class GlobusTaskInProgress implements Serializable {
+
+    public enum TaskType {
+        UPLOAD, DOWNLOAD
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String taskId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TaskType taskType;
+
+    @ManyToOne
+    @JoinColumn(nullable = false)
+    private Dataset dataset;
+
+    // null for downloads by users that aren't logged in
+    @ManyToOne
+    @JoinColumn(nullable = true)
+    private AuthenticatedUser user;
+
+    // the access rule to remove once the transfer is done
+    @Column(nullable = true)
+    private String ruleId;
+
+    // for uploads: the files transferred, as sent to the addGlobusFiles API
+    @Column(nullable = true, columnDefinition = "TEXT")
+    private String jsonData;
+
+    // the address the transfer was started from
+    @Column(nullable = true)
+    private String sourceAddress;
+
+    @Column(nullable = false)
+    private Timestamp startTime;
+
+    @Column(nullable = false)
+    private Timestamp nextCheckTime;
+
+    // how many times the task has been checked on so far
+    @Column(nullable = false)
+    private int checkCount;
+
+    // whether the completion of the task is being processed
+    @Column(nullable = false)
+    private boolean processing;
+
+    // how many checks in a row the task was not listed by Globus
+    @Column(nullable = false)
+    private int missCount;
+
+    // for uploads: whether adding the transferred files to the dataset has
+    // started (the batches of files are added in transactions of their own,
+    // so the completion can't simply be processed again from the start)
+    @Column(nullable = false)
+    private boolean registrationStarted;
+
+    public GlobusTaskInProgress() {
+    }
+
+    public GlobusTaskInProgress(String taskId, TaskType taskType, Dataset dataset, AuthenticatedUser user, String ruleId,
+            String jsonData, String sourceAddress, Timestamp startTime, Timestamp nextCheckTime) {
+        this.taskId = taskId;
+        this.taskType = taskType;
+        this.dataset = dataset;
+        this.user = user;
+        this.ruleId = ruleId;
+        this.jsonData = jsonData;
+        this.sourceAddress = sourceAddress;
+        this.startTime = startTime;
+        this.nextCheckTime = nextCheckTime;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public TaskType getTaskType() {
+        return taskType;
+    }
+
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    public AuthenticatedUser getUser() {
+        return user;
+    }
+
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    public String getJsonData() {
+        return jsonData;
+    }
+
+    public String getSourceAddress() {
+        return sourceAddress;
+    }
+
+    public Timestamp getStartTime() {
+        return startTime;
+    }
+
+    public Timestamp getNextCheckTime() {
+        return nextCheckTime;
+    }
+
+    public void setNextCheckTime(Timestamp nextCheckTime) {
+        this.nextCheckTime = nextCheckTime;
+    }
+
+    public int getCheckCount() {
+        return checkCount;
+    }
+
+    public void setCheckCount(int checkCount) {
+        this.checkCount = checkCount;
+    }
+
+    public boolean isProcessing() {
+        return processing;
+    }
+
+    public void setProcessing(boolean processing) {
+        this.processing = processing;
+    }
+
+    public int getMissCount() {
+        return missCount;
+    }
+
+    public void setMissCount(int missCount) {
+        this.missCount = missCount;
+    }
+
+    public boolean isRegistrationStarted() {
+        return registrationStarted;
+    }
+
+    public void setRegistrationStarted(boolean registrationStarted) {
+        this.registrationStarted = registrationStarted;
+    }
+}
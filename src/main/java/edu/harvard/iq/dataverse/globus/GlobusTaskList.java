@@ -0,0 +1,36 @@
+package edu.harvard.iq.dataverse.globus;
+
+import java.util.List;
+
+/**
+ * A page of the task list returned by the Globus endpoint manager API.
+ */
+public class GlobusTaskList {
+    private String DATA_TYPE;
+    private int length;
+    private List<GlobusTask> DATA;
+
+    public String getDATA_TYPE() {
+        return DATA_TYPE;
+    }
+
+    public void setDATA_TYPE(String DATA_TYPE) {
+        this.DATA_TYPE = DATA_TYPE;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public void setLength(int length) {
+        this.length = length;
+    }
+
+    public List<GlobusTask> getDATA() {
+        return DATA;
+    }
+
+    public void setDATA(List<GlobusTask> DATA) {
+        this.DATA = DATA;
+    }
+}
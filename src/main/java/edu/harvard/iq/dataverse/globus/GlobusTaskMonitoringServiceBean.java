@@ -0,0 +1,188 @@
+package edu.harvard.iq.dataverse.globus;
+
+import edu.harvard.iq.dataverse.util.SystemConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.Timer;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Checks on the Globus transfers in progress ({@link GlobusTaskInProgress}),
+ * all of them from a single timer, instead of one thread sleeping on each
+ * transfer: the transfers due for a check are looked up with one call to the
+ * Globus API per endpoint (and batch of tasks), and the completed ones handed
+ * over to {@link GlobusServiceBean#processCompletedTask(GlobusTaskInProgress, GlobusTask)}.
+ *
+ * The longer a transfer runs, the less often it is checked on. The polling
+ * runs on the dedicated timer server only (see {@link SystemConfig#isTimerServer()}).
+ */
+@Singleton
+@Startup
+@DependsOn("StartupFlywayMigrator")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class GlobusTaskMonitoringServiceBean {
+
+    private static final Logger logger = Logger.getLogger(GlobusTaskMonitoringServiceBean.class.getCanonicalName());
+
+    // the most tasks to ask the Globus API about in one call
+    static final int TASKS_PER_REQUEST = 50;
+    // the interval is doubled after this many checks on the same task...
+    static final int CHECKS_PER_BACKOFF = 10;
+    // ... up to this many times
+    static final int MAX_BACKOFF_SHIFT = 4;
+    // a task not listed by Globus this many checks in a row is taken for failed
+    static final int MAX_MISSES = 10;
+
+    @Resource
+    TimerService timerService;
+    @EJB
+    GlobusServiceBean globusService;
+    @EJB
+    SystemConfig systemConfig;
+
+    private final AtomicBoolean checking = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        if (systemConfig.isTimerServer()) {
+            // The completions being processed when the application stopped
+            // were cut short; they are to be processed again:
+            int released = globusService.releaseClaimedTasks();
+            if (released > 0) {
+                logger.info("Processing the completion of " + released + " Globus transfer(s) again, after a restart");
+            }
+            long intervalMillis = 1000L * globusService.getPollingInterval();
+            logger.info("Checking on the Globus transfers in progress every " + intervalMillis / 1000 + " seconds");
+            timerService.createIntervalTimer(intervalMillis, intervalMillis, new TimerConfig("GlobusTaskMonitor", false));
+        } else {
+            logger.fine("Skipping the Globus task monitor (I am not the dedicated timer server)");
+        }
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void checkTasksInProgress(Timer timer) {
+        // A check taking longer than the interval is not to be overlapped by the next one:
+        if (!checking.compareAndSet(false, true)) {
+            logger.fine("The previous check on the Globus transfers is still running");
+            return;
+        }
+        try {
+            List<GlobusTaskInProgress> tasksDue = globusService.findTasksDue();
+            if (tasksDue.isEmpty()) {
+                return;
+            }
+            logger.fine("Checking on " + tasksDue.size() + " Globus transfer(s)");
+
+            // The tasks are listed by the endpoint manager of each endpoint:
+            Map<String, List<GlobusTaskInProgress>> tasksByEndpoint = new LinkedHashMap<>();
+            Map<String, String> tokensByEndpoint = new LinkedHashMap<>();
+            for (GlobusTaskInProgress taskInProgress : tasksDue) {
+                GlobusEndpoint endpoint;
+                try {
+                    endpoint = globusService.getGlobusEndpoint(taskInProgress.getDataset());
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "Cannot find the Globus endpoint for the task " + taskInProgress.getTaskId(), e);
+                    reschedule(taskInProgress);
+                    continue;
+                }
+                tasksByEndpoint.computeIfAbsent(endpoint.getId(), id -> new ArrayList<>()).add(taskInProgress);
+                tokensByEndpoint.putIfAbsent(endpoint.getId(), endpoint.getClientToken());
+            }
+
+            for (Map.Entry<String, List<GlobusTaskInProgress>> entry : tasksByEndpoint.entrySet()) {
+                List<GlobusTaskInProgress> endpointTasks = entry.getValue();
+                for (int i = 0; i < endpointTasks.size(); i += TASKS_PER_REQUEST) {
+                    checkTasks(tokensByEndpoint.get(entry.getKey()),
+                            endpointTasks.subList(i, Math.min(i + TASKS_PER_REQUEST, endpointTasks.size())));
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to check on the Globus transfers in progress", e);
+        } finally {
+            checking.set(false);
+        }
+    }
+
+    private void checkTasks(String accessToken, List<GlobusTaskInProgress> tasksInProgress) {
+        Map<String, GlobusTaskInProgress> byTaskId = new LinkedHashMap<>();
+        tasksInProgress.forEach(t -> byTaskId.put(t.getTaskId(), t));
+
+        Map<String, GlobusTask> tasks = null;
+        try {
+            tasks = globusService.getTasks(accessToken, byTaskId.keySet());
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to get the status of the Globus tasks " + byTaskId.keySet(), e);
+        }
+        if (tasks == null) {
+            // Globus could not be asked - try again later, rather than
+            // taking the tasks for failed:
+            tasksInProgress.forEach(this::reschedule);
+            return;
+        }
+
+        for (GlobusTaskInProgress taskInProgress : tasksInProgress) {
+            GlobusTask task = tasks.get(taskInProgress.getTaskId());
+            if (task == null) {
+                int missCount = taskInProgress.getMissCount() + 1;
+                if (missCount < MAX_MISSES) {
+                    // Not listed this time; whether it is still running is
+                    // unknown, so it is checked on again next time:
+                    logger.warning("Globus did not return the status of the task " + taskInProgress.getTaskId());
+                    reschedule(taskInProgress, missCount);
+                } else {
+                    // Not listed for too long - the task is processed as
+                    // failed (the access rule removed, the user notified):
+                    logger.warning("Globus did not return the status of the task " + taskInProgress.getTaskId()
+                            + " " + missCount + " times in a row, giving up on it");
+                    if (globusService.claimTask(taskInProgress)) {
+                        globusService.processCompletedTask(taskInProgress, null);
+                    }
+                }
+            } else if (GlobusServiceBean.isTaskCompleted(task)) {
+                // Claiming the task first makes sure its completion is only
+                // processed once:
+                if (globusService.claimTask(taskInProgress)) {
+                    globusService.processCompletedTask(taskInProgress, task);
+                }
+            } else {
+                reschedule(taskInProgress, 0);
+            }
+        }
+    }
+
+    private void reschedule(GlobusTaskInProgress taskInProgress) {
+        reschedule(taskInProgress, taskInProgress.getMissCount());
+    }
+
+    private void reschedule(GlobusTaskInProgress taskInProgress, int missCount) {
+        globusService.rescheduleTask(taskInProgress, new Timestamp(System.currentTimeMillis()
+                + 1000L * getCheckInterval(globusService.getPollingInterval(), taskInProgress.getCheckCount())), missCount);
+    }
+
+    /**
+     * @return the number of seconds until the next check on a task that has
+     * been checked on checkCount times already
+     */
+    static long getCheckInterval(int pollingInterval, int checkCount) {
+        return (long) pollingInterval << Math.min(checkCount / CHECKS_PER_BACKOFF, MAX_BACKOFF_SHIFT);
+    }
+}
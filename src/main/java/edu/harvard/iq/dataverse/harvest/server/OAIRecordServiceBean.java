@@ -12,6 +12,7 @@ import edu.harvard.iq.dataverse.export.ExportService;
 import io.gdcc.spi.export.ExportException;
 import edu.harvard.iq.dataverse.search.IndexServiceBean;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.Date;
@@ -268,7 +269,41 @@ public class OAIRecordServiceBean implements java.io.Serializable {
             throw new ExportException(e.getMessage());
         }
     }
-    
+
+    /**
+     * Exports the dataset in the formats given, in a new transaction; the
+     * dataset is looked up in that transaction, so that the exports of
+     * several datasets can run side by side, each with its own persistence
+     * context. Exporting only some of the formats leaves the "last export"
+     * time stamp as it was.
+     *
+     * @param formatNames the formats to export, or null for all of them
+     * @return the dataset exported, or null if it no longer exists
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public Dataset exportFormatsInNewTransaction(Long datasetId, Collection<String> formatNames) throws ExportException {
+        Dataset dataset = datasetService.find(datasetId);
+        if (dataset == null) {
+            return null;
+        }
+        try {
+            ExportService exportServiceInstance = ExportService.getInstance();
+            if (formatNames == null) {
+                exportServiceInstance.exportAllFormats(dataset);
+            } else {
+                Timestamp lastExportTime = dataset.getLastExportTime();
+                for (String formatName : formatNames) {
+                    exportServiceInstance.exportFormat(dataset, formatName);
+                }
+                dataset.setLastExportTime(lastExportTime);
+            }
+            return datasetService.merge(dataset);
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Caught unknown exception while trying to export", e);
+            throw new ExportException(e.getMessage());
+        }
+    }
+
     
     public OAIRecord findOAIRecordBySetNameandGlobalId(String setName, String globalId) {
         OAIRecord oaiRecord = null;
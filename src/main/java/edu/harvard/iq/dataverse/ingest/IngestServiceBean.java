@@ -41,6 +41,7 @@ import edu.harvard.iq.dataverse.DatasetVersion;
 import edu.harvard.iq.dataverse.DvObject;
 import edu.harvard.iq.dataverse.FileMetadata;
 import edu.harvard.iq.dataverse.MetadataBlock;
+import edu.harvard.iq.dataverse.ThumbnailGenerationServiceBean;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.dataaccess.DataAccess;
 import edu.harvard.iq.dataverse.dataaccess.DataAccessOption;
@@ -155,6 +156,8 @@ public class IngestServiceBean {
     StorageUseServiceBean storageUseService; 
     @EJB
     SystemConfig systemConfig;
+    @EJB
+    ThumbnailGenerationServiceBean thumbnailGenerationService;
 
     @Resource(lookup = "java:app/jms/queue/ingest")
     Queue queue;
@@ -346,7 +349,9 @@ public class IngestServiceBean {
                         //Populate metadata
                         dataAccess.open(DataAccessOption.READ_ACCESS);
                         
-                        confirmedFileSize = dataAccess.getSize();
+                        // The size recorded so far is the one the client declared;
+                        // the actual size is to be checked with the storage:
+                        confirmedFileSize = dataAccess.retrieveSizeFromMedia();
                         
                         // For directly-uploaded files, we will perform the file size
                         // limit and quota checks here. Perform them *again*, in 
@@ -592,8 +597,12 @@ public class IngestServiceBean {
     // -- L.A. 4.6
     public void startIngestJobsForDataset(Dataset dataset, AuthenticatedUser user) {
         List<DataFile> scheduledFiles = new ArrayList<>();
+        List<DataFile> newFiles = new ArrayList<>();
                 
         for (DataFile dataFile : dataset.getFiles()) {
+            if (!dataFile.isReleased() && !dataFile.isIngestScheduled() && !dataFile.isIngestInProgress()) {
+                newFiles.add(dataFile);
+            }
             if (dataFile.isIngestScheduled()) {
                 // todo: investigate why when calling save with the file object
                 // gotten from the loop, the roles assignment added at create is removed
@@ -605,6 +614,11 @@ public class IngestServiceBean {
             }
         }
 
+        // Newly added (unpublished) images and PDFs get their thumbnails 
+        // generated in the background, rather than on the first page view; 
+        // files still to be ingested are left alone, since ingest may change them:
+        thumbnailGenerationService.queueThumbnails(newFiles);
+
         startIngestJobs(dataset.getId(), scheduledFiles, user);
     }
     
@@ -0,0 +1,63 @@
+package edu.harvard.iq.dataverse.metrics;
+
+import java.io.Serializable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * A monthly count for the objects owned directly by a collection (e.g. the
+ * datasets first published in the collection in a given month), as rolled up
+ * by {@link MetricsAggregationServiceBean}. The metrics of a subtree are the
+ * sums over the collections of the subtree.
+ */
+@Entity
+@Table(indexes = {
+    @Index(columnList = "name, dataverse_id")
+})
+public class CollectionMonthlyMetric implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(name = "dataverse_id", nullable = false)
+    private Long dataverseId;
+
+    /**
+     * The month, in YYYY-MM format; null for the (historic) objects without a
+     * date.
+     */
+    @Column(nullable = true)
+    private String month;
+
+    @Column(nullable = false)
+    private long count;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getDataverseId() {
+        return dataverseId;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,170 @@
+package edu.harvard.iq.dataverse.metrics;
+
+import edu.harvard.iq.dataverse.Dataverse;
+import edu.harvard.iq.dataverse.GuestbookResponse;
+import edu.harvard.iq.dataverse.util.SystemConfig;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+/**
+ * Maintains the monthly per-collection aggregates ({@link CollectionMonthlyMetric})
+ * the collection (subtree) metrics are answered from, instead of scanning the
+ * datasets, files and guestbook responses of the subtree on each cache miss.
+ *
+ * The aggregates are rolled up nightly, on the timer server; until the first
+ * rollup, the metrics are computed from the live tables.
+ */
+@Stateless
+public class MetricsAggregationServiceBean {
+
+    private static final Logger logger = Logger.getLogger(MetricsAggregationServiceBean.class.getCanonicalName());
+
+    // Local datasets, by the month they were first published:
+    public static final String DATASETS = "datasets";
+    // The files of the published versions of local datasets, by the month of the version:
+    public static final String FILES = "files";
+    // Guestbook responses (other than access requests) for published datasets, by month:
+    public static final String DOWNLOADS = "downloads";
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    private EntityManager em;
+    @EJB
+    SystemConfig systemConfig;
+
+    @Schedule(hour = "1", minute = "15", persistent = false)
+    public void rollupTimer() {
+        if (systemConfig.isTimerServer()) {
+            logger.info("Rolling up the collection metrics");
+            try {
+                rollup();
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Failed to roll up the collection metrics", e);
+            }
+        }
+    }
+
+    /**
+     * Recomputes all the aggregates, in a single transaction, so the metrics
+     * are never answered from a partial rollup.
+     */
+    public void rollup() {
+        long start = System.currentTimeMillis();
+        em.createNativeQuery("DELETE FROM collectionmonthlymetric").executeUpdate();
+
+        int datasets = em.createNativeQuery(""
+                + "INSERT INTO collectionmonthlymetric (name, dataverse_id, month, count)\n"
+                + "SELECT '" + DATASETS + "', owner_id, month, count(*)\n"
+                + "FROM (\n"
+                + "select dvobject.owner_id, min(to_char(COALESCE(datasetversion.releasetime, datasetversion.createtime), 'YYYY-MM')) as month\n"
+                + "from datasetversion\n"
+                + "join dataset on dataset.id = datasetversion.dataset_id\n"
+                + "join dvobject on dvobject.id = dataset.id\n"
+                + "where datasetversion.versionstate='RELEASED'\n"
+                + "and dataset.harvestingclient_id is null\n"
+                + "and dvobject.publicationdate is not null\n"
+                + "group by datasetversion.dataset_id, dvobject.owner_id\n"
+                + ") as firstreleases\n"
+                + "GROUP BY owner_id, month;").executeUpdate();
+
+        int files = em.createNativeQuery(""
+                + "INSERT INTO collectionmonthlymetric (name, dataverse_id, month, count)\n"
+                + "SELECT '" + FILES + "', dvobject.owner_id, to_char(COALESCE(datasetversion.releasetime, datasetversion.createtime), 'YYYY-MM'), count(filemetadata.id)\n"
+                + "FROM filemetadata\n"
+                + "JOIN datasetversion on datasetversion.id = filemetadata.datasetversion_id\n"
+                + "JOIN dataset on dataset.id = datasetversion.dataset_id\n"
+                + "JOIN dvobject on dvobject.id = dataset.id\n"
+                + "WHERE datasetversion.versionstate='RELEASED'\n"
+                + "and dataset.harvestingclient_id is null\n"
+                + "and dvobject.publicationdate is not null\n"
+                + "GROUP BY dvobject.owner_id, to_char(COALESCE(datasetversion.releasetime, datasetversion.createtime), 'YYYY-MM');").executeUpdate();
+
+        int downloads = em.createNativeQuery(""
+                + "INSERT INTO collectionmonthlymetric (name, dataverse_id, month, count)\n"
+                + "SELECT '" + DOWNLOADS + "', dvobject.owner_id, to_char(guestbookresponse.responsetime, 'YYYY-MM'), count(guestbookresponse.id)\n"
+                + "FROM guestbookresponse\n"
+                + "JOIN dvobject on dvobject.id = guestbookresponse.dataset_id\n"
+                + "WHERE guestbookresponse.eventtype!='" + GuestbookResponse.ACCESS_REQUEST + "'\n"
+                + "and dvobject.publicationdate is not null\n"
+                + "GROUP BY dvobject.owner_id, to_char(guestbookresponse.responsetime, 'YYYY-MM');").executeUpdate();
+
+        logger.info("Rolled up the collection metrics (" + datasets + " dataset, " + files + " file and " + downloads
+                + " download aggregates) in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * @return whether the aggregates have been rolled up, and can be used
+     */
+    public boolean isAvailable() {
+        return !em.createNativeQuery("SELECT 1 FROM collectionmonthlymetric LIMIT 1").getResultList().isEmpty();
+    }
+
+    /**
+     * @param name the aggregate, e.g. {@link #DATASETS}
+     * @param d the root of the subtree
+     * @param publishedCollectionsOnly whether to leave out the unpublished
+     * collections of the subtree
+     * @param undatedMonth the month to count the undated objects in; they are
+     * left out if null
+     * @return the monthly counts for the subtree, as (month, count) pairs in
+     * the order of the months
+     */
+    public List<Object[]> getTimeSeries(String name, Dataverse d, boolean publishedCollectionsOnly, String undatedMonth) {
+        String month = (undatedMonth == null) ? "m.month" : "COALESCE(m.month, '" + undatedMonth + "')";
+        Query query = em.createNativeQuery(getSubtreeCollectionsClause(d, publishedCollectionsOnly)
+                + "SELECT " + month + " as month, cast(sum(m.count) as bigint)\n"
+                + "FROM collectionmonthlymetric m\n"
+                + "JOIN subtree on subtree.id = m.dataverse_id\n"
+                + "WHERE m.name = ?1\n"
+                + ((undatedMonth == null) ? "and m.month is not null\n" : "")
+                + "GROUP BY " + month + "\n"
+                + "ORDER BY " + month + ";");
+        query.setParameter(1, name);
+        logger.log(Level.FINE, "Metric query: {0}", query);
+        return query.getResultList();
+    }
+
+    /**
+     * @param yyyymm Month in YYYY-MM format.
+     * @return the count for the subtree up to (and including) the month; see
+     * {@link #getTimeSeries(String, Dataverse, boolean, String)}
+     */
+    public long getCountToMonth(String name, Dataverse d, boolean publishedCollectionsOnly, String yyyymm, boolean includeUndated) {
+        Query query = em.createNativeQuery(getSubtreeCollectionsClause(d, publishedCollectionsOnly)
+                + "SELECT cast(COALESCE(sum(m.count), 0) as bigint)\n"
+                + "FROM collectionmonthlymetric m\n"
+                + "JOIN subtree on subtree.id = m.dataverse_id\n"
+                + "WHERE m.name = ?1\n"
+                + "and (m.month <= ?2" + (includeUndated ? " or m.month is null" : "") + ");");
+        query.setParameter(1, name);
+        query.setParameter(2, yyyymm);
+        logger.log(Level.FINE, "Metric query: {0}", query);
+        return (long) query.getSingleResult();
+    }
+
+    /*
+     * Only the collections are walked, rather than all the objects of the
+     * subtree.
+     */
+    private String getSubtreeCollectionsClause(Dataverse d, boolean publishedCollectionsOnly) {
+        return "WITH RECURSIVE collections AS (\n"
+                + "     SELECT id, publicationdate\n"
+                + "     FROM dvobject\n"
+                + "     WHERE id = " + d.getId() + "\n"
+                + "     UNION ALL\n"
+                + "     SELECT e.id, e.publicationdate\n"
+                + "     FROM dvobject e\n"
+                + "     INNER JOIN collections c ON c.id = e.owner_id\n"
+                + "     WHERE e.dtype = 'Dataverse'\n"
+                + "), subtree AS (\n"
+                + "     SELECT id FROM collections\n"
+                + (publishedCollectionsOnly ? "     WHERE publicationdate is not null\n" : "")
+                + ")\n";
+    }
+}
@@ -48,6 +48,8 @@ public class MetricsServiceBean implements Serializable {
     private EntityManager em;
     @EJB
     SystemConfig systemConfig;
+    @EJB
+    MetricsAggregationServiceBean metricsAggregationService;
 
     /** Dataverses */
 
@@ -131,6 +133,9 @@ public class MetricsServiceBean implements Serializable {
 
 
     public JsonArray getDatasetsTimeSeries(UriInfo uriInfo, String dataLocation, Dataverse d) {
+        if (d != null && DATA_LOCATION_LOCAL.equals(dataLocation) && metricsAggregationService.isAvailable()) {
+            return MetricsUtil.timeSeriesToJson(metricsAggregationService.getTimeSeries(MetricsAggregationServiceBean.DATASETS, d, true, null));
+        }
         Query query = em.createNativeQuery(
                 "select distinct date, count(dataset_id)\n"
                 + "from (\n"
@@ -156,6 +161,9 @@ public class MetricsServiceBean implements Serializable {
      * @param d
      */
     public long datasetsToMonth(String yyyymm, String dataLocation, Dataverse d) {
+        if (d != null && DATA_LOCATION_LOCAL.equals(dataLocation) && metricsAggregationService.isAvailable()) {
+            return metricsAggregationService.getCountToMonth(MetricsAggregationServiceBean.DATASETS, d, true, yyyymm, false);
+        }
         String dataLocationLine = "(date_trunc('month', releasetime) <=  to_date('" + yyyymm + "','YYYY-MM') and dataset.harvestingclient_id IS NULL)\n";
 
         if (!DATA_LOCATION_LOCAL.equals(dataLocation)) { // Default api state is DATA_LOCATION_LOCAL
@@ -296,6 +304,9 @@ public class MetricsServiceBean implements Serializable {
      * @param d
      */
     public JsonArray filesTimeSeries(Dataverse d) {
+        if (d != null && metricsAggregationService.isAvailable()) {
+            return MetricsUtil.timeSeriesToJson(metricsAggregationService.getTimeSeries(MetricsAggregationServiceBean.FILES, d, true, null));
+        }
         Query query = em.createNativeQuery(
                 "select distinct date, count(id)\n"
                         + "from (\n"
@@ -421,6 +432,9 @@ public class MetricsServiceBean implements Serializable {
 
         // Counts historic guestbook records without date as occurring in the month
         // prior to the first dated counts
+        if (d != null && metricsAggregationService.isAvailable()) {
+            return MetricsUtil.timeSeriesToJson(metricsAggregationService.getTimeSeries(MetricsAggregationServiceBean.DOWNLOADS, d, false, earliest));
+        }
         Query query = em.createNativeQuery(""
                 + "select  distinct COALESCE(to_char(responsetime, 'YYYY-MM'),'" + earliest + "') as date, count(id)\n"
                 + "from guestbookresponse\n"
@@ -453,6 +467,9 @@ public class MetricsServiceBean implements Serializable {
             Date dateQueried = yyyymmFormat.parse(yyyymm);
 
             if (!dateQueried.before(earliestDate)) {
+                if (d != null && metricsAggregationService.isAvailable()) {
+                    return metricsAggregationService.getCountToMonth(MetricsAggregationServiceBean.DOWNLOADS, d, false, yyyymm, true);
+                }
                 Query query = em.createNativeQuery(""
                         + "select count(id)\n"
                         + "from guestbookresponse\n"
@@ -51,10 +51,28 @@ public enum JvmSettings {
     DOCROOT_DIRECTORY(SCOPE_FILES, "docroot"),
     GUESTBOOK_AT_REQUEST(SCOPE_FILES, "guestbook-at-request"),
     GLOBUS_CACHE_MAXAGE(SCOPE_FILES, "globus-cache-maxage"),
+    FILES_UNZIP_WORKERS(SCOPE_FILES, "unzip-workers"),
+    FILES_IO_THREADS(SCOPE_FILES, "io-threads"),
+    FILES_UPLOAD_BUFFERED_PARTS(SCOPE_FILES, "upload-buffered-parts"),
+    FILES_READ_AHEAD_BUFFERED_PARTS(SCOPE_FILES, "read-ahead-buffered-parts"),
+    GLOBUS_REGISTRATION_BATCH_SIZE(SCOPE_FILES, "globus-registration-batch-size"),
+    // Storage cleanup (background deletion of the physical files of deleted DataFiles) settings
+    SCOPE_FILES_CLEANUP(SCOPE_FILES, "cleanup"),
+    FILES_CLEANUP_INTERVAL(SCOPE_FILES_CLEANUP, "interval"),
+    FILES_CLEANUP_BATCH_SIZE(SCOPE_FILES_CLEANUP, "batch-size"),
+    FILES_CLEANUP_MAX_ATTEMPTS(SCOPE_FILES_CLEANUP, "max-attempts"),
+    FILES_CLEANUP_THREADS(SCOPE_FILES_CLEANUP, "threads"),
+
+    // THUMBNAIL SETTINGS
+    SCOPE_THUMBNAILS(PREFIX, "thumbnails"),
+    THUMBNAILS_MAX_CONCURRENT_DECODES(SCOPE_THUMBNAILS, "max-concurrent-decodes"),
+    THUMBNAILS_WORKERS(SCOPE_THUMBNAILS, "workers"),
+    THUMBNAILS_MAX_WAIT(SCOPE_THUMBNAILS, "max-wait"),
 
     //STORAGE DRIVER SETTINGS
     SCOPE_DRIVER(SCOPE_FILES),
     DISABLE_S3_TAGGING(SCOPE_DRIVER, "disable-tagging"),
+    GLOBUS_CHECKSUM_WORKERS(SCOPE_DRIVER, "globus-checksum-workers"),
     
     // SOLR INDEX SETTINGS
     SCOPE_SOLR(PREFIX, "solr"),
@@ -80,6 +98,7 @@ public enum JvmSettings {
     SCOPE_API(PREFIX, "api"),
     API_SIGNING_SECRET(SCOPE_API, "signing-secret"),
     API_ALLOW_INCOMPLETE_METADATA(SCOPE_API, "allow-incomplete-metadata"),
+    API_CACHE_MAX_AGE(SCOPE_API, "cache-max-age"),
 
     // SIGNPOSTING SETTINGS
     SCOPE_SIGNPOSTING(PREFIX, "signposting"),
@@ -96,6 +115,11 @@ public enum JvmSettings {
     SCOPE_METADATA(PREFIX, "metadata"),
     MDB_SYSTEM_METADATA_KEYS(SCOPE_METADATA, "block-system-metadata-keys"),
     MDB_SYSTEM_KEY_FOR(MDB_SYSTEM_METADATA_KEYS),
+    METADATA_EXPORT_WORKERS(SCOPE_METADATA, "export-workers"),
+    SCOPE_CVOC(SCOPE_METADATA, "external-vocabulary"),
+    CVOC_MAX_CONCURRENT_REQUESTS(SCOPE_CVOC, "max-concurrent-requests"),
+    CVOC_RETRY_FAILED_AFTER(SCOPE_CVOC, "retry-failed-after"),
+    CVOC_REFRESH_AFTER(SCOPE_CVOC, "refresh-after"),
 
     // PERSISTENT IDENTIFIER SETTINGS
     SCOPE_PID(PREFIX, "pid"),
@@ -209,6 +233,11 @@ public enum JvmSettings {
     MAIL_MTA_SUPPORT_UTF8(SCOPE_MAIL_MTA, "allow-utf8-addresses"),
     // Placeholder setting for a large list of extra settings
     MAIL_MTA_SETTING(SCOPE_MAIL_MTA),
+    // Outbox (asynchronous delivery of notifications) settings
+    SCOPE_MAIL_OUTBOX(SCOPE_MAIL, "outbox"),
+    MAIL_OUTBOX_INTERVAL(SCOPE_MAIL_OUTBOX, "interval"),
+    MAIL_OUTBOX_BATCH_SIZE(SCOPE_MAIL_OUTBOX, "batch-size"),
+    MAIL_OUTBOX_MAX_ATTEMPTS(SCOPE_MAIL_OUTBOX, "max-attempts"),
     
     // AUTH SETTINGS
     SCOPE_AUTH(PREFIX, "auth"),
@@ -246,6 +275,10 @@ public enum JvmSettings {
     // STORAGE USE SETTINGS
     SCOPE_STORAGEUSE(PREFIX, "storageuse"),
     STORAGEUSE_DISABLE_UPDATES(SCOPE_STORAGEUSE, "disable-storageuse-increments"),
+
+    // WORKFLOW SETTINGS
+    SCOPE_WORKFLOWS(PREFIX, "workflows"),
+    WORKFLOWS_WORKERS(SCOPE_WORKFLOWS, "workers"),
     ;
 
     private static final String SCOPE_SEPARATOR = ".";
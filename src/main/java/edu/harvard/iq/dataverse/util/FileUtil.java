@@ -66,7 +66,6 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.sql.Timestamp;
@@ -100,6 +99,7 @@ import org.apache.commons.io.FilenameUtils;
 import edu.harvard.iq.dataverse.dataaccess.DataAccessOption;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.util.file.FileExceedsStorageQuotaException;
+import edu.harvard.iq.dataverse.util.file.SavedUpload;
 import java.util.Arrays;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -117,6 +117,8 @@ public class FileUtil implements java.io.Serializable  {
     private static final Logger logger = Logger.getLogger(FileUtil.class.getCanonicalName());
     
     private static final String[] TABULAR_DATA_FORMAT_SET = {"POR", "SAV", "DTA", "RDA"};
+
+    private static final int UPLOAD_BUFFER_SIZE = 64 * 1024;
     
     private static Map<String, String> STATISTICAL_FILE_EXTENSION = new HashMap<String, String>();
     
@@ -847,27 +849,72 @@ public class FileUtil implements java.io.Serializable  {
         
         public static File saveInputStreamInTempFile(InputStream inputStream, Long fileSizeLimit, Long storageQuotaLimit)
             throws IOException, FileExceedsMaxSizeException, FileExceedsStorageQuotaException {
+        return saveInputStreamInTempFile(inputStream, fileSizeLimit, storageQuotaLimit, null).file();
+    }
+
+    /**
+     * Saves the stream in a temp file in a single pass: the size limits are
+     * enforced as the bytes come in (so that an oversized upload is rejected
+     * as soon as it crosses the limit, instead of after it has been written to
+     * the temp disk in full), and the checksum, if a checksum type is given, is
+     * calculated on the way, so that the file doesn't need to be read again
+     * for it.
+     *
+     * The bytes are not also teed into the destination store: the temp file
+     * is what the upload page shows and lets the user cancel before the
+     * dataset is saved, and what zip/shapefile unpacking, type recognition
+     * and ingest read from, so it is copied to the store only once the files
+     * are added to the dataset (see IngestServiceBean#saveAndAddFilesToDataset).
+     * Direct uploads skip the temp file altogether.
+     *
+     * (note that "no size limit set" = "unlimited")
+     */
+    public static SavedUpload saveInputStreamInTempFile(InputStream inputStream, Long fileSizeLimit, Long storageQuotaLimit, ChecksumType checksumType)
+            throws IOException, FileExceedsMaxSizeException, FileExceedsStorageQuotaException {
+        if (inputStream == null) {
+            throw new IOException("Failed to save uploaded file.");
+        }
+        MessageDigest md = null;
+        if (checksumType != null) {
+            try {
+                // Use "SHA-1" (toString) rather than "SHA1", for example.
+                md = MessageDigest.getInstance(checksumType.toString());
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
         Path tempFile = Files.createTempFile(Paths.get(getFilesTempDirectory()), "tmp", "upload");
-        
-        if (inputStream != null && tempFile != null) {
-            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
-            
-            // size check: 
-            // (note that "no size limit set" = "unlimited")
-            Long fileSize = tempFile.toFile().length();
-            if (fileSizeLimit != null && fileSize > fileSizeLimit) {
-                try {tempFile.toFile().delete();} catch (Exception ex) {}
-                throw new FileExceedsMaxSizeException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.file_exceeds_limit"), bytesToHumanReadable(fileSize), bytesToHumanReadable(fileSizeLimit)));  
+
+        long fileSize = 0;
+        boolean saved = false;
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            byte[] buffer = new byte[UPLOAD_BUFFER_SIZE];
+            int nread;
+            while ((nread = inputStream.read(buffer)) != -1) {
+                fileSize += nread;
+                if (fileSizeLimit != null && fileSize > fileSizeLimit) {
+                    throw new FileExceedsMaxSizeException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.file_exceeds_limit_streamed"), bytesToHumanReadable(fileSizeLimit)));
+                }
+                if (storageQuotaLimit != null && fileSize > storageQuotaLimit) {
+                    throw new FileExceedsStorageQuotaException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.quota_exceeded_streamed"), bytesToHumanReadable(storageQuotaLimit)));
+                }
+                if (md != null) {
+                    md.update(buffer, 0, nread);
+                }
+                out.write(buffer, 0, nread);
             }
-            
-            if (storageQuotaLimit != null && fileSize > storageQuotaLimit) {
-                try {tempFile.toFile().delete();} catch (Exception ex) {}
-                throw new FileExceedsStorageQuotaException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.quota_exceeded"), bytesToHumanReadable(fileSize), bytesToHumanReadable(storageQuotaLimit)));  
+            saved = true;
+        } finally {
+            if (!saved) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ex) {
+                    logger.warning("Could not remove temp file " + tempFile.getFileName());
+                }
             }
-            
-            return tempFile.toFile();
         }
-        throw new IOException("Failed to save uploaded file.");
+
+        return new SavedUpload(tempFile.toFile(), fileSize, checksumType, md == null ? null : checksumDigestToString(md.digest()));
     }
     
     /* 
@@ -1439,7 +1486,7 @@ public class FileUtil implements java.io.Serializable  {
     	return s3io;
     }
     
-    private static InputStream getOriginalFileInputStream(StorageIO<DataFile> storage, boolean isTabularData) throws IOException {
+    public static InputStream getOriginalFileInputStream(StorageIO<DataFile> storage, boolean isTabularData) throws IOException {
         storage.open(DataAccessOption.READ_ACCESS);
         if (!isTabularData) {
             return storage.getInputStream();
@@ -0,0 +1,49 @@
+package edu.harvard.iq.dataverse.util;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Iterates over query results a page at a time: each page is looked up from
+ * the last element of the previous one (null for the first page), so only one
+ * page is held in memory at a time. The iteration ends at the first empty page.
+ *
+ * @param <T> the type of the results
+ */
+public class PagedIterator<T> implements Iterator<T> {
+
+    private final Function<T, List<T>> nextPage;
+    private Iterator<T> page = Collections.emptyIterator();
+    private T last;
+    private boolean done;
+
+    /**
+     * @param nextPage looks up the page of results following the given one,
+     * or the first page if null
+     */
+    public PagedIterator(Function<T, List<T>> nextPage) {
+        this.nextPage = nextPage;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!page.hasNext() && !done) {
+            List<T> results = nextPage.apply(last);
+            done = results.isEmpty();
+            page = results.iterator();
+        }
+        return page.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        last = page.next();
+        return last;
+    }
+}
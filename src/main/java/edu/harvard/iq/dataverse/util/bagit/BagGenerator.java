@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Map.Entry;
@@ -73,8 +74,11 @@ import com.google.gson.JsonSyntaxException;
 
 import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.DataFile.ChecksumType;
+import edu.harvard.iq.dataverse.dataaccess.DataAccess;
+import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.pidproviders.PidUtil;
 import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.FileUtil;
 import edu.harvard.iq.dataverse.util.json.JsonLDTerm;
 import java.util.Optional;
 
@@ -123,6 +127,7 @@ public class BagGenerator {
     public static final String BAG_GENERATOR_THREADS = ":BagGeneratorThreads";
 
     private OREMap oremap;
+    private Map<String, DataFile> dataFiles;
 
     static PrintWriter pw = null;
 
@@ -133,7 +138,8 @@ public class BagGenerator {
      * Final Recommendations (DOI: 10.15497/RDA00025). It works by parsing the
      * submitted OAI-ORE Map file, using the metadata therein to create required
      * BagIt metadata, and using the schema.org/sameAs entries for
-     * AggregatedResources as a way to retrieve these files and store them in the
+     * AggregatedResources as a way to retrieve these files (read directly from
+     * storage for the DataFiles of the OREMap) and store them in the
      * /data directory within the BagIt structure. The Bag is zipped. File retrieval
      * and zipping are done in parallel, using a connection pool. The required space
      * on disk is ~ n+1/n of the final bag size, e.g. 125% of the bag size for a
@@ -146,6 +152,7 @@ public class BagGenerator {
         this.oremap = oreMap;
         this.oremapObject = oreMap.getOREMap();
                 //(JsonObject) new JsonParser().parse(oreMap.getOREMap().toString());
+        this.dataFiles = oreMap.getDataFilesBySameAs();
         this.dataciteXml = dataciteXml;
 
         try {
@@ -1014,6 +1021,34 @@ public class BagGenerator {
     }
 
     InputStreamSupplier getInputStreamSupplier(final String uriString) {
+        DataFile dataFile = dataFiles.get(uriString);
+        if (dataFile != null) {
+            return getStorageInputStreamSupplier(dataFile, uriString);
+        }
+        return getUrlInputStreamSupplier(uriString);
+    }
+
+    /*
+     * Reads the file content straight from storage, rather than over HTTP(S) from
+     * the installation's own download API. Falls back to the download URL if the
+     * file can't be read from its StorageIO (e.g. a store that doesn't support it).
+     */
+    private InputStreamSupplier getStorageInputStreamSupplier(final DataFile dataFile, final String uriString) {
+        return new InputStreamSupplier() {
+            public InputStream get() {
+                try {
+                    StorageIO<DataFile> storageIO = DataAccess.getStorageIO(dataFile);
+                    logger.finest("Reading " + uriString + " from storage");
+                    return FileUtil.getOriginalFileInputStream(storageIO, dataFile.isTabularData());
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "Unable to read " + uriString + " from storage, retrieving it from its URL", e);
+                    return getUrlInputStreamSupplier(uriString).get();
+                }
+            }
+        };
+    }
+
+    private InputStreamSupplier getUrlInputStreamSupplier(final String uriString) {
 
         return new InputStreamSupplier() {
             public InputStream get() {
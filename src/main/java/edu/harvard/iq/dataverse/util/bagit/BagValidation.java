@@ -69,8 +69,9 @@ public class BagValidation {
         }
 
         private final Path filePath;
-        private Status status;
-        private String message;
+        // Set by the validation jobs
+        private volatile Status status;
+        private volatile String message;
 
         public FileValidationResult(Path filePath) {
             this.filePath = filePath;
@@ -14,6 +14,8 @@ import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -48,6 +50,15 @@ public class BagValidator {
         }
     }
 
+    /**
+     * Receives the progress of a bag validation: called, from the validating
+     * threads, as each file of the bag has been validated.
+     */
+    @FunctionalInterface
+    public static interface ProgressListener {
+        void onProgress(long filesValidated, long totalFiles);
+    }
+
     private static final String BAGIT_FILE_MARKER = "bagit.txt";
 
     private final Integer validatorJobPoolSize;
@@ -78,6 +89,14 @@ public class BagValidator {
     }
 
     public BagValidation validateChecksums(FileDataProvider fileDataProvider) {
+        return validateChecksums(fileDataProvider, null);
+    }
+
+    /**
+     * Validates the checksums of the files in the bag, reporting the progress
+     * to the listener (if any) as the files are validated.
+     */
+    public BagValidation validateChecksums(FileDataProvider fileDataProvider, ProgressListener progressListener) {
         Optional<Path> bagItFile = getBagItFile(fileDataProvider.getFilePaths());
         if (bagItFile.isEmpty()) {
             logger.warning(String.format("action=validateBag result=bag-marker-file-not-found fileDataProvider=%s", fileDataProvider.getName()));
@@ -91,7 +110,7 @@ public class BagValidator {
             return new BagValidation(Optional.of(getMessage("bagit.validation.manifest.not.supported", fileDataProvider.getName(), BagChecksumType.asList())));
         }
 
-        BagValidation bagValidation = validateChecksums(fileDataProvider, manifestChecksum.get());
+        BagValidation bagValidation = validateChecksums(fileDataProvider, manifestChecksum.get(), progressListener);
         logger.fine(String.format("action=validateBag completed fileDataProvider=%s bagValidation=%s", fileDataProvider.getName(), bagValidation));
         return bagValidation;
     }
@@ -105,10 +124,16 @@ public class BagValidator {
         return bagRoot;
     }
 
-    private BagValidation validateChecksums(FileDataProvider fileDataProvider, ManifestChecksum manifestChecksums) {
+    private BagValidation validateChecksums(FileDataProvider fileDataProvider, ManifestChecksum manifestChecksums, ProgressListener progressListener) {
         ExecutorService executor = getExecutorService();
         BagValidation bagValidationResults = new BagValidation(Optional.empty());
-        logger.fine(String.format("action=validateChecksums start name=%s type=%s files=%s", fileDataProvider.getName(), manifestChecksums.getType(), manifestChecksums.getFileChecksums().size()));
+        long totalFiles = manifestChecksums.getFileChecksums().size();
+        // The jobs count the files and errors as they go, so that the validation
+        // stops as soon as there are too many errors
+        AtomicLong filesValidated = new AtomicLong();
+        AtomicLong fileErrors = new AtomicLong();
+        AtomicBoolean maxErrorsReached = new AtomicBoolean(false);
+        logger.fine(String.format("action=validateChecksums start name=%s type=%s files=%s", fileDataProvider.getName(), manifestChecksums.getType(), totalFiles));
         for(Map.Entry<Path, String> checksumEntry:  manifestChecksums.getFileChecksums().entrySet()) {
             Path filePath = checksumEntry.getKey();
             String fileChecksum = checksumEntry.getValue();
@@ -116,9 +141,17 @@ public class BagValidator {
             Optional<InputStreamProvider> inputStreamProvider = fileDataProvider.getInputStreamProvider(filePath);
             if(inputStreamProvider.isPresent()) {
                 FileChecksumValidationJob validationJob = new FileChecksumValidationJob(inputStreamProvider.get(), filePath, fileChecksum, manifestChecksums.getType(), fileValidationResult);
-                executor.execute(validationJob);
+                executor.execute(() -> {
+                    if (maxErrorsReached.get()) {
+                        // The file is left pending
+                        return;
+                    }
+                    validationJob.run();
+                    fileValidated(fileValidationResult, filesValidated, fileErrors, maxErrorsReached, totalFiles, progressListener);
+                });
             } else {
                 fileValidationResult.setError(getMessage("bagit.validation.file.not.found", filePath, fileDataProvider.getName()));
+                fileValidated(fileValidationResult, filesValidated, fileErrors, maxErrorsReached, totalFiles, progressListener);
             }
 
         }
@@ -127,7 +160,7 @@ public class BagValidator {
         try {
             while (!executor.awaitTermination(jobWaitIntervalInSeconds, TimeUnit.SECONDS)) {
                 logger.fine(String.format("action=validateChecksums result=waiting-completion name=%s type=%s files=%s", fileDataProvider.getName(), manifestChecksums.getType(), manifestChecksums.getFileChecksums().size()));
-                if(bagValidationResults.errors() > maxErrors) {
+                if(maxErrorsReached.get()) {
                     logger.info(String.format("action=validateChecksums result=max-errors-reached name=%s type=%s files=%s bagValidationResults=%s", fileDataProvider.getName(), manifestChecksums.getType(), manifestChecksums.getFileChecksums().size(), bagValidationResults.report()));
                     executor.shutdownNow();
                 }
@@ -142,9 +175,25 @@ public class BagValidator {
         return bagValidationResults;
     }
 
+    private void fileValidated(FileValidationResult fileValidationResult, AtomicLong filesValidated, AtomicLong fileErrors,
+            AtomicBoolean maxErrorsReached, long totalFiles, ProgressListener progressListener) {
+        if (fileValidationResult.isError() && fileErrors.incrementAndGet() > maxErrors) {
+            maxErrorsReached.set(true);
+        }
+        long validated = filesValidated.incrementAndGet();
+        if (progressListener != null) {
+            try {
+                progressListener.onProgress(validated, totalFiles);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "action=validateChecksums result=progress-listener-error", e);
+            }
+        }
+    }
+
     // Visible for testing
     ExecutorService getExecutorService() {
-        return Executors.newFixedThreadPool(validatorJobPoolSize);
+        // Work stealing: the workers don't all contend for a single queue of jobs
+        return Executors.newWorkStealingPool(validatorJobPoolSize);
     }
 
     // Visible for testing
@@ -12,6 +12,7 @@ import edu.harvard.iq.dataverse.util.json.JsonPrinter;
 
 import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -56,6 +57,7 @@ public class OREMap {
     private Map<String, String> localContext = new TreeMap<String, String>();
     private DatasetVersion version;
     private Boolean excludeEmail = null;
+    private final Map<String, DataFile> dataFilesBySameAs = new HashMap<String, DataFile>();
 
     public OREMap(DatasetVersion version) {
         this.version = version;
@@ -72,6 +74,15 @@ public class OREMap {
         outputStream.flush();
     }
 
+    /**
+     * @return the DataFiles aggregated in the map (once it has been generated),
+     *         by their schema.org/sameAs (download) URL, so that their content
+     *         can be read from storage directly
+     */
+    public Map<String, DataFile> getDataFilesBySameAs() {
+        return dataFilesBySameAs;
+    }
+
     public JsonObject getOREMap() {
         return getOREMap(false);
     }
@@ -263,6 +274,7 @@ public class OREMap {
                 }
                 aggRes.add("@id", fileId);
                 aggRes.add(JsonLDTerm.schemaOrg("sameAs").getLabel(), fileSameAs);
+                dataFilesBySameAs.put(fileSameAs, df);
                 fileArray.add(fileId);
 
                 aggRes.add("@type", JsonLDTerm.ore("AggregatedResource").getLabel());
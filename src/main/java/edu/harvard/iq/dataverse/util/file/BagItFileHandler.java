@@ -83,7 +83,11 @@ public class BagItFileHandler {
 
     private BagValidation validateBagItPackage(String uploadedFilename, List<DataFile> packageDataFiles) throws IOException {
         try(FileDataProvider fileDataProvider = fileDataProviderFactory.getFileDataProvider(uploadedFilename, packageDataFiles)) {
-            BagValidation bagValidation = bagValidator.validateChecksums(fileDataProvider);
+            BagValidation bagValidation = bagValidator.validateChecksums(fileDataProvider, (filesValidated, totalFiles) -> {
+                if (filesValidated % 1000 == 0 || filesValidated == totalFiles) {
+                    logger.fine(String.format("action=validateBagItPackage uploadedFilename=%s progress=%s/%s", uploadedFilename, filesValidated, totalFiles));
+                }
+            });
             logger.info(String.format("action=validateBagItPackage uploadedFilename=%s bagValidation=%s", uploadedFilename, bagValidation.report()));
             return bagValidation;
         }
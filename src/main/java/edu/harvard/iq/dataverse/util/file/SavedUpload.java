@@ -0,0 +1,13 @@
+package edu.harvard.iq.dataverse.util.file;
+
+import edu.harvard.iq.dataverse.DataFile;
+import java.io.File;
+
+/**
+ * An upload saved in a temp file by
+ * {@link edu.harvard.iq.dataverse.util.FileUtil#saveInputStreamInTempFile(java.io.InputStream, Long, Long, DataFile.ChecksumType)},
+ * with its size and the checksum calculated while it was being saved (null if
+ * no checksum type was requested).
+ */
+public record SavedUpload(File file, long size, DataFile.ChecksumType checksumType, String checksum) {
+}
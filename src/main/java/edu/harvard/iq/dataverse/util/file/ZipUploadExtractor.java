@@ -0,0 +1,228 @@
+package edu.harvard.iq.dataverse.util.file;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.datasetutility.FileExceedsMaxSizeException;
+import static edu.harvard.iq.dataverse.datasetutility.FileSizeChecker.bytesToHumanReadable;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.BundleUtil;
+import edu.harvard.iq.dataverse.util.FileUtil;
+import edu.harvard.iq.dataverse.util.StringUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Unpacks the entries of uploaded zip archives into temp files, using a
+ * bounded pool of worker threads shared by all the uploads: each entry is
+ * read from the (random access) {@link ZipFile}, saved, checksummed and
+ * size-checked in a single pass, and its type determined, in parallel with
+ * the other entries.
+ *
+ * The results are returned in the order of the entries passed in, so the
+ * DataFiles created from them come out in the same order as with a
+ * sequential unzip.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ZipUploadExtractor {
+
+    private static final Logger logger = Logger.getLogger(ZipUploadExtractor.class.getCanonicalName());
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    private ExecutorService executor;
+
+    /**
+     * An unpacked entry. The recognized type is null if the type could not be
+     * determined on the worker thread (the caller may try again on its own
+     * thread - some of the checks need the context of the request).
+     */
+    public record ExtractedEntry(ZipEntry entry, SavedUpload savedUpload, String recognizedType) {
+    }
+
+    /**
+     * Thrown by {@link #findUnpackableEntries} when the archive has more files
+     * than allowed.
+     */
+    public static class TooManyEntriesException extends IOException {
+        public TooManyEntriesException(String message) {
+            super(message);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        int workers = Math.max(1, JvmSettings.FILES_UNZIP_WORKERS.lookupOptional(Integer.class)
+                .orElse(Math.min(4, Runtime.getRuntime().availableProcessors())));
+        executor = Executors.newFixedThreadPool(workers, managedThreadFactory);
+        logger.fine("Started the zip upload extractor with " + workers + " worker(s)");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Unpacks the entries; if any of them fails (or exceeds the size limit),
+     * the ones already unpacked are removed and the exception is rethrown.
+     *
+     * @param fileSizeLimit the size limit for each individual entry, checked
+     * against the bytes actually unpacked (null for "unlimited")
+     */
+    public List<ExtractedEntry> extractAll(ZipFile zipFile, List<ZipEntry> entries, Long fileSizeLimit, DataFile.ChecksumType checksumType)
+            throws IOException, FileExceedsMaxSizeException {
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        List<Future<ExtractedEntry>> extractions = new ArrayList<>(entries.size());
+        for (ZipEntry entry : entries) {
+            extractions.add(executor.submit(() -> extract(zipFile, entry, fileSizeLimit, checksumType, aborted)));
+        }
+
+        List<ExtractedEntry> extracted = new ArrayList<>(entries.size());
+        try {
+            for (Future<ExtractedEntry> extraction : extractions) {
+                extracted.add(extraction.get());
+            }
+            return extracted;
+        } catch (ExecutionException ex) {
+            abort(aborted, extractions);
+            if (ex.getCause() instanceof FileExceedsMaxSizeException femsx) {
+                throw femsx;
+            }
+            if (ex.getCause() instanceof IOException ioex) {
+                throw ioex;
+            }
+            throw new IOException("Failed to unpack the zip file", ex.getCause());
+        } catch (InterruptedException ex) {
+            abort(aborted, extractions);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while unpacking the zip file", ex);
+        }
+    }
+
+    /**
+     * Lists the files of the archive to unpack: the directories and the
+     * "fake" files created for MacOS X filesystem elements are left out. Only
+     * the central directory of the archive is read.
+     *
+     * @param maxEntries the maximum number of files to unpack
+     * @param fileSizeLimit the size limit for each individual file, checked
+     * against the sizes the archive declares (null for "unlimited")
+     * @throws TooManyEntriesException if there are more than maxEntries files
+     * @throws IllegalArgumentException if the name of an entry is not valid
+     * in the charset of the ZipFile
+     */
+    public static List<ZipEntry> findUnpackableEntries(ZipFile zipFile, int maxEntries, Long fileSizeLimit)
+            throws TooManyEntriesException, FileExceedsMaxSizeException {
+        List<ZipEntry> unpackableEntries = new ArrayList<>();
+        for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
+            ZipEntry entry = entries.nextElement();
+            logger.fine("inside first zip pass; this entry: " + entry.getName());
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String shortName = getShortName(entry.getName());
+            // check if it's a "fake" file - a zip archive entry created for a
+            // MacOS X filesystem element (these start with "._")
+            if (shortName.startsWith("._") || shortName.startsWith(".DS_Store") || "".equals(shortName)) {
+                continue;
+            }
+            unpackableEntries.add(entry);
+            if (unpackableEntries.size() > maxEntries) {
+                throw new TooManyEntriesException("More than " + maxEntries + " files in the zip archive");
+            }
+            if (fileSizeLimit != null && entry.getSize() > fileSizeLimit) {
+                throw new FileExceedsMaxSizeException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.file_exceeds_limit"),
+                        bytesToHumanReadable(entry.getSize()), bytesToHumanReadable(fileSizeLimit)));
+            }
+        }
+        return unpackableEntries;
+    }
+
+    /**
+     * @return the name of the file of the entry, without its folders
+     */
+    public static String getShortName(String entryName) {
+        return entryName.replaceFirst("^.*[\\/]", "");
+    }
+
+    /**
+     * If the entry name looks like a hierarchical folder name (i.e., contains
+     * slashes and backslashes), extracts the directory name, and subjects it
+     * to some "aggressive sanitizing": strips all the leading, trailing and
+     * duplicate slashes, and replaces all the characters that don't pass our
+     * validation rules (so that no ".." is left either).
+     *
+     * @return the directory label for the file of the entry; null if none
+     */
+    public static String getDirectoryLabel(String entryName) {
+        if (entryName.equals(getShortName(entryName))) {
+            return null;
+        }
+        String directoryName = entryName.replaceFirst("[\\\\/][\\\\/]*[^\\\\/]*$", "");
+        directoryName = StringUtil.sanitizeFileDirectory(directoryName, true);
+        return StringUtil.isEmpty(directoryName) ? null : directoryName;
+    }
+
+    private static ExtractedEntry extract(ZipFile zipFile, ZipEntry entry, Long fileSizeLimit, DataFile.ChecksumType checksumType, AtomicBoolean aborted)
+            throws IOException, FileExceedsMaxSizeException, FileExceedsStorageQuotaException {
+        if (aborted.get()) {
+            return null;
+        }
+        SavedUpload savedUpload;
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            savedUpload = FileUtil.saveInputStreamInTempFile(in, fileSizeLimit, null, checksumType);
+        }
+        String shortName = getShortName(entry.getName());
+        String recognizedType = null;
+        try {
+            recognizedType = FileUtil.determineFileType(savedUpload.file(), shortName);
+        } catch (Exception ex) {
+            logger.fine("Could not determine the type of " + shortName + " on the worker thread: " + ex.getMessage());
+        }
+        if (aborted.get()) {
+            // nobody is going to collect this one:
+            savedUpload.file().delete();
+            return null;
+        }
+        return new ExtractedEntry(entry, savedUpload, recognizedType);
+    }
+
+    private static void abort(AtomicBoolean aborted, List<Future<ExtractedEntry>> extractions) {
+        aborted.set(true);
+        for (Future<ExtractedEntry> extraction : extractions) {
+            // an extraction that is already running will remove its own
+            // file when it sees the aborted flag; the completed ones are
+            // removed here:
+            if (!extraction.cancel(true)) {
+                try {
+                    ExtractedEntry extracted = extraction.get();
+                    if (extracted != null) {
+                        extracted.savedUpload().file().delete();
+                    }
+                } catch (ExecutionException | InterruptedException ex) {
+                    // nothing to remove
+                }
+            }
+        }
+    }
+}
@@ -55,6 +55,8 @@ import jakarta.ejb.EJB;
 import jakarta.ejb.Singleton;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonGenerator;
 import java.math.BigDecimal;
 
 /**
@@ -542,6 +544,37 @@ public class JsonPrinter {
         return filesArr;
     }
 
+    /**
+     * Writes a version with its files: the same JSON as
+     * {@code json(dsv, anonymizedFieldTypeNamesList, true, returnOwners)},
+     * except that the files are written one at a time, as they are iterated
+     * over, rather than all built in memory first.
+     *
+     * @param dsvJson the version without its files, as printed by
+     * {@code json(dsv, anonymizedFieldTypeNamesList, false, returnOwners)}
+     */
+    public static void writeJson(JsonGenerator generator, JsonObject dsvJson, Iterable<FileMetadata> fmds) {
+        generator.writeStartObject();
+        for (Map.Entry<String, JsonValue> member : dsvJson.entrySet()) {
+            generator.write(member.getKey(), member.getValue());
+        }
+        generator.writeKey("files");
+        writeFileMetadatas(generator, fmds);
+        generator.writeEnd();
+    }
+
+    /**
+     * Writes the same JSON as {@link #jsonFileMetadatas(Collection)}, one file
+     * at a time.
+     */
+    public static void writeFileMetadatas(JsonGenerator generator, Iterable<FileMetadata> fmds) {
+        generator.writeStartArray();
+        for (FileMetadata fmd : fmds) {
+            generator.write(JsonPrinter.json(fmd).build());
+        }
+        generator.writeEnd();
+    }
+
     public static JsonObjectBuilder json(DatasetDistributor dist) {
         return jsonObjectBuilder()
                 .add("displayOrder", dist.getDisplayOrder())
@@ -757,6 +790,20 @@ public class JsonPrinter {
     }
     
     public static JsonObjectBuilder json(DataFile df, FileMetadata fileMetadata, boolean forExportDataProvider, boolean returnOwners) {
+        return json(df, fileMetadata, forExportDataProvider, returnOwners, true);
+    }
+
+    /**
+     * The same as {@code json(df, fileMetadata, true)}, except that the data
+     * tables come without their variables. For exporters that write the
+     * variables one at a time (see {@link #json(DataVariable)}), instead of
+     * holding all of them in memory at once.
+     */
+    public static JsonObjectBuilder jsonWithoutDataVariables(DataFile df, FileMetadata fileMetadata) {
+        return json(df, fileMetadata, true, false, false);
+    }
+
+    private static JsonObjectBuilder json(DataFile df, FileMetadata fileMetadata, boolean forExportDataProvider, boolean returnOwners, boolean includeDataVariables) {
         // File names are no longer stored in the DataFile entity; 
         // (they are instead in the FileMetadata (as "labels") - this way 
         // the filename can change between versions... 
@@ -829,7 +876,7 @@ public class JsonPrinter {
         if (forExportDataProvider) {
             builder.add("restricted", df.isRestricted())
             .add("fileMetadataId", fileMetadata.getId())
-            .add("dataTables", df.getDataTables().isEmpty() ? null : JsonPrinter.jsonDT(df.getDataTables()))
+            .add("dataTables", df.getDataTables().isEmpty() ? null : JsonPrinter.jsonDT(df.getDataTables(), includeDataVariables))
             .add("varGroups", fileMetadata.getVarGroups().isEmpty()
                     ? JsonPrinter.jsonVarGroup(fileMetadata.getVarGroups())
                     : null);
@@ -842,20 +889,28 @@ public class JsonPrinter {
     
     //Started from https://github.com/RENCI-NRIG/dataverse/, i.e. https://github.com/RENCI-NRIG/dataverse/commit/2b5a1225b42cf1caba85e18abfeb952171c6754a
     public static JsonArrayBuilder jsonDT(List<DataTable> ldt) {
+        return jsonDT(ldt, true);
+    }
+
+    private static JsonArrayBuilder jsonDT(List<DataTable> ldt, boolean includeDataVariables) {
         JsonArrayBuilder ldtArr = Json.createArrayBuilder();
         for(DataTable dt: ldt){
-            ldtArr.add(JsonPrinter.json(dt));
+            ldtArr.add(JsonPrinter.json(dt, includeDataVariables));
         }
         return ldtArr;
     }
 
     public static JsonObjectBuilder json(DataTable dt) {
+        return json(dt, true);
+    }
+
+    private static JsonObjectBuilder json(DataTable dt, boolean includeDataVariables) {
         return jsonObjectBuilder()
                 .add("varQuantity", dt.getVarQuantity())
                 .add("caseQuantity", dt.getCaseQuantity())
                 .add("recordsPerCase", dt.getRecordsPerCase())
                 .add("UNF", dt.getUnf())
-                .add("dataVariables", JsonPrinter.jsonDV(dt.getDataVariables()))
+                .add("dataVariables", includeDataVariables ? JsonPrinter.jsonDV(dt.getDataVariables()) : null)
                 ;
     }
 
@@ -0,0 +1,65 @@
+package edu.harvard.iq.dataverse.workflow;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+
+/**
+ * The threads the workflows run on: a bounded pool of its own
+ * ({@link JvmSettings#WORKFLOWS_WORKERS}), so that workflow steps waiting on
+ * slow external systems (archives, remote services) don't tie up the
+ * application server's shared pool for asynchronous calls.
+ *
+ * The queue in front of the workers is deliberately unbounded: a workflow is
+ * handed over once the transaction that triggered it has committed (the
+ * dataset may be waiting to be published), so there is nobody left to reject
+ * it to. Each queued entry is only a reference to the workflow and its
+ * context; the number waiting is exposed as the {@code workflow_queue_depth}
+ * metric. The workflows still queued when the application stops are dropped
+ * (their datasets are not locked yet - the lock is taken when a workflow
+ * starts running).
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class WorkflowExecutorServiceBean {
+
+    private static final Logger logger = Logger.getLogger(WorkflowExecutorServiceBean.class.getCanonicalName());
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int workers = Math.max(1, JvmSettings.WORKFLOWS_WORKERS.lookupOptional(Integer.class).orElse(4));
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), managedThreadFactory);
+        logger.fine("Started the workflow executor with " + workers + " worker(s)");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Gauge(name = "workflow_queue_depth", absolute = true, unit = MetricUnits.NONE,
+            description = "Number of workflow starts and resumes waiting for a worker")
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+}
@@ -27,15 +27,19 @@ import edu.harvard.iq.dataverse.workflow.step.WorkflowStepResult;
 import edu.harvard.iq.dataverse.workflows.WorkflowComment;
 
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import jakarta.annotation.Resource;
 import jakarta.ejb.Asynchronous;
 import jakarta.ejb.EJB;
+import jakarta.ejb.SessionContext;
 import jakarta.ejb.Stateless;
 import jakarta.ejb.TransactionAttribute;
 import jakarta.ejb.TransactionAttributeType;
@@ -43,6 +47,12 @@ import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
 
 /**
  * Service bean for managing and executing {@link Workflow}s
@@ -81,6 +91,18 @@ public class WorkflowServiceBean {
     
     @Inject
     DataverseRequestServiceBean dvRequestService;
+
+    @EJB
+    WorkflowExecutorServiceBean workflowExecutor;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Resource
+    SessionContext sessionContext;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
     
     final Map<String, WorkflowStepSPI> providers = new HashMap<>();
 
@@ -104,58 +126,81 @@ public class WorkflowServiceBean {
     }
     
     /**
-     * Starts executing workflow {@code wf} under the passed context.
+     * Starts executing workflow {@code wf} under the passed context, on the
+     * workflow executor, once the caller's transaction (if any) commits.
      *
      * @param wf the workflow to execute.
      * @param ctxt the context in which the workflow is executed.
+     * @param findDataset whether to look the dataset up again, rather than
+     * merging the one in the context (see {@link #runWorkflow(Workflow, WorkflowContext, boolean)}).
      * @throws CommandException If the dataset could not be locked.
      */
-    //ToDo - should this be @Async? or just the forward() method?
-    @Asynchronous
     public void start(Workflow wf, WorkflowContext ctxt, boolean findDataset) throws CommandException {
         /*
-         * Workflows appear to start running prior to the caller's transaction
-         * completing which can result in exceptions in setting the lock below. To avoid
-         * this, there are two work-arounds - wait briefly for that transaction to end,
-         * or refresh the dataset from the db - so the lock is written based on the
-         * current db state. The latter works for pre-publication workflows (since the
-         * only changes to the Dataset in the Publish command are edits to the version
-         * number in the draft version (which aren't valid for the draft anyway)), while
-         * the former is required for post-publication workflows which may need to see
-         * the final version number, update times and other changes made in the Finalize
-         * Publication command. Not waiting saves significant time when many datasets
-         * are processed, so is prefereable when it makes sense.
-         * 
-         * This code should be reconsidered if/when the launching of pre/post
-         * publication workflows is moved to command onSuccess methods (and when
-         * onSuccess methods are guaranteed to be after the transaction completes (see
-         * #7568) or other changes are made that can guarantee the dataset in the
-         * WorkflowContext is up-to-date/usable in further transactions in the workflow.
-         * (e.g. if this method is not asynchronous)
-         * 
+         * Workflows used to start running (asynchronously) prior to the caller's
+         * transaction completing, which could result in exceptions in setting the
+         * lock (and required a sleep, for post-publication workflows, to see the
+         * changes made by the Finalize Publication command). Starting the workflow
+         * once the transaction has committed avoids both: e.g. the
+         * Dataverses.importDataset()/importDatasetDDI() calls with release=yes
+         * trigger a prepublish workflow on a dataset that isn't committed to the
+         * database until the API call completes.
          */
-
-        if (!findDataset) {
-            /*
-             * Sleep here briefly to make sure the database update from the callers
-             * transaction completes which avoids any concurrency/optimistic lock issues.
-             * Note: 1 second appears long enough, but shorter delays may work.
-             * One example:
-             * the Dataverses.importDataset()/importDatasetDDI() calls with release=yes will
-             * trigger a prepublish workflow on a dataset that isn't committed to the
-             * database until the API call completes.
-             */
+        WorkflowServiceBean self = sessionContext.getBusinessObject(WorkflowServiceBean.class);
+        afterCommit("start of workflow " + ctxt.getInvocationId(), () -> {
             try {
-                Thread.sleep(1000);
+                self.runWorkflow(wf, ctxt, findDataset);
             } catch (Exception ex) {
-                logger.warning("Failed to sleep for a second.");
+                logger.log(Level.SEVERE, "Workflow " + ctxt.getInvocationId() + " could not be started: " + ex.getMessage(), ex);
             }
-        }
+        });
+    }
+
+    /**
+     * Runs the workflow, in a transaction of its own; called on the workflow
+     * executor by {@link #start(Workflow, WorkflowContext, boolean)}.
+     */
+    public void runWorkflow(Workflow wf, WorkflowContext ctxt, boolean findDataset) throws CommandException {
+        /*
+         * Refreshing the dataset from the db (findDataset) makes sure the lock is
+         * written based on the current db state. This works for pre-publication
+         * workflows (since the only changes to the Dataset in the Publish command
+         * are edits to the version number in the draft version, which aren't valid
+         * for the draft anyway), while post-publication workflows need to see the
+         * final version number, update times and other changes made in the
+         * Finalize Publication command, so merge the dataset instead.
+         */
         //Refresh will only em.find the dataset if findDataset is true. (otherwise the dataset is em.merged)
         ctxt = refresh(ctxt, retrieveRequestedSettings( wf.getRequiredSettings()), getCurrentApiToken(ctxt.getRequest().getAuthenticatedUser()), findDataset);
         lockDataset(ctxt, new DatasetLock(DatasetLock.Reason.Workflow, ctxt.getRequest().getAuthenticatedUser()));
         forward(wf, ctxt);
     }
+
+    /**
+     * Hands the task over to the workflow executor once the current
+     * transaction has committed - or right away, if there's no transaction.
+     * The task is dropped if the transaction rolls back.
+     */
+    private void afterCommit(String description, Runnable task) {
+        if (transactionRegistry.getTransactionKey() == null) {
+            workflowExecutor.execute(task);
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    workflowExecutor.execute(task);
+                } else {
+                    logger.log(Level.WARNING, "The transaction was rolled back; cancelling the {0}", description);
+                }
+            }
+        });
+    }
     
 
     private ApiToken getCurrentApiToken(AuthenticatedUser au) {
@@ -196,8 +241,8 @@ public class WorkflowServiceBean {
 
     /**
      * Starting the resume process for a pending workflow. We first delete the
-     * pending workflow to minimize double invocation, and then asynchronously
-     * resume the work.
+     * pending workflow to minimize double invocation, and then, once the
+     * deletion is committed, resume the work on the workflow executor.
      *
      * @param pending The workflow to resume.
      * @param body the response from the remote system.
@@ -205,10 +250,22 @@ public class WorkflowServiceBean {
      * #doResume(edu.harvard.iq.dataverse.workflow.PendingWorkflowInvocation,
      * java.lang.String)
      */
-    @Asynchronous
     public void resume(PendingWorkflowInvocation pending, String body) {
         em.remove(em.merge(pending));
-        doResume(pending, body);
+        WorkflowServiceBean self = sessionContext.getBusinessObject(WorkflowServiceBean.class);
+        afterCommit("resume of workflow " + pending.getInvocationId(), () -> self.resumeWorkflow(pending, body));
+    }
+
+    /**
+     * Resumes the workflow, in a transaction of its own; called on the
+     * workflow executor by {@link #resume(PendingWorkflowInvocation, String)}.
+     */
+    public void resumeWorkflow(PendingWorkflowInvocation pending, String body) {
+        try {
+            doResume(pending, body);
+        } catch (Exception ex) {
+            logger.log(Level.SEVERE, "Workflow " + pending.getInvocationId() + " could not be resumed: " + ex.getMessage(), ex);
+        }
     }
     
     
@@ -224,7 +281,7 @@ public class WorkflowServiceBean {
         WorkflowStep pendingStep = createStep(stepsLeft.get(0));
         WorkflowContext newCtxt = pending.reCreateContext(roleAssignees);
         final WorkflowContext ctxt = refresh(newCtxt,retrieveRequestedSettings( wf.getRequiredSettings()), getCurrentApiToken(newCtxt.getRequest().getAuthenticatedUser()));
-        WorkflowStepResult res = pendingStep.resume(ctxt, pending.getLocalData(), body);
+        WorkflowStepResult res = timeStep(stepsLeft.get(0), "resume", () -> pendingStep.resume(ctxt, pending.getLocalData(), body));
         if (res instanceof Failure) {
             logger.warning(((Failure) res).getReason());
             userNotificationService.sendNotification(ctxt.getRequest().getAuthenticatedUser(), Timestamp.from(Instant.now()), UserNotification.Type.WORKFLOW_FAILURE, ctxt.getDataset().getLatestVersion().getId(), ((Failure) res).getMessage());
@@ -257,7 +314,11 @@ public class WorkflowServiceBean {
             
             try {
                 logger.log(Level.INFO, "Workflow {0} step {1}: Rollback", new Object[]{ctxt.getInvocationId(), stepIdx});
-                rollbackStep(step, ctxt, failure);
+                final WorkflowContext rollbackCtxt = ctxt;
+                timeStep(wsd, "rollback", () -> {
+                    rollbackStep(step, rollbackCtxt, failure);
+                    return null;
+                });
                 
             } catch (Exception e) {
                 logger.log(Level.WARNING, "Workflow " + ctxt.getInvocationId() 
@@ -286,7 +347,8 @@ public class WorkflowServiceBean {
         for ( int stepIdx = initialStepIdx; stepIdx < steps.size(); stepIdx++ ) {
             WorkflowStepData wsd = steps.get(stepIdx);
             WorkflowStep step = createStep(wsd);
-            WorkflowStepResult res = runStep(step, ctxt);
+            final WorkflowContext stepCtxt = ctxt;
+            WorkflowStepResult res = timeStep(wsd, "run", () -> runStep(step, stepCtxt));
             
             try {
                 if (res == WorkflowStepResult.OK) {
@@ -376,7 +438,29 @@ public class WorkflowServiceBean {
     //
     //
     //////////////////////////////////////////////////////////////
+
+    /**
+     * Runs the step action, recording its duration in the
+     * {@code workflow_step_time} metric, by step type and action (run,
+     * resume or rollback).
+     */
+    private <T> T timeStep(WorkflowStepData wsd, String action, Supplier<T> stepAction) {
+        Timer timer = metricRegistry.timer("workflow_step_time",
+                new Tag("provider", tagValue(wsd.getProviderId())), new Tag("step", tagValue(wsd.getStepType())),
+                new Tag("action", action));
+        long start = System.nanoTime();
+        try {
+            return stepAction.get();
+        } finally {
+            timer.update(Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
     
+    // (MicroProfile Metrics rejects tags without a value)
+    private static String tagValue(String value) {
+        return (value == null || value.isBlank()) ? "unknown" : value;
+    }
+
     private void pauseAndAwait(Workflow wf, WorkflowContext ctxt, Pending pendingRes, int idx) {
         PendingWorkflowInvocation pending = new PendingWorkflowInvocation(wf, ctxt, pendingRes);
         pending.setPendingStepIdx(idx);
@@ -7,29 +7,42 @@ import edu.harvard.iq.dataverse.workflow.step.Pending;
 import edu.harvard.iq.dataverse.workflow.step.WorkflowStep;
 import edu.harvard.iq.dataverse.workflow.step.WorkflowStepResult;
 import static edu.harvard.iq.dataverse.workflow.step.WorkflowStepResult.OK;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.HttpMethodBase;
-import org.apache.commons.httpclient.URI;
-import org.apache.commons.httpclient.URIException;
-import org.apache.commons.httpclient.methods.DeleteMethod;
-import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
-import org.apache.commons.httpclient.methods.GetMethod;
-import org.apache.commons.httpclient.methods.PostMethod;
-import org.apache.commons.httpclient.methods.PutMethod;
-import org.apache.commons.httpclient.methods.StringRequestEntity;
 
 /**
  * A workflow step that sends a HTTP request, and then pauses, waiting for a response.
  * 
+ * The request is sent with the non-blocking {@link HttpClient}, shared by all
+ * the steps, and is only waited on for a limited time (the {@code timeout}
+ * parameter, in seconds, default 60), so that an unresponsive remote system
+ * can't hold up a workflow worker indefinitely.
+ * 
  * @author michael
  */
 public class HttpSendReceiveClientStep implements WorkflowStep {
     private static final Logger logger = Logger.getLogger(HttpSendReceiveClientStep.class.getName());
+    private static final int DEFAULT_TIMEOUT = 60;
+
+    // GET and DELETE requests follow redirects, POST and PUT don't:
+    private static final HttpClient redirectingClient = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(DEFAULT_TIMEOUT))
+            .build();
+    private static final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(DEFAULT_TIMEOUT))
+            .build();
+
     private final Map<String,String> params;
 
     public HttpSendReceiveClientStep(Map<String, String> paramSet) {
@@ -38,18 +51,14 @@ public class HttpSendReceiveClientStep implements WorkflowStep {
     
     @Override
     public WorkflowStepResult run(WorkflowContext context) {
-        HttpClient client = new HttpClient();
-        
         try {
-            // build method
-            HttpMethodBase mtd = buildMethod(false, context);
-            // execute
-            int responseStatus = client.executeMethod(mtd);
+            HttpResponse<String> response = send(false, context);
+            int responseStatus = response.statusCode();
             if (responseStatus>=200 && responseStatus<300 ) {
                 // HTTP OK range
                 return new Pending();
             } else {
-                String responseBody = mtd.getResponseBodyAsString();
+                String responseBody = response.body();
                 this.rollback(context, null);
                 return new Failure("Error communicating with server. Server response: " + responseBody + " (" + responseStatus + ").");
             }
@@ -74,34 +83,54 @@ public class HttpSendReceiveClientStep implements WorkflowStep {
 
     @Override
     public void rollback(WorkflowContext context, Failure reason) {
-        HttpClient client = new HttpClient();
-        
         try {
-            // build method
-            HttpMethodBase mtd = buildMethod(true, context);
-            
-            // execute
-            int responseStatus = client.executeMethod(mtd);
+            HttpResponse<String> response = send(true, context);
+            int responseStatus = response.statusCode();
             if (responseStatus<200 || responseStatus>=300 ) {
                 // out of HTTP OK range
-                String responseBody = mtd.getResponseBodyAsString();
                 Logger.getLogger(HttpSendReceiveClientStep.class.getName()).log(Level.WARNING, 
-                        "Bad response from remote server while rolling back step: {0}", responseBody);
+                        "Bad response from remote server while rolling back step: {0}", response.body());
             }
             
         } catch (Exception ex) {
             Logger.getLogger(HttpSendReceiveClientStep.class.getName()).log(Level.WARNING, "IO error rolling back step: " + ex.getMessage(), ex);
         }
     }
+
+    private HttpResponse<String> send(boolean rollback, WorkflowContext ctxt) throws Exception {
+        HttpRequest request = buildRequest(rollback, ctxt);
+        int timeout = getTimeout();
+        HttpClient httpClient = isRedirecting(rollback) ? redirectingClient : client;
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .get(timeout, TimeUnit.SECONDS);
+    }
+
+    private int getTimeout() {
+        try {
+            return Integer.parseInt(params.getOrDefault("timeout", Integer.toString(DEFAULT_TIMEOUT)).trim());
+        } catch (NumberFormatException nfe) {
+            logger.warning("Invalid timeout: '" + params.get("timeout") + "'; using " + DEFAULT_TIMEOUT + " seconds");
+            return DEFAULT_TIMEOUT;
+        }
+    }
+
+    private String getMethodName(boolean rollback) {
+        return params.getOrDefault("method" + (rollback ? "-rollback":""), "GET").trim().toUpperCase();
+    }
+
+    private boolean isRedirecting(boolean rollback) {
+        String methodName = getMethodName(rollback);
+        return "GET".equals(methodName) || "DELETE".equals(methodName);
+    }
     
-    HttpMethodBase buildMethod(boolean rollback, WorkflowContext ctxt) throws Exception {
-        String methodName = params.getOrDefault("method" + (rollback ? "-rollback":""), "GET").trim().toUpperCase();
-        HttpMethodBase m = null;
+    HttpRequest buildRequest(boolean rollback, WorkflowContext ctxt) throws Exception {
+        String methodName = getMethodName(rollback);
         switch (methodName) {
-            case "GET":    m = new GetMethod(); m.setFollowRedirects(true); break;
-            case "POST":   m = new PostMethod(); break;
-            case "PUT":    m = new PutMethod(); break;
-            case "DELETE": m = new DeleteMethod(); m.setFollowRedirects(true); break;
+            case "GET":
+            case "POST":
+            case "PUT":
+            case "DELETE":
+                break;
             default: throw new IllegalStateException("Unsupported HTTP method: '" + methodName + "'");
         }
         
@@ -117,23 +146,27 @@ public class HttpSendReceiveClientStep implements WorkflowStep {
         templateParams.put( "majorVersion", Long.toString(ctxt.getNextVersionNumber()) );
         templateParams.put( "releaseStatus", (ctxt.getType()==TriggerType.PostPublishDataset) ? "done":"in-progress" );
         
-        m.addRequestHeader("Content-Type", params.getOrDefault("contentType", "text/plain"));
-        
         String urlKey = rollback ? "rollbackUrl":"url";
         String url = params.get(urlKey);
+        URI uri;
         try {
-            m.setURI(new URI(process(url,templateParams), true) );
-        } catch (URIException ex) {
+            uri = URI.create(process(url,templateParams));
+        } catch (IllegalArgumentException | NullPointerException ex) {
             throw new IllegalStateException("Illegal URL: '" + url + "'");
         }
         
+        // Only POST and PUT requests carry a body
         String bodyKey = (rollback ? "rollbackBody" : "body");
-        if ( params.containsKey(bodyKey) && m instanceof EntityEnclosingMethod ) {
-            String body = params.get(bodyKey);
-            ((EntityEnclosingMethod)m).setRequestEntity(new StringRequestEntity(process( body, templateParams)));
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.noBody();
+        if ( params.containsKey(bodyKey) && (methodName.equals("POST") || methodName.equals("PUT")) ) {
+            body = HttpRequest.BodyPublishers.ofString(process( params.get(bodyKey), templateParams));
         }
         
-        return m;
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(getTimeout()))
+                .header("Content-Type", params.getOrDefault("contentType", "text/plain"))
+                .method(methodName, body)
+                .build();
     }
     
     String process(String template, Map<String,String> values ) {
@@ -0,0 +1,3 @@
+-- The storage cleanup checks whether a DataFile still refers to a physical
+-- file about to be deleted, by its storage identifier:
+CREATE INDEX IF NOT EXISTS index_dvobject_storageidentifier ON dvobject (storageidentifier) WHERE dtype='DataFile';
@@ -0,0 +1,218 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.util.testing.Tags;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.logging.AbstractSessionLog;
+import org.eclipse.persistence.logging.SessionLog;
+import org.eclipse.persistence.logging.SessionLogEntry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the SQL statements {@link DatasetServiceBean#findDeep(Object)} and
+ * {@link DatasetVersionServiceBean#findDeep(Object)} take to load a dataset
+ * and everything the batch hints cover: the count must not grow with the
+ * number of files (below {@link DatasetServiceBean#DEEP_FETCH_BATCH_SIZE}),
+ * i.e. the relationships of the files are not looked up one file at a time.
+ *
+ * The entities are mapped onto a throwaway PostgreSQL database, with the
+ * application's persistence unit used outside the container.
+ */
+@Tag(Tags.INTEGRATION_TEST)
+@Tag(Tags.USES_TESTCONTAINERS)
+@Testcontainers(disabledWithoutDocker = true)
+class DatasetServiceBeanFindDeepIT {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void setUp() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(PersistenceUnitProperties.TRANSACTION_TYPE, "RESOURCE_LOCAL");
+        properties.put(PersistenceUnitProperties.JTA_DATASOURCE, "");
+        properties.put(PersistenceUnitProperties.NON_JTA_DATASOURCE, "");
+        properties.put(PersistenceUnitProperties.JDBC_DRIVER, postgres.getDriverClassName());
+        properties.put(PersistenceUnitProperties.JDBC_URL, postgres.getJdbcUrl());
+        properties.put(PersistenceUnitProperties.JDBC_USER, postgres.getUsername());
+        properties.put(PersistenceUnitProperties.JDBC_PASSWORD, postgres.getPassword());
+        properties.put("jakarta.persistence.validation.mode", "NONE");
+        properties.put(PersistenceUnitProperties.LOGGING_LOGGER, StatementCounter.class.getName());
+        properties.put(PersistenceUnitProperties.LOGGING_LEVEL, SessionLog.WARNING_LABEL);
+        properties.put(PersistenceUnitProperties.CATEGORY_LOGGING_LEVEL_ + SessionLog.SQL, SessionLog.FINE_LABEL);
+        emf = Persistence.createEntityManagerFactory("VDCNet-ejbPU", properties);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    @Test
+    void testFindDeepDatasetStatementCount() {
+        long smallDataset = createDataset("FINDDEEP1", 10);
+        long largeDataset = createDataset("FINDDEEP2", 200);
+
+        int smallStatements = countDatasetStatements(smallDataset, 10);
+        int largeStatements = countDatasetStatements(largeDataset, 200);
+
+        // one statement for the dataset with its files, then one per
+        // relationship (for each batch of files), however many files there are:
+        assertTrue(smallStatements > 1, "findDeep took " + smallStatements + " statements");
+        assertEquals(smallStatements, largeStatements);
+    }
+
+    @Test
+    void testFindDeepVersionStatementCount() {
+        long smallVersion = getVersionId(createDataset("FINDDEEP3", 10));
+        long largeVersion = getVersionId(createDataset("FINDDEEP4", 200));
+
+        int smallStatements = countVersionStatements(smallVersion, 10);
+        int largeStatements = countVersionStatements(largeVersion, 200);
+
+        assertTrue(smallStatements > 1, "findDeep took " + smallStatements + " statements");
+        assertEquals(smallStatements, largeStatements);
+    }
+
+    private int countDatasetStatements(long datasetId, int files) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            DatasetServiceBean datasetService = new DatasetServiceBean();
+            datasetService.em = em;
+            StatementCounter.statements.set(0);
+
+            Dataset dataset = datasetService.findDeep(datasetId);
+            assertEquals(files, dataset.getFiles().size());
+            for (DataFile dataFile : dataset.getFiles()) {
+                touch(dataFile);
+                dataFile.getAuxiliaryFiles().size();
+                dataFile.getIngestReport();
+                dataFile.getFileAccessRequests().size();
+                dataFile.getOwner();
+                dataFile.getAlternativePersistentIndentifiers().size();
+                for (FileMetadata fileMetadata : dataFile.getFileMetadatas()) {
+                    fileMetadata.getCategories().size();
+                    fileMetadata.getVarGroups().size();
+                }
+            }
+            return StatementCounter.statements.get();
+        } finally {
+            em.close();
+        }
+    }
+
+    private int countVersionStatements(long versionId, int files) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            DatasetVersionServiceBean versionService = new DatasetVersionServiceBean();
+            versionService.em = em;
+            StatementCounter.statements.set(0);
+
+            DatasetVersion version = versionService.findDeep(versionId);
+            assertEquals(files, version.getFileMetadatas().size());
+            for (FileMetadata fileMetadata : version.getFileMetadatas()) {
+                fileMetadata.getCategories().size();
+                fileMetadata.getDatasetVersion();
+                touch(fileMetadata.getDataFile());
+            }
+            return StatementCounter.statements.get();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void touch(DataFile dataFile) {
+        dataFile.getIngestRequest();
+        dataFile.getThumbnailForDataset();
+        dataFile.getDataTables().size();
+        dataFile.getTags().size();
+        dataFile.getEmbargo();
+        dataFile.getRetention();
+        dataFile.getReleaseUser();
+        dataFile.getCreator();
+    }
+
+    private long createDataset(String identifier, int files) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Timestamp now = new Timestamp(new Date().getTime());
+            Dataset dataset = new Dataset();
+            dataset.setProtocol("doi");
+            dataset.setAuthority("10.5072");
+            dataset.setIdentifier("FK2/" + identifier);
+            dataset.setCreateDate(now);
+            dataset.setModificationTime(now);
+            DatasetVersion version = dataset.getLatestVersion();
+            version.setCreateTime(now);
+            version.setLastUpdateTime(now);
+            em.persist(dataset);
+
+            for (int i = 0; i < files; i++) {
+                DataFile dataFile = new DataFile("text/plain");
+                dataFile.setOwner(dataset);
+                dataFile.setCreateDate(now);
+                dataFile.setModificationTime(now);
+                dataFile.setChecksumType(DataFile.ChecksumType.MD5);
+                dataFile.setChecksumValue(String.format("%032x", i));
+                dataFile.setStorageIdentifier("file://" + identifier.toLowerCase() + "-" + i);
+                FileMetadata fileMetadata = new FileMetadata();
+                fileMetadata.setLabel("file" + i + ".txt");
+                fileMetadata.setDataFile(dataFile);
+                fileMetadata.setDatasetVersion(version);
+                dataFile.getFileMetadatas().add(fileMetadata);
+                version.getFileMetadatas().add(fileMetadata);
+                em.persist(dataFile);
+                em.persist(fileMetadata);
+            }
+            em.getTransaction().commit();
+            return dataset.getId();
+        } finally {
+            em.close();
+        }
+    }
+
+    private long getVersionId(long datasetId) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(Dataset.class, datasetId).getLatestVersion().getId();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Counts the SQL statements EclipseLink logs.
+     */
+    public static class StatementCounter extends AbstractSessionLog {
+
+        static final AtomicInteger statements = new AtomicInteger();
+
+        @Override
+        public void log(SessionLogEntry entry) {
+            if (SessionLog.SQL.equals(entry.getNameSpace())) {
+                statements.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package edu.harvard.iq.dataverse;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class ExternalVocabularyClientTest {
+
+    private HttpServer server;
+    private String baseUri;
+    private final AtomicInteger termRequests = new AtomicInteger();
+    private final AtomicInteger failingRequests = new AtomicInteger();
+    private ExternalVocabularyClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        // A stub vocabulary service: /terms/<id> returns the term, anything else fails.
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/terms/", exchange -> {
+            termRequests.incrementAndGet();
+            String id = exchange.getRequestURI().getPath().substring("/terms/".length());
+            respond(exchange, 200, "{\"@id\":\"" + id + "\",\"termName\":\"Term " + id + "\","
+                    + "\"token\":\"" + exchange.getRequestHeaders().getFirst("X-Token") + "\"}");
+        });
+        server.createContext("/down/", exchange -> {
+            failingRequests.incrementAndGet();
+            respond(exchange, 500, "Internal Server Error");
+        });
+        server.setExecutor(null);
+        server.start();
+        baseUri = "http://localhost:" + server.getAddress().getPort();
+        client = new ExternalVocabularyClient(4, 60 * 1000L, Executors.defaultThreadFactory());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.close();
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    @Test
+    public void testRetrieveAll() {
+        JsonObject headers = Json.createObjectBuilder().add("X-Token", "secret").build();
+        List<ExternalVocabularyClient.TermRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(new ExternalVocabularyClient.TermRequest("https://example.org/" + i, baseUri + "/terms/" + i, headers));
+        }
+        requests.add(new ExternalVocabularyClient.TermRequest("https://example.org/down", baseUri + "/down/1", null));
+
+        Map<String, JsonObject> results = client.retrieveAll(requests);
+
+        assertEquals(50, results.size());
+        assertEquals("Term 7", results.get("https://example.org/7").getString("termName"));
+        assertEquals("secret", results.get("https://example.org/7").getString("token"));
+        assertFalse(results.containsKey("https://example.org/down"));
+        assertEquals(50, termRequests.get());
+    }
+
+    @Test
+    public void testRetrieveAllAsync() {
+        List<ExternalVocabularyClient.TermRequest> requests = List.of(
+                new ExternalVocabularyClient.TermRequest("https://example.org/1", baseUri + "/terms/1", null),
+                new ExternalVocabularyClient.TermRequest("https://example.org/down", baseUri + "/down/1", null));
+
+        Map<String, JsonObject> results = client.retrieveAllAsync(requests).join();
+
+        assertEquals(1, results.size());
+        assertEquals("Term 1", results.get("https://example.org/1").getString("termName"));
+        assertEquals(0, client.retrieveAllAsync(List.of()).join().size());
+    }
+
+    @Test
+    public void testFailedUriIsNotRetriedRightAway() {
+        List<ExternalVocabularyClient.TermRequest> requests = List.of(
+                new ExternalVocabularyClient.TermRequest("https://example.org/down", baseUri + "/down/1", null));
+
+        assertEquals(0, client.retrieveAll(requests).size());
+        assertEquals(1, failingRequests.get());
+
+        assertEquals(0, client.retrieveAll(requests).size());
+        assertEquals(1, failingRequests.get());
+    }
+
+    @Test
+    public void testFailedUriIsRetriedLater() {
+        client.close();
+        client = new ExternalVocabularyClient(4, 0L, Executors.defaultThreadFactory());
+        List<ExternalVocabularyClient.TermRequest> requests = List.of(
+                new ExternalVocabularyClient.TermRequest("https://example.org/down", baseUri + "/down/1", null));
+
+        client.retrieveAll(requests);
+        client.retrieveAll(requests);
+        assertEquals(2, failingRequests.get());
+    }
+}
@@ -0,0 +1,124 @@
+package edu.harvard.iq.dataverse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.harvard.iq.dataverse.util.SystemConfig;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class MailOutboxDispatcherServiceBeanTest {
+
+    private MailOutboxDispatcherServiceBean dispatcher;
+    private Transport transport;
+    private MailOutboxMessage message;
+
+    @BeforeEach
+    public void setUp() throws MessagingException {
+        dispatcher = new MailOutboxDispatcherServiceBean();
+        dispatcher.outboxService = mock(MailOutboxServiceBean.class);
+        dispatcher.mailService = mock(MailServiceBean.class);
+        dispatcher.systemConfig = mock(SystemConfig.class);
+        dispatcher.metricRegistry = mock(MetricRegistry.class, Mockito.RETURNS_DEEP_STUBS);
+        dispatcher.session = mock(Session.class);
+        transport = mock(Transport.class);
+        when(dispatcher.session.getTransport()).thenReturn(transport);
+        when(dispatcher.mailService.getSystemAddress()).thenReturn(Optional.of(new InternetAddress("system@example.org")));
+        when(dispatcher.mailService.createSystemMessage(any(), any(), any(), any(), anyBoolean())).thenReturn(mock(MimeMessage.class));
+        dispatcher.init();
+
+        message = new MailOutboxMessage("good@example.org, bad@example.org", "Subject", "Body", false, new UserNotification(),
+                new Timestamp(System.currentTimeMillis()));
+        when(dispatcher.outboxService.findDue(anyInt())).thenReturn(List.of(message));
+    }
+
+    @Test
+    public void testDelivered() {
+        dispatcher.dispatch(null);
+
+        verify(dispatcher.outboxService).recordDelivery(message);
+    }
+
+    @Test
+    public void testRetriedLater() throws MessagingException {
+        doThrow(new MessagingException("Try again later")).when(transport).sendMessage(any(), any());
+
+        dispatcher.dispatch(null);
+
+        verify(dispatcher.outboxService).recordFailure(eq(message), eq("Try again later"), notNull(), isNull());
+        verify(dispatcher.outboxService, never()).recordDelivery(any());
+    }
+
+    @Test
+    public void testRetriedLaterWhenTheServerCantBeReached() throws MessagingException {
+        doThrow(new MessagingException("Connection refused")).when(transport).connect();
+
+        dispatcher.dispatch(null);
+
+        verify(dispatcher.outboxService).recordFailure(eq(message), eq("Connection refused"), notNull(), isNull());
+    }
+
+    @Test
+    public void testGivenUpAfterTheLastAttempt() throws MessagingException {
+        message.setAttempts(7);
+        doThrow(new MessagingException("Try again later")).when(transport).sendMessage(any(), any());
+
+        dispatcher.dispatch(null);
+
+        verify(dispatcher.outboxService).recordFailure(eq(message), eq("Try again later"), isNull());
+    }
+
+    @Test
+    public void testGivenUpWhenAllRecipientsAreRejected() throws MessagingException {
+        Address[] rejected = InternetAddress.parse("good@example.org, bad@example.org");
+        doThrow(new SendFailedException("Rejected", null, new Address[0], new Address[0], rejected))
+                .when(transport).sendMessage(any(), any());
+
+        dispatcher.dispatch(null);
+
+        verify(dispatcher.outboxService).recordFailure(eq(message), eq("Rejected"), isNull());
+    }
+
+    @Test
+    public void testRetriedForTheRecipientsNotRejected() throws MessagingException {
+        doThrow(new SendFailedException("Partly rejected", null, new Address[0],
+                InternetAddress.parse("good@example.org"), InternetAddress.parse("bad@example.org")))
+                .when(transport).sendMessage(any(), any());
+
+        dispatcher.dispatch(null);
+
+        verify(dispatcher.outboxService).recordFailure(eq(message), eq("Partly rejected"), notNull(), eq("good@example.org"));
+    }
+
+    @Test
+    public void testGetRetryDelay() {
+        assertEquals(10, MailOutboxDispatcherServiceBean.getRetryDelay(5, 1));
+        assertEquals(20, MailOutboxDispatcherServiceBean.getRetryDelay(5, 2));
+        assertEquals(640, MailOutboxDispatcherServiceBean.getRetryDelay(5, 7));
+        // capped at an hour:
+        assertEquals(3600, MailOutboxDispatcherServiceBean.getRetryDelay(5, 10));
+        assertEquals(3600, MailOutboxDispatcherServiceBean.getRetryDelay(5, 1000));
+    }
+}
@@ -4,6 +4,7 @@ import edu.harvard.iq.dataverse.branding.BrandingUtil;
 import edu.harvard.iq.dataverse.settings.JvmSettings;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 import edu.harvard.iq.dataverse.util.MailSessionProducer;
+import edu.harvard.iq.dataverse.util.SystemConfig;
 import edu.harvard.iq.dataverse.util.testing.JvmSetting;
 import edu.harvard.iq.dataverse.util.testing.LocalJvmSettings;
 import edu.harvard.iq.dataverse.util.testing.Tags;
@@ -16,6 +17,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.testcontainers.containers.GenericContainer;
@@ -23,6 +25,7 @@ import org.testcontainers.containers.wait.strategy.Wait;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 import static io.restassured.RestAssured.given;
@@ -140,4 +143,28 @@ class MailServiceBeanIT {
         assertFalse(mailer.sendSystemEmail(to, "Test", "Test", false));
     }
     
-}
\ No newline at end of file
+    @Test
+    void deliverQueuedMail() {
+        // given
+        MailOutboxDispatcherServiceBean dispatcher = new MailOutboxDispatcherServiceBean();
+        dispatcher.session = new MailSessionProducer().getSession();
+        dispatcher.mailService = new MailServiceBean(dispatcher.session, settingsServiceBean);
+        dispatcher.outboxService = Mockito.mock(MailOutboxServiceBean.class);
+        dispatcher.systemConfig = Mockito.mock(SystemConfig.class);
+        dispatcher.metricRegistry = Mockito.mock(MetricRegistry.class, Mockito.RETURNS_DEEP_STUBS);
+        dispatcher.init();
+        MailOutboxMessage message = new MailOutboxMessage("queued@example.org", "Queued", "Test", false, null, new Timestamp(System.currentTimeMillis()));
+        Mockito.when(dispatcher.outboxService.findDue(Mockito.anyInt())).thenReturn(List.of(message));
+        
+        // when
+        dispatcher.dispatch(null);
+        
+        // then
+        Mockito.verify(dispatcher.outboxService).recordDelivery(message);
+        given().when().get("/messages")
+            .then()
+            .statusCode(200)
+            .body("last().recipients.first()", equalTo("<queued@example.org>"));
+    }
+    
+}
@@ -0,0 +1,68 @@
+package edu.harvard.iq.dataverse;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MetadataSchemaSnapshotTest {
+
+    private MetadataSchemaSnapshot snapshot;
+
+    @BeforeEach
+    public void setUp() {
+        DatasetFieldType subject = new DatasetFieldType("subject", DatasetFieldType.FieldType.TEXT, true);
+        subject.setId(20L);
+        DatasetFieldType language = new DatasetFieldType("language", DatasetFieldType.FieldType.TEXT, true);
+        language.setId(10L);
+        DatasetFieldType duplicate1 = new DatasetFieldType("duplicate", DatasetFieldType.FieldType.TEXT, false);
+        duplicate1.setId(30L);
+        DatasetFieldType duplicate2 = new DatasetFieldType("duplicate", DatasetFieldType.FieldType.TEXT, false);
+        duplicate2.setId(31L);
+
+        ControlledVocabularyValue english = new ControlledVocabularyValue(100L, "English", language);
+        english.setIdentifier("eng");
+        ControlledVocabularyValue french = new ControlledVocabularyValue(101L, "French", language);
+        ControlledVocabularyValue other1 = new ControlledVocabularyValue(200L, "Other", subject);
+        ControlledVocabularyValue other2 = new ControlledVocabularyValue(201L, "Other", subject);
+        ControlledVocabularyValue na = new ControlledVocabularyValue(1L, DatasetField.NA_VALUE, null);
+
+        ControlledVocabAlternate francais = new ControlledVocabAlternate();
+        francais.setId(1000L);
+        francais.setStrValue("Français");
+        francais.setDatasetFieldType(language);
+        francais.setControlledVocabularyValue(french);
+
+        snapshot = new MetadataSchemaSnapshot(List.of(subject, language, duplicate1, duplicate2),
+                List.of(english, french, other1, other2, na),
+                List.of(francais));
+    }
+
+    @Test
+    public void testDatasetFieldTypes() {
+        assertEquals(10L, snapshot.getDatasetFieldTypeId("language"));
+        assertEquals(20L, snapshot.getDatasetFieldTypeId("subject"));
+        assertNull(snapshot.getDatasetFieldTypeId("nonExistent"));
+        // not unique, like the query it replaces:
+        assertNull(snapshot.getDatasetFieldTypeId("duplicate"));
+
+        assertEquals(List.of(10L, 20L, 30L, 31L),
+                snapshot.getDatasetFieldTypesOrderedById().stream().map(DatasetFieldType::getId).toList());
+    }
+
+    @Test
+    public void testControlledVocabularyValues() {
+        assertEquals(100L, snapshot.getControlledVocabularyValueId(10L, "English", false));
+        assertEquals(100L, snapshot.getControlledVocabularyValueIdByIdentifier(10L, "eng"));
+        // values are looked up within their own field type:
+        assertNull(snapshot.getControlledVocabularyValueId(20L, "English", false));
+        assertNull(snapshot.getControlledVocabularyValueId(20L, "Other", false));
+
+        assertNull(snapshot.getControlledVocabularyValueId(10L, "Français", false));
+        assertEquals(101L, snapshot.getControlledVocabularyValueId(10L, "Français", true));
+
+        assertEquals(1L, snapshot.getNAControlledVocabularyValueId());
+    }
+}
@@ -0,0 +1,35 @@
+package edu.harvard.iq.dataverse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class QueueBackoffTest {
+
+    @Test
+    public void testGetRetryDelay() {
+        assertEquals(10, QueueBackoff.getRetryDelay(5, 1));
+        assertEquals(20, QueueBackoff.getRetryDelay(5, 2));
+        assertEquals(640, QueueBackoff.getRetryDelay(5, 7));
+        // capped at an hour:
+        assertEquals(3600, QueueBackoff.getRetryDelay(5, 10));
+        assertEquals(3600, QueueBackoff.getRetryDelay(5, 1000));
+        assertEquals(2560, new QueueBackoff(10, 8).getRetryDelay(8));
+    }
+
+    @Test
+    public void testIsLastAttempt() {
+        QueueBackoff backoff = new QueueBackoff(10, 8);
+        assertFalse(backoff.isLastAttempt(7));
+        assertTrue(backoff.isLastAttempt(8));
+    }
+
+    @Test
+    public void testRunsDontOverlap() {
+        QueueBackoff backoff = new QueueBackoff(10, 8);
+        assertTrue(backoff.start());
+        assertFalse(backoff.start());
+        backoff.finish();
+        assertTrue(backoff.start());
+    }
+}
@@ -0,0 +1,124 @@
+package edu.harvard.iq.dataverse;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.harvard.iq.dataverse.util.SystemConfig;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class StorageCleanupDispatcherServiceBeanTest {
+
+    private static final String LOCATION = "s3://bucket/10.5072/FK2/ABCDEF/18b39722140-50eb7d3c5ece";
+    private static final String OTHER_LOCATION = "s3://bucket/10.5072/FK2/ABCDEF/18b39722141-0123456789ab";
+
+    @Mock
+    private StorageCleanupServiceBean cleanupService;
+    @Mock
+    private SystemConfig systemConfig;
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private MetricRegistry metricRegistry;
+
+    private StorageCleanupDispatcherServiceBean dispatcher;
+    private StorageCleanupTask task;
+    private StorageCleanupTask otherTask;
+
+    @BeforeEach
+    public void setUp() {
+        // (a spy, for the deletes from storage to be stubbed)
+        dispatcher = spy(new StorageCleanupDispatcherServiceBean());
+        dispatcher.cleanupService = cleanupService;
+        dispatcher.systemConfig = systemConfig;
+        dispatcher.metricRegistry = metricRegistry;
+        dispatcher.init();
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        task = new StorageCleanupTask(42L, LOCATION, now);
+        otherTask = new StorageCleanupTask(43L, OTHER_LOCATION, now);
+        when(cleanupService.findDue(anyInt())).thenReturn(List.of(task, otherTask));
+    }
+
+    @Test
+    public void testDeleted() {
+        doReturn(Map.of()).when(dispatcher).deleteAll(any());
+
+        dispatcher.dispatch(null);
+
+        verify(dispatcher).deleteAll(Set.of(LOCATION, OTHER_LOCATION));
+        verify(cleanupService).delete(argThat(ids -> ids.size() == 2));
+        verify(cleanupService, never()).recordFailure(any(), any(), any());
+    }
+
+    @Test
+    public void testGivenUpWhenTheDataFileStillExists() {
+        when(cleanupService.findExisting(Set.of(42L, 43L))).thenReturn(List.of(42L));
+        doReturn(Map.of()).when(dispatcher).deleteAll(any());
+
+        dispatcher.dispatch(null);
+
+        verify(dispatcher).deleteAll(Set.of(OTHER_LOCATION));
+        verify(cleanupService).recordFailure(eq(task), any(), isNull());
+        verify(cleanupService).delete(argThat(ids -> ids.size() == 1));
+    }
+
+    @Test
+    public void testGivenUpWhenAnotherDataFileUsesTheFile() {
+        when(cleanupService.findInUse(Set.of(LOCATION, OTHER_LOCATION))).thenReturn(Set.of(LOCATION));
+        doReturn(Map.of()).when(dispatcher).deleteAll(any());
+
+        dispatcher.dispatch(null);
+
+        verify(dispatcher).deleteAll(Set.of(OTHER_LOCATION));
+        verify(cleanupService).recordFailure(eq(task), any(), isNull());
+    }
+
+    @Test
+    public void testNothingDeletedWhenAllAreInUse() {
+        when(cleanupService.findExisting(Set.of(42L, 43L))).thenReturn(List.of(42L, 43L));
+
+        dispatcher.dispatch(null);
+
+        verify(dispatcher, never()).deleteAll(any());
+        verify(cleanupService, never()).delete(any());
+    }
+
+    @Test
+    public void testRetriedLaterWhenSomeCantBeDeleted() {
+        doReturn(Map.of(OTHER_LOCATION, "AccessDenied: Access Denied")).when(dispatcher).deleteAll(any());
+
+        dispatcher.dispatch(null);
+
+        verify(cleanupService).delete(argThat(ids -> ids.size() == 1));
+        verify(cleanupService).recordFailure(eq(otherTask), eq("AccessDenied: Access Denied"), notNull());
+        verify(cleanupService, never()).recordFailure(eq(task), any(), any());
+    }
+
+    @Test
+    public void testGivenUpAfterTheLastAttempt() {
+        otherTask.setAttempts(7);
+        doReturn(Map.of(OTHER_LOCATION, "AccessDenied: Access Denied")).when(dispatcher).deleteAll(any());
+
+        dispatcher.dispatch(null);
+
+        verify(cleanupService).recordFailure(eq(otherTask), eq("AccessDenied: Access Denied"), isNull());
+    }
+}
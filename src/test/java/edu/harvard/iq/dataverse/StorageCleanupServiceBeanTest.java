@@ -0,0 +1,26 @@
+package edu.harvard.iq.dataverse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class StorageCleanupServiceBeanTest {
+
+    @Test
+    public void testGetStorageId() {
+        assertEquals("18b39722140-50eb7d3c5ece", StorageCleanupServiceBean.getStorageId("s3://bucket/10.5072/FK2/ABCDEF/18b39722140-50eb7d3c5ece"));
+        assertEquals("18b39722140-50eb7d3c5ece", StorageCleanupServiceBean.getStorageId("file:///data/10.5072/FK2/ABCDEF/18b39722140-50eb7d3c5ece"));
+        assertEquals("18b39722140-50eb7d3c5ece", StorageCleanupServiceBean.getStorageId("swift://container:18b39722140-50eb7d3c5ece"));
+    }
+
+    @Test
+    public void testGetStorageIdentifiers() {
+        assertEquals(Set.of("18b39722140-50eb7d3c5ece", "s3://18b39722140-50eb7d3c5ece", "s3://bucket:18b39722140-50eb7d3c5ece"),
+                StorageCleanupServiceBean.getStorageIdentifiers("s3://bucket/10.5072/FK2/ABCDEF/18b39722140-50eb7d3c5ece"));
+        assertEquals(Set.of("18b39722140-50eb7d3c5ece", "file://18b39722140-50eb7d3c5ece"),
+                StorageCleanupServiceBean.getStorageIdentifiers("file:///data/10.5072/FK2/ABCDEF/18b39722140-50eb7d3c5ece"));
+        assertEquals(Set.of("18b39722140-50eb7d3c5ece", "swift://18b39722140-50eb7d3c5ece", "swift://container:18b39722140-50eb7d3c5ece"),
+                StorageCleanupServiceBean.getStorageIdentifiers("swift://container:18b39722140-50eb7d3c5ece"));
+    }
+}
@@ -0,0 +1,99 @@
+package edu.harvard.iq.dataverse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.harvard.iq.dataverse.dataaccess.ImageThumbConverter;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.testing.JvmSetting;
+import edu.harvard.iq.dataverse.util.testing.LocalJvmSettings;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.microprofile.metrics.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@LocalJvmSettings
+public class ThumbnailGenerationServiceBeanTest {
+
+    private ThumbnailGenerationServiceBean service;
+    private DataFile dataFile;
+
+    @BeforeEach
+    public void setUp() {
+        service = new ThumbnailGenerationServiceBean();
+        service.dataFileService = mock(DataFileServiceBean.class);
+        service.managedThreadFactory = mock(ManagedThreadFactory.class);
+        when(service.managedThreadFactory.newThread(any(Runnable.class)))
+                .thenAnswer(invocation -> new Thread((Runnable) invocation.getArgument(0)));
+        service.generationTimer = mock(Timer.class);
+        service.queueWaitTimer = mock(Timer.class);
+        service.init();
+
+        dataFile = new DataFile("image/png");
+        dataFile.setId(42L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @JvmSetting(key = JvmSettings.THUMBNAILS_MAX_WAIT, value = "50")
+    public void testConcurrentRequestsShareOneGeneration() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(service.dataFileService.find(42L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+
+        // neither request waits for the generation longer than max-wait:
+        assertNull(service.awaitThumbnail(dataFile, 64));
+        assertTrue(service.isPending(dataFile, 64));
+        assertNull(service.awaitThumbnail(dataFile, 64));
+        release.countDown();
+
+        for (int i = 0; i < 100 && service.isPending(dataFile, 64); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(service.isPending(dataFile, 64));
+        // both requests were served by the one generation
+        verify(service.dataFileService, times(1)).find(42L);
+    }
+
+    @Test
+    public void testNoThumbnailForAFileThatIsGone() {
+        when(service.dataFileService.find(42L)).thenReturn(null);
+
+        assertEquals(Boolean.FALSE, service.awaitThumbnail(dataFile, 64));
+        verify(service.dataFileService, never()).setPreviewImageStatus(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    public void testQueueSkipsFilesNotNeedingThumbnails() {
+        DataFile unsaved = new DataFile("image/png");
+        DataFile done = new DataFile("image/png");
+        done.setId(43L);
+        done.setPreviewImageAvailable(true);
+        DataFile failed = new DataFile("image/png");
+        failed.setId(44L);
+        failed.setPreviewImageFail(true);
+
+        service.queueThumbnails(List.of(unsaved, done, failed));
+
+        assertFalse(service.isPending(done, ImageThumbConverter.DEFAULT_PREVIEW_SIZE));
+        assertFalse(service.isPending(failed, ImageThumbConverter.DEFAULT_PREVIEW_SIZE));
+        verify(service.dataFileService, never()).find(anyLong());
+    }
+}
@@ -0,0 +1,47 @@
+package edu.harvard.iq.dataverse.api.util;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.testing.JvmSetting;
+import edu.harvard.iq.dataverse.util.testing.LocalJvmSettings;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.core.EntityTag;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@LocalJvmSettings
+class HttpCachingTest {
+
+    @Test
+    void testEntityTagIsStable() {
+        Date lastUpdate = new Date(1700000000000L);
+        EntityTag first = HttpCaching.entityTag("export", 1L, 2L, lastUpdate, "ddi");
+        EntityTag second = HttpCaching.entityTag("export", 1L, 2L, new Date(lastUpdate.getTime()), "ddi");
+
+        assertEquals(first, second);
+        assertFalse(first.isWeak());
+    }
+
+    @Test
+    void testEntityTagChangesWithTheParts() {
+        Date lastUpdate = new Date(1700000000000L);
+        EntityTag tag = HttpCaching.entityTag("export", 1L, 2L, lastUpdate, "ddi");
+
+        assertNotEquals(tag, HttpCaching.entityTag("export", 1L, 2L, lastUpdate, "dataverse_json"));
+        assertNotEquals(tag, HttpCaching.entityTag("export", 1L, 3L, lastUpdate, "ddi"));
+        assertNotEquals(tag, HttpCaching.entityTag("export", 1L, 2L, new Date(lastUpdate.getTime() + 1), "ddi"));
+    }
+
+    @Test
+    void testDefaultMaxAge() {
+        assertEquals(3600, HttpCaching.publicCacheControl().getMaxAge());
+        assertFalse(HttpCaching.publicCacheControl().isPrivate());
+    }
+
+    @Test
+    @JvmSetting(key = JvmSettings.API_CACHE_MAX_AGE, value = "60")
+    void testConfiguredMaxAge() {
+        assertEquals(60, HttpCaching.publicCacheControl().getMaxAge());
+    }
+}
@@ -22,6 +22,7 @@ import java.io.InputStreamReader;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -291,6 +292,14 @@ public class FileAccessIOTest {
         assertEquals("This is a test string\n", sb.toString());
     }
     
+    @Test
+    public void testListObjectSizes() throws IOException {
+        Map<String, Long> objectSizes = datasetAccess.listObjectSizes();
+        assertEquals(2, objectSizes.size());
+        assertEquals(Long.valueOf(21), objectSizes.get("Dataset"));
+        assertEquals(Long.valueOf(0), objectSizes.get("DataFile"));
+    }
+
     @Test
     public void testFileIdentifierFormats() throws IOException {
         System.setProperty("dataverse.files.filetest.type", "file");
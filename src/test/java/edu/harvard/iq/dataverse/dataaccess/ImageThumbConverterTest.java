@@ -0,0 +1,46 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ImageThumbConverterTest {
+
+    @Test
+    public void testGetSubsamplingFactor() {
+        // small images are decoded in full:
+        assertEquals(1, ImageThumbConverter.getSubsamplingFactor(100, 80, ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE));
+        assertEquals(1, ImageThumbConverter.getSubsamplingFactor(800, 600, ImageThumbConverter.DEFAULT_PREVIEW_SIZE));
+        // the longest side is what counts:
+        assertEquals(10, ImageThumbConverter.getSubsamplingFactor(1280, 200, ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE));
+        assertEquals(10, ImageThumbConverter.getSubsamplingFactor(200, 1280, ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE));
+        // a 200 megapixel image, for the preview size:
+        assertEquals(20, ImageThumbConverter.getSubsamplingFactor(16320, 12240, ImageThumbConverter.DEFAULT_PREVIEW_SIZE));
+        assertEquals(1, ImageThumbConverter.getSubsamplingFactor(16320, 12240, 0));
+    }
+
+    @Test
+    public void testReadImageSubsampled() throws IOException {
+        BufferedImage image = new BufferedImage(1280, 640, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+
+        BufferedImage decoded = ImageThumbConverter.readImage(new ByteArrayInputStream(png.toByteArray()), ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE);
+
+        assertNotNull(decoded);
+        assertEquals(128, decoded.getWidth());
+        assertEquals(64, decoded.getHeight());
+    }
+
+    @Test
+    public void testReadImageNotAnImage() throws IOException {
+        assertNull(ImageThumbConverter.readImage(new ByteArrayInputStream("not an image".getBytes()), ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE));
+    }
+}
@@ -0,0 +1,85 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyRangedInputStreamTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+    private final List<Long> requests = new ArrayList<>();
+
+    private InputStream open(long start) {
+        requests.add(start);
+        return new ByteArrayInputStream(CONTENT, (int) start, CONTENT.length - (int) start);
+    }
+
+    @Test
+    void testNotOpenedUntilRead() throws IOException {
+        try (LazyRangedInputStream in = new LazyRangedInputStream(this::open, CONTENT.length)) {
+            assertFalse(in.isOpened());
+            assertEquals(0, in.available());
+            assertTrue(requests.isEmpty());
+
+            assertEquals('0', in.read());
+            assertTrue(in.isOpened());
+        }
+        assertEquals(List.of(0L), requests);
+    }
+
+    @Test
+    void testClosedWithoutReading() throws IOException {
+        LazyRangedInputStream in = new LazyRangedInputStream(this::open, CONTENT.length);
+        in.close();
+        assertTrue(requests.isEmpty());
+        assertThrows(IOException.class, () -> in.read());
+    }
+
+    @Test
+    void testSkipMovesTheStartOfTheRequest() throws IOException {
+        try (LazyRangedInputStream in = new LazyRangedInputStream(this::open, CONTENT.length)) {
+            assertEquals(4, in.skip(4));
+            assertEquals(2, in.skip(2));
+            assertTrue(requests.isEmpty());
+
+            assertEquals("6789", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(List.of(6L), requests);
+    }
+
+    @Test
+    void testSkipPastTheEnd() throws IOException {
+        try (LazyRangedInputStream in = new LazyRangedInputStream(this::open, CONTENT.length)) {
+            assertEquals(CONTENT.length, in.skip(100));
+            assertEquals(-1, in.read());
+            assertEquals(-1, in.read(new byte[4], 0, 4));
+        }
+        // nothing left to request
+        assertTrue(requests.isEmpty());
+    }
+
+    @Test
+    void testSkipWithUnknownSize() throws IOException {
+        try (LazyRangedInputStream in = new LazyRangedInputStream(this::open, -1)) {
+            assertEquals(3, in.skip(3));
+            assertEquals('3', in.read());
+        }
+        assertEquals(List.of(3L), requests);
+    }
+
+    @Test
+    void testEmptyObjectIsNotRequested() throws IOException {
+        try (LazyRangedInputStream in = new LazyRangedInputStream(this::open, 0)) {
+            assertEquals(-1, in.read());
+        }
+        assertTrue(requests.isEmpty());
+    }
+}
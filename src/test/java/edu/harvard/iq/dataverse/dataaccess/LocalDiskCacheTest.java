@@ -0,0 +1,306 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.DataTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalDiskCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private LocalDiskCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @BeforeEach
+    void setup() throws IOException {
+        cache = new LocalDiskCache("test", directory, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private LocalDiskCache.Loader loaderOf(String content) {
+        return () -> {
+            loads.incrementAndGet();
+            return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private String read(String key, String version, String content) throws IOException {
+        try (InputStream in = cache.getInputStream(key, version, content.length(), null, null, loaderOf(content))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String md5(String content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testReadThrough() throws IOException {
+        assertEquals("hello", read("a", "v1", "hello"));
+        assertEquals("hello", read("a", "v1", "hello"));
+        assertEquals(1, loads.get());
+        assertTrue(cache.contains("a"));
+        assertEquals(5, cache.getTotalSize());
+    }
+
+    @Test
+    void testOtherVersionIsNotUsed() throws IOException {
+        assertEquals("hello", read("a", "v1", "hello"));
+        assertEquals("world", read("a", "v2", "world"));
+        assertEquals(2, loads.get());
+        assertEquals(5, cache.getTotalSize());
+    }
+
+    @Test
+    void testOtherSizeIsNotUsed() throws IOException {
+        assertEquals("hello", read("a", "v1", "hello"));
+        // e.g. re-ingested, under the same checksum:
+        assertEquals("hello!", read("a", "v1", "hello!"));
+        assertEquals(2, loads.get());
+        assertEquals(6, cache.getTotalSize());
+    }
+
+    @Test
+    void testVersionOfDataFile() {
+        DataFile dataFile = new DataFile("text/csv");
+        dataFile.setChecksumValue("0123456789abcdef");
+        dataFile.setFilesize(5);
+        String original = LocalDiskCache.getVersion(dataFile);
+
+        dataFile.setFilesize(6);
+        String resized = LocalDiskCache.getVersion(dataFile);
+        assertNotEquals(original, resized);
+
+        DataTable dataTable = new DataTable();
+        dataTable.setId(42L);
+        dataFile.setDataTable(dataTable);
+        assertNotEquals(resized, LocalDiskCache.getVersion(dataFile));
+    }
+
+    @Test
+    void testNotOpenedUntilRead() throws IOException {
+        InputStream in = cache.getInputStream("a", "v1", 5, null, null, loaderOf("hello"));
+        in.close();
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void testSkip() throws IOException {
+        read("a", "v1", "hello");
+        try (InputStream in = cache.getInputStream("a", "v1", 5, null, null, loaderOf("hello"))) {
+            assertEquals(3, in.skip(3));
+            assertEquals("lo", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() throws IOException {
+        String content = "x".repeat(100);
+        for (int i = 0; i < 10; i++) {
+            read("key" + i, "v1", content);
+        }
+        // key0 used again, so key1 is the least recently used one:
+        read("key0", "v1", content);
+        read("key10", "v1", content);
+
+        assertTrue(cache.contains("key0"));
+        assertFalse(cache.contains("key1"));
+        assertTrue(cache.contains("key10"));
+        assertEquals(1000, cache.getTotalSize());
+        try (var files = Files.list(directory)) {
+            assertEquals(10, files.count());
+        }
+    }
+
+    @Test
+    void testLargeObjectIsNotCached() throws IOException {
+        String content = "x".repeat(101);
+        assertEquals(content, read("a", "v1", content));
+        assertFalse(cache.contains("a"));
+    }
+
+    @Test
+    void testLargeObjectOfUnknownSizeIsReadOnce() throws IOException {
+        String content = "x".repeat(101);
+        try (InputStream in = cache.getInputStream("a", "v1", -1, null, null, loaderOf(content))) {
+            assertEquals(content, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertFalse(cache.contains("a"));
+        assertEquals(1, loads.get());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testChecksumIsVerified() throws Exception {
+        try (InputStream in = cache.getInputStream("a", "v1", 5, DataFile.ChecksumType.MD5, md5("hello"), loaderOf("hello"))) {
+            assertEquals("hello", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(cache.contains("a"));
+
+        // the object in the store is not what the database says it is:
+        try (InputStream in = cache.getInputStream("b", "v1", 5, DataFile.ChecksumType.MD5, md5("hello"), loaderOf("world"))) {
+            assertEquals("world", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertFalse(cache.contains("b"));
+    }
+
+    @Test
+    void testCachedWhileRead() throws IOException {
+        try (InputStream in = cache.getInputStream("a", "v1", 5, null, null, loaderOf("hello"))) {
+            assertEquals('h', in.read());
+            assertFalse(cache.contains("a"));
+            assertEquals("ello", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(cache.contains("a"));
+        assertEquals("hello", read("a", "v1", "hello"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testNotCachedWhenClosedBeforeTheEnd() throws IOException {
+        try (InputStream in = cache.getInputStream("a", "v1", 5, null, null, loaderOf("hello"))) {
+            assertEquals('h', in.read());
+        }
+        assertFalse(cache.contains("a"));
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testRangeIsNotCached() throws IOException {
+        try (InputStream in = cache.getInputStream("a", "v1", 5, null, null, loaderOf("hello"))) {
+            assertEquals(3, in.skip(3));
+            assertEquals("lo", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertFalse(cache.contains("a"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testConcurrentMissesAreLoadedOnce() throws Exception {
+        InputStream first = cache.getInputStream("a", "v1", 5, null, null, loaderOf("hello"));
+        assertEquals('h', first.read());
+        // another thread waits for the first read to be copied into the cache:
+        Future<String> second = executor.submit(() -> read("a", "v1", "hello"));
+        Thread.sleep(200);
+        assertFalse(second.isDone());
+        assertEquals("ello", new String(first.readAllBytes(), StandardCharsets.UTF_8));
+        first.close();
+
+        assertEquals("hello", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testConcurrentMissReadsTheStoreWhenTheCopyIsDropped() throws Exception {
+        InputStream first = cache.getInputStream("a", "v1", 5, null, null, loaderOf("hello"));
+        assertEquals('h', first.read());
+        Future<String> second = executor.submit(() -> read("a", "v1", "hello"));
+        Thread.sleep(200);
+        // closed before the end, so not cached:
+        first.close();
+
+        assertEquals("hello", second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, loads.get());
+        assertTrue(cache.contains("a"));
+    }
+
+    @Test
+    void testMissOnTheSameThreadIsNotKeptWaiting() throws IOException {
+        InputStream first = cache.getInputStream("a", "v1", 5, null, null, loaderOf("hello"));
+        assertEquals('h', first.read());
+        // read from the store while the first read is copied into the cache:
+        assertEquals("hello", read("a", "v1", "hello"));
+        assertEquals(2, loads.get());
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        assertEquals("ello", new String(first.readAllBytes(), StandardCharsets.UTF_8));
+        first.close();
+
+        assertEquals("hello", read("a", "v1", "hello"));
+        assertEquals(2, loads.get());
+    }
+
+    private LocalDiskCache.ConditionalLoader conditionalLoaderOf(String content, String version, List<String> cachedVersions) {
+        return cachedVersion -> {
+            cachedVersions.add(cachedVersion);
+            if (version.equals(cachedVersion)) {
+                return null;
+            }
+            loads.incrementAndGet();
+            return new LocalDiskCache.Loaded(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), version,
+                    content.length());
+        };
+    }
+
+    private String readAux(String key, LocalDiskCache.ConditionalLoader loader) throws IOException {
+        try (InputStream in = cache.getInputStream(key, loader)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void testConditionalReadThrough() throws IOException {
+        List<String> cachedVersions = new ArrayList<>();
+        assertEquals("hello", readAux("a", conditionalLoaderOf("hello", "etag1", cachedVersions)));
+        assertEquals("hello", readAux("a", conditionalLoaderOf("hello", "etag1", cachedVersions)));
+        assertEquals(1, loads.get());
+        // a single request per read, telling the store which version is cached:
+        assertEquals(Arrays.asList(null, "etag1"), cachedVersions);
+
+        // changed in the store:
+        assertEquals("world", readAux("a", conditionalLoaderOf("world", "etag2", cachedVersions)));
+        assertEquals(2, loads.get());
+        assertEquals("world", readAux("a", conditionalLoaderOf("world", "etag2", cachedVersions)));
+        assertEquals(2, loads.get());
+        assertEquals(5, cache.getTotalSize());
+    }
+
+    @Test
+    void testConditionalReadOfMissingObject() throws IOException {
+        assertNull(cache.getInputStream("a", cachedVersion -> null));
+    }
+
+    @Test
+    void testLeftoversAreCleared() throws IOException {
+        read("a", "v1", "hello");
+        Path unrelated = Files.writeString(directory.resolve("unrelated.txt"), "keep");
+        new LocalDiskCache("test", directory, 1000);
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(unrelated), files.toList());
+        }
+    }
+}
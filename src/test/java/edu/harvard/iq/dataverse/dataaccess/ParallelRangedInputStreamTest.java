@@ -0,0 +1,150 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelRangedInputStreamTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final List<long[]> requests = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        return content;
+    }
+
+    private ParallelRangedInputStream.RangeFetcher fetcherOf(byte[] content) {
+        return (start, end) -> {
+            requests.add(new long[]{start, end});
+            return new ByteArrayInputStream(content, (int) start, (int) (end - start + 1));
+        };
+    }
+
+    @Test
+    void testReadsTheWholeObjectInOrder() throws IOException {
+        byte[] content = content(10_000);
+        try (InputStream in = new ParallelRangedInputStream(fetcherOf(content), content.length, 1024, 3, executor)) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        // 10 parts, the last one shorter:
+        assertEquals(10, requests.size());
+        assertTrue(requests.stream().anyMatch(r -> r[0] == 9216 && r[1] == 9999));
+    }
+
+    @Test
+    void testSkipBeforeReadingMovesTheStart() throws IOException {
+        byte[] content = content(5000);
+        try (InputStream in = new ParallelRangedInputStream(fetcherOf(content), content.length, 1000, 2, executor)) {
+            assertEquals(2500, in.skip(2500));
+            assertTrue(requests.isEmpty());
+            assertArrayEquals(Arrays.copyOfRange(content, 2500, 5000), in.readAllBytes());
+        }
+        assertEquals(2500, requests.stream().mapToLong(r -> r[0]).min().getAsLong());
+    }
+
+    @Test
+    void testNoMoreThanParallelismPartsAhead() throws Exception {
+        byte[] content = content(100 * 100);
+        AtomicInteger fetched = new AtomicInteger();
+        ParallelRangedInputStream.RangeFetcher fetcher = (start, end) -> {
+            fetched.incrementAndGet();
+            return new ByteArrayInputStream(content, (int) start, (int) (end - start + 1));
+        };
+        try (InputStream in = new ParallelRangedInputStream(fetcher, content.length, 100, 4, executor)) {
+            assertEquals(content[0], (byte) in.read());
+            // the first part handed out, and 4 more requested:
+            Thread.sleep(200);
+            assertEquals(5, fetched.get());
+        }
+    }
+
+    @Test
+    void testPartsAheadBoundedByThePermits() throws Exception {
+        byte[] content = content(100 * 100);
+        AtomicInteger fetched = new AtomicInteger();
+        ParallelRangedInputStream.RangeFetcher fetcher = (start, end) -> {
+            fetched.incrementAndGet();
+            return new ByteArrayInputStream(content, (int) start, (int) (end - start + 1));
+        };
+        Semaphore permits = new Semaphore(2);
+        try (InputStream in = new ParallelRangedInputStream(fetcher, content.length, 100, 4, executor, permits)) {
+            assertEquals(content[0], (byte) in.read());
+            // the part being read, and the 2 parts there are permits for:
+            Thread.sleep(200);
+            assertEquals(3, fetched.get());
+            assertEquals(0, permits.availablePermits());
+
+            // another stream still gets read, one part at a time:
+            try (InputStream other = new ParallelRangedInputStream(fetcherOf(content), content.length, 1000, 4, executor, permits)) {
+                assertArrayEquals(content, other.readAllBytes());
+            }
+            assertEquals(10, requests.size());
+        }
+        // all given back once the stream is closed:
+        assertEquals(2, permits.availablePermits());
+    }
+
+    @Test
+    void testPermitsGivenBackOnceRead() throws IOException {
+        byte[] content = content(10_000);
+        Semaphore permits = new Semaphore(3);
+        try (InputStream in = new ParallelRangedInputStream(fetcherOf(content), content.length, 1024, 3, executor, permits)) {
+            assertArrayEquals(content, in.readAllBytes());
+            assertEquals(3, permits.availablePermits());
+        }
+        assertEquals(10, requests.size());
+    }
+
+    @Test
+    void testFailedPart() throws IOException {
+        byte[] content = content(3000);
+        ParallelRangedInputStream.RangeFetcher fetcher = (start, end) -> {
+            if (start == 1000) {
+                throw new IOException("part failed");
+            }
+            return new ByteArrayInputStream(content, (int) start, (int) (end - start + 1));
+        };
+        try (InputStream in = new ParallelRangedInputStream(fetcher, content.length, 1000, 2, executor)) {
+            IOException e = assertThrows(IOException.class, () -> in.readAllBytes());
+            assertEquals("part failed", e.getMessage());
+        }
+    }
+
+    @Test
+    void testShortPart() throws IOException {
+        byte[] content = content(3000);
+        ParallelRangedInputStream.RangeFetcher fetcher = (start, end) -> new ByteArrayInputStream(content, (int) start, 10);
+        try (InputStream in = new ParallelRangedInputStream(fetcher, content.length, 1000, 2, executor)) {
+            assertThrows(IOException.class, () -> in.read());
+        }
+    }
+
+    @Test
+    void testReadAfterClose() throws IOException {
+        byte[] content = content(3000);
+        InputStream in = new ParallelRangedInputStream(fetcherOf(content), content.length, 1000, 2, executor);
+        in.close();
+        assertThrows(IOException.class, () -> in.read());
+    }
+}
@@ -5,8 +5,19 @@
 package edu.harvard.iq.dataverse.dataaccess;
 
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
 import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.Dataset;
+import edu.harvard.iq.dataverse.GlobalId;
 import edu.harvard.iq.dataverse.api.UtilIT;
 import edu.harvard.iq.dataverse.mocks.MocksFactory;
 import edu.harvard.iq.dataverse.util.FileUtil;
@@ -16,6 +27,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.junit.jupiter.api.Assertions.*;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
@@ -23,8 +35,17 @@ import org.mockito.quality.Strictness;
 import static org.mockito.Mockito.*;
 import static org.mockito.BDDMockito.*;
 
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @ExtendWith(MockitoExtension.class)
 @MockitoSettings(strictness = Strictness.STRICT_STUBS)
@@ -143,5 +164,178 @@ public class S3AccessIOTest {
         //bad bucket
         assertFalse(DataAccess.isValidDirectStorageIdentifier("s3test://bucket:" + FileUtil.generateStorageIdentifier()));
     }
+
+    @Test
+    void testBatchUploadUrls() throws IOException {
+        // given
+        Dataset owner = mock(Dataset.class);
+        given(owner.getGlobalId()).willReturn(new GlobalId("doi", "10.5072", "FK2ABCDEF", "/", "https://doi.org/", null));
+        given(owner.getAuthorityForFileStorage()).willReturn("10.5072");
+        given(owner.getIdentifierForFileStorage()).willReturn("FK2ABCDEF");
+        given(s3client.generatePresignedUrl(any(GeneratePresignedUrlRequest.class)))
+                .willReturn(new URL("https://thebucket.s3.amazonaws.com/presigned"));
+        InitiateMultipartUploadResult initiation = new InitiateMultipartUploadResult();
+        initiation.setUploadId("upload1");
+        given(s3client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).willReturn(initiation);
+        long partSize = 1024 * 1024 * 1024l;
+
+        // when
+        JsonArray response = dataFileAccess.generateTemporaryS3UploadUrls(owner, List.of(100l, 2 * partSize + 1, 0l)).build();
+
+        // then
+        assertEquals(3, response.size());
+        assertTrue(response.getJsonObject(0).containsKey("url"));
+        assertEquals(3, response.getJsonObject(1).getJsonObject("urls").size());
+        assertTrue(response.getJsonObject(1).getString("complete").contains("uploadid=upload1"));
+        assertTrue(response.getJsonObject(2).containsKey("url"));
+        Set<String> storageIdentifiers = new HashSet<>();
+        for (JsonObject file : response.getValuesAs(JsonObject.class)) {
+            assertTrue(DataAccess.isValidDirectStorageIdentifier(file.getString("storageIdentifier")));
+            storageIdentifiers.add(file.getString("storageIdentifier"));
+        }
+        assertEquals(3, storageIdentifiers.size());
+        // only the multipart upload took a call to S3
+        verify(s3client, times(1)).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testBatchUploadUrlsFailureAbortsTheUploadsInitiated() throws IOException {
+        // given
+        Dataset owner = mock(Dataset.class);
+        given(owner.getGlobalId()).willReturn(new GlobalId("doi", "10.5072", "FK2ABCDEF", "/", "https://doi.org/", null));
+        given(owner.getAuthorityForFileStorage()).willReturn("10.5072");
+        given(owner.getIdentifierForFileStorage()).willReturn("FK2ABCDEF");
+        given(s3client.generatePresignedUrl(any(GeneratePresignedUrlRequest.class)))
+                .willReturn(new URL("https://thebucket.s3.amazonaws.com/presigned"));
+        InitiateMultipartUploadResult initiation = new InitiateMultipartUploadResult();
+        initiation.setUploadId("upload1");
+        given(s3client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .willReturn(initiation)
+                .willThrow(new AmazonS3Exception("SlowDown"));
+        long partSize = 1024 * 1024 * 1024l;
+
+        // when
+        assertThrows(IOException.class,
+                () -> dataFileAccess.generateTemporaryS3UploadUrls(owner, List.of(2 * partSize, 2 * partSize)));
+
+        // then the upload the client won't know about is aborted
+        ArgumentCaptor<AbortMultipartUploadRequest> abort = ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(s3client).abortMultipartUpload(abort.capture());
+        assertEquals("upload1", abort.getValue().getUploadId());
+    }
+
+    @Test
+    void testBatchCompletionNeedsValidGlobalId() {
+        List<S3AccessIO.MultipartUpload> uploads = List.of(new S3AccessIO.MultipartUpload(
+                "s3test://" + FileUtil.generateStorageIdentifier(), "uploadId", List.of()));
+
+        assertThrows(IOException.class, () -> S3AccessIO.completeMultipartUploads(null, uploads));
+        assertThrows(IOException.class, () -> S3AccessIO.completeMultipartUploads("10.5072/FK2ABCDEF", uploads));
+        verifyNoInteractions(s3client);
+    }
+
+    @Test
+    void testDeleteAllInBatches() {
+        String directory = "10.5072/FK2/ABCDEF/";
+        List<String> keys = new ArrayList<>();
+        List<String> locations = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            keys.add(directory + "f" + i);
+            locations.add("s3test://thebucket/" + directory + "f" + i);
+        }
+        keys.add(directory + "f1.orig");
+        // storage identifiers may contain dots themselves:
+        keys.add(directory + "file.with.dots");
+        keys.add(directory + "file.with.dots.orig");
+        locations.add("s3test://thebucket/" + directory + "file.with.dots");
+        // not to be deleted:
+        keys.add(directory + "f1000x");
+        keys.add(directory + "other.orig");
+        givenObjects(keys);
+
+        Map<String, String> failures = S3AccessIO.deleteAll(s3client, locations);
+
+        assertTrue(failures.isEmpty());
+        // the directory is listed once, rather than once per file
+        verify(s3client, times(1)).listObjects(any(ListObjectsRequest.class));
+        List<List<String>> deleted = getDeletedKeys();
+        assertEquals(2, deleted.size());
+        assertEquals(S3AccessIO.MAX_KEYS_PER_DELETE, deleted.get(0).size());
+        Set<String> allDeleted = deleted.stream().flatMap(List::stream).collect(Collectors.toSet());
+        assertEquals(1004, allDeleted.size());
+        assertTrue(allDeleted.containsAll(List.of(directory + "f1.orig", directory + "file.with.dots", directory + "file.with.dots.orig")));
+        assertFalse(allDeleted.contains(directory + "f1000x"));
+        assertFalse(allDeleted.contains(directory + "other.orig"));
+    }
+
+    @Test
+    void testDeleteAllReportsTheFilesNotDeleted() {
+        String directory = "10.5072/FK2/ABCDEF/";
+        givenObjects(List.of(directory + "a1", directory + "a1.orig", directory + "b2"));
+        MultiObjectDeleteException.DeleteError error = new MultiObjectDeleteException.DeleteError();
+        error.setKey(directory + "a1.orig");
+        error.setCode("AccessDenied");
+        error.setMessage("Access Denied");
+        given(s3client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .willThrow(new MultiObjectDeleteException(List.of(error), List.of()));
+
+        Map<String, String> failures = S3AccessIO.deleteAll(s3client,
+                List.of("s3test://thebucket/" + directory + "a1", "s3test://thebucket/" + directory + "b2", "s3test://thebucket"));
+
+        assertEquals(2, failures.size());
+        assertEquals("AccessDenied: Access Denied", failures.get("s3test://thebucket/" + directory + "a1"));
+        assertEquals("Not a valid S3 storage location", failures.get("s3test://thebucket"));
+        assertEquals(Set.of(directory + "a1", directory + "a1.orig", directory + "b2"), Set.copyOf(getDeletedKeys().get(0)));
+    }
+
+    @Test
+    void testCleanUp() throws IOException {
+        String directory = dataSet.getAuthorityForFileStorage() + "/" + dataSet.getIdentifierForFileStorage() + "/";
+        givenObjects(List.of(directory + "keep", directory + "orphan1", directory + "orphan1.orig"));
+
+        List<String> deleted = dataSetAccess.cleanUp(f -> f.startsWith("orphan"), false);
+
+        assertEquals(List.of("orphan1", "orphan1.orig"), deleted);
+        assertEquals(List.of(List.of(directory + "orphan1", directory + "orphan1.orig")), getDeletedKeys());
+    }
+
+    @Test
+    void testCleanUpDryRun() throws IOException {
+        String directory = dataSet.getAuthorityForFileStorage() + "/" + dataSet.getIdentifierForFileStorage() + "/";
+        givenObjects(List.of(directory + "keep", directory + "orphan1"));
+
+        assertEquals(List.of("orphan1"), dataSetAccess.cleanUp(f -> f.startsWith("orphan"), true));
+        verify(s3client, never()).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    /**
+     * Makes the bucket list the objects given.
+     */
+    private void givenObjects(List<String> keys) {
+        given(s3client.listObjects(any(ListObjectsRequest.class))).willAnswer(invocation -> {
+            ListObjectsRequest request = invocation.getArgument(0);
+            ObjectListing listing = new ObjectListing();
+            for (String key : keys) {
+                if (key.startsWith(request.getPrefix())) {
+                    S3ObjectSummary summary = new S3ObjectSummary();
+                    summary.setBucketName(request.getBucketName());
+                    summary.setKey(key);
+                    listing.getObjectSummaries().add(summary);
+                }
+            }
+            return listing;
+        });
+    }
+
+    /**
+     * @return the keys of each multi-object delete made
+     */
+    private List<List<String>> getDeletedKeys() {
+        ArgumentCaptor<DeleteObjectsRequest> requests = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3client, atLeastOnce()).deleteObjects(requests.capture());
+        return requests.getAllValues().stream()
+                .map(request -> request.getKeys().stream().map(DeleteObjectsRequest.KeyVersion::getKey).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
     
 }
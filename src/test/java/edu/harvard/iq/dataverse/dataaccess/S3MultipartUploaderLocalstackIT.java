@@ -0,0 +1,163 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.ListMultipartUploadsRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import edu.harvard.iq.dataverse.util.testing.Tags;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import static org.testcontainers.containers.localstack.LocalStackContainer.Service.S3;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+@Tag(Tags.INTEGRATION_TEST)
+@Tag(Tags.USES_TESTCONTAINERS)
+@Testcontainers(disabledWithoutDocker = true)
+class S3MultipartUploaderLocalstackIT {
+
+    static final String bucketName = "bucket-" + UUID.randomUUID().toString();
+    static final int partSize = S3MultipartUploader.SMALLEST_PART_SIZE;
+    static AmazonS3 s3 = null;
+    static S3MultipartUploader uploader = null;
+    static final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    static DockerImageName localstackImage = DockerImageName.parse("localstack/localstack:2.3.2");
+    @Container
+    static LocalStackContainer localstack = new LocalStackContainer(localstackImage)
+            .withServices(S3);
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @BeforeAll
+    static void setUp() {
+        s3 = AmazonS3ClientBuilder
+                .standard()
+                .withEndpointConfiguration(
+                        new AwsClientBuilder.EndpointConfiguration(
+                                localstack.getEndpoint().toString(),
+                                localstack.getRegion()
+                        )
+                )
+                .withCredentials(
+                        new AWSStaticCredentialsProvider(
+                                new BasicAWSCredentials(localstack.getAccessKey(), localstack.getSecretKey())
+                        )
+                )
+                .build();
+        s3.createBucket(bucketName);
+        uploader = new S3MultipartUploader(s3, partSize, 2, executor, new Semaphore(3));
+    }
+
+    @Test
+    void testUploadOfUnknownLengthInParts() throws IOException {
+        byte[] content = randomBytes(2 * partSize + 1234);
+
+        long uploaded = uploader.upload(bucketName, "unknown-length", new ByteArrayInputStream(content), -1);
+
+        assertEquals(content.length, uploaded);
+        assertArrayEquals(content, read("unknown-length"));
+        assertTrue(s3.getObjectMetadata(bucketName, "unknown-length").getETag().endsWith("-3"));
+    }
+
+    @Test
+    void testUploadOfKnownLengthInParts() throws IOException {
+        byte[] content = randomBytes(partSize + 1);
+
+        long uploaded = uploader.upload(bucketName, "known-length", new ByteArrayInputStream(content), content.length);
+
+        assertEquals(content.length, uploaded);
+        assertArrayEquals(content, read("known-length"));
+    }
+
+    @Test
+    void testUploadOfFileInParts(@TempDir Path directory) throws IOException {
+        byte[] content = randomBytes(partSize + 1);
+        Path file = Files.write(directory.resolve("file"), content);
+
+        uploader.upload(bucketName, "file", file.toFile());
+
+        assertArrayEquals(content, read("file"));
+        assertTrue(s3.getObjectMetadata(bucketName, "file").getETag().endsWith("-2"));
+    }
+
+    @Test
+    void testUploadOfOtherLengthIsAborted() {
+        byte[] content = randomBytes(2 * partSize + 1234);
+
+        assertThrows(IOException.class,
+                () -> uploader.upload(bucketName, "other-length", new ByteArrayInputStream(content), content.length + 1));
+
+        assertFalse(s3.doesObjectExist(bucketName, "other-length"));
+        assertTrue(s3.listMultipartUploads(new ListMultipartUploadsRequest(bucketName).withPrefix("other-length"))
+                .getMultipartUploads().isEmpty());
+    }
+
+    @Test
+    void testUploadOfSmallStreamInOnePut() throws IOException {
+        byte[] content = randomBytes(1000);
+
+        long uploaded = uploader.upload(bucketName, "small", new ByteArrayInputStream(content), -1);
+
+        assertEquals(content.length, uploaded);
+        assertArrayEquals(content, read("small"));
+        assertFalse(s3.getObjectMetadata(bucketName, "small").getETag().contains("-"));
+    }
+
+    @Test
+    void testFailedUploadIsAborted() {
+        InputStream failing = new ByteArrayInputStream(randomBytes(2 * partSize)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos >= partSize + 100) {
+                    throw new IllegalStateException("broken stream");
+                }
+                return super.read(b, off, len);
+            }
+        };
+
+        assertThrows(RuntimeException.class, () -> uploader.upload(bucketName, "failed", failing, -1));
+
+        assertFalse(s3.doesObjectExist(bucketName, "failed"));
+        assertTrue(s3.listMultipartUploads(new ListMultipartUploadsRequest(bucketName).withPrefix("failed"))
+                .getMultipartUploads().isEmpty());
+    }
+
+    private static byte[] read(String key) throws IOException {
+        try (S3Object object = s3.getObject(bucketName, key)) {
+            return object.getObjectContent().readAllBytes();
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
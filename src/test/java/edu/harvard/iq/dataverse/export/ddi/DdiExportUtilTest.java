@@ -1,6 +1,15 @@
 package edu.harvard.iq.dataverse.export.ddi;
 
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.DataTable;
+import edu.harvard.iq.dataverse.DatasetVersion;
+import edu.harvard.iq.dataverse.FileMetadata;
+import edu.harvard.iq.dataverse.datavariable.DataVariable;
+import edu.harvard.iq.dataverse.datavariable.SummaryStatistic;
+import edu.harvard.iq.dataverse.datavariable.VariableCategory;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
+import edu.harvard.iq.dataverse.util.json.JsonPrinter;
+import edu.harvard.iq.dataverse.util.json.JsonUtil;
 import edu.harvard.iq.dataverse.util.xml.XmlPrinter;
 
 import java.io.ByteArrayOutputStream;
@@ -11,6 +20,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.logging.Logger;
 
 import edu.harvard.iq.dataverse.util.xml.html.HtmlPrinter;
@@ -28,6 +38,9 @@ import org.xmlunit.assertj3.XmlAssert;
 import org.xmlunit.builder.DiffBuilder;
 import org.xmlunit.diff.Diff;
 
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
 import javax.xml.stream.XMLStreamException;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -110,6 +123,78 @@ public class DdiExportUtilTest {
         }
     }
 
+    @Test
+    public void testJson2ddiFromVersionMatchesFileDetails() throws Exception {
+        // given
+        JsonObject datasetDtoAsJson = JsonUtil.getJsonObject(Files.readString(
+                Path.of("src/test/java/edu/harvard/iq/dataverse/export/ddi/dataset-finch1.json"), StandardCharsets.UTF_8));
+        DatasetVersion version = new DatasetVersion();
+        version.setFileMetadatas(new ArrayList<>());
+        addFile(version, 10L, "notes.txt", "text/plain", false, 0);
+        addFile(version, 20L, "survey.tab", "text/tab-separated-values", false, 50);
+        addFile(version, 30L, "restricted.tab", "text/tab-separated-values", true, 5);
+
+        JsonArrayBuilder fileDetails = Json.createArrayBuilder();
+        for (FileMetadata fileMetadata : version.getFileMetadatas()) {
+            fileDetails.add(JsonPrinter.json(fileMetadata.getDataFile(), fileMetadata, true));
+        }
+        ByteArrayOutputStream fromFileDetails = new ByteArrayOutputStream();
+        DdiExportUtil.datasetJson2ddi(datasetDtoAsJson, fileDetails.build(), fromFileDetails);
+
+        // when
+        ByteArrayOutputStream fromVersion = new ByteArrayOutputStream();
+        DdiExportUtil.datasetJson2ddi(datasetDtoAsJson, version, fromVersion);
+
+        // then
+        String result = fromVersion.toString(StandardCharsets.UTF_8);
+        assertTrue(result.contains("<var ID=\"v2049\""));
+        assertEquals(fromFileDetails.toString(StandardCharsets.UTF_8), result);
+    }
+
+    private static void addFile(DatasetVersion version, Long id, String label, String contentType, boolean restricted, int numberOfVariables) {
+        DataFile dataFile = new DataFile(contentType);
+        dataFile.setId(id);
+        dataFile.setRestricted(restricted);
+        dataFile.setDataTables(new ArrayList<>());
+        if (numberOfVariables > 0) {
+            DataTable dataTable = new DataTable();
+            dataTable.setId(id);
+            dataTable.setCaseQuantity(100L);
+            dataTable.setVarQuantity((long) numberOfVariables);
+            dataTable.setUnf("UNF:6:table" + id);
+            dataTable.setOriginalFileFormat("application/x-stata");
+            dataTable.setDataVariables(new ArrayList<>());
+            for (int i = 0; i < numberOfVariables; i++) {
+                DataVariable dataVariable = new DataVariable(i, dataTable);
+                dataVariable.setId(id * 100 + i);
+                dataVariable.setName("var" + i);
+                dataVariable.setLabel("Variable " + i);
+                dataVariable.setTypeNumeric();
+                dataVariable.setIntervalDiscrete();
+                dataVariable.setUnf("UNF:6:var" + i);
+                SummaryStatistic mean = new SummaryStatistic();
+                mean.setTypeMean();
+                mean.setValue(String.valueOf(i / 2.0));
+                dataVariable.getSummaryStatistics().add(mean);
+                VariableCategory category = new VariableCategory();
+                category.setValue("1");
+                category.setLabel("Yes");
+                category.setFrequency((double) i);
+                dataVariable.getCategories().add(category);
+                dataTable.getDataVariables().add(dataVariable);
+            }
+            dataFile.setDataTable(dataTable);
+        }
+        FileMetadata fileMetadata = new FileMetadata();
+        fileMetadata.setId(id + 1);
+        fileMetadata.setLabel(label);
+        fileMetadata.setDescription("Description of " + label);
+        fileMetadata.setDataFile(dataFile);
+        fileMetadata.setDatasetVersion(version);
+        dataFile.getFileMetadatas().add(fileMetadata);
+        version.getFileMetadatas().add(fileMetadata);
+    }
+
     @Test
     public void testDatasetHtmlDDI() throws IOException, XMLStreamException {
         // given
@@ -0,0 +1,105 @@
+package edu.harvard.iq.dataverse.globus;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.harvard.iq.dataverse.Dataset;
+import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class GlobusTaskMonitoringServiceBeanTest {
+
+    @Test
+    public void testGetCheckInterval() {
+        assertEquals(50, GlobusTaskMonitoringServiceBean.getCheckInterval(50, 0));
+        assertEquals(50, GlobusTaskMonitoringServiceBean.getCheckInterval(50, 9));
+        assertEquals(100, GlobusTaskMonitoringServiceBean.getCheckInterval(50, 10));
+        assertEquals(400, GlobusTaskMonitoringServiceBean.getCheckInterval(50, 35));
+        // capped at 16 times the polling interval:
+        assertEquals(800, GlobusTaskMonitoringServiceBean.getCheckInterval(50, 40));
+        assertEquals(800, GlobusTaskMonitoringServiceBean.getCheckInterval(50, 1000));
+    }
+
+    @Test
+    public void testIsTaskCompleted() {
+        // unknown, not completed:
+        assertFalse(GlobusServiceBean.isTaskCompleted(null));
+        assertTrue(GlobusServiceBean.isTaskCompleted(task(null, null)));
+        assertFalse(GlobusServiceBean.isTaskCompleted(task("ACTIVE", "OK")));
+        assertFalse(GlobusServiceBean.isTaskCompleted(task("ACTIVE", "Queued")));
+        assertTrue(GlobusServiceBean.isTaskCompleted(task("ACTIVE", "PERMISSION_DENIED")));
+        assertTrue(GlobusServiceBean.isTaskCompleted(task("SUCCEEDED", null)));
+        assertTrue(GlobusServiceBean.isTaskCompleted(task("FAILED", null)));
+    }
+
+    @Test
+    public void testUnlistedTaskIsRescheduled() throws Exception {
+        GlobusTaskMonitoringServiceBean monitor = monitor();
+        GlobusTaskInProgress taskInProgress = taskInProgress(GlobusTaskMonitoringServiceBean.MAX_MISSES - 2);
+        when(monitor.globusService.findTasksDue()).thenReturn(List.of(taskInProgress));
+
+        monitor.checkTasksInProgress(null);
+
+        verify(monitor.globusService).rescheduleTask(eq(taskInProgress), any(), eq(GlobusTaskMonitoringServiceBean.MAX_MISSES - 1));
+        verify(monitor.globusService, never()).processCompletedTask(any(), any());
+    }
+
+    @Test
+    public void testUnlistedTaskIsGivenUpOn() throws Exception {
+        GlobusTaskMonitoringServiceBean monitor = monitor();
+        GlobusTaskInProgress taskInProgress = taskInProgress(GlobusTaskMonitoringServiceBean.MAX_MISSES - 1);
+        when(monitor.globusService.findTasksDue()).thenReturn(List.of(taskInProgress));
+        when(monitor.globusService.claimTask(taskInProgress)).thenReturn(true);
+
+        monitor.checkTasksInProgress(null);
+
+        // processed as failed:
+        verify(monitor.globusService).processCompletedTask(eq(taskInProgress), isNull());
+        verify(monitor.globusService, never()).rescheduleTask(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testListedTaskResetsTheMisses() throws Exception {
+        GlobusTaskMonitoringServiceBean monitor = monitor();
+        GlobusTaskInProgress taskInProgress = taskInProgress(GlobusTaskMonitoringServiceBean.MAX_MISSES - 1);
+        when(monitor.globusService.findTasksDue()).thenReturn(List.of(taskInProgress));
+        when(monitor.globusService.getTasks(any(), any())).thenReturn(Map.of("task-1", task("ACTIVE", "OK")));
+
+        monitor.checkTasksInProgress(null);
+
+        verify(monitor.globusService).rescheduleTask(eq(taskInProgress), any(), eq(0));
+    }
+
+    private static GlobusTaskMonitoringServiceBean monitor() throws Exception {
+        GlobusTaskMonitoringServiceBean monitor = new GlobusTaskMonitoringServiceBean();
+        monitor.globusService = mock(GlobusServiceBean.class);
+        when(monitor.globusService.getGlobusEndpoint(any())).thenReturn(new GlobusEndpoint("endpoint", "token", "/"));
+        when(monitor.globusService.getTasks(any(), any())).thenReturn(Map.of());
+        when(monitor.globusService.getPollingInterval()).thenReturn(50);
+        return monitor;
+    }
+
+    private static GlobusTaskInProgress taskInProgress(int missCount) {
+        GlobusTaskInProgress taskInProgress = new GlobusTaskInProgress("task-1", GlobusTaskInProgress.TaskType.UPLOAD,
+                new Dataset(), new AuthenticatedUser(), null, null, null, new Timestamp(0), new Timestamp(0));
+        taskInProgress.setMissCount(missCount);
+        return taskInProgress;
+    }
+
+    private static GlobusTask task(String status, String niceStatus) {
+        GlobusTask task = new GlobusTask();
+        task.setStatus(status);
+        task.setNice_status(niceStatus);
+        return task;
+    }
+}
@@ -2,10 +2,18 @@ package edu.harvard.iq.dataverse.util;
 
 import edu.harvard.iq.dataverse.*;
 import edu.harvard.iq.dataverse.license.License;
+import edu.harvard.iq.dataverse.datasetutility.FileExceedsMaxSizeException;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
 import edu.harvard.iq.dataverse.util.FileUtil.FileCitationExtension;
+import edu.harvard.iq.dataverse.util.file.SavedUpload;
+import edu.harvard.iq.dataverse.util.testing.JvmSetting;
+import edu.harvard.iq.dataverse.util.testing.LocalJvmSettings;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.net.URI;
 import java.util.logging.Level;
@@ -20,9 +28,11 @@ import org.junit.jupiter.params.provider.MethodSource;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+@LocalJvmSettings
 public class FileUtilTest {
     
     static Stream<Arguments> dataFilenames() {
@@ -434,4 +444,41 @@ public class FileUtilTest {
         assertEquals("Code", FileUtil.getIndexableFacetFileType(dockerDataFile));
     }
 
+    @Test
+    @JvmSetting(key = JvmSettings.FILES_DIRECTORY, value = "target/fileutil-test")
+    public void testSaveInputStreamInTempFile() throws Exception {
+        Files.createDirectories(Path.of(FileUtil.getFilesTempDirectory()));
+        byte[] content = new byte[200 * 1024 + 17];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+
+        SavedUpload savedUpload = FileUtil.saveInputStreamInTempFile(new ByteArrayInputStream(content), (long) content.length, null, DataFile.ChecksumType.MD5);
+        try {
+            assertEquals(content.length, savedUpload.size());
+            assertEquals(content.length, savedUpload.file().length());
+            assertEquals(FileUtil.calculateChecksum(content, DataFile.ChecksumType.MD5), savedUpload.checksum());
+        } finally {
+            savedUpload.file().delete();
+        }
+    }
+
+    @Test
+    @JvmSetting(key = JvmSettings.FILES_DIRECTORY, value = "target/fileutil-test")
+    public void testSaveInputStreamInTempFileOverLimit() throws Exception {
+        Path tempDirectory = Files.createDirectories(Path.of(FileUtil.getFilesTempDirectory()));
+        long filesBefore;
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            filesBefore = files.count();
+        }
+
+        assertThrows(FileExceedsMaxSizeException.class,
+                () -> FileUtil.saveInputStreamInTempFile(new ByteArrayInputStream(new byte[1024 * 1024]), 1000L, null, DataFile.ChecksumType.MD5));
+
+        // the partial temp file must not be left behind:
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            assertEquals(filesBefore, files.count());
+        }
+    }
+
 }
@@ -0,0 +1,41 @@
+package edu.harvard.iq.dataverse.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class PagedIteratorTest {
+
+    private final List<Integer> lookups = new ArrayList<>();
+
+    // pages of 3, from the numbers 1 to 7
+    private List<Integer> nextPage(Integer last) {
+        lookups.add(last);
+        int from = (last == null) ? 1 : last + 1;
+        return IntStream.range(from, Math.min(from + 3, 8)).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testIteratesOverAllPages() {
+        List<Integer> results = new ArrayList<>();
+        new PagedIterator<Integer>(this::nextPage).forEachRemaining(results::add);
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), results);
+        // each page is looked up from the last result of the previous one, up to an empty page:
+        assertEquals(java.util.Arrays.asList(null, 3, 6, 7), lookups);
+    }
+
+    @Test
+    public void testEmpty() {
+        PagedIterator<Integer> iterator = new PagedIterator<>(last -> List.of());
+
+        assertFalse(iterator.hasNext());
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+}
@@ -19,7 +19,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -229,6 +231,43 @@ public class BagValidatorTest {
         Mockito.verify(target).getMessage(Mockito.eq("bagit.validation.exception"), Mockito.any());
     }
 
+    @Test
+    public void validateChecksums_should_report_progress_for_each_file_of_a_large_bag() throws Exception {
+        BagValidator target = new BagValidator(8, 5, 1, manifestReader);
+        List<Path> filePaths = Stream.concat(Stream.of(Path.of("bagit.txt")),
+                IntStream.range(0, 2000).mapToObj(i -> Path.of("data", "dir" + (i % 20), "file" + i + ".txt")))
+                .collect(Collectors.toList());
+        FileDataProvider fileDataProvider = new StringDataProvider(false, filePaths);
+        ManifestChecksum checksums = createChecksums(fileDataProvider.getFilePaths(), true);
+        Mockito.when(manifestReader.getManifestChecksums(fileDataProvider, Path.of(""))).thenReturn(Optional.of(checksums));
+        AtomicLong progressCalls = new AtomicLong();
+        AtomicLong maxValidated = new AtomicLong();
+
+        BagValidation result = target.validateChecksums(fileDataProvider, (filesValidated, totalFiles) -> {
+            MatcherAssert.assertThat(totalFiles, Matchers.is((long) filePaths.size()));
+            progressCalls.incrementAndGet();
+            maxValidated.accumulateAndGet(filesValidated, Math::max);
+        });
+
+        MatcherAssert.assertThat(result.success(), Matchers.is(true));
+        MatcherAssert.assertThat(progressCalls.get(), Matchers.is((long) filePaths.size()));
+        MatcherAssert.assertThat(maxValidated.get(), Matchers.is((long) filePaths.size()));
+    }
+
+    @Test
+    public void validateChecksums_should_stop_at_first_error_when_max_errors_is_zero() throws Exception {
+        BagValidator target = new BagValidator(1, 0, 0, manifestReader);
+        FileDataProvider fileDataProvider = createDataProviderWithRandomFiles("bagit.txt");
+        ManifestChecksum checksums = createChecksums(fileDataProvider.getFilePaths(), false);
+        Mockito.when(manifestReader.getManifestChecksums(fileDataProvider, Path.of(""))).thenReturn(Optional.of(checksums));
+
+        BagValidation result = target.validateChecksums(fileDataProvider);
+
+        MatcherAssert.assertThat(result.success(), Matchers.is(false));
+        MatcherAssert.assertThat(result.errors(), Matchers.is(1l));
+        MatcherAssert.assertThat(result.getFileResults().values().stream().filter(item -> item.isPending()).count(), Matchers.is((long) checksums.getFileChecksums().size() - 1));
+    }
+
     private FileDataProvider createDataProviderWithRandomFiles(String... filePathItems) {
         return createDataProviderWithRandomFiles(false, filePathItems);
     }
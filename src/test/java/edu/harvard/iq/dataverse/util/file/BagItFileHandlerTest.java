@@ -109,7 +109,7 @@ public class BagItFileHandlerTest {
         DataProviderWithDataFiles dataProviderWithDataFiles = createDataProviderWithDataFiles(bagEntry1, bagEntry2);
         FileDataProvider dataProviderSpy = Mockito.spy(dataProviderWithDataFiles.dataProvider);
         Mockito.when(fileDataProviderFactory.getFileDataProvider(FILE)).thenReturn(dataProviderSpy);
-        Mockito.when(bagValidator.validateChecksums(Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
+        Mockito.when(bagValidator.validateChecksums(Mockito.any(), Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
 
 
         CreateDataFileResult result = target.handleBagItPackage(SYSTEM_CONFIG, DATASET_VERSION, FILE.getName(), FILE);
@@ -130,7 +130,7 @@ public class BagItFileHandlerTest {
         DataProviderWithDataFiles dataProviderWithDataFiles = createDataProviderWithDataFiles(bagEntry);
         FileDataProvider dataProviderSpy = Mockito.spy(dataProviderWithDataFiles.dataProvider);
         Mockito.when(fileDataProviderFactory.getFileDataProvider(FILE)).thenReturn(dataProviderSpy);
-        Mockito.when(bagValidator.validateChecksums(Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
+        Mockito.when(bagValidator.validateChecksums(Mockito.any(), Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
 
 
         CreateDataFileResult result = target.handleBagItPackage(SYSTEM_CONFIG, DATASET_VERSION, FILE.getName(), FILE);
@@ -148,7 +148,7 @@ public class BagItFileHandlerTest {
         DataProviderWithDataFiles dataProviderWithDataFiles = createDataProviderWithDataFiles(bagEntry);
         FileDataProvider dataProviderSpy = Mockito.spy(dataProviderWithDataFiles.dataProvider);
         Mockito.when(fileDataProviderFactory.getFileDataProvider(FILE)).thenReturn(dataProviderSpy);
-        Mockito.when(bagValidator.validateChecksums(Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
+        Mockito.when(bagValidator.validateChecksums(Mockito.any(), Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
         Mockito.when(FILE_UTIL.determineFileType(Mockito.any(), Mockito.any())).thenReturn("TEST_TYPE");
 
 
@@ -171,7 +171,7 @@ public class BagItFileHandlerTest {
         DataProviderWithDataFiles dataProviderWithDataFiles = createDataProviderWithDataFiles(bagEntry);
         FileDataProvider dataProviderSpy = Mockito.spy(dataProviderWithDataFiles.dataProvider);
         Mockito.when(fileDataProviderFactory.getFileDataProvider(FILE)).thenReturn(dataProviderSpy);
-        Mockito.when(bagValidator.validateChecksums(Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
+        Mockito.when(bagValidator.validateChecksums(Mockito.any(), Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
         Mockito.when(FILE_UTIL.determineFileType(Mockito.any(), Mockito.any())).thenThrow(new IOException("Error"));
 
 
@@ -194,7 +194,7 @@ public class BagItFileHandlerTest {
         DataProviderWithDataFiles dataProviderWithDataFiles = createDataProviderWithDataFiles(bagEntry, returnNullDataFile);
         FileDataProvider dataProviderSpy = Mockito.spy(dataProviderWithDataFiles.dataProvider);
         Mockito.when(fileDataProviderFactory.getFileDataProvider(FILE)).thenReturn(dataProviderSpy);
-        Mockito.when(bagValidator.validateChecksums(Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
+        Mockito.when(bagValidator.validateChecksums(Mockito.any(), Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
 
 
         CreateDataFileResult result = target.handleBagItPackage(SYSTEM_CONFIG, DATASET_VERSION, FILE.getName(), FILE);
@@ -217,7 +217,7 @@ public class BagItFileHandlerTest {
         DataProviderWithDataFiles dataProviderWithDataFiles = createDataProviderWithDataFiles(bagEntry, exceptionDataFile);
         FileDataProvider dataProviderSpy = Mockito.spy(dataProviderWithDataFiles.dataProvider);
         Mockito.when(fileDataProviderFactory.getFileDataProvider(FILE)).thenReturn(dataProviderSpy);
-        Mockito.when(bagValidator.validateChecksums(Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
+        Mockito.when(bagValidator.validateChecksums(Mockito.any(), Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
 
         Mockito.when(FILE_UTIL.saveInputStreamInTempFile(Mockito.any(), Mockito.any()))
                 .thenReturn(new File("test"))
@@ -240,7 +240,7 @@ public class BagItFileHandlerTest {
         DataProviderWithDataFiles dataProviderWithDataFiles = createDataProviderWithDataFiles(UUID.randomUUID().toString(), UUID.randomUUID().toString());
         FileDataProvider dataProviderSpy = Mockito.spy(dataProviderWithDataFiles.dataProvider);
         Mockito.when(fileDataProviderFactory.getFileDataProvider(FILE)).thenReturn(dataProviderSpy);
-        Mockito.when(bagValidator.validateChecksums(Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
+        Mockito.when(bagValidator.validateChecksums(Mockito.any(), Mockito.any())).thenReturn(BAG_VALIDATION_SUCCESS);
 
 
         CreateDataFileResult result = target.handleBagItPackage(SYSTEM_CONFIG, DATASET_VERSION, FILE.getName(), FILE);
@@ -257,7 +257,7 @@ public class BagItFileHandlerTest {
         DataProviderWithDataFiles dataProviderWithDataFiles = createDataProviderWithDataFiles(UUID.randomUUID().toString());
         FileDataProvider dataProviderSpy = Mockito.spy(dataProviderWithDataFiles.dataProvider);
         Mockito.when(fileDataProviderFactory.getFileDataProvider(FILE)).thenReturn(dataProviderSpy);
-        Mockito.when(bagValidator.validateChecksums(Mockito.any())).thenReturn(new BagValidation(Optional.of("ERROR")));
+        Mockito.when(bagValidator.validateChecksums(Mockito.any(), Mockito.any())).thenReturn(new BagValidation(Optional.of("ERROR")));
 
 
         CreateDataFileResult result = target.handleBagItPackage(SYSTEM_CONFIG, DATASET_VERSION, FILE.getName(), FILE);
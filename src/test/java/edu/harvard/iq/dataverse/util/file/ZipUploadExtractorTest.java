@@ -0,0 +1,186 @@
+package edu.harvard.iq.dataverse.util.file;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.datasetutility.FileExceedsMaxSizeException;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.FileUtil;
+import edu.harvard.iq.dataverse.util.testing.JvmSetting;
+import edu.harvard.iq.dataverse.util.testing.LocalJvmSettings;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@LocalJvmSettings
+public class ZipUploadExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ZipUploadExtractor extractor;
+
+    @BeforeEach
+    public void setUp() {
+        extractor = new ZipUploadExtractor();
+        extractor.managedThreadFactory = mock(ManagedThreadFactory.class);
+        when(extractor.managedThreadFactory.newThread(any(Runnable.class)))
+                .thenAnswer(invocation -> new Thread((Runnable) invocation.getArgument(0)));
+        extractor.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        extractor.shutdown();
+    }
+
+    @Test
+    public void testNestedPaths() {
+        assertEquals("data.csv", ZipUploadExtractor.getShortName("project/raw/data.csv"));
+        assertEquals("project/raw", ZipUploadExtractor.getDirectoryLabel("project/raw/data.csv"));
+        assertEquals("project/raw", ZipUploadExtractor.getDirectoryLabel("/project//raw/data.csv"));
+        assertNull(ZipUploadExtractor.getDirectoryLabel("data.csv"));
+    }
+
+    @Test
+    public void testZipSlipEntries() {
+        assertEquals("passwd", ZipUploadExtractor.getShortName("../../etc/passwd"));
+        assertEquals("etc", ZipUploadExtractor.getDirectoryLabel("../../etc/passwd"));
+        assertEquals("a/./b", ZipUploadExtractor.getDirectoryLabel("a/../b/data.csv"));
+        assertNull(ZipUploadExtractor.getDirectoryLabel("../data.csv"));
+        assertNull(ZipUploadExtractor.getDirectoryLabel("/data.csv"));
+    }
+
+    @Test
+    @JvmSetting(key = JvmSettings.FILES_DIRECTORY, value = "target/zipupload-test")
+    public void testZipSlipEntriesAreExtractedToTempFiles() throws Exception {
+        Path tempDirectory = Files.createDirectories(Path.of(FileUtil.getFilesTempDirectory()));
+        Path zip = createZip(Map.of("../../evil.txt", "evil", "../sibling/evil.txt", "evil"));
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            List<ZipEntry> entries = ZipUploadExtractor.findUnpackableEntries(zipFile, 10, null);
+            List<ZipUploadExtractor.ExtractedEntry> extracted = extractor.extractAll(zipFile, entries, null, DataFile.ChecksumType.MD5);
+            try {
+                assertEquals(2, extracted.size());
+                for (ZipUploadExtractor.ExtractedEntry entry : extracted) {
+                    // the entry names are never used as paths:
+                    assertEquals(tempDirectory.toRealPath(), entry.savedUpload().file().toPath().toRealPath().getParent());
+                    assertEquals(4, entry.savedUpload().size());
+                }
+            } finally {
+                extracted.forEach(entry -> entry.savedUpload().file().delete());
+            }
+        }
+    }
+
+    @Test
+    public void testSkippedEntries() throws Exception {
+        Map<String, String> content = new LinkedHashMap<>();
+        content.put("folder/", "");
+        content.put("__MACOSX/folder/._data.csv", "resource fork");
+        content.put("folder/.DS_Store", "finder");
+        content.put("folder/data.csv", "a,b");
+        Path zip = createZip(content);
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            List<ZipEntry> entries = ZipUploadExtractor.findUnpackableEntries(zipFile, 10, null);
+            assertEquals(1, entries.size());
+            assertEquals("folder/data.csv", entries.get(0).getName());
+        }
+    }
+
+    @Test
+    public void testEntryLimit() throws Exception {
+        Map<String, String> content = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            content.put("file" + i + ".txt", "content");
+        }
+        // directories are not counted:
+        content.put("folder/", "");
+        Path zip = createZip(content);
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals(4, ZipUploadExtractor.findUnpackableEntries(zipFile, 4, null).size());
+            assertThrows(ZipUploadExtractor.TooManyEntriesException.class,
+                    () -> ZipUploadExtractor.findUnpackableEntries(zipFile, 3, null));
+        }
+    }
+
+    @Test
+    public void testDeclaredSizeLimit() throws Exception {
+        Path zip = createZip(Map.of("small.txt", "12345", "large.txt", "1234567890"));
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals(2, ZipUploadExtractor.findUnpackableEntries(zipFile, 10, 10L).size());
+            assertThrows(FileExceedsMaxSizeException.class,
+                    () -> ZipUploadExtractor.findUnpackableEntries(zipFile, 10, 9L));
+        }
+    }
+
+    @Test
+    @JvmSetting(key = JvmSettings.FILES_DIRECTORY, value = "target/zipupload-test")
+    public void testExtractedSizeLimit() throws Exception {
+        Path tempDirectory = Files.createDirectories(Path.of(FileUtil.getFilesTempDirectory()));
+        long filesBefore;
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            filesBefore = files.count();
+        }
+        Map<String, String> content = new LinkedHashMap<>();
+        for (int i = 0; i < 8; i++) {
+            content.put("small" + i + ".txt", "12345");
+        }
+        content.put("large.txt", "1234567890");
+        Path zip = createZip(content);
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            List<ZipEntry> entries = ZipUploadExtractor.findUnpackableEntries(zipFile, 10, null);
+            // the limit is enforced on the bytes actually unpacked, not only
+            // on the sizes the archive declares:
+            assertThrows(FileExceedsMaxSizeException.class,
+                    () -> extractor.extractAll(zipFile, entries, 9L, DataFile.ChecksumType.MD5));
+        }
+
+        // the entries unpacked before the failure are removed:
+        for (int i = 0; i < 100 && countFiles(tempDirectory) > filesBefore; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(filesBefore, countFiles(tempDirectory));
+    }
+
+    private Path createZip(Map<String, String> content) throws IOException {
+        Path zip = Files.createTempFile(tempDir, "upload", ".zip");
+        try (OutputStream out = Files.newOutputStream(zip); ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : content.entrySet()) {
+                zipOut.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOut.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOut.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
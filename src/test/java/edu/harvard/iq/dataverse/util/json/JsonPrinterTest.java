@@ -10,6 +10,7 @@ import edu.harvard.iq.dataverse.privateurl.PrivateUrl;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 import edu.harvard.iq.dataverse.UserNotification.Type;
 
+import java.io.StringWriter;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -19,10 +20,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import jakarta.json.Json;
 import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
 import jakarta.json.JsonString;
+import jakarta.json.stream.JsonGenerator;
 
 import edu.harvard.iq.dataverse.util.BundleUtil;
 import org.junit.jupiter.api.Test;
@@ -183,6 +186,32 @@ public class JsonPrinterTest {
         assertEquals("Some reason", jsonObject.getJsonObject("dataFile").getJsonObject("embargo").getString("reason"));
     }
 
+    @Test
+    public void testWriteFileMetadatas() {
+        DatasetVersion dsVersion = new DatasetVersion();
+        dsVersion.setId(1L);
+        List<FileMetadata> fmds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            DataFile dataFile = new DataFile();
+            dataFile.setId(10L + i);
+            dataFile.setContentType("text/plain");
+            FileMetadata fmd = new FileMetadata();
+            fmd.setLabel("file" + i + ".txt");
+            fmd.setDescription("File \"" + i + "\" \u00e9");
+            fmd.setDatasetVersion(dsVersion);
+            fmd.setDataFile(dataFile);
+            fmds.add(fmd);
+        }
+
+        StringWriter written = new StringWriter();
+        try (JsonGenerator generator = Json.createGenerator(written)) {
+            JsonPrinter.writeFileMetadatas(generator, fmds);
+        }
+
+        // the same bytes as the (non-streaming) printer:
+        assertEquals(JsonPrinter.jsonFileMetadatas(fmds).build().toString(), written.toString());
+    }
+
     @Test
     public void testDatasetContactOutOfBoxNoPrivacy() {
         MetadataBlock block = new MetadataBlock();
@@ -0,0 +1,87 @@
+package edu.harvard.iq.dataverse.workflow;
+
+import jakarta.ejb.SessionContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WorkflowServiceBeanTest {
+
+    private WorkflowServiceBean workflowService;
+    private WorkflowServiceBean self;
+    private Workflow workflow;
+    private WorkflowContext context;
+
+    @BeforeEach
+    public void setUp() {
+        workflowService = new WorkflowServiceBean();
+        workflowService.workflowExecutor = mock(WorkflowExecutorServiceBean.class);
+        workflowService.transactionRegistry = mock(TransactionSynchronizationRegistry.class);
+        workflowService.sessionContext = mock(SessionContext.class);
+        self = mock(WorkflowServiceBean.class);
+        when(workflowService.sessionContext.getBusinessObject(WorkflowServiceBean.class)).thenReturn(self);
+
+        workflow = new Workflow();
+        context = mock(WorkflowContext.class);
+        when(context.getInvocationId()).thenReturn("invocation-1");
+    }
+
+    @Test
+    public void testStartIsDeferredUntilCommit() throws Exception {
+        when(workflowService.transactionRegistry.getTransactionKey()).thenReturn(new Object());
+
+        workflowService.start(workflow, context, true);
+
+        // nothing runs while the caller's transaction is open:
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(workflowService.transactionRegistry).registerInterposedSynchronization(synchronization.capture());
+        verify(workflowService.workflowExecutor, never()).execute(any());
+
+        synchronization.getValue().beforeCompletion();
+        verify(workflowService.workflowExecutor, never()).execute(any());
+
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(workflowService.workflowExecutor).execute(task.capture());
+
+        task.getValue().run();
+        verify(self).runWorkflow(workflow, context, true);
+    }
+
+    @Test
+    public void testStartIsDroppedOnRollback() throws Exception {
+        when(workflowService.transactionRegistry.getTransactionKey()).thenReturn(new Object());
+
+        workflowService.start(workflow, context, false);
+
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(workflowService.transactionRegistry).registerInterposedSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_ROLLEDBACK);
+
+        verify(workflowService.workflowExecutor, never()).execute(any());
+        verify(self, never()).runWorkflow(any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void testStartWithoutTransactionRunsRightAway() throws Exception {
+        when(workflowService.transactionRegistry.getTransactionKey()).thenReturn(null);
+
+        workflowService.start(workflow, context, false);
+
+        verify(workflowService.transactionRegistry, never()).registerInterposedSynchronization(any());
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(workflowService.workflowExecutor).execute(task.capture());
+        task.getValue().run();
+        verify(self).runWorkflow(workflow, context, false);
+    }
+}
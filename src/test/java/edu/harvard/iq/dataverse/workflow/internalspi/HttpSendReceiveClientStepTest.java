@@ -0,0 +1,140 @@
+package edu.harvard.iq.dataverse.workflow.internalspi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.harvard.iq.dataverse.Dataset;
+import edu.harvard.iq.dataverse.GlobalId;
+import edu.harvard.iq.dataverse.workflow.WorkflowContext;
+import edu.harvard.iq.dataverse.workflow.step.Failure;
+import edu.harvard.iq.dataverse.workflow.step.Pending;
+import edu.harvard.iq.dataverse.workflow.step.WorkflowStepResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HttpSendReceiveClientStepTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUri;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final CountDownLatch releaseSlowRequests = new CountDownLatch(1);
+    private WorkflowContext context;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        // A stub remote system: /ok accepts the request, /error fails it,
+        // /slow doesn't answer until the test is over.
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ok", exchange -> respond(exchange, 202, "accepted"));
+        server.createContext("/error", exchange -> respond(exchange, 500, "no can do"));
+        server.createContext("/rollback", exchange -> respond(exchange, 200, "rolled back"));
+        server.createContext("/slow", exchange -> {
+            try {
+                releaseSlowRequests.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "too late");
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUri = "http://localhost:" + server.getAddress().getPort();
+
+        Dataset dataset = mock(Dataset.class);
+        when(dataset.getId()).thenReturn(42L);
+        when(dataset.getIdentifier()).thenReturn("FK2/ABCDEF");
+        when(dataset.getGlobalId()).thenReturn(new GlobalId("doi", "10.5072", "FK2/ABCDEF", "/", "https://doi.org/", null));
+        context = mock(WorkflowContext.class);
+        when(context.getDataset()).thenReturn(dataset);
+        when(context.getInvocationId()).thenReturn("invocation-1");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        releaseSlowRequests.countDown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " "
+                    + new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    @Test
+    public void testSuccessfulRequestPauses() {
+        HttpSendReceiveClientStep step = new HttpSendReceiveClientStep(Map.of(
+                "url", baseUri + "/ok?id=${dataset.id}",
+                "method", "POST",
+                "body", "${invocationId} ${dataset.globalId}"));
+
+        WorkflowStepResult result = step.run(context);
+
+        assertInstanceOf(Pending.class, result);
+        assertEquals(List.of("POST /ok?id=42 invocation-1 doi:10.5072/FK2/ABCDEF"), requests);
+    }
+
+    @Test
+    public void testErrorResponseFailsAndRollsBack() {
+        HttpSendReceiveClientStep step = new HttpSendReceiveClientStep(Map.of(
+                "url", baseUri + "/error",
+                "rollbackUrl", baseUri + "/rollback?id=${invocationId}",
+                "method-rollback", "DELETE"));
+
+        WorkflowStepResult result = step.run(context);
+
+        assertInstanceOf(Failure.class, result);
+        assertTrue(((Failure) result).getReason().contains("no can do (500)"), ((Failure) result).getReason());
+        assertEquals(List.of("GET /error ", "DELETE /rollback?id=invocation-1 "), requests);
+    }
+
+    @Test
+    public void testUnresponsiveServerTimesOut() {
+        HttpSendReceiveClientStep step = new HttpSendReceiveClientStep(Map.of(
+                "url", baseUri + "/slow",
+                "timeout", "1"));
+
+        long start = System.currentTimeMillis();
+        WorkflowStepResult result = step.run(context);
+
+        assertInstanceOf(Failure.class, result);
+        assertTrue(System.currentTimeMillis() - start < 10000, "the step waited for the server past its timeout");
+    }
+
+    @Test
+    public void testUnsupportedMethodFails() {
+        HttpSendReceiveClientStep step = new HttpSendReceiveClientStep(Map.of(
+                "url", baseUri + "/ok",
+                "method", "PATCH"));
+
+        assertInstanceOf(Failure.class, step.run(context));
+        assertTrue(requests.isEmpty());
+    }
+}
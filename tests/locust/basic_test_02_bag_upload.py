@@ -0,0 +1,21 @@
+from locust import HttpLocust, TaskSet
+from dataverse_tasks import upload_bag
+import requests
+requests.packages.urllib3.disable_warnings()
+
+
+class BagUploadBehavior(TaskSet):
+    tasks = {
+                upload_bag: 100,
+    }
+
+
+class WebsiteUser(HttpLocust):
+    task_set = BagUploadBehavior
+    min_wait = 5000     # min pause before new task
+    max_wait = 20000    # max pause before new task
+
+"""
+locust -f basic_test_02_bag_upload.py
+http://127.0.0.1:8089/
+"""
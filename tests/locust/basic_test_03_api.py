@@ -0,0 +1,22 @@
+from locust import HttpLocust, TaskSet
+from dataverse_tasks import random_dataset_version_api, random_dataset_versions_api
+import requests
+requests.packages.urllib3.disable_warnings()
+
+
+class DatasetApiBehavior(TaskSet):
+    tasks = {
+                random_dataset_version_api: 50,
+                random_dataset_versions_api: 50,
+    }
+
+
+class WebsiteUser(HttpLocust):
+    task_set = DatasetApiBehavior
+    min_wait = 5000     # min pause before new task
+    max_wait = 20000    # max pause before new task
+
+"""
+locust -f basic_test_03_api.py
+http://127.0.0.1:8089/
+"""
@@ -1,5 +1,13 @@
-from locust_settings import get_settings_info, KEY_PERSISTENT_IDS
+from locust_settings import get_settings_info, KEY_PERSISTENT_IDS, KEY_API_TOKEN, KEY_UPLOAD_PERSISTENT_ID
+import hashlib
+import io
+import json
 import random
+import zipfile
+
+# the size of the synthetic bags uploaded by upload_bag
+BAG_FILE_COUNT = 2000
+BAG_FILE_SIZE = 1024
 
 
 def get_locust_request_kwargs():
@@ -26,4 +34,75 @@ def random_dataset_page(l):
     l.client.get(dataset_url, **get_locust_request_kwargs())
 
 
+def random_dataset_version_api(l):
+    """
+    Gets the latest version of a dataset, with its files, from the API (the
+    files are streamed).
+    """
+    msg('> random_dataset_version_api')
+
+    random_id = random_persistent_id()
+
+    version_url = '/api/datasets/:persistentId/versions/:latest?persistentId=%s&includeFiles=true' % random_id
+
+    l.client.get(version_url, name='/api/datasets/:persistentId/versions/:latest', **get_locust_request_kwargs())
+
+
+def random_dataset_versions_api(l):
+    """
+    Lists all the versions of a dataset, with their files, from the API
+    (each version is looked up with DatasetVersionServiceBean.findDeep).
+    """
+    msg('> random_dataset_versions_api')
+
+    random_id = random_persistent_id()
+
+    versions_url = '/api/datasets/:persistentId/versions?persistentId=%s&includeFiles=true' % random_id
+
+    l.client.get(versions_url, name='/api/datasets/:persistentId/versions', **get_locust_request_kwargs())
+
+
+def random_persistent_id():
+    persistent_ids = get_settings_info(KEY_PERSISTENT_IDS)
+    assert persistent_ids is not None, 'No values found in creds file for %s' % KEY_PERSISTENT_IDS
+    assert len(
+        persistent_ids) > 0, 'No values found in creds file for list %s' % KEY_PERSISTENT_IDS
+
+    return random.choice(persistent_ids)
+
+
+def upload_bag(l):
+    """
+    Uploads a synthetic BagIt bag (BAG_FILE_COUNT files) to the dataset
+    UPLOAD_PERSISTENT_ID, to time the validation of its checksums. Needs
+    :BagItHandlerEnabled; every run adds a file to the dataset.
+    """
+    msg('> upload_bag')
+
+    persistent_id = get_settings_info(KEY_UPLOAD_PERSISTENT_ID)
+    api_token = get_settings_info(KEY_API_TOKEN)
+
+    upload_url = '/api/datasets/:persistentId/add?persistentId=%s' % persistent_id
+    l.client.post(upload_url,
+                  headers={'X-Dataverse-key': api_token},
+                  files={'file': ('bag.zip', make_bag(BAG_FILE_COUNT, BAG_FILE_SIZE), 'application/zip')},
+                  data={'jsonData': json.dumps({'description': 'locust bag upload'})},
+                  name='/api/datasets/:persistentId/add (bag)',
+                  **get_locust_request_kwargs())
+
+
+def make_bag(file_count, file_size):
+    bag = io.BytesIO()
+    manifest = []
+    with zipfile.ZipFile(bag, 'w', zipfile.ZIP_DEFLATED) as zip_file:
+        for i in range(file_count):
+            path = 'data/file_%d.txt' % i
+            content = (('%d ' % i) * file_size)[:file_size].encode('ascii')
+            zip_file.writestr('bag/' + path, content)
+            manifest.append('%s  %s' % (hashlib.sha256(content).hexdigest(), path))
+        zip_file.writestr('bag/bagit.txt', 'BagIt-Version: 1.0\nTag-File-Character-Encoding: UTF-8\n')
+        zip_file.writestr('bag/manifest-sha256.txt', '\n'.join(manifest) + '\n')
+    return bag.getvalue()
+
+
 def msg(s): print s
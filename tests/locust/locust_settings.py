@@ -2,6 +2,8 @@ from os.path import isfile, join, dirname, abspath
 import json
 
 KEY_PERSISTENT_IDS = 'PERSISTENT_IDS'
+KEY_API_TOKEN = 'API_TOKEN'
+KEY_UPLOAD_PERSISTENT_ID = 'UPLOAD_PERSISTENT_ID'
 STRESS_TEST_DIR = dirname(abspath(__file__))
 SETTINGS_FILE = join(STRESS_TEST_DIR, 'settings.json')
 